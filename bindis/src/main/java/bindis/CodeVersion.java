@@ -0,0 +1,105 @@
+package bindis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Derives a version for the code of a set of classes from the build. The version consists of the project version
+ * recorded in the manifests of the jars and a hash over the jars or class directories that contain the classes. Thus
+ * any rebuild that changes one of the classes results in a different version.
+ */
+final class CodeVersion {
+  private static final int bufferSize = 8192;
+
+  private CodeVersion () {
+  }
+
+  /**
+   * Return the version of the code of the given classes. If the code of a class cannot be located or read the version
+   * is unique to this JVM, i.e. it does not match any version computed before.
+   */
+  static String of (Class<?>... classes) {
+    try {
+      Set<String> implementationVersions = new LinkedHashSet<>();
+      Set<URI> locations = new LinkedHashSet<>();
+      for (Class<?> clazz : classes) {
+        Package pkg = clazz.getPackage();
+        if (pkg != null && pkg.getImplementationVersion() != null)
+          implementationVersions.add(pkg.getImplementationVersion());
+        CodeSource source = clazz.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null)
+          return unique();
+        locations.add(source.getLocation().toURI());
+      }
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      for (URI location : locations) {
+        digestLocation(digest, Paths.get(location));
+      }
+      StringBuilder builder = new StringBuilder();
+      for (String version : implementationVersions) {
+        builder.append(version).append('-');
+      }
+      for (byte b : digest.digest()) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.toString();
+    } catch (IOException | URISyntaxException | RuntimeException _) {
+      return unique();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String unique () {
+    return UUID.randomUUID().toString();
+  }
+
+  private static void digestLocation (MessageDigest digest, final Path location) throws IOException {
+    if (!Files.isDirectory(location)) {
+      digestFile(digest, location);
+      return;
+    }
+    final List<String> classFiles = new ArrayList<>();
+    Files.walkFileTree(location, new SimpleFileVisitor<Path>() {
+      @Override public FileVisitResult visitFile (Path file, BasicFileAttributes attributes) {
+        if (file.getFileName().toString().endsWith(".class"))
+          classFiles.add(location.relativize(file).toString());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    // sort the files so that the hash does not depend on the order of the directory entries
+    Collections.sort(classFiles);
+    for (String classFile : classFiles) {
+      digest.update(classFile.getBytes(StandardCharsets.UTF_8));
+      digestFile(digest, location.resolve(classFile));
+    }
+  }
+
+  private static void digestFile (MessageDigest digest, Path file) throws IOException {
+    byte[] buffer = new byte[bufferSize];
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+  }
+}
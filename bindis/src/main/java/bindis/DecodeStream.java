@@ -22,6 +22,22 @@ public final class DecodeStream {
     this.data.order(ByteOrder.LITTLE_ENDIAN);
   }
 
+  /**
+   * Build a stream that reads from the given buffer without copying it. The buffer is usually shared, e.g. the
+   * data of a segment, thus the stream reads from a view of the buffer that does not change the buffer's position or
+   * byte order. The buffer must be direct to be usable by native decoders.
+   *
+   * @param data The buffer with the code.
+   * @param idx The absolute index in the buffer at which to start decoding.
+   */
+  public DecodeStream (ByteBuffer data, int idx) {
+    this.data = data.duplicate();
+    this.data.clear();
+    this.idx = idx;
+    mark = idx;
+    this.data.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
   public DecodeStream (byte[] data) {
     this(data, 0);
   }
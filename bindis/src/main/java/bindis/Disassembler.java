@@ -1,20 +1,39 @@
 package bindis;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import rreil.disassembler.BlockOfInstructions;
+import rreil.disassembler.BlockOptimizer;
 import rreil.disassembler.Instruction;
 import rreil.disassembler.translators.common.TranslationException;
+import rreil.lang.RReil;
+import rreil.lang.RReil.Branch;
+import rreil.lang.RReil.BranchToNative;
+import rreil.lang.RReil.Native;
+import rreil.lang.RReil.Throw;
 import rreil.lang.lowlevel.LowLevelRReil;
 import rreil.lang.lowlevel.LowLevelRReilOpnd;
+import rreil.lang.lowlevel.RReilHighLevelToLowLevelWrapper;
 
 /**
  * Disassembler platforms contain the disassembler for a given architecture as well as additional information
  * about the architectures hardware characteristics such as endianess, bit-size etc.
  */
 public abstract class Disassembler {
+  /**
+   * The versions of the decoders and translators of the platforms, see {@link #getTranslatorVersion()}.
+   */
+  private static final ConcurrentMap<Class<?>, String> translatorVersions = new ConcurrentHashMap<>();
+  /**
+   * The maximum number of native instructions that are decoded into one block.
+   */
+  private static final int maxBlockSize = 64;
   private final String architectureName;
   private final int registerBaseSize;
   private final ByteOrder byteOrder;
@@ -34,6 +53,21 @@ public abstract class Disassembler {
     return architectureName;
   }
 
+  /**
+   * Identifies the decoder and translator of this platform. Translations that were persisted with a different
+   * version must not be reused. The version is derived from the build of the decoder and translator classes, thus it
+   * changes with any change to their code.
+   */
+  public String getTranslatorVersion () {
+    String version = translatorVersions.get(getClass());
+    if (version == null) {
+      version = getClass().getName() + "-" + CodeVersion.of(getClass(), Disassembler.class, RReil.class);
+      translatorVersions.putIfAbsent(getClass(), version);
+      version = translatorVersions.get(getClass());
+    }
+    return version;
+  }
+
   /**
    * Decode one instruction from the given decode-stream.
    *
@@ -59,6 +93,19 @@ public abstract class Disassembler {
     return decodeOne(in, pc);
   }
 
+  /**
+   * Decode one instruction from the given buffer at {@code offset}. The buffer is not copied.
+   *
+   * @param code Buffer carrying the opcodes, e.g. the data of a segment.
+   * @param offset The offset at which to start to disassemble.
+   * @param pc The value of the program counter to be used when decoding relative addresses.
+   * @return The decoded instruction.
+   * @throws DecodeException if instruction decoding failed.
+   */
+  public Instruction decodeOne (ByteBuffer code, int offset, long pc) throws DecodeException {
+    return decodeOne(new DecodeStream(code, offset), pc);
+  }
+
   /**
    * Decode a block of instructions from the given decode-stream. Decoding a sequence of instructions
    * allows the disassembler frontend to perform optimizations on the decoded sequence (e.g. liveness analysis).
@@ -72,6 +119,67 @@ public abstract class Disassembler {
     return new BlockOfOneInstruction(decodeOne(in, pc));
   }
 
+  /**
+   * Decode a block of instructions that ends after the first instruction that leaves the sequence, i.e. a jump, call
+   * or return, and optimize the RREIL code of the whole block with the {@link BlockOptimizer}. Can be used by
+   * platforms whose translators introduce temporaries only for the translation of a single instruction.
+   *
+   * @param in The current input byte-stream.
+   * @param pc The value of the program counter to be used when decoding relative addresses.
+   * @return The decoded instructions.
+   * @throws DecodeException if decoding the first instruction failed.
+   */
+  protected BlockOfInstructions decodeOptimizedBlock (DecodeStream in, long pc) throws DecodeException {
+    List<Instruction> instructions = new ArrayList<Instruction>();
+    List<List<RReil>> translations = new ArrayList<List<RReil>>();
+    long address = pc;
+    while (instructions.size() < maxBlockSize && in.available() > 0) {
+      Instruction insn;
+      List<RReil> translation;
+      try {
+        in.mark();
+        insn = decodeOne(in, address);
+        translation = new ArrayList<RReil>();
+        for (LowLevelRReil stmt : insn.toRReilInstructions()) {
+          translation.add(stmt.toRReil());
+        }
+      } catch (DecodeException e) {
+        if (instructions.isEmpty())
+          throw e;
+        break; // the failure is reported when the instruction is decoded as the start of a block
+      } catch (TranslationException e) {
+        if (instructions.isEmpty())
+          throw e;
+        break;
+      }
+      // instructions that cannot be translated are kept at their own address
+      if (containsNative(translation) && !instructions.isEmpty())
+        break;
+      instructions.add(insn);
+      translations.add(translation);
+      address += insn.length();
+      if (leavesBlock(translation))
+        break;
+    }
+    return new OptimizedBlockOfInstructions(instructions, BlockOptimizer.optimize(pc, translations));
+  }
+
+  private static boolean containsNative (List<RReil> translation) {
+    for (RReil stmt : translation) {
+      if (stmt instanceof Native)
+        return true;
+    }
+    return false;
+  }
+
+  private static boolean leavesBlock (List<RReil> translation) {
+    for (RReil stmt : translation) {
+      if (stmt instanceof Branch || stmt instanceof BranchToNative || stmt instanceof Native || stmt instanceof Throw)
+        return true;
+    }
+    return false;
+  }
+
   /**
    * Decode a block of instructions from the given byte array at {@code offset}. Decoding a sequence of instructions
    * allows the disassembler frontend to perform optimizations on the decoded sequence (e.g. liveness analysis).
@@ -88,6 +196,19 @@ public abstract class Disassembler {
     return decodeBlock(in, pc);
   }
 
+  /**
+   * Decode a block of instructions from the given buffer at {@code offset}. The buffer is not copied.
+   *
+   * @param code Buffer carrying the opcodes, e.g. the data of a segment.
+   * @param offset The offset at which to start to disassemble.
+   * @param pc The value of the program counter to be used when decoding relative addresses.
+   * @return The decoded instruction.
+   * @throws DecodeException if instruction decoding failed.
+   */
+  public BlockOfInstructions decodeBlock (ByteBuffer code, int offset, long pc) throws DecodeException {
+    return decodeBlock(new DecodeStream(code, offset), pc);
+  }
+
   /**
    * Translates the register/identifier with {@code name} to an RREIL (right-hand-side) operand.
    *
@@ -138,4 +259,36 @@ public abstract class Disassembler {
     }
 
   }
+
+  private static class OptimizedBlockOfInstructions implements BlockOfInstructions {
+    private final List<Instruction> instructions;
+    private final List<LowLevelRReil> rreil;
+    private final int byteLength;
+
+    public OptimizedBlockOfInstructions (List<Instruction> instructions, List<RReil> optimized) {
+      this.instructions = instructions;
+      this.rreil = new ArrayList<LowLevelRReil>(optimized.size());
+      for (RReil stmt : optimized) {
+        rreil.add(new RReilHighLevelToLowLevelWrapper(stmt));
+      }
+      int length = 0;
+      for (Instruction insn : instructions) {
+        length += insn.length();
+      }
+      this.byteLength = length;
+    }
+
+    @Override public List<Instruction> getInstructions () {
+      return instructions;
+    }
+
+    @Override public List<LowLevelRReil> toRReilInstructions () throws TranslationException {
+      return rreil;
+    }
+
+    @Override public int byteLength () {
+      return byteLength;
+    }
+
+  }
 }
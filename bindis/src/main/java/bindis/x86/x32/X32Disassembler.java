@@ -6,6 +6,7 @@ import bindis.DecodeException;
 import bindis.DecodeStream;
 import bindis.Disassembler;
 import bindis.NativeDisassembler;
+import rreil.disassembler.BlockOfInstructions;
 import rreil.disassembler.Instruction;
 import rreil.disassembler.translators.common.TranslationException;
 import rreil.disassembler.translators.x86.x32.X32RegisterTranslator;
@@ -15,11 +16,11 @@ import rreil.lang.lowlevel.LowLevelRReilOpnd;
  *
  */
 public class X32Disassembler extends Disassembler {
-  public static final X32Disassembler INSTANCE = new X32Disassembler();
   private static final String $ArchitectureName = "X86-32";
   private static final int $ArchitectureSize = 32;
   private static final ByteOrder $ByteOrder = ByteOrder.LITTLE_ENDIAN;
   private static final NativeDisassembler $Disassembler = X32NativeDisassembler.$;
+  public static final X32Disassembler INSTANCE = new X32Disassembler();
 
   private X32Disassembler () {
     super($ArchitectureName, $ArchitectureSize, $Disassembler, $ByteOrder);
@@ -32,6 +33,13 @@ public class X32Disassembler extends Disassembler {
     return $Disassembler.decode(in, pc).toTreeInstruction();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override public BlockOfInstructions decodeBlock (DecodeStream in, long pc) throws DecodeException {
+    return decodeOptimizedBlock(in, pc);
+  }
+
   /**
    * {@inheritDoc}
    */
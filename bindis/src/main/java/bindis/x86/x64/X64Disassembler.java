@@ -6,6 +6,7 @@ import bindis.DecodeException;
 import bindis.DecodeStream;
 import bindis.Disassembler;
 import bindis.NativeDisassembler;
+import rreil.disassembler.BlockOfInstructions;
 import rreil.disassembler.Instruction;
 import rreil.disassembler.translators.common.TranslationException;
 import rreil.disassembler.translators.x86.x64.X64RegisterTranslator;
@@ -14,11 +15,11 @@ import rreil.lang.lowlevel.LowLevelRReilOpnd;
 /**
  */
 public class X64Disassembler extends Disassembler {
-  public static final X64Disassembler INSTANCE = new X64Disassembler();
   private static final String $ArchitectureName = "X86-64";
   private static final int $ArchitectureSize = 64;
   private static final ByteOrder $ByteOrder = ByteOrder.LITTLE_ENDIAN;
   private static final NativeDisassembler $Disassembler = X64NativeDisassembler.$;
+  public static final X64Disassembler INSTANCE = new X64Disassembler();
 
   public X64Disassembler () {
     super($ArchitectureName, $ArchitectureSize, $Disassembler, $ByteOrder);
@@ -31,6 +32,13 @@ public class X64Disassembler extends Disassembler {
     return $Disassembler.decode(in, pc).toTreeInstruction();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override public BlockOfInstructions decodeBlock (DecodeStream in, long pc) throws DecodeException {
+    return decodeOptimizedBlock(in, pc);
+  }
+
   /**
    * {@inheritDoc}
    */
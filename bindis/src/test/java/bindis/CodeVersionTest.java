@@ -0,0 +1,26 @@
+package bindis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import bindis.x86.x32.X32Disassembler;
+import bindis.x86.x64.X64Disassembler;
+import rreil.lang.RReil;
+
+public class CodeVersionTest {
+
+  @Test public void versionOfBuiltClassesIsStable () {
+    String version = CodeVersion.of(X32Disassembler.class, RReil.class);
+    assertThat(CodeVersion.of(X32Disassembler.class, RReil.class), is(version));
+    assertThat(version.matches("(.*-)?[0-9a-f]{40}"), is(true));
+  }
+
+  @Test public void translatorVersionsDifferBetweenPlatforms () {
+    String x32 = X32Disassembler.INSTANCE.getTranslatorVersion();
+    assertThat(X32Disassembler.INSTANCE.getTranslatorVersion(), is(x32));
+    assertThat(X64Disassembler.INSTANCE.getTranslatorVersion(), not(x32));
+  }
+}
@@ -0,0 +1,104 @@
+package bindis.x86.x32;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javalx.numeric.BigInt;
+
+import org.junit.Test;
+
+import bindis.Disassembler;
+import bindis.TstHelpers;
+import rreil.disassembler.BlockOfInstructions;
+import rreil.lang.BinOp;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReil.Assign;
+import rreil.lang.RReil.BranchToRReil;
+import rreil.lang.RReilAddr;
+import rreil.lang.Rhs.Bin;
+import rreil.lang.Rhs.Rlit;
+import rreil.lang.Rhs.Rvar;
+import rreil.lang.lowlevel.LowLevelRReil;
+
+/**
+ * Checks the optimizations of the RREIL code of blocks decoded by the builtin x86 frontend.
+ */
+public class X32BlockDisassemblerTest {
+  private static final Disassembler dis = X32Disassembler.INSTANCE;
+  private static final long base = 0x1000;
+
+  private static List<RReil> decodeBlock (BlockOfInstructions block) {
+    List<RReil> code = new ArrayList<RReil>();
+    for (LowLevelRReil stmt : block.toRReilInstructions()) {
+      RReil insn = stmt.toRReil();
+      assertThat(insn.getRReilAddress(), is(RReilAddr.valueOf(base, code.size())));
+      code.add(insn);
+    }
+    return code;
+  }
+
+  private static Rvar register (String name) {
+    return new Rvar(32, 0, MemVar.getVarOrFresh(name));
+  }
+
+  private static List<Assign> assignmentsTo (List<RReil> code, String register) {
+    List<Assign> assignments = new ArrayList<Assign>();
+    for (RReil insn : code) {
+      if (insn instanceof Assign && ((Assign) insn).getLhs().getRegionId().getName().equals(register))
+        assignments.add((Assign) insn);
+    }
+    return assignments;
+  }
+
+  @Test public void overwrittenFlagsAreRemoved () {
+    // add eax, ebx; add eax, ecx; jz 0x1008
+    BlockOfInstructions block = dis.decodeBlock(TstHelpers.pack(0x01, 0xd8, 0x01, 0xc8, 0x74, 0x02), 0, base);
+    assertThat(block.getInstructions().size(), is(3));
+    assertThat(block.byteLength(), is(6));
+    List<RReil> code = decodeBlock(block);
+    assertThat(assignmentsTo(code, "CF").size(), is(1));
+    assertThat(assignmentsTo(code, "OF").size(), is(1));
+    // the sum of the first instruction is assigned directly to the register
+    Assign sum = (Assign) code.get(0);
+    assertThat(sum.getLhs().asRvar(), is(register("eax")));
+    assertThat(sum.getRhs(), is((Object) new Bin(register("eax"), BinOp.Add, register("ebx"))));
+  }
+
+  @Test public void constantsArePropagated () {
+    // xor eax, eax; inc eax; mov ebx, eax; ret
+    BlockOfInstructions block = dis.decodeBlock(TstHelpers.pack(0x31, 0xc0, 0x40, 0x89, 0xc3, 0xc3), 0, base);
+    assertThat(block.getInstructions().size(), is(4));
+    List<RReil> code = decodeBlock(block);
+    List<Assign> ebx = assignmentsTo(code, "ebx");
+    assertThat(ebx.size(), is(1));
+    assertThat(ebx.get(0).getRhs(), is((Object) new Rlit(32, BigInt.of(1))));
+    assertThat(assignmentsTo(code, "ZF").get(0).getRhs(), is((Object) new Rlit(1, BigInt.of(0))));
+  }
+
+  @Test public void blockEndsAfterJump () {
+    // jz 0x1004; add eax, ebx
+    BlockOfInstructions block = dis.decodeBlock(TstHelpers.pack(0x74, 0x02, 0x01, 0xd8), 0, base);
+    assertThat(block.getInstructions().size(), is(1));
+    assertThat(block.byteLength(), is(2));
+  }
+
+  @Test public void jumpsInsideInstructionsAreRelocated () {
+    // cmp eax, ebx; cmovz eax, ecx; ret
+    BlockOfInstructions block = dis.decodeBlock(TstHelpers.pack(0x39, 0xd8, 0x0f, 0x44, 0xc1, 0xc3), 0, base);
+    List<RReil> code = decodeBlock(block);
+    int jumps = 0;
+    for (RReil insn : code) {
+      if (!(insn instanceof BranchToRReil))
+        continue;
+      RReilAddr target = ((BranchToRReil) insn).getTarget().getAddress();
+      assertThat(target.base(), is(base));
+      assertThat(target.offset() > code.indexOf(insn) && target.offset() < code.size(), is(true));
+      jumps++;
+    }
+    assertThat(jumps, is(2));
+  }
+}
@@ -3,6 +3,9 @@ package bindis.x86.x32;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -191,4 +194,22 @@ public class X32DisassemblerTest {
 //      System.out.println(i);
 //    }
   }
+
+  @Test public void decodeFromSharedBuffer () {
+    // push ebp; mov ebp, esp; sub esp, 0x10
+    byte[] opcodes = TstHelpers.pack(0x55, 0x89, 0xe5, 0x83, 0xec, 0x10);
+    ByteBuffer code = ByteBuffer.allocateDirect(opcodes.length);
+    code.put(opcodes);
+    code.position(0);
+    ByteBuffer shared = code.asReadOnlyBuffer();
+    int offset = 0;
+    for (String mnemonic : new String[] {"push", "mov", "sub"}) {
+      Instruction insn = dis.decodeOne(shared, offset, 0x1000 + offset);
+      assertThat(insn.mnemonic(), is(mnemonic));
+      assertThat(insn.opcode(), is(dis.decodeOne(opcodes, offset, 0x1000 + offset).opcode()));
+      offset = offset + insn.length();
+    }
+    assertThat(shared.position(), is(0));
+    assertThat(shared.order(), is(ByteOrder.BIG_ENDIAN));
+  }
 }
@@ -260,6 +260,13 @@ public class Coff {
 			return data;
 		}
 
+		/**
+		 * Map the same data as returned by {@link #getRawData()} from the file.
+		 */
+		public ByteBuffer mapRawData() throws IOException {
+			return sfile.getChannel().map(MapMode.READ_ONLY, s_scnptr, s_size).asReadOnlyBuffer();
+		}
+
 		public Reloc[] getRelocs() throws IOException {
 			Reloc[] relocs = new Reloc[s_nreloc];
 			sfile.seek(s_relptr);
@@ -9,7 +9,7 @@ import java.util.logging.Logger;
 import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.numeric.FiniteRange;
-import javalx.persistentcollections.tree.FiniteRangeTree;
+import javalx.persistentcollections.tree.LongRangeTree;
 import javalx.persistentcollections.tree.OverlappingRanges;
 
 /**
@@ -22,7 +22,7 @@ public abstract class AbstractBinary implements Binary {
   protected List<Symbol> importedSymbols;
   protected List<Symbol> exportedSymbols;
   protected List<Segment> segments;
-  protected FiniteRangeTree<Segment> segmentAddresses = FiniteRangeTree.<Segment>empty();
+  protected LongRangeTree<Segment> segmentAddresses = LongRangeTree.<Segment>empty();
   protected final Map<String, Segment> segmentNames = new HashMap<String, Segment>();
   protected final Map<Long, Symbol> symbolAddresses = new HashMap<Long, Symbol>();
   protected final Map<String, Symbol> symbolNames = new HashMap<String, Symbol>();
@@ -62,10 +62,13 @@ public abstract class AbstractBinary implements Binary {
   @Override public Option<Segment> getSegment (long address) {
     if (segments == null)
       initSegments();
-    OverlappingRanges<Segment> overlappings = segmentAddresses.searchOverlaps(FiniteRange.of(address));
-    if (overlappings.isEmpty()) {
+    switch (segmentAddresses.countOverlaps(address, address, 2)) {
+    case 0:
       return Option.none();
-    } else if (overlappings.size() != 1) {
+    case 1:
+      return Option.some(segmentAddresses.findOverlap(address, address));
+    default:
+      OverlappingRanges<Segment> overlappings = segmentAddresses.searchOverlaps(address, address);
       // XXX: ugly hack for broken or not yet linked binaries where some comment and string sections are marked as
       // starting at zero and the text section, too. Here we assume that mostly one wants the text section when there are
       // overlaps.
@@ -80,8 +83,6 @@ public abstract class AbstractBinary implements Binary {
       throw new IllegalStateException("The binary \"" + getFileName() +
         "\" contains more than one section for the address: " + Long.toHexString(address) + ". Sections: " +
         overlappings);
-    } else {
-      return Option.some(overlappings.getFirst()._2());
     }
   }
 
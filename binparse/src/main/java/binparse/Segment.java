@@ -1,5 +1,6 @@
 package binparse;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 import javalx.data.Option;
@@ -40,6 +41,15 @@ public interface Segment {
    */
   public byte[] getData ();
 
+  /**
+   * Return a read-only view of the data that this segment contains. The buffer is direct, i.e. it can be passed to
+   * native code, and is memory-mapped from the binary file where possible. It is shared by all callers, thus use the
+   * absolute accessors or a {@link ByteBuffer#duplicate()} to read from it.
+   *
+   * @return The data that this segment contains.
+   */
+  public ByteBuffer getBuffer ();
+
   /**
    * @return The endianness of the data in this segment.
    */
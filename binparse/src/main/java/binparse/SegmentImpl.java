@@ -1,18 +1,21 @@
 package binparse;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 import javalx.data.Option;
 
 /**
- * A segment in an binary file.
+ * A segment in an binary file. The data of the segment is either given as byte array or as buffer, e.g. mapped from
+ * the file, and the respective other representation is created on first use.
  */
 public class SegmentImpl implements Segment {
   private final String name;
   private final String fileName;
   private final long address;
   private final long size;
-  private final byte[] data;
+  private byte[] data;
+  private ByteBuffer buffer;
   private final Endianness endianness;
   private final Set<Permission> permissions;
 
@@ -33,6 +36,12 @@ public class SegmentImpl implements Segment {
     this.permissions = permissions;
   }
 
+  public SegmentImpl (String fileName, String name, long address, long size, ByteBuffer buffer, Endianness endianness,
+      Set<Permission> permissions) {
+    this(fileName, name, address, size, (byte[]) null, endianness, permissions);
+    this.buffer = buffer.slice().asReadOnlyBuffer();
+  }
+
   @Override public long getAddress () {
     return address;
   }
@@ -52,10 +61,24 @@ public class SegmentImpl implements Segment {
     return Option.fromNullable(fileName);
   }
 
-  @Override public byte[] getData () {
+  @Override public synchronized byte[] getData () {
+    if (data == null) {
+      data = new byte[buffer.capacity()];
+      buffer.duplicate().get(data);
+    }
     return data;
   }
 
+  @Override public synchronized ByteBuffer getBuffer () {
+    if (buffer == null) {
+      ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+      direct.put(data);
+      direct.clear();
+      buffer = direct.asReadOnlyBuffer();
+    }
+    return buffer;
+  }
+
   @Override public long getSize () {
     return size;
   }
@@ -2,6 +2,7 @@ package binparse.elf;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -226,13 +227,19 @@ public class ElfBinary extends AbstractBinary {
         String name = elfSection.toString();
         long address = elfSection.sh_addr.getValue().longValue();
         long size = elfSection.sh_size;
-        byte[] data = elfSection.loadSectionData();
         Set<Permission> permissions = EnumSet.of(Permission.Read); // it must always be readable
         if ((elfSection.sh_flags & Elf.Section.SHF_EXECINTR) != 0)
           permissions.add(Permission.Execute);
         if ((elfSection.sh_flags & Elf.Section.SHF_WRITE) != 0)
           permissions.add(Permission.Write);
-        SegmentImpl segment = new SegmentImpl(getFileName(), name, address, size, data, getEndianness(), permissions);
+        SegmentImpl segment;
+        if (elfSection.sh_type == Elf.Section.SHT_NOBITS) { // not present in the file, thus zero initialized
+          byte[] data = elfSection.loadSectionData();
+          segment = new SegmentImpl(getFileName(), name, address, size, data, getEndianness(), permissions);
+        } else {
+          ByteBuffer data = elfSection.mapSectionData();
+          segment = new SegmentImpl(getFileName(), name, address, size, data, getEndianness(), permissions);
+        }
         segments.add(segment);
         segmentNames.put(name, segment);
         segmentAddresses = segmentAddresses.bind(FiniteRange.of(address, address + segment.getSize() - 1), segment);
@@ -129,7 +129,7 @@ public class PEBinary extends AbstractBinary {
         String name = new String(peSection.s_name).trim(); // 8-bytes array padded with nulls needs trimming
         long address = peSection.s_vaddr + pe.getNTOptionalHeader().ImageBase;
         long size = peSection.s_size;
-        byte[] data = peSection.getRawData();
+        ByteBuffer data = peSection.mapRawData();
         Set<Permission> permissions = EnumSet.noneOf(Permission.class);
         if ((peSection.s_flags & IMAGE_SCN_MEM_READ) != 0)
           permissions.add(Permission.Read);
@@ -0,0 +1,239 @@
+package binparse.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+
+import binparse.UncheckedIOException;
+import binparse.trace.TraceSerializer.ControlFlowTrace;
+import binparse.trace.TraceSerializer.ControlFlowTrace.ControlFlow;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Reads the control flow of a trace lazily, a chunk of jumps at a time, such that traces of any length can be
+ * processed with a constant amount of memory. The jumps of a chunk are kept in primitive arrays.<br>
+ *
+ * Two formats are supported: the chunked format written by {@link ControlFlowWriter}, which is memory-mapped chunk
+ * by chunk, and the protobuf {@link ControlFlowTrace} message written by the tracer, which is parsed as a stream.
+ */
+public abstract class ControlFlowReader implements Closeable {
+  static final int chunkSize = 1 << 16;
+  final long[] currentPCs = new long[chunkSize];
+  final long[] nextPCs = new long[chunkSize];
+  final boolean[] conditions = new boolean[chunkSize];
+  private int size;
+  private int index = -1;
+  private boolean closed;
+
+  /**
+   * Open a file in the chunked format.
+   */
+  public static ControlFlowReader openChunked (String file) {
+    try {
+      return new ChunkedReader(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Open a file containing a protobuf {@link ControlFlowTrace} message.
+   */
+  public static ControlFlowReader openProtobuf (String file) {
+    try {
+      return new ProtobufReader(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public boolean hasNext () {
+    if (index + 1 < size)
+      return true;
+    if (closed)
+      return false;
+    try {
+      return hasMoreChunks();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Advance to the next jump. Its values are then returned by the getters.
+   */
+  public void next () {
+    if (index + 1 >= size) {
+      try {
+        size = readChunk();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      index = -1;
+      if (size == 0)
+        throw new NoSuchElementException();
+    }
+    index++;
+  }
+
+  public long getCurrentPC () {
+    return currentPCs[index];
+  }
+
+  public long getNextPC () {
+    return nextPCs[index];
+  }
+
+  public boolean getJumpConditionWas () {
+    return conditions[index];
+  }
+
+  /**
+   * Close the trace file. The jumps of the current chunk can still be read afterwards.
+   */
+  @Override public void close () throws IOException {
+    if (closed)
+      return;
+    closed = true;
+    closeFile();
+  }
+
+  abstract void closeFile () throws IOException;
+
+  abstract boolean hasMoreChunks () throws IOException;
+
+  /**
+   * Fill the arrays with the next chunk of jumps.
+   *
+   * @return the number of jumps read or {@code 0} if the end of the trace has been reached
+   */
+  abstract int readChunk () throws IOException;
+
+  private static class ChunkedReader extends ControlFlowReader {
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    ChunkedReader (String fileName) throws IOException {
+      file = new RandomAccessFile(fileName, "r");
+      channel = file.getChannel();
+      if (readInt(0) != ControlFlowWriter.magic) {
+        close();
+        throw new IOException("Not a chunked control flow trace: " + fileName);
+      }
+      position = 4;
+    }
+
+    private int readInt (long at) throws IOException {
+      header.clear();
+      while (header.hasRemaining()) {
+        if (channel.read(header, at + header.position()) < 0)
+          throw new IOException("Truncated control flow trace.");
+      }
+      return header.getInt(0);
+    }
+
+    @Override boolean hasMoreChunks () throws IOException {
+      return position < channel.size();
+    }
+
+    @Override int readChunk () throws IOException {
+      int count = 0;
+      while (count == 0 && hasMoreChunks()) {
+        count = readInt(position);
+        position = position + 4;
+      }
+      if (count == 0)
+        return 0;
+      if (count > chunkSize)
+        throw new IOException("Chunk of the control flow trace is too large: " + count);
+      long length = ControlFlowWriter.chunkLength(count);
+      ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+      position = position + length;
+      chunk.asLongBuffer().get(currentPCs, 0, count);
+      chunk.position(count * 8);
+      chunk.asLongBuffer().get(nextPCs, 0, count);
+      int flags = count * 16;
+      for (int i = 0; i < count; i++) {
+        conditions[i] = (chunk.get(flags + i / 8) >> i % 8 & 1) == 1;
+      }
+      return count;
+    }
+
+    @Override void closeFile () throws IOException {
+      file.close();
+    }
+  }
+
+  private static class ProtobufReader extends ControlFlowReader {
+    private final InputStream stream;
+    private final CodedInputStream input;
+
+    ProtobufReader (String file) throws IOException {
+      stream = new BufferedInputStream(new FileInputStream(file));
+      input = CodedInputStream.newInstance(stream);
+      input.setSizeLimit(Integer.MAX_VALUE);
+    }
+
+    @Override boolean hasMoreChunks () throws IOException {
+      return !input.isAtEnd();
+    }
+
+    @Override int readChunk () throws IOException {
+      int count = 0;
+      while (count < chunkSize) {
+        int tag = input.readTag();
+        if (tag == 0)
+          break;
+        if (WireFormat.getTagFieldNumber(tag) != ControlFlowTrace.JUMPS_FIELD_NUMBER) {
+          input.skipField(tag);
+          continue;
+        }
+        int limit = input.pushLimit(input.readRawVarint32());
+        readJump(count);
+        input.popLimit(limit);
+        // the size limit applies to the whole stream, thus reset it on each jump
+        input.resetSizeCounter();
+        count++;
+      }
+      return count;
+    }
+
+    private void readJump (int i) throws IOException {
+      currentPCs[i] = 0;
+      nextPCs[i] = 0;
+      conditions[i] = false;
+      int tag;
+      while ((tag = input.readTag()) != 0) {
+        switch (WireFormat.getTagFieldNumber(tag)) {
+        case ControlFlow.CURRENTPC_FIELD_NUMBER:
+          currentPCs[i] = input.readUInt64();
+          break;
+        case ControlFlow.NEXTPC_FIELD_NUMBER:
+          nextPCs[i] = input.readUInt64();
+          break;
+        case ControlFlow.JUMPCONDITIONWAS_FIELD_NUMBER:
+          conditions[i] = input.readBool();
+          break;
+        default:
+          input.skipField(tag);
+          break;
+        }
+      }
+    }
+
+    @Override void closeFile () throws IOException {
+      stream.close();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package binparse.trace;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import binparse.UncheckedIOException;
+
+/**
+ * Writes the control flow of a trace in a chunked format that can be read lazily by {@link ControlFlowReader}.<br>
+ *
+ * The file starts with a magic number followed by the chunks. Each chunk is prefixed by the number of jumps in it
+ * and contains the current program counters, the next program counters and a bitmap of the jump conditions as packed
+ * arrays. All values are stored in little endian order.
+ */
+public class ControlFlowWriter implements Closeable {
+  static final int magic = 0x31464342; // "BCF1"
+  private final FileChannel channel;
+  private final FileOutputStream file;
+  private final long[] currentPCs = new long[ControlFlowReader.chunkSize];
+  private final long[] nextPCs = new long[ControlFlowReader.chunkSize];
+  private final boolean[] conditions = new boolean[ControlFlowReader.chunkSize];
+  private final ByteBuffer chunk =
+    ByteBuffer.allocate(4 + (int) chunkLength(ControlFlowReader.chunkSize)).order(ByteOrder.LITTLE_ENDIAN);
+  private int size;
+
+  public ControlFlowWriter (String fileName) {
+    try {
+      file = new FileOutputStream(fileName);
+      channel = file.getChannel();
+      chunk.putInt(magic);
+      chunk.flip();
+      writeFully(chunk);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The length in bytes of a chunk with the given number of jumps without its size prefix.
+   */
+  static long chunkLength (int count) {
+    return count * 16L + (count + 7) / 8;
+  }
+
+  public void write (long currentPC, long nextPC, boolean jumpConditionWas) {
+    currentPCs[size] = currentPC;
+    nextPCs[size] = nextPC;
+    conditions[size] = jumpConditionWas;
+    size++;
+    if (size == ControlFlowReader.chunkSize)
+      flushChunk();
+  }
+
+  /**
+   * Copy all the jumps of the given reader.
+   */
+  public void writeAll (ControlFlowReader reader) {
+    while (reader.hasNext()) {
+      reader.next();
+      write(reader.getCurrentPC(), reader.getNextPC(), reader.getJumpConditionWas());
+    }
+  }
+
+  private void flushChunk () {
+    if (size == 0)
+      return;
+    chunk.clear();
+    chunk.putInt(size);
+    chunk.asLongBuffer().put(currentPCs, 0, size);
+    chunk.position(4 + size * 8);
+    chunk.asLongBuffer().put(nextPCs, 0, size);
+    chunk.position(4 + size * 16);
+    for (int i = 0; i < size; i += 8) {
+      int flags = 0;
+      for (int bit = 0; bit < 8 && i + bit < size; bit++) {
+        if (conditions[i + bit])
+          flags = flags | 1 << bit;
+      }
+      chunk.put((byte) flags);
+    }
+    chunk.flip();
+    try {
+      writeFully(chunk);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    size = 0;
+  }
+
+  private void writeFully (ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  @Override public void close () throws IOException {
+    try {
+      flushChunk();
+    } finally {
+      file.close();
+    }
+  }
+}
@@ -1,12 +1,13 @@
 package binparse.trace;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 
-import javalx.data.products.P3;
 import javalx.numeric.BigInt;
 import binparse.Binary;
 import binparse.Segment;
@@ -23,6 +24,7 @@ public class TraceDump {
   private final static String traceSuffixStack = ".stack";
   private final static String traceSuffixHeap = ".heap";
   private final static String traceSuffixFlow = ".flow";
+  private final static String traceSuffixFlowChunks = ".flows";
   private final static String traceSuffixDebug = ".debug";
   private final Binary tracedBinary;
 
@@ -76,8 +78,43 @@ public class TraceDump {
     return TraceParser.parseRegisters(traceDumpPrefix + traceSuffixRegisters);
   }
 
-  public List<P3<Long, Long, Boolean>> getControlFlow () {
-    return TraceParser.parseControlFlow(traceDumpPrefix + traceSuffixFlow);
+  /**
+   * Returns a reader for the control flow of the trace that must be closed after use. The chunked control flow file is
+   * used if it exists and otherwise the protobuf file written by the tracer.
+   *
+   * @see #convertControlFlow()
+   */
+  public ControlFlowReader getControlFlow () {
+    String chunkedFile = traceDumpPrefix + traceSuffixFlowChunks;
+    if (new File(chunkedFile).exists())
+      return ControlFlowReader.openChunked(chunkedFile);
+    return ControlFlowReader.openProtobuf(traceDumpPrefix + traceSuffixFlow);
+  }
+
+  /**
+   * Convert the control flow written by the tracer to the chunked format that is faster to read.
+   */
+  public void convertControlFlow () {
+    ControlFlowReader reader = ControlFlowReader.openProtobuf(traceDumpPrefix + traceSuffixFlow);
+    try {
+      ControlFlowWriter writer = new ControlFlowWriter(traceDumpPrefix + traceSuffixFlowChunks);
+      try {
+        writer.writeAll(reader);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      closeQuietly(reader);
+    }
+  }
+
+  private static void closeQuietly (ControlFlowReader reader) {
+    try {
+      reader.close();
+    } catch (IOException e) {
+    }
   }
 
   public String getControlFlowDebugOutput () {
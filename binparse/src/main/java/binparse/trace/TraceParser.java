@@ -4,6 +4,8 @@ import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -12,7 +14,6 @@ import java.util.Map;
 import java.util.Set;
 
 
-import javalx.data.products.P3;
 import javalx.numeric.BigInt;
 import binparse.Endianness;
 import binparse.Permission;
@@ -20,10 +21,11 @@ import binparse.Segment;
 import binparse.SegmentImpl;
 import binparse.UncheckedIOException;
 import binparse.trace.TraceSerializer.CPUState;
-import binparse.trace.TraceSerializer.ControlFlowTrace;
-import binparse.trace.TraceSerializer.ControlFlowTrace.ControlFlow;
 import binparse.trace.TraceSerializer.TraceInfo;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
 class TraceParser {
 
   public static TraceInfo parseInfo (String file) {
@@ -59,66 +61,45 @@ class TraceParser {
     }
   }
 
+  /**
+   * Parse a file containing a single {@link TraceSerializer.Module.Segment} message. The data of the segment is
+   * memory-mapped from the file.
+   */
   public static Segment parseSegment (String file) {
-    return parseTraceDumps(file, new Parser<Segment>() {
-      @Override public Segment parse (InputStream input) {
-        return parseSegment(input);
-      }
-    });
-  }
-
-  private static Segment parseSegment (InputStream input) {
+    SegmentsInput input = SegmentsInput.open(file);
     try {
-      TraceSerializer.Module.Segment rawSegment = TraceSerializer.Module.Segment.parseFrom(input);
-      return convertSegment(rawSegment);
+      return input.parseSegment();
     } catch (IOException e) {
       throw new UncheckedIOException(e);
+    } finally {
+      input.close();
     }
   }
 
+  /**
+   * Parse a file containing a {@link TraceSerializer.Module} message. The data of the segments is memory-mapped from
+   * the file.
+   */
   public static List<Segment> parseModule (String file) {
-    return parseTraceDumps(file, new Parser<List<Segment>>() {
-      @Override public List<Segment> parse (InputStream input) {
-        return parseModule(input);
-      }
-    });
-  }
-
-  private static List<Segment> parseModule (InputStream input) {
     List<Segment> segments = new ArrayList<Segment>();
+    SegmentsInput input = SegmentsInput.open(file);
     try {
-      TraceSerializer.Module module = TraceSerializer.Module.parseFrom(input);
-      for (TraceSerializer.Module.Segment rawSegment : module.getSegmentsList()) {
-        Segment segment = convertSegment(rawSegment);
-        segments.add(segment);
+      int tag;
+      while ((tag = input.coded.readTag()) != 0) {
+        if (WireFormat.getTagFieldNumber(tag) == TraceSerializer.Module.SEGMENTS_FIELD_NUMBER) {
+          int limit = input.coded.pushLimit(input.coded.readRawVarint32());
+          segments.add(input.parseSegment());
+          input.coded.popLimit(limit);
+        } else {
+          input.coded.skipField(tag);
+        }
+        input.resetSizeCounter();
       }
       return segments;
     } catch (IOException e) {
       throw new UncheckedIOException(e);
-    }
-  }
-
-  public static List<P3<Long, Long, Boolean>> parseControlFlow (String file) {
-    return parseTraceDumps(file, new Parser<List<P3<Long, Long, Boolean>>>() {
-      @Override public List<P3<Long, Long, Boolean>> parse (InputStream input) {
-        return parseControlFlow(input);
-      }
-    });
-  }
-
-  private static List<P3<Long, Long, Boolean>> parseControlFlow (InputStream input) {
-    List<P3<Long, Long, Boolean>> jumps = new ArrayList<P3<Long, Long, Boolean>>();
-    try {
-      ControlFlowTrace trace = ControlFlowTrace.parseFrom(input);
-      for (ControlFlow jump : trace.getJumpsList()) {
-        long currentPC = jump.getCurrentPC();
-        long nextPC = jump.getNextPC();
-        boolean jumpTaken = jump.getJumpConditionWas();
-        jumps.add(P3.tuple3(currentPC, nextPC, jumpTaken));
-      }
-      return jumps;
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
+    } finally {
+      input.close();
     }
   }
 
@@ -138,30 +119,9 @@ class TraceParser {
     }
   }
 
-  private static Segment convertSegment (TraceSerializer.Module.Segment rawSegment) {
-    long address = rawSegment.getAddress();
-    int size = rawSegment.getSize();
-    Endianness endianness = convertEndianness(rawSegment.getEndianness());
-    byte[] data;
-    if (rawSegment.hasData())
-      data = rawSegment.getData().toByteArray();
-    else
-      data = new byte[0];
-    Set<Permission> permissions;
-    if (rawSegment.hasPermissions())
-      permissions = decodePermissions(rawSegment.getPermissions());
-    else
-      permissions = EnumSet.allOf(Permission.class);
-    String name = null;
-    if (rawSegment.hasName())
-      name = rawSegment.getName();
-    String fileName = null;
-    if (rawSegment.hasFileName())
-      fileName = rawSegment.getFileName();
-    return new SegmentImpl(fileName, name, address, size, data, endianness, permissions);
-  }
-
   private static Endianness convertEndianness (TraceSerializer.Module.Segment.Endianness endianness) {
+    if (endianness == null)
+      throw new IllegalArgumentException("Endianness enumeration value unknown.");
     switch (endianness) {
     case LITTLE:
       return Endianness.LITTLE;
@@ -203,4 +163,95 @@ class TraceParser {
   private static interface Parser<T> {
     public T parse (InputStream input);
   }
+
+  /**
+   * Parses the segments of a trace dump as a stream. The fields of a segment are read from the stream but its data is
+   * skipped and instead mapped from the file using the offset of the data in the stream.
+   */
+  private static final class SegmentsInput {
+    private final FileInputStream file;
+    private final CodedInputStream coded;
+    // the offset in the file at which the size counter of the coded stream was reset the last time
+    private long base;
+
+    private SegmentsInput (FileInputStream file) {
+      this.file = file;
+      coded = CodedInputStream.newInstance(file);
+      coded.setSizeLimit(Integer.MAX_VALUE);
+    }
+
+    static SegmentsInput open (String file) {
+      try {
+        return new SegmentsInput(new FileInputStream(file));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Reset the size counter of the stream to be able to read files larger than 2GB.
+     * Must not be called while a limit is pushed.
+     */
+    void resetSizeCounter () {
+      base = base + coded.getTotalBytesRead();
+      coded.resetSizeCounter();
+    }
+
+    /**
+     * Parse the fields of a segment up to the end of the stream or the current limit.
+     */
+    Segment parseSegment () throws IOException {
+      String name = null;
+      String fileName = null;
+      Set<Permission> permissions = EnumSet.allOf(Permission.class);
+      TraceSerializer.Module.Segment.Endianness endianness = null;
+      long address = 0;
+      int size = 0;
+      ByteBuffer data = null;
+      int tag;
+      while ((tag = coded.readTag()) != 0) {
+        switch (WireFormat.getTagFieldNumber(tag)) {
+        case TraceSerializer.Module.Segment.NAME_FIELD_NUMBER:
+          name = coded.readString();
+          break;
+        case TraceSerializer.Module.Segment.FILENAME_FIELD_NUMBER:
+          fileName = coded.readString();
+          break;
+        case TraceSerializer.Module.Segment.PERMISSIONS_FIELD_NUMBER:
+          permissions = decodePermissions(coded.readInt32());
+          break;
+        case TraceSerializer.Module.Segment.ENDIANNESS_FIELD_NUMBER:
+          endianness = TraceSerializer.Module.Segment.Endianness.valueOf(coded.readEnum());
+          break;
+        case TraceSerializer.Module.Segment.ADDRESS_FIELD_NUMBER:
+          address = coded.readUInt64();
+          break;
+        case TraceSerializer.Module.Segment.SIZE_FIELD_NUMBER:
+          size = coded.readUInt32();
+          break;
+        case TraceSerializer.Module.Segment.DATA_FIELD_NUMBER: {
+          int length = coded.readRawVarint32();
+          long offset = base + coded.getTotalBytesRead();
+          coded.skipRawBytes(length);
+          data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+          break;
+        }
+        default:
+          coded.skipField(tag);
+          break;
+        }
+      }
+      Endianness segmentEndianness = convertEndianness(endianness);
+      if (data == null)
+        return new SegmentImpl(fileName, name, address, size, new byte[0], segmentEndianness, permissions);
+      return new SegmentImpl(fileName, name, address, size, data, segmentEndianness, permissions);
+    }
+
+    void close () {
+      try {
+        file.close();
+      } catch (IOException e) {
+      }
+    }
+  }
 }
@@ -14,7 +14,6 @@ import java.util.List;
 
 import javalx.data.Option;
 import javalx.data.products.P2;
-import javalx.data.products.P3;
 import javalx.numeric.FiniteRange;
 import javalx.persistentcollections.tree.FiniteRangeTree;
 import javalx.persistentcollections.tree.OverlappingRanges;
@@ -121,9 +120,23 @@ public class Tracer {
    * @see #dumpControlFlowVerbose(TraceBinary)
    */
   private static void dumpControlFlow (TraceDump traces) {
-    for (P3<Long, Long, Boolean> flow : traces.getControlFlow()) {
-      String condition = flow._3() ? "t" : "f";
-      System.out.println(Long.toHexString(flow._1()) + " -" + condition + "> " + Long.toHexString(flow._2()));
+    ControlFlowReader flow = traces.getControlFlow();
+    try {
+      while (flow.hasNext()) {
+        flow.next();
+        String condition = flow.getJumpConditionWas() ? "t" : "f";
+        System.out.println(Long.toHexString(flow.getCurrentPC()) + " -" + condition + "> "
+          + Long.toHexString(flow.getNextPC()));
+      }
+    } finally {
+      closeQuietly(flow);
+    }
+  }
+
+  private static void closeQuietly (ControlFlowReader flow) {
+    try {
+      flow.close();
+    } catch (IOException e) {
     }
   }
 
@@ -150,19 +163,25 @@ public class Tracer {
         return trace.getTracedBinary().getSegment(address);
       }
     };
-    for (P3<Long, Long, Boolean> flow : trace.getControlFlow()) {
-      String fromLocationName = formatLocationName(resolver, flow._1());
-      if (!fromLocationName.equals(lastLocationName))
-        System.out.println(" " + fromLocationName);
-      String toLocationName = formatLocationName(resolver, flow._2());
-      String fromAddress = Long.toHexString(flow._1());
-      String toAddress = Long.toHexString(flow._2());
-      String condition = flow._3() ? "t" : "f";
-      String toLocationChanged = "";
-      if (!toLocationName.equals(fromLocationName))
-        toLocationChanged = "     " + toLocationName;
-      System.out.println(fromAddress + " -" + condition + "> " + toAddress + toLocationChanged);
-      lastLocationName = toLocationName;
+    ControlFlowReader flow = trace.getControlFlow();
+    try {
+      while (flow.hasNext()) {
+        flow.next();
+        String fromLocationName = formatLocationName(resolver, flow.getCurrentPC());
+        if (!fromLocationName.equals(lastLocationName))
+          System.out.println(" " + fromLocationName);
+        String toLocationName = formatLocationName(resolver, flow.getNextPC());
+        String fromAddress = Long.toHexString(flow.getCurrentPC());
+        String toAddress = Long.toHexString(flow.getNextPC());
+        String condition = flow.getJumpConditionWas() ? "t" : "f";
+        String toLocationChanged = "";
+        if (!toLocationName.equals(fromLocationName))
+          toLocationChanged = "     " + toLocationName;
+        System.out.println(fromAddress + " -" + condition + "> " + toAddress + toLocationChanged);
+        lastLocationName = toLocationName;
+      }
+    } finally {
+      closeQuietly(flow);
     }
   }
 
@@ -209,7 +228,7 @@ public class Tracer {
     return symbolRanges;
   }
 
-  private static String formatLocationName (SegmentSymbolResolver resolver, Long address) {
+  private static String formatLocationName (SegmentSymbolResolver resolver, long address) {
     String symbol = formatSymbolName(resolver.getSymbol(address));
     String segment = formatSegmentName(resolver.getSegment(address));
     return symbol + "          " + segment;
@@ -2,7 +2,6 @@ package bindead.abstractsyntax.finite;
 
 import rreil.lang.BinOp;
 import rreil.lang.ComparisonOp;
-import javalx.exceptions.UnimplementedException;
 import javalx.numeric.BigInt;
 import javalx.numeric.Bound;
 import javalx.numeric.Interval;
@@ -45,6 +44,19 @@ public class Finite {
       return builder.toString();
     }
 
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Assign))
+        return false;
+      Assign other = (Assign) obj;
+      return lhs.equals(other.lhs) && rhs.equals(other.rhs);
+    }
+
+    @Override public int hashCode () {
+      return 31 * lhs.hashCode() + rhs.hashCode();
+    }
+
   }
 
   public static final class Lhs {
@@ -72,13 +84,43 @@ public class Finite {
     @Override public String toString () {
       return asString(new StringBuilder()).toString();
     }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Lhs))
+        return false;
+      Lhs other = (Lhs) obj;
+      return size == other.size && id.equalTo(other.id);
+    }
+
+    @Override public int hashCode () {
+      return 31 * id.hashCode() + size;
+    }
   }
 
+  /**
+   * The right-hand sides are immutable and compared structurally. The hash code is computed once on demand such that
+   * lowered expressions can be looked up and shared cheaply.
+   */
   public static abstract class Rhs {
+    private int hash;
+
     @Override public String toString () {
       return asString(new StringBuilder()).toString();
     }
 
+    @Override public final int hashCode () {
+      int h = hash;
+      if (h == 0) {
+        h = computeHashCode();
+        hash = h;
+      }
+      return h;
+    }
+
+    abstract int computeHashCode ();
+
     public abstract <R, T> R accept (FiniteExprVisitor<R, T> visitor, T data);
 
     public abstract StringBuilder asString (StringBuilder builder);
@@ -112,6 +154,18 @@ public class Finite {
       return expr.getSize();
     }
 
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof SignExtend))
+        return false;
+      return expr.equals(((SignExtend) obj).expr);
+    }
+
+    @Override int computeHashCode () {
+      return 17 * expr.hashCode() + 1;
+    }
+
   }
 
   public static final class Convert extends Rhs {
@@ -140,6 +194,18 @@ public class Finite {
       return expr.getSize();
     }
 
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Convert))
+        return false;
+      return expr.equals(((Convert) obj).expr);
+    }
+
+    @Override int computeHashCode () {
+      return 17 * expr.hashCode() + 2;
+    }
+
   }
 
   public static final class Bin extends Rhs {
@@ -181,6 +247,19 @@ public class Finite {
       return left.getSize();
     }
 
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Bin))
+        return false;
+      Bin other = (Bin) obj;
+      return op == other.op && left.equals(other.left) && right.equals(other.right);
+    }
+
+    @Override int computeHashCode () {
+      return (31 * op.hashCode() + left.hashCode()) * 31 + right.hashCode();
+    }
+
   }
   
 //  public static abstract class Lin extends Rhs {
@@ -377,6 +456,19 @@ public class Finite {
       return left.getSize();
     }
 
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Cmp))
+        return false;
+      Cmp other = (Cmp) obj;
+      return op == other.op && left.equals(other.left) && right.equals(other.right);
+    }
+
+    @Override int computeHashCode () {
+      return (37 * op.hashCode() + left.hashCode()) * 37 + right.hashCode();
+    }
+
   }
 
   public static final class Rlin extends Rhs {
@@ -430,15 +522,16 @@ public class Finite {
     }
 
     @Override public boolean equals (Object o) {
+      if (this == o)
+        return true;
       if (!(o instanceof Rlin))
         return false;
       Rlin other = (Rlin) o;
       return size == other.size && linearTerm.equals(other.linearTerm);
     }
 
-    @Override public int hashCode () {
-      // TODO implement following contract that a.equals(b) implies a.hashCode()==b.hashCode()
-      throw new UnimplementedException();
+    @Override int computeHashCode () {
+      return 31 * linearTerm.hashCode() + size;
     }
   }
 
@@ -469,6 +562,19 @@ public class Finite {
       return builder;
     }
 
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof FiniteRangeRhs))
+        return false;
+      FiniteRangeRhs other = (FiniteRangeRhs) obj;
+      return size == other.size && range.equals(other.range);
+    }
+
+    @Override int computeHashCode () {
+      return 31 * range.hashCode() + size;
+    }
+
   }
 
   public enum TestOp {
@@ -496,6 +602,7 @@ public class Finite {
     private final Linear leftExpr;
     private final TestOp operator;
     private final Linear rightExpr;
+    private int hash;
 
     Test (int size, Linear leftExpr, TestOp operator, Linear rightExpr) {
       assert size >= 0;
@@ -607,12 +714,15 @@ public class Finite {
     }
 
     @Override public int hashCode () {
+      if (hash != 0)
+        return hash;
       final int prime = 31;
       int result = 1;
       result = prime * result + (leftExpr == null ? 0 : leftExpr.hashCode());
       result = prime * result + (operator == null ? 0 : operator.hashCode());
       result = prime * result + (rightExpr == null ? 0 : rightExpr.hashCode());
       result = prime * result + size;
+      hash = result;
       return result;
     }
 
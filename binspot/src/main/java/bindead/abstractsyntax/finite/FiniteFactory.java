@@ -62,7 +62,7 @@ public class FiniteFactory {
   }
 
   public Rlin linear (VariableCtx ctx) {
-    return linear(ctx.getSize(), ctx.getVariable());
+    return ctx.asRlin();
   }
 
   public Rlin literal (int size, BigInt value) {
@@ -0,0 +1,200 @@
+package bindead.abstractsyntax.finite;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import rreil.lang.RReilAddr;
+
+/**
+ * Caches the finite syntax that the RREIL statement at an address was lowered to. The nodes of the statement are
+ * lowered again on each evaluation but a node whose operands were lowered to the same finite expressions as before
+ * yields the previously built expression. Thus re-evaluating a statement whose variables still resolve to the same
+ * numeric variables does not allocate new syntax trees.<br>
+ *
+ * The cache keeps one lowered statement per address and is shared by all the domains of an analysis. It holds at most
+ * {@link #maxStatements} statements, if more are lowered the cache is emptied and filled again with the statements
+ * lowered afterwards. The analysis clears the cache when it ends, see {@link #clear()}.
+ */
+public final class LoweringCache {
+  /**
+   * The maximal number of lowered statements kept in the cache. The statements in the loops that are currently
+   * analyzed are lowered again soon after the cache was emptied.
+   */
+  public static final int maxStatements = 4096;
+  private final ConcurrentMap<RReilAddr, Lowered> statements = new ConcurrentHashMap<RReilAddr, Lowered>();
+
+  /**
+   * Start lowering the statement {@code source} at the given address.
+   *
+   * @param address The address of the statement
+   * @param source The RREIL expression that is lowered, compared by identity
+   */
+  public Lowering begin (RReilAddr address, Object source) {
+    Lowered previous = statements.get(address);
+    if (previous != null && previous.source != source)
+      previous = null;
+    return new Lowering(address, source, previous);
+  }
+
+  public int size () {
+    return statements.size();
+  }
+
+  /**
+   * Remove all the lowered statements, e.g. when the analysis that used the cache ended.
+   */
+  public void clear () {
+    statements.clear();
+  }
+
+  private void store (RReilAddr address, Lowered lowered) {
+    if (statements.size() >= maxStatements && !statements.containsKey(address))
+      statements.clear();
+    statements.put(address, lowered);
+  }
+
+  /**
+   * The lowered nodes of a statement. For each node the operands it was built from are stored followed by the built
+   * expression.
+   */
+  private static final class Lowered {
+    private final Object source;
+    private final Map<Object, Object[]> nodes;
+    private final Object[] statement;
+
+    Lowered (Object source, Map<Object, Object[]> nodes, Object[] statement) {
+      this.source = source;
+      this.nodes = nodes;
+      this.statement = statement;
+    }
+  }
+
+  /**
+   * Lowers one statement using the previous lowering of it. The nodes of the RREIL expression are used as keys by
+   * identity. Call {@link #end()} when the statement was lowered.
+   */
+  public final class Lowering {
+    private final RReilAddr address;
+    private final Object source;
+    private final Lowered previous;
+    // the nodes of this lowering, only built if some node was not found in the previous lowering
+    private Map<Object, Object[]> nodes;
+    private Object[] statement;
+    private boolean statementChanged;
+
+    private Lowering (RReilAddr address, Object source, Lowered previous) {
+      this.address = address;
+      this.source = source;
+      this.previous = previous;
+      this.statement = previous == null ? null : previous.statement;
+    }
+
+    /**
+     * Return the previous lowering of a node without operands, e.g. a literal.
+     *
+     * @return the previous expression or {@code null}
+     */
+    public <T> T lookup (Object node) {
+      return lookupNode(node, 1, null, null);
+    }
+
+    /**
+     * Return the previous lowering of a node if it was built from the same operand.
+     *
+     * @return the previous expression or {@code null}
+     */
+    public <T> T lookup (Object node, Object operand) {
+      return lookupNode(node, 2, operand, null);
+    }
+
+    /**
+     * Return the previous lowering of a node if it was built from the same operands.
+     *
+     * @return the previous expression or {@code null}
+     */
+    public <T> T lookup (Object node, Object left, Object right) {
+      return lookupNode(node, 3, left, right);
+    }
+
+    @SuppressWarnings("unchecked") private <T> T lookupNode (Object node, int length, Object left, Object right) {
+      Object[] entry = previousEntry(node);
+      if (entry == null || entry.length != length)
+        return null;
+      if (length > 1 && entry[0] != left)
+        return null;
+      if (length > 2 && entry[1] != right)
+        return null;
+      return (T) entry[length - 1];
+    }
+
+    /**
+     * Return the previous lowering of a variable or the given expression if it is not equal to the previous one.
+     */
+    @SuppressWarnings("unchecked") public <T> T share (Object node, T lowered) {
+      Object[] entry = previousEntry(node);
+      if (entry != null && entry.length == 1 && entry[0].equals(lowered))
+        return (T) entry[0];
+      return record(node, lowered);
+    }
+
+    public <T> T record (Object node, T lowered) {
+      return recordNode(node, new Object[] {lowered}, lowered);
+    }
+
+    public <T> T record (Object node, Object operand, T lowered) {
+      return recordNode(node, new Object[] {operand, lowered}, lowered);
+    }
+
+    public <T> T record (Object node, Object left, Object right, T lowered) {
+      return recordNode(node, new Object[] {left, right, lowered}, lowered);
+    }
+
+    private <T> T recordNode (Object node, Object[] entry, T lowered) {
+      if (nodes == null) {
+        nodes = previous == null ?
+            new IdentityHashMap<Object, Object[]>() : new IdentityHashMap<Object, Object[]>(previous.nodes);
+      }
+      nodes.put(node, entry);
+      return lowered;
+    }
+
+    private Map<Object, Object[]> emptyNodes () {
+      return new IdentityHashMap<Object, Object[]>();
+    }
+
+    private Object[] previousEntry (Object node) {
+      if (previous == null)
+        return null;
+      return previous.nodes.get(node);
+    }
+
+    /**
+     * Return the previously lowered statement if it was built from the same lhs and rhs.
+     *
+     * @return the previous statement or {@code null}
+     */
+    @SuppressWarnings("unchecked") public <T> T lookupStatement (Object lhs, Object rhs) {
+      if (statement == null || statement[0] != lhs || statement[1] != rhs)
+        return null;
+      return (T) statement[2];
+    }
+
+    public <T> T recordStatement (Object lhs, Object rhs, T lowered) {
+      statement = new Object[] {lhs, rhs, lowered};
+      statementChanged = true;
+      return lowered;
+    }
+
+    /**
+     * Store the lowering of the statement in the cache if it changed.
+     */
+    public void end () {
+      if (nodes != null)
+        store(address, new Lowered(source, nodes, statement));
+      else if (statementChanged)
+        store(address, new Lowered(source, previous == null ? emptyNodes() : previous.nodes, statement));
+    }
+  }
+}
@@ -85,6 +85,19 @@ public abstract class Zeno {
     @Override public String toString () {
       return lhs + " = " + rhs;
     }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Assign))
+        return false;
+      Assign other = (Assign) obj;
+      return lhs.equals(other.lhs) && rhs.equals(other.rhs);
+    }
+
+    @Override public int hashCode () {
+      return 31 * lhs.hashCode() + rhs.hashCode();
+    }
   }
 
   /**
@@ -108,6 +121,18 @@ public abstract class Zeno {
     @Override public String toString () {
       return id.toString();
     }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Lhs))
+        return false;
+      return id.equalTo(((Lhs) obj).id);
+    }
+
+    @Override public int hashCode () {
+      return id.hashCode();
+    }
   }
 
   public abstract static class Rhs {
@@ -153,6 +178,19 @@ public abstract class Zeno {
     @Override public String toString () {
       return left + " " + op + " " + right;
     }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Bin))
+        return false;
+      Bin other = (Bin) obj;
+      return op == other.op && left.equals(other.left) && right.equals(other.right);
+    }
+
+    @Override public int hashCode () {
+      return (31 * op.hashCode() + left.hashCode()) * 31 + right.hashCode();
+    }
   }
 
   public static final class Test implements Comparable<Test>, XmlPrintable {
@@ -305,6 +343,7 @@ public abstract class Zeno {
   public static final class Rlin extends Rhs implements Comparable<Rlin> {
     private final Linear linearTerm;
     private final BigInt divisor;
+    private int hash;
 
     public Rlin (Linear linearTerm) {
       this.linearTerm = linearTerm;
@@ -404,19 +443,24 @@ public abstract class Zeno {
     }
 
     @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
       if (obj == null)
         return false;
       if (!(obj instanceof Rlin))
         return false;
       final Rlin other = (Rlin) obj;
-      return compareTo(other) == 0;
+      return hashCode() == other.hashCode() && compareTo(other) == 0;
     }
 
     @Override public int hashCode () {
-      int hash = 5;
-      hash = 67 * hash + (this.linearTerm != null ? this.linearTerm.hashCode() : 0);
-      hash = 67 * hash + (this.divisor != null ? this.divisor.hashCode() : 0);
-      return hash;
+      if (hash != 0)
+        return hash;
+      int result = 5;
+      result = 67 * result + (this.linearTerm != null ? this.linearTerm.hashCode() : 0);
+      result = 67 * result + (this.divisor != null ? this.divisor.hashCode() : 0);
+      hash = result;
+      return result;
     }
 
   }
@@ -1,21 +1,26 @@
 package bindead.analyses;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 
 import javalx.data.Option;
 import javalx.numeric.FiniteRange;
-import javalx.persistentcollections.tree.FiniteRangeTree;
-import javalx.persistentcollections.tree.OverlappingRanges;
+import javalx.persistentcollections.tree.LongRangeTree;
 import rreil.disassembler.BlockOfInstructions;
 import rreil.disassembler.Instruction;
 import rreil.disassembler.UnknownInstruction;
 import rreil.lang.RReilAddr;
 import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.analyses.warnings.DisassemblyCacheWarning;
 import bindead.analyses.warnings.UnknownInstructionWarning;
 import bindead.analyses.warnings.WarningsMap;
 import bindead.domainnetwork.channels.WarningMessage;
@@ -38,12 +43,17 @@ import binparse.Symbol;
 public class BinaryCodeCache {
   private final Binary binary;
   private final Disassembler disassembler;
-  private FiniteRangeTree<Segment> segments = FiniteRangeTree.empty();
+  private LongRangeTree<Segment> segments = LongRangeTree.empty();
   private final SortedMap<Long, Instruction> instructions = new TreeMap<>();
   private final SortedMap<Long, BlockOfInstructions> blocks = new TreeMap<>();
+  // the instructions decoded ahead of the disassembly, see predecode()
+  private final ConcurrentNavigableMap<Long, Instruction> predecoded = new ConcurrentSkipListMap<>();
   private final Map<Long, String> symbolsCache = new HashMap<Long, String>();
   private final boolean SKIPUNKNOWNINSNS = AnalysisProperties.INSTANCE.skipDisassembleErrors.isTrue();
   private final boolean DISASSEMBLEBLOCKS = AnalysisProperties.INSTANCE.disassembleBlockWise.isTrue();
+  private final String CACHEDIRECTORY = AnalysisProperties.INSTANCE.disassemblyCacheDirectory.getString();
+  // the caches of the segments or null if the cache of a segment could not be read
+  private final Map<Long, DisassemblyCache> persistentCaches = new HashMap<>();
   private WarningsMap warningsMap;
 
   public BinaryCodeCache (Binary binary, Disassembler dis, WarningsMap warningsMap) {
@@ -90,26 +100,86 @@ public class BinaryCodeCache {
 
   /**
    * Decode an instruction at the given address {@code nativeAddress} and add it to {@code this}.
+   * If a cache directory is set the instruction and its translation are looked up in the persistent cache first.
    *
    * @param nativeAddress The code address.
    * @return The instruction at the given address.
+   * @see AnalysisProperties#disassemblyCacheDirectory
    */
   public Instruction decodeInstruction (long nativeAddress) {
     Segment segment = findSegment(nativeAddress);
-    Instruction insn;
+    DisassemblyCache cache = getPersistentCache(segment);
+    Instruction insn = cache == null ? null : cache.lookup(nativeAddress);
+    if (insn == null) {
+      insn = predecoded.get(nativeAddress);
+      if (insn == null)
+        insn = decode(segment, nativeAddress);
+      if (cache != null)
+        insn = cache.add(insn);
+    }
+    instructions.put(nativeAddress, insn);
+    return insn;
+  }
+
+  private Instruction decode (Segment segment, long nativeAddress) {
     try {
-      insn = disassembler.decodeOne(segment.getData(), (int) (nativeAddress - segment.getAddress()), nativeAddress);
+      return disassembler.decodeOne(segment.getBuffer(), (int) (nativeAddress - segment.getAddress()), nativeAddress);
     } catch (DecodeException e) {
-      if (SKIPUNKNOWNINSNS) {
-        DecodeCtx ctx = e.getErrCtx().getDecodeCtx();
-        insn = new UnknownInstruction(ctx.getStartPc(), ctx.slice());
-        addWarning(nativeAddress, new UnknownInstructionWarning(insn));
-      } else {
+      if (!SKIPUNKNOWNINSNS)
         throw e;
+      DecodeCtx ctx = e.getErrCtx().getDecodeCtx();
+      Instruction insn = new UnknownInstruction(ctx.getStartPc(), ctx.slice());
+      addWarning(nativeAddress, new UnknownInstructionWarning(insn));
+      return insn;
+    }
+  }
+
+  /**
+   * Decode all the executable segments of the binary with a linear sweep on the given threads. The instructions and
+   * their translation are kept aside and are used by {@link #decodeInstruction(long)} instead of decoding
+   * the instruction again. Thus the recursive disassembly of the binary afterwards does not need to decode anything.
+   * Only used for instruction wise disassembly.
+   *
+   * @return The number of the decoded instructions.
+   * @see ParallelLinearSweep
+   */
+  public int predecode (ForkJoinPool pool) {
+    new ParallelLinearSweep(binary, disassembler).run(pool, predecoded);
+    return predecoded.size();
+  }
+
+  /**
+   * Return the persistent cache for the segment or {@code null} if no cache is used or it could not be read.
+   */
+  private DisassemblyCache getPersistentCache (Segment segment) {
+    if (CACHEDIRECTORY.isEmpty())
+      return null;
+    if (persistentCaches.containsKey(segment.getAddress()))
+      return persistentCaches.get(segment.getAddress());
+    DisassemblyCache cache = null;
+    try {
+      cache = DisassemblyCache.open(new File(CACHEDIRECTORY), segment, disassembler);
+    } catch (IOException e) {
+      addWarning(segment.getAddress(), new DisassemblyCacheWarning("read", segment, e));
+    }
+    persistentCaches.put(segment.getAddress(), cache);
+    return cache;
+  }
+
+  /**
+   * Write the instructions that were decoded since the last call to the persistent cache, if a cache is used.
+   */
+  public void persist () {
+    for (DisassemblyCache cache : persistentCaches.values()) {
+      if (cache == null)
+        continue;
+      try {
+        cache.save();
+      } catch (IOException e) {
+        Segment segment = cache.getSegment();
+        addWarning(segment.getAddress(), new DisassemblyCacheWarning("write", segment, e));
       }
     }
-    instructions.put(nativeAddress, insn);
-    return insn;
   }
 
   /**
@@ -121,7 +191,7 @@ public class BinaryCodeCache {
   public BlockOfInstructions decodeBlock (long nativeAddress) {
     Segment segment = findSegment(nativeAddress);
     BlockOfInstructions block =
-      disassembler.decodeBlock(segment.getData(), (int) (nativeAddress - segment.getAddress()), nativeAddress);
+      disassembler.decodeBlock(segment.getBuffer(), (int) (nativeAddress - segment.getAddress()), nativeAddress);
     blocks.put(nativeAddress, block);
     for (Instruction insn : block.getInstructions()) {
       instructions.put(insn.baseAddress(), insn);
@@ -146,15 +216,9 @@ public class BinaryCodeCache {
   }
 
   private Segment findSegment (long nativeAddress) throws UnknownCodeAddressException {
-    OverlappingRanges<Segment> overlapping = segments.searchOverlaps(FiniteRange.of(nativeAddress));
-    switch (overlapping.size()) {
-    case 0:
-      throw new UnknownCodeAddressException();
-    case 1:
-      return overlapping.getFirst()._2();
-    default:
+    if (segments.countOverlaps(nativeAddress, nativeAddress, 2) != 1)
       throw new UnknownCodeAddressException();
-    }
+    return segments.findOverlap(nativeAddress, nativeAddress);
   }
 
   private void loadCodeSegments () {
@@ -225,6 +289,8 @@ public class BinaryCodeCache {
     String architecture = binary.getArchitectureName();
     // currently only implemented for x86
     if (architecture.equals(AbstractBinary.x86_32) || architecture.equals(AbstractBinary.x86_64)) {
+      if (instruction instanceof DisassemblyCache.CachedInstruction)
+        instruction = ((DisassemblyCache.CachedInstruction) instruction).getDecoded();
       X86PrettyPrinter printer = new X86PrettyPrinter(instruction);
       return printer.getRichInstruction(binary);
     }
@@ -0,0 +1,342 @@
+package bindead.analyses;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rreil.disassembler.Instruction;
+import rreil.disassembler.OperandTree;
+import rreil.disassembler.UnknownInstruction;
+import rreil.disassembler.translators.common.TranslationException;
+import rreil.lang.RReil;
+import rreil.lang.lowlevel.LowLevelRReil;
+import rreil.lang.lowlevel.RReilHighLevelToLowLevelWrapper;
+import rreil.lang.util.RReilSerializer;
+import bindis.Disassembler;
+import binparse.Segment;
+
+/**
+ * A persistent cache for the instructions of a code segment and their translation to RREIL. The cache is stored in a
+ * file that is named after a hash of the segment contents and address, the disassembler platform and the version of
+ * its translator. Thus any change to one of them uses a different file. The file is memory mapped and the instructions
+ * are only decoded from it when they are requested by the analysis.<br>
+ *
+ * The file consists of a header, the string table used by the {@link RReilSerializer}, an index from the instruction
+ * addresses to their position in the data section and the data section holding for each instruction its length,
+ * mnemonic and the serialized RREIL statements.<br>
+ *
+ * Analyses running concurrently on the same segment, also in different processes, merge their instructions into the
+ * cache file. The writes are serialized with a lock file next to the cache file.
+ */
+public class DisassemblyCache {
+  private static final int MAGIC = 0x52524543; // "RREC"
+  private static final int FORMAT_VERSION = 1;
+  private static final String FILE_SUFFIX = ".rreil";
+  private static final String LOCK_SUFFIX = ".lock";
+  // file locks are held by the whole process thus the threads of this process are serialized separately
+  private static final Object saving = new Object();
+  private final File file;
+  private final Segment segment;
+  private final Disassembler disassembler;
+  private List<String> strings = Collections.emptyList();
+  private ByteBuffer data = ByteBuffer.allocate(0);
+  private RReilSerializer.Reader reader = new RReilSerializer.Reader(data, strings);
+  private Map<Long, Integer> positions = new HashMap<>();
+  private final Map<Long, CachedInstruction> added = new HashMap<>();
+
+  private DisassemblyCache (File file, Segment segment, Disassembler disassembler) {
+    this.file = file;
+    this.segment = segment;
+    this.disassembler = disassembler;
+  }
+
+  /**
+   * Open the cache for the given segment in the given directory. Creates the directory if it does not exist.
+   *
+   * @return The cache for the segment. It is empty if no instructions of the segment were cached before.
+   * @throws IOException if the cache file exists but could not be read
+   */
+  public static DisassemblyCache open (File directory, Segment segment, Disassembler disassembler)
+      throws IOException {
+    directory.mkdirs();
+    File file = new File(directory, key(segment, disassembler) + FILE_SUFFIX);
+    DisassemblyCache cache = new DisassemblyCache(file, segment, disassembler);
+    cache.load();
+    return cache;
+  }
+
+  private static String key (Segment segment, Disassembler disassembler) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(ByteBuffer.allocate(8).putLong(segment.getAddress()).array());
+      digest.update(segment.getBuffer().duplicate());
+      digest.update(disassembler.getArchitectureName().getBytes(StandardCharsets.UTF_8));
+      digest.update(disassembler.getTranslatorVersion().getBytes(StandardCharsets.UTF_8));
+      StringBuilder builder = new StringBuilder();
+      for (byte b : digest.digest()) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Map the cache file to memory and read its index. A missing or invalid file results in an empty cache.
+   */
+  private void load () throws IOException {
+    if (!file.isFile())
+      return;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION)
+        return;
+      int stringsCount = in.getInt();
+      if (stringsCount < 0 || stringsCount > in.remaining() / 4)
+        return;
+      List<String> strings = new ArrayList<>(stringsCount);
+      for (int i = 0; i < stringsCount; i++) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining())
+          return;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        strings.add(new String(bytes, StandardCharsets.UTF_8));
+      }
+      int entriesCount = in.getInt();
+      if (entriesCount < 0 || entriesCount > in.remaining() / 12)
+        return;
+      Map<Long, Integer> positions = new HashMap<>(entriesCount * 2);
+      for (int i = 0; i < entriesCount; i++) {
+        long address = in.getLong();
+        positions.put(address, in.getInt());
+      }
+      int dataLength = in.getInt();
+      if (in.remaining() != dataLength)
+        return;
+      for (int position : positions.values()) {
+        if (position < 0 || position >= dataLength)
+          return;
+      }
+      this.strings = strings;
+      this.positions = positions;
+      this.data = in.slice();
+      this.reader = new RReilSerializer.Reader(data, strings);
+    } catch (BufferUnderflowException _) {
+      // a truncated cache file is ignored and overwritten with the next save
+    }
+  }
+
+  /**
+   * Return the cached instruction at the given address or {@code null} if it is not in the cache.
+   */
+  public Instruction lookup (long nativeAddress) {
+    CachedInstruction insn = added.get(nativeAddress);
+    if (insn != null)
+      return insn;
+    Integer position = positions.get(nativeAddress);
+    if (position == null)
+      return null;
+    reader.position(position);
+    int length = reader.readInt();
+    String mnemonic = reader.readString();
+    int stmtsCount = reader.readInt();
+    List<RReil> stmts = new ArrayList<>(stmtsCount);
+    for (int i = 0; i < stmtsCount; i++) {
+      stmts.add(reader.read());
+    }
+    int offset = (int) (nativeAddress - segment.getAddress());
+    byte[] opcode = new byte[length];
+    ByteBuffer code = segment.getBuffer().duplicate();
+    code.position(offset);
+    code.get(opcode);
+    return new CachedInstruction(nativeAddress, opcode, mnemonic, stmts, disassembler, null);
+  }
+
+  /**
+   * Translate a newly decoded instruction and add it to the cache. Instructions that could not be decoded or
+   * translated are not cached.
+   *
+   * @return The instruction to be used instead of the given one. It does not need to be translated again.
+   */
+  public Instruction add (Instruction insn) {
+    Instruction translated = translate(insn, disassembler);
+    if (translated instanceof CachedInstruction)
+      added.put(insn.baseAddress(), (CachedInstruction) translated);
+    return translated;
+  }
+
+  /**
+   * Translate a newly decoded instruction and keep the translation with it.
+   *
+   * @return The instruction with its translation or the given instruction if it could not be decoded or translated.
+   */
+  static Instruction translate (Instruction insn, Disassembler disassembler) {
+    if (insn instanceof UnknownInstruction || insn instanceof CachedInstruction)
+      return insn;
+    List<RReil> stmts = new ArrayList<>();
+    try {
+      for (LowLevelRReil stmt : insn.toRReilInstructions()) {
+        stmts.add(stmt.toRReil());
+      }
+    } catch (TranslationException e) {
+      // let the analysis report the error when it translates the instruction
+      return insn;
+    }
+    return new CachedInstruction(insn.baseAddress(), insn.opcode(), insn.mnemonic(), stmts, disassembler, insn);
+  }
+
+  /**
+   * Write the instructions added since the last save to the cache file. The instructions that other analyses wrote to
+   * the file in the meantime are read again and kept. The file is replaced atomically so that concurrent analyses of
+   * the same segment see either the old or the new version.
+   *
+   * @throws IOException if the cache file could not be written. The instructions are kept to be written with the next
+   *           save.
+   */
+  public void save () throws IOException {
+    if (added.isEmpty())
+      return;
+    File lockFile = new File(file.getPath() + LOCK_SUFFIX);
+    synchronized (saving) {
+      try (FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE); FileLock lock = lockChannel.lock()) {
+        load();
+        write();
+      }
+    }
+    added.clear();
+    load();
+  }
+
+  /**
+   * Write the loaded instructions together with the added ones that are not in the cache file yet.
+   */
+  private void write () throws IOException {
+    RReilSerializer.Writer writer = new RReilSerializer.Writer(strings);
+    byte[] previousData = new byte[data.limit()];
+    data.position(0);
+    data.get(previousData);
+    writer.writeBytes(previousData);
+    Map<Long, Integer> newPositions = new HashMap<>(positions);
+    for (CachedInstruction insn : added.values()) {
+      if (positions.containsKey(insn.baseAddress()))
+        continue;
+      newPositions.put(insn.baseAddress(), writer.size());
+      writer.writeInt(insn.length());
+      writer.writeString(insn.mnemonic());
+      writer.writeInt(insn.stmts.size());
+      for (RReil stmt : insn.stmts) {
+        writer.write(stmt);
+      }
+    }
+    if (newPositions.size() == positions.size())
+      return;
+    RReilSerializer.Writer header = new RReilSerializer.Writer();
+    header.writeInt(MAGIC);
+    header.writeInt(FORMAT_VERSION);
+    header.writeInt(writer.getStrings().size());
+    for (String string : writer.getStrings()) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      header.writeInt(bytes.length);
+      header.writeBytes(bytes);
+    }
+    header.writeInt(newPositions.size());
+    for (Map.Entry<Long, Integer> entry : newPositions.entrySet()) {
+      header.writeLong(entry.getKey());
+      header.writeInt(entry.getValue());
+    }
+    header.writeInt(writer.size());
+    File temporary = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try {
+      try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+        channel.write(ByteBuffer.wrap(header.toByteArray()));
+        channel.write(ByteBuffer.wrap(writer.toByteArray()));
+      }
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      // the temporary file is only left over if it could not be moved to the cache file
+      temporary.delete();
+    }
+  }
+
+  public Segment getSegment () {
+    return segment;
+  }
+
+  /**
+   * The number of instructions in the cache.
+   */
+  public int size () {
+    int size = positions.size();
+    for (Long address : added.keySet()) {
+      if (!positions.containsKey(address))
+        size++;
+    }
+    return size;
+  }
+
+  /**
+   * An instruction with its translation to RREIL. The operand trees are only needed for printing and are decoded
+   * again from the opcode when requested.
+   */
+  public static class CachedInstruction extends Instruction {
+    private final List<RReil> stmts;
+    private final Disassembler disassembler;
+    private Instruction decoded;
+
+    private CachedInstruction (long address, byte[] opcode, String mnemonic, List<RReil> stmts,
+        Disassembler disassembler, Instruction decoded) {
+      super(address, opcode, mnemonic, Collections.<OperandTree>emptyList());
+      this.stmts = stmts;
+      this.disassembler = disassembler;
+      this.decoded = decoded;
+    }
+
+    /**
+     * Return the instruction as decoded by the disassembler.
+     */
+    public Instruction getDecoded () {
+      if (decoded == null)
+        decoded = disassembler.decodeOne(opcode(), 0, baseAddress());
+      return decoded;
+    }
+
+    @Override public List<OperandTree> operands () {
+      return getDecoded().operands();
+    }
+
+    @Override public OperandTree operand (int i) {
+      return getDecoded().operand(i);
+    }
+
+    @Override public StringBuilder asString (StringBuilder buf) {
+      return getDecoded().asString(buf);
+    }
+
+    @Override public List<LowLevelRReil> toRReilInstructions () throws TranslationException {
+      List<LowLevelRReil> instructions = new ArrayList<>(stmts.size());
+      for (RReil stmt : stmts) {
+        instructions.add(new RReilHighLevelToLowLevelWrapper(stmt));
+      }
+      return instructions;
+    }
+  }
+}
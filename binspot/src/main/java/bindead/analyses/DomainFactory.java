@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import bindead.analyses.AnalysisFactory.DomainHierarchyFactory;
+import bindead.analyses.algorithms.AnalysisProperties;
 import bindead.domainnetwork.interfaces.FiniteDomain;
 import bindead.domainnetwork.interfaces.MemoryDomain;
 import bindead.domainnetwork.interfaces.RootDomain;
@@ -24,6 +25,8 @@ import bindead.domains.finitesupportset.FiniteSupportSet;
 import bindead.domains.gauge.Gauge;
 import bindead.domains.intervals.IntervalSets;
 import bindead.domains.intervals.Intervals;
+import bindead.domains.metrics.DomainMetrics;
+import bindead.domains.octagons.Octagons;
 import bindead.domains.phased.Phased;
 import bindead.domains.pointsto.PointsTo;
 import bindead.domains.root.Root;
@@ -234,6 +237,11 @@ public class DomainFactory {
         return new ApronPolyhedra();
       }
     });
+    addBuilder(Octagons.NAME, new DomainBuilder() {
+      @Override public Object instantiate (List<String> childHierarchy) {
+        return new Octagons();
+      }
+    });
 
     // domains that are superseded but still around for reference and useful in some special cases
     addBuilder(Affine.NAME, new DomainBuilder() {
@@ -256,7 +264,10 @@ public class DomainFactory {
     DomainBuilder builder = getDomainBuilder(nextDomain);
     if (builder == null)
       throw new IllegalArgumentException("Could not find a builder for domain: " + nextDomain);
-    return builder.instantiate(domains);
+    Object domain = builder.instantiate(domains);
+    if (AnalysisProperties.INSTANCE.collectDomainMetrics.isTrue())
+      return DomainMetrics.INSTANCE.instrument(domain);
+    return domain;
   }
 
   private static void addBuilder (String name, DomainBuilder domainBuilder) {
@@ -0,0 +1,227 @@
+package bindead.analyses;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ForkJoinPool;
+
+import rreil.disassembler.Instruction;
+import bindis.Disassembler;
+import binparse.Binary;
+import binparse.Permission;
+import binparse.Segment;
+import binparse.Symbol;
+
+/**
+ * Linear sweep disassembly of the executable segments of a binary on a thread pool. Each segment is split into chunks
+ * that are decoded and translated to RREIL independently. A chunk starts at a resynchronization point, i.e. the entry
+ * point or a symbol, where possible or else at an arbitrary offset. The sweep always restarts at a resynchronization
+ * point. A chunk that starts at an arbitrary offset may start in the middle of an instruction of the previous chunk,
+ * thus the previous chunk continues decoding into it until both decode an instruction at the same address.
+ * From there on both chunks decode the same instructions. Hence, the result is the same as for a sequential sweep and
+ * does not depend on the chunk size or the number of threads.<br>
+ *
+ * Bytes that cannot be decoded are skipped. The recursive disassembly decodes them again when it reaches them and
+ * reports the errors as usual.
+ */
+public class ParallelLinearSweep {
+  /**
+   * The default number of bytes in a chunk. Chunks are larger if there is no resynchronization point after that many
+   * bytes but one close to it.
+   */
+  public static final int defaultChunkSize = 64 * 1024;
+  private final Binary binary;
+  private final Disassembler disassembler;
+  private final int chunkSize;
+
+  public ParallelLinearSweep (Binary binary, Disassembler disassembler) {
+    this(binary, disassembler, defaultChunkSize);
+  }
+
+  public ParallelLinearSweep (Binary binary, Disassembler disassembler, int chunkSize) {
+    assert chunkSize > 0 : "invalid chunk size";
+    this.binary = binary;
+    this.disassembler = disassembler;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Decode the executable segments and add the instructions to the given map.
+   *
+   * @param pool The threads to decode the chunks on.
+   * @param instructions The map from addresses to the instructions with their translation to RREIL.
+   */
+  public void run (ForkJoinPool pool, ConcurrentNavigableMap<Long, Instruction> instructions) {
+    List<Chunk> chunks = new ArrayList<>();
+    for (Segment segment : binary.getSegments()) {
+      if (segment.getSize() > 0 && Permission.isExecutable(segment.getPermissions()))
+        chunks.addAll(split(segment));
+    }
+    pool.invokeAll(chunks);
+    for (int i = 1; i < chunks.size(); i++) {
+      chunks.get(i - 1).synchronizeWith(chunks.get(i));
+    }
+    List<Callable<Void>> merges = new ArrayList<>();
+    for (Chunk chunk : chunks) {
+      merges.add(chunk.mergeInto(instructions));
+    }
+    pool.invokeAll(merges);
+  }
+
+  /**
+   * Split a segment into chunks that start at resynchronization points where possible.
+   */
+  private List<Chunk> split (Segment segment) {
+    long start = segment.getAddress();
+    long end = start + segment.getSize();
+    SortedSet<Long> anchors = resynchronizationPoints(start, end);
+    List<Chunk> chunks = new ArrayList<>();
+    long chunkStart = start;
+    boolean anchored = true;
+    while (chunkStart < end) {
+      long minimalEnd = Math.min(end, chunkStart + chunkSize);
+      SortedSet<Long> following = anchors.tailSet(minimalEnd);
+      long chunkEnd;
+      boolean endAnchored;
+      if (!following.isEmpty() && following.first() < minimalEnd + chunkSize / 2) {
+        chunkEnd = following.first();
+        endAnchored = true;
+      } else if (!anchors.subSet(chunkStart + 1, minimalEnd).isEmpty()) {
+        chunkEnd = anchors.subSet(chunkStart + 1, minimalEnd).last();
+        endAnchored = true;
+      } else {
+        chunkEnd = minimalEnd;
+        endAnchored = chunkEnd == end;
+      }
+      // the anchors that the sweep of the chunk restarts at include the end of the chunk if it is one
+      SortedSet<Long> chunkAnchors = new TreeSet<>(anchors.subSet(chunkStart + 1, chunkEnd + 1));
+      chunks.add(new Chunk(segment, chunkStart, chunkEnd, anchored, chunkAnchors));
+      chunkStart = chunkEnd;
+      anchored = endAnchored;
+    }
+    return chunks;
+  }
+
+  private SortedSet<Long> resynchronizationPoints (long start, long end) {
+    SortedSet<Long> anchors = new TreeSet<>();
+    addIfInside(anchors, binary.getEntryAddress(), start, end);
+    for (Symbol symbol : binary.getExportedSymbols()) {
+      addIfInside(anchors, symbol.getAddress(), start, end);
+    }
+    return anchors;
+  }
+
+  private static void addIfInside (SortedSet<Long> anchors, long address, long start, long end) {
+    if (start < address && address < end)
+      anchors.add(address);
+  }
+
+  /**
+   * A range of a segment that is decoded by one task. The decoding stops at the end of the range or, if the next chunk
+   * does not start at a resynchronization point, continues until it synchronizes with the next chunk.
+   */
+  private final class Chunk implements Callable<Void> {
+    private final Segment segment;
+    private final long start;
+    private final long end;
+    private final boolean anchored;
+    private final SortedSet<Long> anchors;
+    private final NavigableMap<Long, Instruction> decoded = new TreeMap<>();
+    // the address following the last decoded instruction
+    private long next;
+
+    Chunk (Segment segment, long start, long end, boolean anchored, SortedSet<Long> anchors) {
+      this.segment = segment;
+      this.start = start;
+      this.end = end;
+      this.anchored = anchored;
+      this.anchors = anchors;
+    }
+
+    @Override public Void call () {
+      next = sweep(start, end, decoded);
+      return null;
+    }
+
+    /**
+     * Continue the sweep of this chunk into the next chunk until both agree on an instruction start and drop the
+     * instructions of the next chunk that were decoded before that. If the next chunk starts at a resynchronization
+     * point nothing needs to be done as the sequential sweep also restarts there.
+     */
+    void synchronizeWith (Chunk following) {
+      if (following.anchored || following.segment != segment)
+        return;
+      long address = next;
+      NavigableMap<Long, Instruction> overlap = new TreeMap<>();
+      while (address < following.next && !following.decoded.containsKey(address)) {
+        long stop = following.nextAnchor(address);
+        address = sweepOne(address, stop, overlap);
+      }
+      following.decoded.headMap(address).clear();
+      following.decoded.putAll(overlap);
+      if (address >= following.next)
+        following.next = address;
+    }
+
+    private long nextAnchor (long address) {
+      SortedSet<Long> remaining = anchors.tailSet(address + 1);
+      return remaining.isEmpty() ? segment.getAddress() + segment.getSize() : remaining.first();
+    }
+
+    Callable<Void> mergeInto (final Map<Long, Instruction> instructions) {
+      return new Callable<Void>() {
+        @Override public Void call () {
+          instructions.putAll(decoded);
+          return null;
+        }
+      };
+    }
+
+    /**
+     * Decode the instructions between the given addresses and restart at each resynchronization point.
+     *
+     * @return The address following the last decoded instruction.
+     */
+    private long sweep (long from, long to, NavigableMap<Long, Instruction> into) {
+      long address = from;
+      while (address < to) {
+        address = sweepOne(address, nextAnchor(address), into);
+      }
+      return address;
+    }
+
+    /**
+     * Decode the instruction at the given address and translate it.
+     *
+     * @return The address of the next instruction. This is the given resynchronization point if the instruction
+     *         overlaps it.
+     */
+    private long sweepOne (long address, long anchor, NavigableMap<Long, Instruction> into) {
+      ByteBuffer code = segment.getBuffer();
+      int offset = (int) (address - segment.getAddress());
+      Instruction insn;
+      try {
+        insn = disassembler.decodeOne(code, offset, address);
+      } catch (RuntimeException e) {
+        return address + 1;
+      }
+      Instruction translated;
+      try {
+        translated = DisassemblyCache.translate(insn, disassembler);
+      } catch (RuntimeException e) {
+        // let the analysis report the error when it translates the instruction
+        translated = insn;
+      }
+      into.put(address, translated);
+      long following = address + insn.length();
+      return following > anchor ? anchor : following;
+    }
+  }
+}
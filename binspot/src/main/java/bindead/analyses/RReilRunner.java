@@ -32,6 +32,28 @@ public class RReilRunner {
    */
   public static <D extends RootDomain<D>> D eval (D state,
       String... instructions) {
+    RReil[] parsed = new RReil[instructions.length];
+    for (int i = 0; i < instructions.length; i++) {
+      parsed[i] = RReil.from(instructions[i]);
+    }
+    return eval(state, parsed);
+  }
+
+  /**
+   * Manipulate a domain state by using already parsed RREIL instructions,
+   * e.g. the ones of a {@link RReilSnippet}. Note though that only
+   * instructions without control flow will be executed, i.e. assignments,
+   * loads, stores and primOps.
+   *
+   * @param state
+   *          The state to be operated on
+   * @param instructions
+   *          A list of non-branching RREIL instructions to be executed on the
+   *          state
+   * @return The resulting state after executing the instructions
+   */
+  public static <D extends RootDomain<D>> D eval (D state,
+      RReil... instructions) {
     RReilVisitor<D, D> dispatcher = new Evaluator<D, D>() {
 
       @Override public D visit (Assign stmt, D state) {
@@ -56,9 +78,8 @@ public class RReilRunner {
 
     };
     D resultState = state;
-    for (String instruction : instructions) {
-      RReil rreilInstruction = RReil.from(instruction);
-      resultState = rreilInstruction.accept(dispatcher, resultState);
+    for (RReil instruction : instructions) {
+      resultState = instruction.accept(dispatcher, resultState);
     }
     return resultState;
   }
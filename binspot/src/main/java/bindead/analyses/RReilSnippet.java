@@ -0,0 +1,243 @@
+package bindead.analyses;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javalx.numeric.BigInt;
+import rreil.lang.Lhs;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReil.Assign;
+import rreil.lang.RReil.Branch;
+import rreil.lang.RReil.BranchToNative;
+import rreil.lang.RReil.Load;
+import rreil.lang.RReil.PrimOp;
+import rreil.lang.RReil.Store;
+import rreil.lang.Rhs;
+import rreil.lang.Rhs.Bin;
+import rreil.lang.Rhs.Cmp;
+import rreil.lang.Rhs.Convert;
+import rreil.lang.Rhs.Lin;
+import rreil.lang.Rhs.LinBin;
+import rreil.lang.Rhs.LinRval;
+import rreil.lang.Rhs.LinScale;
+import rreil.lang.Rhs.Rlit;
+import rreil.lang.Rhs.Rval;
+import rreil.lang.Rhs.Rvar;
+import rreil.lang.Rhs.SignExtend;
+import rreil.lang.Rhs.SimpleExpression;
+
+/**
+ * A sequence of RREIL instructions given in RREIL assembler syntax that is parsed only once and can then be evaluated
+ * many times with different arguments, e.g. the instructions that the analysis evaluates on each jump or call.<br>
+ *
+ * The instructions may contain the placeholders {@code $0, $1, ...} in place of operands. The placeholders are bound
+ * to literals or to registers when the instructions are requested. Their size is the one given by the
+ * instruction, e.g. in {@code "add.32 sp, sp, $0"} the placeholder is bound to a 32 bit literal. Instructions without
+ * placeholders are returned as parsed.
+ */
+public final class RReilSnippet {
+  private static final Pattern placeholderSyntax = Pattern.compile("\\$(\\d+)");
+  private static final String placeholderPrefix = "_snippetArg";
+  private static final AtomicInteger parsedInstructions = new AtomicInteger();
+  private final RReil[] instructions;
+  private final boolean[] parametric;
+  private final MemVar[] placeholders;
+
+  private RReilSnippet (RReil[] instructions, boolean[] parametric, MemVar[] placeholders) {
+    this.instructions = instructions;
+    this.parametric = parametric;
+    this.placeholders = placeholders;
+  }
+
+  /**
+   * Parse the given instructions.
+   *
+   * @param instructions A list of RREIL assembler instructions that may contain placeholders
+   * @return The parsed instructions
+   */
+  public static RReilSnippet compile (String... instructions) {
+    int arity = 0;
+    RReil[] parsed = new RReil[instructions.length];
+    for (int i = 0; i < instructions.length; i++) {
+      Matcher matcher = placeholderSyntax.matcher(instructions[i]);
+      while (matcher.find()) {
+        arity = Math.max(arity, Integer.parseInt(matcher.group(1)) + 1);
+      }
+      parsed[i] = RReil.from(matcher.replaceAll(placeholderPrefix + "$1"));
+      parsedInstructions.incrementAndGet();
+    }
+    MemVar[] placeholders = new MemVar[arity];
+    for (int i = 0; i < arity; i++) {
+      placeholders[i] = MemVar.getVarOrFresh(placeholderPrefix + i);
+    }
+    boolean[] parametric = new boolean[instructions.length];
+    for (int i = 0; i < instructions.length; i++) {
+      parametric[i] = placeholderSyntax.matcher(instructions[i]).find();
+    }
+    return new RReilSnippet(parsed, parametric, placeholders);
+  }
+
+  /**
+   * @return The number of instructions parsed by all the snippets so far.
+   */
+  public static int parsedInstructions () {
+    return parsedInstructions.get();
+  }
+
+  /**
+   * @return The number of different placeholders in the instructions.
+   */
+  public int arity () {
+    return placeholders.length;
+  }
+
+  /**
+   * Return the instructions with the placeholders replaced by the given arguments.
+   *
+   * @param arguments The argument for each placeholder in the order of their numbers. A {@link Number} replaces the
+   *          placeholder by a literal and a {@link String} by the register with that name.
+   * @return The instructions with the arguments in place of the placeholders
+   */
+  public RReil[] bind (Object... arguments) {
+    if (arguments.length != placeholders.length)
+      throw new IllegalArgumentException("Expected " + placeholders.length + " arguments but got " + arguments.length);
+    if (placeholders.length == 0)
+      return instructions.clone();
+    Substitution substitution = new Substitution(arguments);
+    RReil[] bound = new RReil[instructions.length];
+    for (int i = 0; i < instructions.length; i++) {
+      bound[i] = parametric[i] ? substitution.apply(instructions[i]) : instructions[i];
+    }
+    return bound;
+  }
+
+  @Override public String toString () {
+    StringBuilder builder = new StringBuilder();
+    for (RReil instruction : instructions) {
+      builder.append(instruction.toAssemblerString());
+      builder.append('\n');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Rebuilds the instructions with the placeholders replaced. Only the parts of an instruction that contain
+   * placeholders are rebuilt.
+   */
+  private final class Substitution {
+    private final Object[] arguments;
+
+    Substitution (Object[] arguments) {
+      this.arguments = arguments;
+    }
+
+    RReil apply (RReil insn) {
+      if (insn instanceof Assign) {
+        Assign stmt = (Assign) insn;
+        return new Assign(stmt.getRReilAddress(), lhs(stmt.getLhs()), rhs(stmt.getRhs()));
+      } else if (insn instanceof Load) {
+        Load stmt = (Load) insn;
+        return new Load(stmt.getRReilAddress(), lhs(stmt.getLhs()), lin(stmt.getReadAddress()));
+      } else if (insn instanceof Store) {
+        Store stmt = (Store) insn;
+        return new Store(stmt.getRReilAddress(), lin(stmt.getWriteAddress()), lin(stmt.getRhs()));
+      } else if (insn instanceof Branch) {
+        Branch stmt = (Branch) insn;
+        return new Branch(stmt.getRReilAddress(), lin(stmt.getTarget()), stmt.getBranchType());
+      } else if (insn instanceof BranchToNative) {
+        BranchToNative stmt = (BranchToNative) insn;
+        return new BranchToNative(stmt.getRReilAddress(), simple(stmt.getCond()), lin(stmt.getTarget()));
+      } else if (insn instanceof PrimOp) {
+        PrimOp stmt = (PrimOp) insn;
+        List<Lhs> outArgs = new ArrayList<>(stmt.getOutArgs().size());
+        for (Lhs arg : stmt.getOutArgs()) {
+          outArgs.add(lhs(arg));
+        }
+        List<Rval> inArgs = new ArrayList<>(stmt.getInArgs().size());
+        for (Rval arg : stmt.getInArgs()) {
+          inArgs.add(rval(arg));
+        }
+        return new PrimOp(stmt.getRReilAddress(), stmt.getName(), outArgs, inArgs);
+      }
+      throw new UnsupportedOperationException("Placeholders are not supported in the instruction " + insn);
+    }
+
+    private Lhs lhs (Lhs lhs) {
+      Object argument = argumentFor(lhs.getRegionId());
+      if (argument == null)
+        return lhs;
+      if (!(argument instanceof String))
+        throw new IllegalArgumentException("Cannot assign to the literal " + argument);
+      return new Lhs(lhs.getSize(), lhs.getOffset(), MemVar.getVarOrFresh((String) argument));
+    }
+
+    private Rhs rhs (Rhs rhs) {
+      if (rhs instanceof SimpleExpression)
+        return simple((SimpleExpression) rhs);
+      if (rhs instanceof Rval)
+        return rval((Rval) rhs);
+      if (rhs instanceof Bin) {
+        Bin bin = (Bin) rhs;
+        return new Bin(rval(bin.getLeft()), bin.getOp(), rval(bin.getRight()));
+      }
+      if (rhs instanceof SignExtend)
+        return new SignExtend(rval(((SignExtend) rhs).getRhs()));
+      if (rhs instanceof Convert)
+        return new Convert(rval(((Convert) rhs).getRhs()));
+      return rhs;
+    }
+
+    private SimpleExpression simple (SimpleExpression expression) {
+      if (expression instanceof Lin)
+        return lin((Lin) expression);
+      if (expression instanceof Cmp) {
+        Cmp cmp = (Cmp) expression;
+        return new Cmp(lin(cmp.getLeft()), cmp.getOp(), lin(cmp.getRight()));
+      }
+      return expression;
+    }
+
+    private Lin lin (Lin lin) {
+      if (lin instanceof LinRval) {
+        Rval value = ((LinRval) lin).getRval();
+        Rval substituted = rval(value);
+        return substituted == value ? lin : new LinRval(substituted);
+      }
+      if (lin instanceof LinBin) {
+        LinBin bin = (LinBin) lin;
+        return new LinBin(lin(bin.getLeft()), bin.getOp(), lin(bin.getRight()));
+      }
+      if (lin instanceof LinScale) {
+        LinScale scale = (LinScale) lin;
+        return new LinScale(lin(scale.getOpnd()), scale.getConst());
+      }
+      return lin;
+    }
+
+    private Rval rval (Rval value) {
+      if (!(value instanceof Rvar))
+        return value;
+      Rvar variable = (Rvar) value;
+      Object argument = argumentFor(variable.getRegionId());
+      if (argument == null)
+        return value;
+      if (argument instanceof Number)
+        return new Rlit(variable.getSize(), BigInt.of(((Number) argument).longValue()));
+      if (argument instanceof String)
+        return new Rvar(variable.getSize(), variable.getOffset(), MemVar.getVarOrFresh((String) argument));
+      throw new IllegalArgumentException("Unsupported argument " + argument);
+    }
+
+    private Object argumentFor (MemVar region) {
+      for (int i = 0; i < placeholders.length; i++) {
+        if (placeholders[i] == region)
+          return arguments[i];
+      }
+      return null;
+    }
+  }
+}
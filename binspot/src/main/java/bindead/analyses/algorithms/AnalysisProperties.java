@@ -2,6 +2,7 @@ package bindead.analyses.algorithms;
 
 import bindead.data.properties.BoolProperty;
 import bindead.data.properties.DebugProperties;
+import bindead.data.properties.StringProperty;
 
 public class AnalysisProperties extends DebugProperties {
   private static final String keyFmt = "analysis.%s.debug.%s";
@@ -25,6 +26,74 @@ public class AnalysisProperties extends DebugProperties {
    */
   public final BoolProperty processAddressesInOrder;
 
+  /**
+   * Process the program points in a weak topological order (Bourdoncle) of the control flow graph discovered so far
+   * and widen only at the heads of its components instead of guessing back-edges from the address order.
+   * Loops are stabilized from the inside out before the code following them is evaluated.
+   * Takes precedence over {@link #processAddressesInOrder}.
+   */
+  public final BoolProperty iterateInWeakTopologicalOrder;
+
+  /**
+   * Evaluate the transfer functions of independent program points in the worklist in parallel.
+   * The states are still committed sequentially in a fixed order so that the result does not depend
+   * on the number of threads or their scheduling. Currently only used by the call-string analysis.
+   */
+  public final BoolProperty parallelFixpoint;
+
+  /**
+   * Decode and translate the executable segments of the binary with a linear sweep in parallel before the recursive
+   * disassembly follows the jumps through the code. Only used for the builtin disassembler with instruction wise
+   * disassembly.
+   */
+  public final BoolProperty parallelDisassembly;
+
+  /**
+   * Record the input and output states of each procedure analyzed by the call-string analysis and reuse them for
+   * later calls to the same procedure whose entry state is included in a recorded input instead of analyzing the
+   * procedure again in a new call-string. Trades precision at these calls for less analysis time on binaries
+   * that call the same helpers from many places.
+   */
+  public final BoolProperty procedureSummaries;
+
+  /**
+   * Apply the operations of the disjunctive domains, i.e. Disjunction and Phased, to their elements in parallel
+   * if there are enough of them. The results are combined in the order of the elements so that they do not depend
+   * on the scheduling of the threads.
+   */
+  public final BoolProperty parallelDisjunctions;
+
+  /**
+   * A directory where the disassembled and translated code of the analyzed binaries is stored and reused by later
+   * runs on the same code. The cache is disabled if no directory is set.
+   */
+  public final StringProperty disassemblyCacheDirectory;
+
+  /**
+   * Wrap each domain of the domain hierarchy into a decorator that measures the time, calls and allocations of its
+   * operations. The results are collected in {@link bindead.domains.metrics.DomainMetrics#INSTANCE}.
+   * Must be set before the domain hierarchy is built.
+   */
+  public final BoolProperty collectDomainMetrics;
+
+  /**
+   * Keep the states only at junctions, widening points and block heads and recompute the states of the straight-line
+   * code in between on demand. Trades analysis time on queries for a much smaller state space on large binaries.
+   */
+  public final BoolProperty sparseStateStorage;
+
+  /**
+   * Estimate the memory retained by the states of the analysis and how much of it is shared between the states and
+   * print it with the summary of the analysis. Walks all the states thus it takes some time for large analyses.
+   */
+  public final BoolProperty measureStateSharing;
+
+  /**
+   * A file to which the stamps of the numeric variables of the largest state are written at the end of the analysis,
+   * one per line. The file can be used as the keys of the collection benchmarks. Nothing is written if no file is set.
+   */
+  public final StringProperty variablesDumpFile;
+
   private AnalysisProperties () {
     super(NAME);
     debugNativeCode = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "debugNativeCode"));
@@ -38,5 +107,17 @@ public class AnalysisProperties extends DebugProperties {
       new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "ignoreNonExistentJumpTargets"));
     processAddressesInOrder = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "processAddressesInOrder"));
     processAddressesInOrder.setValue(true); // on by default
+    iterateInWeakTopologicalOrder =
+      new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "iterateInWeakTopologicalOrder"));
+    parallelFixpoint = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "parallelFixpoint"));
+    parallelDisassembly = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "parallelDisassembly"));
+    procedureSummaries = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "procedureSummaries"));
+    parallelDisjunctions = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "parallelDisjunctions"));
+    disassemblyCacheDirectory =
+      new StringProperty(String.format(keyFmt, NAME.toLowerCase(), "disassemblyCacheDirectory"));
+    collectDomainMetrics = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "collectDomainMetrics"));
+    sparseStateStorage = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "sparseStateStorage"));
+    measureStateSharing = new BoolProperty(String.format(keyFmt, NAME.toLowerCase(), "measureStateSharing"));
+    variablesDumpFile = new StringProperty(String.format(keyFmt, NAME.toLowerCase(), "variablesDumpFile"));
   }
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package bindead.analyses.algorithms;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 import javalx.data.Option;
 import javalx.data.products.P2;
@@ -13,6 +16,7 @@ import rreil.lang.MemVar;
 import rreil.lang.RReil;
 import rreil.lang.RReilAddr;
 import rreil.lang.lowlevel.LowLevelRReil;
+import rreil.lang.util.VariableFactory;
 import bindead.analyses.Analysis;
 import bindead.analyses.BinaryCodeCache;
 import bindead.analyses.ProgressReporter;
@@ -20,10 +24,15 @@ import bindead.analyses.RReilCodeCache;
 import bindead.analyses.algorithms.data.CallString;
 import bindead.analyses.algorithms.data.CallString.Transition;
 import bindead.analyses.algorithms.data.Flows;
+import bindead.analyses.algorithms.data.Flows.FlowType;
 import bindead.analyses.algorithms.data.Flows.Successor;
+import bindead.analyses.algorithms.data.ProcedureSummaries;
+import bindead.analyses.algorithms.data.ProcedureSummaries.Summary;
 import bindead.analyses.algorithms.data.ProgramCtx;
+import bindead.analyses.algorithms.data.ReservedStamps;
 import bindead.analyses.algorithms.data.StateSpace;
 import bindead.analyses.algorithms.data.TransitionSystem;
+import bindead.analyses.algorithms.data.WeakTopologicalOrder;
 import bindead.analyses.algorithms.data.Worklist;
 import bindead.analyses.warnings.WarningsMap;
 import bindead.debug.AnalysisDebugger;
@@ -44,26 +53,58 @@ import binparse.Segment;
  * Fixpoint iteration using the call-string approach. The fixpoint algorithm
  * disassembles the binary on-the-fly, that is it will never decode unreachable
  * code (esp in the case when visiting conditional branches).
+ *
+ * If {@link AnalysisProperties#parallelFixpoint} is enabled the transfer functions of the program points
+ * in the worklist are evaluated in parallel. See {@link #runParallelFixpoint(Worklist)}.
+ *
+ * If {@link AnalysisProperties#procedureSummaries} is enabled a call reuses the summary of a procedure that was
+ * already analyzed for an entry state including the one of the call instead of analyzing the callee again in a new
+ * call-string. See {@link ProcedureSummaries}.
  */
 public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
+  /**
+   * The maximal number of program points that are taken from the worklist and evaluated in parallel. Note that it must
+   * not depend on the number of available processors as otherwise the iteration order and thus the result of the
+   * analysis would depend on the machine it runs on.
+   */
+  private static final int parallelBatchSize = 64;
+  /**
+   * The pool for the parallel evaluations shared by all analyses.
+   */
+  private static final ForkJoinPool pool = new ForkJoinPool();
   private final D initialState;
   protected final StateSpace<D> states;
   private final TransitionSystem transitions;
+  private final ProcedureSummaries<D> summaries;
   private final BinaryCodeCache binaryCode;
   private final RReilCodeCache rreilCode;
   private FixpointAnalysisEvaluator<D> evaluator;
+  /**
+   * The variable stamps of the evaluations in the parallel fixpoint and of the ones that are replayed by the sparse
+   * state storage.
+   */
+  private final ReservedStamps stamps;
   private long analysisStartCanary;
   // below are only for debugging purposes
   private final boolean DEBUGWARNINGS = AnalysisProperties.INSTANCE.debugWarnings.isTrue();
   private final boolean DEBUGEVAL = AnalysisProperties.INSTANCE.debugAssignments.isTrue();
   private final boolean DEBUGOTHER = AnalysisProperties.INSTANCE.debugOther.isTrue();
+  private final boolean PARALLEL = AnalysisProperties.INSTANCE.parallelFixpoint.isTrue();
+  private final boolean ITERATEINWTO = AnalysisProperties.INSTANCE.iterateInWeakTopologicalOrder.isTrue();
+  private final boolean SPARSE = AnalysisProperties.INSTANCE.sparseStateStorage.isTrue();
+  private final boolean SUMMARIES = AnalysisProperties.INSTANCE.procedureSummaries.isTrue();
   private final AnalysisDebugger debugger;
   private final ProgressReporter progressReporter;
 
   public CallStringAnalysis(AnalysisEnvironment environment, Binary binary, D initialState) {
     super(environment);
     states = new StateSpace<D>();
+    stamps = new ReservedStamps(environment.getVariableFactory(), SPARSE);
+    if (SPARSE) {
+      states.useSparseStorage(new Recomputation());
+    }
     transitions = new TransitionSystem();
+    summaries = new ProcedureSummaries<D>();
     this.initialState = initialState.setContext(new AnalysisCtx(environment));
     this.binaryCode = new BinaryCodeCache(binary, getPlatform().getDisassembler(), getWarnings());
     this.rreilCode = new RReilCodeCache(binary);
@@ -86,6 +127,14 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     return transitions;
   }
 
+  /**
+   * @return The input/output pairs of the analyzed procedures. Only recorded if
+   *         {@link AnalysisProperties#procedureSummaries} is enabled.
+   */
+  public ProcedureSummaries<D> getProcedureSummaries () {
+    return summaries;
+  }
+
   @Override
   public Option<D> getState(CallString callString, RReilAddr address) {
     return states.get(new ProgramCtx(callString, address));
@@ -103,6 +152,18 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
   }
 
   private void runFrom(RReilAddr startPoint, CallString root) {
+    // allocate the variables of this analysis with the factory of its environment
+    VariableFactory previousVariables = environment.getVariableFactory().enter();
+    try {
+      analyze(startPoint, root);
+    } finally {
+      VariableFactory.leave(previousVariables);
+      environment.getLoweringCache().clear();
+      binaryCode.persist();
+    }
+  }
+
+  private void analyze(RReilAddr startPoint, CallString root) {
     assert startPoint.offset() == 0;
     D state = getPlatform().forwardAnalysisBootstrap().bootstrap(initialState, startPoint.base());
     state = introduceDataSegments(state);
@@ -114,8 +175,27 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     transitions.addCallTransition(artificialEntry, entry);
     states.setInitial(entry, state);
     debugger.printWarnings(entry, getWarnings()); // any warnings produced during the bootstrapping
-    Worklist<ProgramCtx> queue = new Worklist<>();
+    Worklist<ProgramCtx> queue = newWorklist();
     queue.enqueue(entry);
+    if (PARALLEL)
+      runParallelFixpoint(queue);
+    else
+      runFixpoint(queue);
+    debugger.printSummary(states, getWarnings());
+    if (DEBUGWARNINGS) {
+      System.out.println(getWarnings());
+    }
+  }
+
+  private Worklist<ProgramCtx> newWorklist () {
+    if (!ITERATEINWTO)
+      return new Worklist<>();
+    WeakTopologicalOrder<ProgramPoint> order = transitions.getWeakTopologicalOrder();
+    states.useWeakTopologicalOrder(order);
+    return new Worklist<ProgramCtx>(order);
+  }
+
+  private void runFixpoint (Worklist<ProgramCtx> queue) {
     while (!queue.isEmpty()) {
       if (DEBUGOTHER) {
         System.out.println("\nOld:" + queue);
@@ -125,18 +205,64 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
         System.out.println("CurrentElement: " + currentPoint);
       }
       List<ProgramCtx> successors = resolveSuccesorsWrapper(currentPoint);
-      // iterate in reverse order as the enqueue operation prepends and we want to maintain the order of the successors
-      for (ProgramCtx successor : CollectionHelpers.reversedIterable(successors)) {
-        queue.enqueue(successor);
+      enqueueSuccessors(queue, successors);
+    }
+  }
+
+  /**
+   * Iterate to a fixpoint by evaluating the program points in the worklist in rounds. In each round a batch of
+   * program points is taken from the worklist and the transfer functions for all of them are evaluated in parallel
+   * on the states that are known at the beginning of the round. The resulting states are then committed
+   * sequentially to the state space in the order in which the program points were taken from the worklist.
+   * Hence, the state space and the transition system are only ever modified by the analysis thread.<br>
+   *
+   * The stamps for the variables of each parallel evaluation are reserved in the same order, see
+   * {@link VariableFactory#reserve(int)}, and the unused ones are released again in that order during the commit.
+   * An evaluation that runs out of its stamps or that would register a new variable name is discarded and evaluated
+   * again on the analysis thread during the commit, see {@link VariableFactory#mayRegisterNames()}. Thus the
+   * variables and the result do not depend on the scheduling of the threads. Program points that are updated by a
+   * commit in the same round are put on the worklist again, as in the sequential algorithm.<br>
+   *
+   * Only the transfer functions for instructions that are evaluated by the domains alone are run in parallel.
+   * Branches and natives may be handled by callbacks or the system model, which are not thread-safe,
+   * thus these are evaluated on the analysis thread during the commit.
+   */
+  private void runParallelFixpoint (Worklist<ProgramCtx> queue) {
+    while (!queue.isEmpty()) {
+      if (DEBUGOTHER) {
+        System.out.println("\nOld:" + queue);
+      }
+      List<PendingEvaluation> batch = new ArrayList<>();
+      List<PendingEvaluation> independent = new ArrayList<>();
+      while (!queue.isEmpty() && batch.size() < parallelBatchSize) {
+        PendingEvaluation evaluation = prepareEvaluationWrapper(queue.dequeue());
+        batch.add(evaluation);
+        if (evaluation.isEnvironmentIndependent()) {
+          evaluation.reserveVariables(stamps.reserve(evaluation.point));
+          independent.add(evaluation);
+        }
       }
       if (DEBUGOTHER) {
-        System.out.println("Successors: " + successors);
-        System.out.println("New:" + queue);
+        System.out.println("CurrentElements: " + batch);
+      }
+      pool.invokeAll(independent);
+      for (PendingEvaluation evaluation : batch) {
+        if (evaluation.variables != null)
+          stamps.release(evaluation.point, evaluation.variables);
+        List<ProgramCtx> successors = commitEvaluationWrapper(evaluation);
+        enqueueSuccessors(queue, successors);
       }
     }
-    debugger.printSummary(states, getWarnings());
-    if (DEBUGWARNINGS) {
-      System.out.println(getWarnings());
+  }
+
+  private void enqueueSuccessors (Worklist<ProgramCtx> queue, List<ProgramCtx> successors) {
+    // iterate in reverse order as the enqueue operation prepends and we want to maintain the order of the successors
+    for (ProgramCtx successor : CollectionHelpers.reversedIterable(successors)) {
+      queue.enqueue(successor);
+    }
+    if (DEBUGOTHER) {
+      System.out.println("Successors: " + successors);
+      System.out.println("New:" + queue);
     }
   }
 
@@ -188,35 +314,97 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
    */
   private List<ProgramCtx> resolveSuccesorsWrapper(ProgramCtx point) {
     try {
-      if (Thread.interrupted()) {
-        throw new InterruptedException("Analysis was stopped by user.");
-      }
+      checkForInterruption();
       return resolveSuccesors(point);
-    } catch (CallStringAnalysisException cause) {
-      debugger.printInstruction(point);
-      if (DEBUGEVAL) {
-        System.out.println();
-      }
-      throw cause; // Catch and re-throw to avoid the accumulation of exceptions by putting one into another below.
-      // XXX bm: do not catch all for now as it is only useful for the GUI to display the results
-      // some tests expect a certain exception type so we cannot wrap it into our own type
     } catch (Throwable cause) {
-      // By using Throwable we catch here everything, i.e. also VM errors and whatever. Might be too much but
-      // might also be useful to have a partial analysis result even on unexpected errors (e.g. stack overflows).
-      // Also we want to catch assertion errors.
+      throw analysisFailure(point, cause);
+    }
+  }
+
+  /**
+   * Wraps the {@link #prepareEvaluation(ProgramCtx)} method in the same way as {@link #resolveSuccesorsWrapper(ProgramCtx)}.
+   */
+  private PendingEvaluation prepareEvaluationWrapper (ProgramCtx point) {
+    try {
+      checkForInterruption();
+      return prepareEvaluation(point);
+    } catch (Throwable cause) {
+      throw analysisFailure(point, cause);
+    }
+  }
+
+  /**
+   * Wraps the {@link #commitEvaluation(PendingEvaluation)} method in the same way as
+   * {@link #resolveSuccesorsWrapper(ProgramCtx)}. Exceptions that occurred during a parallel evaluation are
+   * re-thrown here such that they are reported in the same order as in a sequential run.
+   */
+  private List<ProgramCtx> commitEvaluationWrapper (PendingEvaluation evaluation) {
+    if (evaluation.failure != null) {
+      throw analysisFailure(evaluation.point, evaluation.failure);
+    }
+    try {
+      return commitEvaluation(evaluation);
+    } catch (Throwable cause) {
+      throw analysisFailure(evaluation.point, cause);
+    }
+  }
+
+  private static void checkForInterruption () throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException("Analysis was stopped by user.");
+    }
+  }
+
+  /**
+   * Saves the analysis results so far for the exception that occurred at the given point and
+   * returns the exception that should be propagated up the stack.
+   */
+  private CallStringAnalysisException analysisFailure (ProgramCtx point, Throwable cause) {
+    if (cause instanceof CallStringAnalysisException) {
       debugger.printInstruction(point);
       if (DEBUGEVAL) {
-        System.out.println("\nBAM!\n");
+        System.out.println();
       }
-      // try to save any warnings produced before the exception
-      states.putWarnings(point, states.get(point).get().getContext().getWarningsChannel());
-      debugger.printSummary(states, getWarnings());
-      System.out.println(getWarnings());
-      throw new CallStringAnalysisException(cause, this, point.getCallString(), point.getAddress());
+      // Re-throw to avoid the accumulation of exceptions by putting one into another below.
+      return (CallStringAnalysisException) cause;
+    }
+    // XXX bm: do not catch all for now as it is only useful for the GUI to display the results
+    // some tests expect a certain exception type so we cannot wrap it into our own type
+    // By using Throwable we catch here everything, i.e. also VM errors and whatever. Might be too much but
+    // might also be useful to have a partial analysis result even on unexpected errors (e.g. stack overflows).
+    // Also we want to catch assertion errors.
+    debugger.printInstruction(point);
+    if (DEBUGEVAL) {
+      System.out.println("\nBAM!\n");
     }
+    // try to save any warnings produced before the exception
+    states.putWarnings(point, states.get(point).get().getContext().getWarningsChannel());
+    debugger.printSummary(states, getWarnings());
+    System.out.println(getWarnings());
+    return new CallStringAnalysisException(cause, this, point.getCallString(), point.getAddress());
   }
 
   private List<ProgramCtx> resolveSuccesors(ProgramCtx currentProgramPoint) {
+    PendingEvaluation evaluation = prepareEvaluation(currentProgramPoint);
+    if (SPARSE && evaluation.isEnvironmentIndependent()) {
+      // use reserved stamps such that the dropped successor state can be recomputed with the same variables
+      evaluation.reserveVariables(stamps.reserve(currentProgramPoint));
+      evaluation.call();
+      stamps.release(currentProgramPoint, evaluation.variables);
+      if (evaluation.failure != null) {
+        throw analysisFailure(currentProgramPoint, evaluation.failure);
+      }
+    } else {
+      evaluation.evaluate();
+    }
+    return commitEvaluation(evaluation);
+  }
+
+  /**
+   * Disassembles the instruction at the program point and collects everything that is needed to apply its transfer
+   * function. Must be executed on the analysis thread as it modifies the code caches.
+   */
+  private PendingEvaluation prepareEvaluation (ProgramCtx currentProgramPoint) {
     RReilAddr currentAddress = currentProgramPoint.getAddress();
     disassemble(currentAddress);
     RReil stmt = rreilCode.getInstruction(currentAddress);
@@ -224,10 +412,23 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     debugBeforeEval(stmt, currentProgramPoint, domainState);
     debugger.printInstruction(currentProgramPoint);
     progressReporter.evaluatingInstruction(stmt);
-    FixpointAnalysisEvaluator<D> evaluator = getEvaluator();
     RReilAddr nextAddress = nextInstructionAddress(currentAddress);
-    P3<D, ProgramPoint, RReilAddr> ctx = P3.tuple3(domainState, (ProgramPoint) currentProgramPoint, nextAddress);
-    Flows<D> successors = stmt.accept(evaluator, ctx);
+    return new PendingEvaluation(currentProgramPoint, stmt, domainState, nextAddress, getEvaluator());
+  }
+
+  /**
+   * Applies the successor states of an evaluated transfer function to the state space and transition system and
+   * returns the program points that need to be evaluated again. Must be executed on the analysis thread.
+   */
+  private List<ProgramCtx> commitEvaluation (PendingEvaluation evaluation) {
+    if (!evaluation.isEvaluated()) {
+      evaluation.evaluate();
+    }
+    Flows<D> successors = evaluation.successors;
+    ProgramCtx currentProgramPoint = evaluation.point;
+    RReilAddr currentAddress = currentProgramPoint.getAddress();
+    RReil stmt = evaluation.stmt;
+    RReilAddr nextAddress = evaluation.nextAddress;
     List<P2<Successor<?>, Boolean>> loggedSuccessors = new ArrayList<>();
     List<ProgramCtx> queue = new ArrayList<>();
     CallString currentCallString = currentProgramPoint.getCallString();
@@ -236,9 +437,17 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
         case Call: {
           Transition callTransition = new Transition(currentAddress, successor.getAddress());
           CallString calleeCallString = currentCallString.push(callTransition);
+          if (SUMMARIES && reuseSummary(currentProgramPoint, calleeCallString, successor, queue)) {
+            loggedSuccessors.add(new P2<Successor<?>, Boolean>(successor, false));
+            break;
+          }
           ProgramCtx to = new ProgramCtx(calleeCallString, successor.getAddress());
           transitions.addCallTransition(currentProgramPoint, to, nextAddress);
           boolean updated = updateWorklist(currentProgramPoint, to, successor, queue, false);
+          if (SUMMARIES && updated) {
+            D input = getEvaluator().forgetJumpOffset(states.get(to).get());
+            summaries.setInput(calleeCallString, to.getAddress(), input);
+          }
           loggedSuccessors.add(new P2<Successor<?>, Boolean>(successor, updated));
           break;
         }
@@ -255,6 +464,8 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
           transitions.addReturnTransition(currentProgramPoint, to);
           boolean updated = updateWorklist(currentProgramPoint, to, successor, queue, false);
           loggedSuccessors.add(new P2<Successor<?>, Boolean>(successor, updated));
+          if (SUMMARIES)
+            returnToReusingCallers(currentProgramPoint, successor, queue);
           break;
         }
         case Next:
@@ -283,9 +494,49 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     if (successors.isEmpty()) { // a program can only be terminated by the halt instruction. It must have at least that as a successor.
       throw new InvariantViolationException("No successors inferred after evaluating last instruction.");
     }
+    states.evaluated(currentProgramPoint, evaluation.state);
     return queue;
   }
 
+  /**
+   * Let the call at the given program point reuse the summary of a procedure whose input includes the state at the
+   * entry of the callee. The outputs of the procedure known so far flow directly to the return sites in the
+   * call-string of the caller and the outputs added later are passed on by {@link #returnToReusingCallers}.
+   *
+   * @return {@code true} if a summary was reused or {@code false} if the callee must be analyzed
+   */
+  private boolean reuseSummary (ProgramCtx callSite, CallString callee, Successor<D> call, List<ProgramCtx> queue) {
+    D input = getEvaluator().forgetJumpOffset(call.getState());
+    Summary<D> summary = summaries.findSubsuming(callee, call.getAddress(), input);
+    if (summary == null)
+      return false;
+    if (DEBUGOTHER) {
+      System.out.println("Reusing summary: " + summary);
+    }
+    CallString caller = callSite.getCallString();
+    for (Entry<RReilAddr, D> output : summaries.reuse(summary, caller).entrySet()) {
+      ProgramCtx returnSite = new ProgramCtx(caller, output.getKey());
+      transitions.addReturnTransition(callSite, returnSite);
+      updateWorklist(callSite, returnSite, new Successor<D>(FlowType.Return, output.getKey(), output.getValue()), queue,
+          false);
+    }
+    return true;
+  }
+
+  /**
+   * Record the state returned from the procedure of the given program point as an output of its summary and pass it
+   * on to the return sites of the callers that reuse the summary.
+   */
+  private void returnToReusingCallers (ProgramCtx returnPoint, Successor<D> ret, List<ProgramCtx> queue) {
+    // the warnings of the return have already been stored and must not be repeated at the callers reusing the output
+    D output = ret.getState().setContext(new AnalysisCtx(environment));
+    for (CallString caller : summaries.addOutput(returnPoint.getCallString(), ret.getAddress(), output)) {
+      ProgramCtx returnSite = new ProgramCtx(caller, ret.getAddress());
+      transitions.addReturnTransition(returnPoint, returnSite);
+      updateWorklist(returnPoint, returnSite, new Successor<D>(FlowType.Return, ret.getAddress(), output), queue, false);
+    }
+  }
+
   private void disassemble(RReilAddr address) {
     if (binaryCode.hasInstruction(address.base())) {
       return;
@@ -320,7 +571,7 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
 
   protected FixpointAnalysisEvaluator<D> getEvaluator() {
     if (evaluator == null) {
-      evaluator = new FixpointAnalysisEvaluator<D>(analysisStartCanary);
+      evaluator = new FixpointAnalysisEvaluator<D>(analysisStartCanary, getPlatform());
     }
     return evaluator;
   }
@@ -339,4 +590,105 @@ public class CallStringAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     }
   }
 
+  /**
+   * Recomputes the dropped states of the sparse state space by evaluating the straight-line code again.
+   */
+  private class Recomputation implements StateSpace.Recomputation<D> {
+    @Override public boolean canRecompute (ProgramPoint point) {
+      return FixpointAnalysisEvaluator.isEnvironmentIndependent(rreilCode.getInstruction(point.getAddress()))
+        && stamps.isRecorded(point);
+    }
+
+    @Override public D recompute (ProgramPoint from, D state, ProgramPoint to, boolean replay) {
+      RReilAddr address = from.getAddress();
+      P3<D, ProgramPoint, RReilAddr> ctx = P3.tuple3(state, from, nextInstructionAddress(address));
+      VariableFactory variables = replay ? stamps.replay(from) : environment.getVariableFactory();
+      VariableFactory previousVariables = variables.enter();
+      try {
+        for (Successor<D> successor : rreilCode.getInstruction(address).accept(getEvaluator(), ctx)) {
+          if (successor.getType() == FlowType.Next && successor.getAddress().equals(to.getAddress())) {
+            return successor.getState();
+          }
+        }
+        return null;
+      } finally {
+        VariableFactory.leave(previousVariables);
+      }
+    }
+  }
+
+  /**
+   * The application of a transfer function to the state at a program point. The evaluation itself does not modify
+   * any data structures of the analysis and can thus be performed concurrently with other evaluations.
+   */
+  private class PendingEvaluation implements Callable<Void> {
+    private final ProgramCtx point;
+    private final RReil stmt;
+    private final D state;
+    private final RReilAddr nextAddress;
+    private final FixpointAnalysisEvaluator<D> transfer;
+    private VariableFactory variables;
+    private Flows<D> successors;
+    private Throwable failure;
+
+    PendingEvaluation (ProgramCtx point, RReil stmt, D state, RReilAddr nextAddress,
+        FixpointAnalysisEvaluator<D> transfer) {
+      this.point = point;
+      this.stmt = stmt;
+      this.state = state;
+      this.nextAddress = nextAddress;
+      this.transfer = transfer;
+    }
+
+    /**
+     * Instructions that might be handled by callbacks or the system model depend on the mutable environment of the
+     * analysis and must not be evaluated concurrently.
+     */
+    boolean isEnvironmentIndependent () {
+      return FixpointAnalysisEvaluator.isEnvironmentIndependent(stmt);
+    }
+
+    boolean isEvaluated () {
+      return successors != null;
+    }
+
+    void evaluate () {
+      P3<D, ProgramPoint, RReilAddr> ctx = P3.tuple3(state, (ProgramPoint) point, nextAddress);
+      successors = stmt.accept(transfer, ctx);
+    }
+
+    /**
+     * Use the reserved stamps for the variables allocated by the evaluation. Must be executed on the analysis thread
+     * in the order in which the program points are taken from the worklist.
+     */
+    void reserveVariables (VariableFactory reserved) {
+      variables = reserved;
+    }
+
+    /**
+     * Evaluate on a worker thread. An exception is kept to be re-thrown later on the analysis thread. If the evaluation
+     * needed more variables than were reserved for it or had to register a variable name then it is discarded and
+     * evaluated again during the commit.
+     */
+    @Override public Void call () {
+      VariableFactory previousVariables = variables.enter();
+      try {
+        evaluate();
+      } catch (Throwable cause) {
+        failure = cause;
+      } finally {
+        VariableFactory.leave(previousVariables);
+      }
+      if (variables.isExhausted()) {
+        successors = null;
+        failure = null;
+      }
+      return null;
+    }
+
+    @Override public String toString () {
+      return point.toString();
+    }
+  }
+
 }
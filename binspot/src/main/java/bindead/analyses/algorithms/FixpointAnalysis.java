@@ -14,16 +14,20 @@ import rreil.lang.MemVar;
 import rreil.lang.RReil;
 import rreil.lang.RReilAddr;
 import rreil.lang.lowlevel.LowLevelRReil;
+import rreil.lang.util.VariableFactory;
 import bindead.analyses.Analysis;
 import bindead.analyses.BinaryCodeCache;
 import bindead.analyses.ProgressReporter;
 import bindead.analyses.RReilCodeCache;
 import bindead.analyses.algorithms.data.CallString;
 import bindead.analyses.algorithms.data.Flows;
+import bindead.analyses.algorithms.data.Flows.FlowType;
 import bindead.analyses.algorithms.data.Flows.Successor;
 import bindead.analyses.algorithms.data.ProgramCtx;
+import bindead.analyses.algorithms.data.ReservedStamps;
 import bindead.analyses.algorithms.data.StateSpace;
 import bindead.analyses.algorithms.data.TransitionSystem;
+import bindead.analyses.algorithms.data.WeakTopologicalOrder;
 import bindead.analyses.algorithms.data.Worklist;
 import bindead.analyses.warnings.WarningsMap;
 import bindead.debug.AnalysisDebugger;
@@ -52,18 +56,27 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
   private final BinaryCodeCache binaryCode;
   private final RReilCodeCache rreilCode;
   private FixpointAnalysisEvaluator<D> evaluator;
+  /**
+   * The variable stamps of the evaluations that are replayed by the sparse state storage.
+   */
+  private final ReservedStamps stamps;
   private long analysisStartCanary;
   // below are only for debugging purposes
   private final boolean DEBUGWARNINGS = AnalysisProperties.INSTANCE.debugWarnings.isTrue();
   private final boolean DEBUGEVAL = AnalysisProperties.INSTANCE.debugAssignments.isTrue();
   private final boolean DEBUGOTHER = AnalysisProperties.INSTANCE.debugOther.isTrue();
+  private final boolean ITERATEINWTO = AnalysisProperties.INSTANCE.iterateInWeakTopologicalOrder.isTrue();
   private final boolean DISASSEMBLEBLOCKS = AnalysisProperties.INSTANCE.disassembleBlockWise.isTrue();
+  private final boolean SPARSE = AnalysisProperties.INSTANCE.sparseStateStorage.isTrue();
   private final AnalysisDebugger debugger;
   private final ProgressReporter progressReporter;
 
   public FixpointAnalysis (AnalysisEnvironment environment, Binary binary, D initialState) {
     super(environment);
     states = new StateSpace<D>();
+    stamps = new ReservedStamps(environment.getVariableFactory(), SPARSE);
+    if (SPARSE)
+      states.useSparseStorage(new Recomputation());
     transitions = new TransitionSystem();
     this.initialState = initialState.setContext(new AnalysisCtx(environment));
     this.binaryCode = new BinaryCodeCache(binary, getPlatform().getDisassembler(), getWarnings());
@@ -98,6 +111,18 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
   }
 
   @Override public void runFrom (RReilAddr startPoint) {
+    // allocate the variables of this analysis with the factory of its environment
+    VariableFactory previousVariables = environment.getVariableFactory().enter();
+    try {
+      analyze(startPoint);
+    } finally {
+      VariableFactory.leave(previousVariables);
+      environment.getLoweringCache().clear();
+      binaryCode.persist();
+    }
+  }
+
+  private void analyze (RReilAddr startPoint) {
     assert startPoint.offset() == 0;
     D state = getPlatform().forwardAnalysisBootstrap().bootstrap(initialState, startPoint.base());
     state = introduceDataSegments(state);
@@ -112,7 +137,14 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
   }
 
   private void processWorklist (ProgramCtx entry) {
-    Worklist<ProgramCtx> worklist = new Worklist<ProgramCtx>();
+    Worklist<ProgramCtx> worklist;
+    if (ITERATEINWTO) {
+      WeakTopologicalOrder<ProgramPoint> order = transitions.getWeakTopologicalOrder();
+      states.useWeakTopologicalOrder(order);
+      worklist = new Worklist<ProgramCtx>(order);
+    } else {
+      worklist = new Worklist<ProgramCtx>();
+    }
     worklist.enqueue(entry);
     while (!worklist.isEmpty()) {
       if (DEBUGOTHER)
@@ -229,7 +261,11 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     progressReporter.evaluatingInstruction(currentRReilInstruction);
     FixpointAnalysisEvaluator<D> evaluator = getEvaluator();
     P3<D, ProgramPoint, RReilAddr> ctx = P3.tuple3(domainState, (ProgramPoint) currentProgramPoint, nextAddress);
-    Flows<D> successors = currentRReilInstruction.accept(evaluator, ctx);
+    Flows<D> successors;
+    if (SPARSE && FixpointAnalysisEvaluator.isEnvironmentIndependent(currentRReilInstruction))
+      successors = evaluateReplayable(currentProgramPoint, currentRReilInstruction, ctx);
+    else
+      successors = currentRReilInstruction.accept(evaluator, ctx);
     List<P2<Successor<?>, Boolean>> loggedSuccessors = new ArrayList<P2<Successor<?>, Boolean>>();
     List<ProgramCtx> queue = new ArrayList<ProgramCtx>();
     for (Successor<D> successor : successors) {
@@ -240,9 +276,11 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
         // A callstring aware version is implemented in a different class
       case Next:
       case Jump: {
-// XXX: the transition system is currently unused, as only useful to display the CFG
-//        ProgramCtx to = new ProgramCtx(currentCallString, successor.getAddress());
-//        transitions.addTransition(currentProgramPoint, to);
+        // the transition system is only needed for the iteration order, otherwise it is only useful to display the CFG
+        if (ITERATEINWTO) {
+          ProgramCtx to = new ProgramCtx(currentProgramPoint.getCallString(), successor.getAddress());
+          transitions.addLocalTransition(currentProgramPoint.getCallString(), currentProgramPoint, to);
+        }
         boolean updated = updateWorklist(currentProgramPoint, successor, queue);
         loggedSuccessors.add(new P2<Successor<?>, Boolean>(successor, updated));
         break;
@@ -265,6 +303,7 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     if (successors.isEmpty())
       // a program can only be terminated by the halt instruction. It must have at least that as a successor.
       throw new InvariantViolationException("No successors inferred after evaluating last instruction.");
+    states.evaluated(currentProgramPoint, domainState);
     return queue;
   }
 
@@ -317,7 +356,7 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
 
   protected FixpointAnalysisEvaluator<D> getEvaluator () {
     if (evaluator == null)
-      evaluator = new FixpointAnalysisEvaluator<D>(analysisStartCanary);
+      evaluator = new FixpointAnalysisEvaluator<D>(analysisStartCanary, getPlatform());
     return evaluator;
   }
 
@@ -334,4 +373,48 @@ public class FixpointAnalysis<D extends RootDomain<D>> extends Analysis<D> {
     }
   }
 
+  /**
+   * Evaluate with reserved stamps such that the dropped successor state can be recomputed with the same variables.
+   * If the evaluation needs more stamps than were reserved it is evaluated again with the stamps of the analysis.
+   */
+  private Flows<D> evaluateReplayable (ProgramPoint point, RReil insn, P3<D, ProgramPoint, RReilAddr> ctx) {
+    VariableFactory reserved = stamps.reserve(point);
+    VariableFactory previousVariables = reserved.enter();
+    Flows<D> successors;
+    try {
+      successors = insn.accept(getEvaluator(), ctx);
+    } finally {
+      VariableFactory.leave(previousVariables);
+      stamps.release(point, reserved);
+    }
+    if (reserved.isExhausted())
+      successors = insn.accept(getEvaluator(), ctx);
+    return successors;
+  }
+
+  /**
+   * Recomputes the dropped states of the sparse state space by evaluating the straight-line code again.
+   */
+  private class Recomputation implements StateSpace.Recomputation<D> {
+    @Override public boolean canRecompute (ProgramPoint point) {
+      return FixpointAnalysisEvaluator.isEnvironmentIndependent(rreilCode.getInstruction(point.getAddress()))
+        && stamps.isRecorded(point);
+    }
+
+    @Override public D recompute (ProgramPoint from, D state, ProgramPoint to, boolean replay) {
+      P2<RReil, RReilAddr> pair = getInstruction(from.getAddress());
+      P3<D, ProgramPoint, RReilAddr> ctx = P3.tuple3(state, from, pair._2());
+      VariableFactory variables = replay ? stamps.replay(from) : environment.getVariableFactory();
+      VariableFactory previousVariables = variables.enter();
+      try {
+        for (Successor<D> successor : pair._1().accept(getEvaluator(), ctx)) {
+          if (successor.getType() == FlowType.Next && successor.getAddress().equals(to.getAddress()))
+            return successor.getState();
+        }
+        return null;
+      } finally {
+        VariableFactory.leave(previousVariables);
+      }
+    }
+  }
 }
@@ -34,6 +34,7 @@ import rreil.lang.Test;
 import rreil.lang.util.RReilFactory;
 import rreil.lang.util.RReilVisitor;
 import bindead.analyses.ProgramAddress;
+import bindead.analyses.RReilSnippet;
 import bindead.analyses.algorithms.data.Flows;
 import bindead.analyses.algorithms.data.Flows.FlowType;
 import bindead.analyses.algorithms.data.Flows.Successor;
@@ -50,7 +51,8 @@ import bindead.exceptions.Unreachable;
 
 /**
  * An evaluator for the RReil instructions. The evaluator implements some logic to apply transfer functions
- * and return the result, while at the same time resolving jumps.
+ * and return the result, while at the same time resolving jumps. The evaluator itself has no mutable state,
+ * thus it can be shared by the threads that evaluate the transfer functions of a parallel fixpoint.
  *
  * @param <D> The type of the abstract domain used in the analysis
  *
@@ -59,9 +61,19 @@ import bindead.exceptions.Unreachable;
 public class FixpointAnalysisEvaluator<D extends RootDomain<D>> implements
     RReilVisitor<Flows<D>, P3<D, ProgramPoint, RReilAddr>> {
   private final long analysisStartCanary;
+  private final InstructionPointerUpdates instructionPointerUpdates;
 
-  public FixpointAnalysisEvaluator (long analysisStartCanary) {
+  public FixpointAnalysisEvaluator (long analysisStartCanary, Platform platform) {
     this.analysisStartCanary = analysisStartCanary;
+    this.instructionPointerUpdates = new InstructionPointerUpdates(platform);
+  }
+
+  /**
+   * Returns {@code true} if the instruction is evaluated by the domains alone. Branches and natives may be handled by
+   * callbacks or the system model that depend on the mutable environment of the analysis.
+   */
+  public static boolean isEnvironmentIndependent (RReil stmt) {
+    return !(stmt instanceof Branch || stmt instanceof BranchToNative || stmt instanceof Native);
   }
 
   /**
@@ -281,10 +293,7 @@ public class FixpointAnalysisEvaluator<D extends RootDomain<D>> implements
    * Uses an assignment of a constant.
    */
   private D setInstructionPointerAssign (D state, long targetIP) {
-    Platform platform = state.getContext().getEnvironment().getPlatform();
-    int size = platform.defaultArchitectureSize();
-    String ip = platform.getInstructionPointer();
-    state = state.eval(String.format("mov.%d %s, %d", size, ip, targetIP));
+    state = state.eval(instructionPointerUpdates.assign.bind(targetIP));
     return state;
   }
 
@@ -293,16 +302,40 @@ public class FixpointAnalysisEvaluator<D extends RootDomain<D>> implements
    * It does this by adding an offset to avoid delaying the widening.
    */
   private D setInstructionPointerAdd (D state, long targetIP) {
-    Platform platform = state.getContext().getEnvironment().getPlatform();
-    int size = platform.defaultArchitectureSize();
-    String ip = platform.getInstructionPointer();
-    String tmp = "ipJumpOffsetReg";
-    String calcOffset = String.format("sub.%d %s, %d, %s", size, tmp, targetIP, ip);
-    String addOffset = String.format("add.%d %s, %s, %s", size, ip, ip, tmp);
-    state = state.eval(calcOffset, addOffset);
+    state = state.eval(instructionPointerUpdates.add.bind(targetIP));
     return state;
   }
 
+  /**
+   * Forget the value of the scratch register that is used to update the instruction pointer on jumps. The register is
+   * written on each jump before it is read, thus the state without it describes the same program behavior but does
+   * not depend on the offset of the last jump.
+   */
+  public D forgetJumpOffset (D state) {
+    return state.eval(instructionPointerUpdates.forget.bind());
+  }
+
+  /**
+   * The instructions to set the instruction pointer are the same for all the states of an analysis, thus they are
+   * parsed only once for the platform of the analysis.
+   */
+  private static final class InstructionPointerUpdates {
+    private final RReilSnippet assign;
+    private final RReilSnippet add;
+    private final RReilSnippet forget;
+
+    InstructionPointerUpdates (Platform platform) {
+      int size = platform.defaultArchitectureSize();
+      String ip = platform.getInstructionPointer();
+      String tmp = "ipJumpOffsetReg";
+      assign = RReilSnippet.compile(String.format("mov.%d %s, $0", size, ip));
+      add = RReilSnippet.compile(
+          String.format("sub.%d %s, $0, %s", size, tmp, ip),
+          String.format("add.%d %s, %s, %s", size, ip, ip, tmp));
+      forget = RReilSnippet.compile(String.format("mov.%d %s, [-oo, +oo]", size, tmp));
+    }
+  }
+
   @Override public Flows<D> visit (PrimOp primOp, P3<D, ProgramPoint, RReilAddr> ctx) {
     D domainState = ctx._1();
     RReilAddr nextInstructionaddress = ctx._3();
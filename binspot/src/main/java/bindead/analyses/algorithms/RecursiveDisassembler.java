@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import javalx.data.Option;
 import javalx.data.products.P2;
@@ -52,6 +53,8 @@ public class RecursiveDisassembler<D extends RootDomain<D>> extends Analysis<D>
   private final boolean DEBUGOTHER = AnalysisProperties.INSTANCE.debugOther.isTrue();
   private final boolean DISASSEMBLEBLOCKS = AnalysisProperties.INSTANCE.disassembleBlockWise.isTrue();
   private final boolean IGNORENONEXISTENTCODE = AnalysisProperties.INSTANCE.ignoreNonExistentJumpTargets.isTrue();
+  private final boolean PARALLEL = AnalysisProperties.INSTANCE.parallelDisassembly.isTrue()
+    && !AnalysisProperties.INSTANCE.useGDSLDisassembler.isTrue();
   private final AnalysisDebugger debugger;
   private final ProgressReporter progressReporter;
 
@@ -92,10 +95,29 @@ public class RecursiveDisassembler<D extends RootDomain<D>> extends Analysis<D>
   @Override public void runFrom (RReilAddr startPoint) {
     assert startPoint.offset() == 0;
     ProgramCtx entry = new ProgramCtx(CallString.root(), startPoint);
-    processWorklist(entry);
+    try {
+      if (PARALLEL && !DISASSEMBLEBLOCKS)
+        predecode();
+      processWorklist(entry);
+    } finally {
+      binaryCode.persist();
+    }
     debugger.printCode();
   }
 
+  /**
+   * Decode the whole code of the binary in parallel such that following the jumps below only needs to look up the
+   * instructions. The native decoder of the GDSL frontend is not thread-safe thus it is only done for the builtin one.
+   */
+  private void predecode () {
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      binaryCode.predecode(pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   private void processWorklist (ProgramCtx entry) {
     Set<RReilAddr> visited = new HashSet<>();
     Worklist<ProgramCtx> worklist = new Worklist<>();
@@ -1,8 +1,8 @@
 package bindead.analyses.algorithms;
 
+import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.numeric.BigInt;
-import rreil.RReilGrammarException;
 import rreil.lang.RReil.Assertion;
 import rreil.lang.RReil.Assign;
 import rreil.lang.RReil.Branch;
@@ -17,6 +17,7 @@ import rreil.lang.RReil.Store;
 import rreil.lang.RReil.Throw;
 import rreil.lang.RReilAddr;
 import rreil.lang.Rhs.Address;
+import rreil.lang.Rhs.Lin;
 import rreil.lang.Rhs.LinRval;
 import rreil.lang.Rhs.Rlit;
 import rreil.lang.Rhs.Rval;
@@ -29,7 +30,6 @@ import bindead.domainnetwork.channels.WarningMessage;
 import bindead.domainnetwork.channels.WarningsContainer;
 import bindead.domainnetwork.interfaces.ProgramPoint;
 import bindead.domainnetwork.interfaces.RootDomain;
-import bindead.exceptions.Unreachable;
 
 /**
  * A simple evaluator for instructions. It is used to dispatch on the different instruction types
@@ -68,108 +68,75 @@ public class RecursiveDisassemblerEvaluator<D extends RootDomain<D>> implements
     // it does not matter so much for RReil code if we can evaluate the branch condition
     // statically, as we care more about the native control flow
     // So we can just take both paths here. They are anyways both known statically.
-//    Flows<D> flow = new Flows<D>();
-//    flow.addNext(ctx._2(), null);
-//    Address target = stmt.getTarget();
-//    RReilAddr rreilTarget = target.getAddress();
-//    flow.addJump(rreilTarget, null);
-//    return flow;
-    /**
-     * Todo: New RReil grammar
-     */
-    throw new RReilGrammarException(); 
+    Flows<D> flow = new Flows<D>();
+    flow.addNext(ctx._2(), null);
+    Address target = stmt.getTarget();
+    RReilAddr rreilTarget = target.getAddress();
+    flow.addJump(rreilTarget, null);
+    return flow;
   }
 
   @Override public Flows<D> visit (BranchToNative stmt, P2<ProgramPoint, RReilAddr> ctx) {
     Flows<D> flow = new Flows<D>();
-    
-    SimpleExpression se = stmt.getCond();
-    Rval condition;
-    if(se instanceof LinRval)
-      condition = ((LinRval)se).getRval();
-    else {
-      /**
-       * Todo: New RReil grammar
-       */
-      throw new RReilGrammarException();
+    Option<BigInt> condition = toLiteral(stmt.getCond());
+    // static evaluation of the test if possible, otherwise assume that both branches are possible
+    boolean mayFallThrough = condition.isNone() || condition.get().isZero();
+    boolean mayJump = condition.isNone() || condition.get().isOne();
+    if (mayFallThrough)
+      flow.addNext(ctx._2(), null);
+    if (mayJump) {
+      Option<RReilAddr> target = toLiteralAddress(stmt.getTarget());
+      if (target.isSome())
+        flow.addJump(target.get(), null);
+      else if (condition.isNone())
+        addWarning(ctx._1(), new UnresolvedJumpTarget(stmt));
     }
-    
-    // Try walking the "not-taken" branch
-    try {
-      if (condition instanceof Rlit) { // static evaluation of test if possible
-        BigInt conditionValue = ((Rlit) condition).getValue();
-        if (!conditionValue.isZero())
-          throw new Unreachable(); // dead branch
+    return flow;
+  }
+
+  @Override public Flows<D> visit (Branch stmt, P2<ProgramPoint, RReilAddr> ctx) {
+    Flows<D> flow = new Flows<D>();
+    Option<RReilAddr> target = toLiteralAddress(stmt.getTarget());
+    if (target.isSome()) {
+      RReilAddr singleTarget = target.get();
+      switch (stmt.getBranchType()) {
+      case Call:
+        flow.addCall(singleTarget, null);
+        // NOTE: this assumes that each call returns
         flow.addNext(ctx._2(), null);
+        break;
+      case Return:
+        flow.addReturn(singleTarget, null);
+        break;
+      case Jump:
+        flow.addJump(singleTarget, null);
+        break;
       }
-    } catch (Unreachable _) {
     }
-    // Try walking the "taken" branch
-    try {
-      if (condition instanceof Rlit) { // static evaluation of test possible as an optimization
-        BigInt conditionValue = ((Rlit) condition).getValue();
-        if (!conditionValue.isOne())
-          throw new Unreachable(); // dead branch
-//        Rval target = stmt.getTarget();
-//        if (target instanceof Rlit) {
-//          RReilAddr singleTarget = RReilAddr.valueOf(((Rlit) target).getValue());
-//          flow.addJump(singleTarget, null);
-//        }
-        /**
-         * Todo: New RReil grammar
-         */
-        throw new RReilGrammarException(); 
-      }
-    } catch (Unreachable _) {
-    }
-    if (flow.isEmpty()) { // we could not evaluate the test statically, so assume that both branches are possible
-      flow.addNext(ctx._2(), null);
-//      Rval target = stmt.getTarget();
-//      if (target instanceof Rlit) {
-//        RReilAddr singleTarget = RReilAddr.valueOf(((Rlit) target).getValue());
-//        flow.addJump(singleTarget, null);
-//      } else {
-//        addWarning(ctx._1(), new UnresolvedJumpTarget(stmt));
-//      }
-      /**
-       * Todo: New RReil grammar
-       */
-      throw new RReilGrammarException(); 
+    if (flow.isEmpty()) {
+      addWarning(ctx._1(), new UnresolvedJumpTarget(stmt));
+      flow.addHalt(null);
+      // TODO: one could continue here with the fall-through instruction but that is definitely wrong!
+      // it would also require recovering from disassembler errors as the fall-through bytes might not
+      // be a correct instruction
     }
     return flow;
   }
 
-  @Override public Flows<D> visit (Branch stmt, P2<ProgramPoint, RReilAddr> ctx) {
-    Flows<D> flow = new Flows<D>();
-//    Rval target = stmt.getTarget();
-//    if (target instanceof Rlit) {
-//      RReilAddr singleTarget = RReilAddr.valueOf(((Rlit) target).getValue());
-//      switch (stmt.getBranchType()) {
-//      case Call:
-//        flow.addCall(singleTarget, null);
-//        // NOTE: this assumes that each call returns
-//        flow.addNext(ctx._2(), null);
-//        break;
-//      case Return:
-//        flow.addReturn(singleTarget, null);
-//        break;
-//      case Jump:
-//        flow.addJump(singleTarget, null);
-//        break;
-//      }
-//    }
-//    if (flow.isEmpty()) {
-//      addWarning(ctx._1(), new UnresolvedJumpTarget(stmt));
-//      flow.addHalt(null);
-//      // TODO: one could continue here with the fall-through instruction but that is definitely wrong!
-//      // it would also require recovering from disassembler errors as the fall-through bytes might not
-//      // be a correct instruction
-//    }
-//    return flow;
-    /**
-     * Todo: New RReil grammar
-     */
-    throw new RReilGrammarException(); 
+  private static Option<BigInt> toLiteral (SimpleExpression expression) {
+    if (expression instanceof LinRval) {
+      Rval rval = ((LinRval) expression).getRval();
+      if (rval instanceof Rlit)
+        return Option.some(((Rlit) rval).getValue());
+    }
+    return Option.none();
+  }
+
+  private static Option<RReilAddr> toLiteralAddress (Lin target) {
+    Option<BigInt> value = toLiteral(target);
+    if (value.isNone())
+      return Option.none();
+    return Option.some(RReilAddr.valueOf(value.get()));
   }
 
   @Override public Flows<D> visit (PrimOp primOp, P2<ProgramPoint, RReilAddr> ctx) {
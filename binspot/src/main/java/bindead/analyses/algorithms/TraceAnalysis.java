@@ -31,7 +31,7 @@ public class TraceAnalysis<D extends RootDomain<D>> extends FixpointAnalysis<D>
 
   private FixpointAnalysisEvaluator<D> getTraceEvaluator () {
     if (evaluator == null)
-      evaluator = new TraceEvaluator<D>(traceIterator);
+      evaluator = new TraceEvaluator<D>(traceIterator, getPlatform());
     return evaluator;
   }
 
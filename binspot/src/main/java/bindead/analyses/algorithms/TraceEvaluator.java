@@ -21,13 +21,14 @@ import bindead.analyses.algorithms.data.Flows;
 import bindead.domainnetwork.interfaces.ProgramPoint;
 import bindead.domainnetwork.interfaces.RootDomain;
 import bindead.environment.AnalysisEnvironment;
+import bindead.environment.platform.Platform;
 
 class TraceEvaluator<D extends RootDomain<D>> extends FixpointAnalysisEvaluator<D> {
   private final TraceIterator trace;
 
-  public TraceEvaluator (TraceIterator trace) {
+  public TraceEvaluator (TraceIterator trace, Platform platform) {
     // FIXME: see if we need the canary for analyzing traces
-    super(0xdead);
+    super(0xdead, platform);
     this.trace = trace;
   }
 
@@ -1,19 +1,24 @@
 package bindead.analyses.algorithms;
 
-import java.util.Iterator;
+import java.io.IOException;
 
-import javalx.data.products.P3;
 import rreil.lang.RReilAddr;
+import binparse.UncheckedIOException;
+import binparse.trace.ControlFlowReader;
 import binparse.trace.TraceDump;
 
+/**
+ * Iterates over the branches of a trace. The branches are read lazily from the trace dump and the trace file is
+ * closed when the last branch has been reached.
+ */
 public class TraceIterator {
-  private final Iterator<P3<Long, Long, Boolean>> branches;
+  private final ControlFlowReader branches;
   private RReilAddr nextBranchLocation;
   private RReilAddr nextBranchTarget;
   private boolean nextBranchConditionEvaluation;
 
   public TraceIterator (TraceDump trace) {
-    branches = trace.getControlFlow().iterator();
+    branches = trace.getControlFlow();
     advance(); // initialize
     advance(); // the first jump to the entry is ignored
   }
@@ -37,12 +42,22 @@ public class TraceIterator {
   public void advance () {
     if (hasNext())
       loadNextBranch();
+    if (!hasNext())
+      close();
   }
 
   private void loadNextBranch () {
-    P3<Long, Long, Boolean> nextBranch = branches.next();
-    nextBranchLocation = RReilAddr.valueOf(nextBranch._1());
-    nextBranchTarget = RReilAddr.valueOf(nextBranch._2());
-    nextBranchConditionEvaluation = nextBranch._3();
+    branches.next();
+    nextBranchLocation = RReilAddr.valueOf(branches.getCurrentPC());
+    nextBranchTarget = RReilAddr.valueOf(branches.getNextPC());
+    nextBranchConditionEvaluation = branches.getJumpConditionWas();
   }
-}
\ No newline at end of file
+
+  private void close () {
+    try {
+      branches.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -1,22 +1,41 @@
 package bindead.analyses.algorithms.data;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+import javalx.mutablecollections.WeakValueMap;
 import rreil.lang.RReilAddr;
 import bindead.exceptions.DomainStateException.InvariantViolationException;
 
 /**
  * Represents a sequence of calls that describe the path how a procedure was reached. A Call-String can be limited in
  * that only a certain number of calls are significant to identify the path to a procedure and the others are ignored. If
- * the Call-String is limited by k then the last k-calls are the significant ones.
+ * the Call-String is limited by k then the last call and the k calls before it are the significant ones. If it is
+ * limited by 0 then no call is significant.<br>
+ *
+ * Call-Strings are hash-consed: each Call-String is a node in a tree of calls that points to the Call-String it was
+ * pushed onto and there exists only one node for each sequence of calls. Thus pushing and popping a call does not
+ * copy the sequence and two Call-Strings are equal iff they share the same node for their significant calls.
+ * The table of the nodes references them only weakly, thus the nodes that are not used by an analysis anymore are
+ * reclaimed. Call-Strings can be created concurrently from several threads.
  */
-public class CallString implements Cloneable {
+public class CallString {
   private static final int defaultCallStringLength = 50;
+  // the roots of the call trees for each bound on the length of the significant calls
+  private static final WeakValueMap<Integer, CallString> roots = new WeakValueMap<>();
+  // the nodes of the call trees indexed by the node they were pushed onto and the pushed call
+  private static final WeakValueMap<Call, CallString> nodes = new WeakValueMap<>();
   private final int maxSignificantLength;
-  private final LinkedList<Transition> backLogString = new LinkedList<Transition>();
-  private final LinkedList<Transition> significantString = new LinkedList<Transition>();
+  private final CallString parent;
+  private final Transition transition;
+  private final int size;
+  private final int hashCode;
+  // the node for the significant calls of this Call-String; it is the node itself if all calls are significant
+  private final CallString significant;
+  // lazily computed node for the same calls without the first (oldest) call
+  private CallString withoutOldest;
 
   /**
    * Build a new Call-String object bounded by a maximum length for the significant string part.
@@ -25,7 +44,12 @@ public class CallString implements Cloneable {
    * @return A new Call-String object
    */
   private static CallString withMaxSignificantLength (int k) {
-    return new CallString(k);
+    if (k < 0)
+      k = 0;
+    CallString root = roots.get(k);
+    if (root == null)
+      root = roots.putIfAbsent(k, new CallString(k));
+    return root;
   }
 
   /**
@@ -48,104 +72,102 @@ public class CallString implements Cloneable {
   }
 
   private CallString (int maxSignificantLength) {
-    if (maxSignificantLength < 0)
-      maxSignificantLength = 0;
     this.maxSignificantLength = maxSignificantLength;
+    this.parent = null;
+    this.transition = null;
+    this.size = 0;
+    this.hashCode = 31 + maxSignificantLength;
+    this.significant = this;
   }
 
-  @Override protected CallString clone () {
-    return new CallString(this);
+  private CallString (CallString parent, Transition transition) {
+    this.maxSignificantLength = parent.maxSignificantLength;
+    this.parent = parent;
+    this.transition = transition;
+    this.size = parent.size + 1;
+    this.hashCode = 31 * parent.hashCode + transition.hashCode();
+    if (maxSignificantLength == 0)
+      significant = parent.significant;
+    else if (size <= maxSignificantLength + 1)
+      significant = this;
+    else
+      significant = parent.significant.withoutOldest().child(transition);
   }
 
-  private CallString (CallString other) {
-    this.maxSignificantLength = other.maxSignificantLength;
-    this.significantString.addAll(other.significantString);
-    this.backLogString.addAll(other.backLogString);
+  /**
+   * Return the unique node for the calls of this Call-String followed by the given call.
+   */
+  private CallString child (Transition transition) {
+    Call call = new Call(this, transition);
+    CallString child = nodes.get(call);
+    if (child == null)
+      child = nodes.putIfAbsent(call, new CallString(this, transition));
+    return child;
   }
 
-  public CallString pop (Transition transition) {
-    CallString newCallString = clone();
-    assert newCallString.size() > 0;
-    Transition lastTransition;
-    if (maxSignificantLength == 0) {
-      lastTransition = newCallString.backLogString.removeLast();
-    } else {
-      if (newCallString.backLogString.size() > 0) {
-        assert newCallString.significantString.size() == maxSignificantLength;
-        lastTransition = newCallString.significantString.removeLast();
-        Transition leastSignificantCall = newCallString.backLogString.removeLast();
-        newCallString.significantString.addFirst(leastSignificantCall);
-      } else {
-        lastTransition = newCallString.significantString.removeLast();
-      }
+  private CallString withoutOldest () {
+    assert size > 0;
+    CallString result = withoutOldest;
+    if (result == null) {
+      if (size == 1)
+        result = withMaxSignificantLength(maxSignificantLength);
+      else
+        result = parent.withoutOldest().child(transition);
+      // benign race as the result is unique
+      withoutOldest = result;
     }
+    return result;
+  }
 
-    if (!lastTransition.equals(transition))
+  public CallString pop (Transition transition) {
+    if (isRoot())
+      throw new NoSuchElementException();
+    if (!this.transition.equals(transition))
       throw new InvariantViolationException();
-    return newCallString;
+    return parent;
   }
 
   public CallString unsafePop () {
-    CallString newCallString = clone();
-    assert newCallString.size() > 0;
-    if (maxSignificantLength == 0) {
-      newCallString.backLogString.removeLast();
-    } else {
-      if (newCallString.backLogString.size() > 0) {
-        assert newCallString.significantString.size() == maxSignificantLength;
-        newCallString.significantString.removeLast();
-        Transition leastSignificantCall = newCallString.backLogString.removeLast();
-        newCallString.significantString.addFirst(leastSignificantCall);
-      } else {
-        newCallString.significantString.removeLast();
-      }
-    }
-    return newCallString;
+    if (isRoot())
+      throw new NoSuchElementException();
+    return parent;
   }
 
   public Transition peek () {
-    return significantString.peekLast();
+    return significant.transition;
   }
 
   public CallString push (Transition transition) {
-    CallString newCallString = clone();
-    if (maxSignificantLength == 0) {
-      newCallString.backLogString.addLast(transition);
-    } else {
-      if (newCallString.size() > maxSignificantLength) {
-        Transition leastSignificantCall = newCallString.significantString.removeFirst();
-        newCallString.backLogString.addLast(leastSignificantCall);
-      }
-      newCallString.significantString.addLast(transition);
-    }
-    return newCallString;
+    return child(transition);
   }
 
   public int size () {
-    return significantString.size() + backLogString.size();
+    return size;
   }
 
   public boolean isRoot () {
-    return size() == 0;
+    return size == 0;
   }
 
   public List<Transition> getSignificantTransitions () {
-    return Collections.unmodifiableList(significantString);
+    return significant.transitions();
   }
 
   public List<Transition> getAllTransitions () {
-    List<Transition> all = new LinkedList<Transition>();
-    all.addAll(backLogString);
-    all.addAll(significantString);
-    return Collections.unmodifiableList(all);
+    return transitions();
+  }
+
+  private List<Transition> transitions () {
+    List<Transition> transitions = new ArrayList<Transition>(size);
+    for (CallString node = this; !node.isRoot(); node = node.parent) {
+      transitions.add(node.transition);
+    }
+    Collections.reverse(transitions);
+    return Collections.unmodifiableList(transitions);
   }
 
   @Override public int hashCode () {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + (significantString == null ? 0 : significantString.hashCode());
-    result = prime * result + maxSignificantLength;
-    return result;
+    return significant.hashCode;
   }
 
   /**
@@ -157,23 +179,14 @@ public class CallString implements Cloneable {
   @Override public boolean equals (Object obj) {
     if (this == obj)
       return true;
-    if (obj == null)
-      return false;
     if (!(obj instanceof CallString))
       return false;
     CallString other = (CallString) obj;
-    if (significantString == null) {
-      if (other.significantString != null)
-        return false;
-    } else if (!significantString.equals(other.significantString))
-      return false;
-    if (maxSignificantLength != other.maxSignificantLength)
-      return false;
-    return true;
+    return significant == other.significant;
   }
 
   @Override public String toString () {
-    return significantString.toString();
+    return getSignificantTransitions().toString();
   }
 
   /**
@@ -184,7 +197,7 @@ public class CallString implements Cloneable {
    */
   public String pretty (int maxDisplayableCalls) {
     StringBuilder builder = new StringBuilder();
-    if (getSignificantTransitions().isEmpty()) {
+    if (significant.isRoot()) {
       return "";
     }
     List<Transition> transitions = getSignificantTransitions();
@@ -201,13 +214,45 @@ public class CallString implements Cloneable {
     return builder.toString();
   }
 
+  /**
+   * The key of a node in the table of nodes. Compares the parent nodes by their identity as they are unique.
+   */
+  private static final class Call {
+    private final CallString parent;
+    private final Transition transition;
+
+    Call (CallString parent, Transition transition) {
+      this.parent = parent;
+      this.transition = transition;
+    }
+
+    @Override public int hashCode () {
+      return 31 * parent.hashCode + transition.hashCode();
+    }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Call))
+        return false;
+      Call other = (Call) obj;
+      return parent == other.parent && transition.equals(other.transition);
+    }
+  }
+
   public static class Transition {
     private final RReilAddr source;
     private final RReilAddr target;
+    private final int hashCode;
 
     public Transition (RReilAddr a, RReilAddr b) {
       this.source = a;
       this.target = b;
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + ((source == null) ? 0 : source.hashCode());
+      result = prime * result + ((target == null) ? 0 : target.hashCode());
+      this.hashCode = result;
     }
 
     public RReilAddr getSource () {
@@ -224,11 +269,7 @@ public class CallString implements Cloneable {
     }
 
     @Override public int hashCode () {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + ((source == null) ? 0 : source.hashCode());
-      result = prime * result + ((target == null) ? 0 : target.hashCode());
-      return result;
+      return hashCode;
     }
 
     @Override public boolean equals (Object obj) {
@@ -239,6 +280,8 @@ public class CallString implements Cloneable {
       if (!(obj instanceof Transition))
         return false;
       Transition other = (Transition) obj;
+      if (hashCode != other.hashCode)
+        return false;
       if (source == null) {
         if (other.source != null)
           return false;
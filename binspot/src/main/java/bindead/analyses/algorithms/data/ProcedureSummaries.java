@@ -0,0 +1,171 @@
+package bindead.analyses.algorithms.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rreil.lang.RReilAddr;
+import bindead.domainnetwork.interfaces.RootDomain;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * The input/output pairs of the procedures analyzed by the call-string analysis. A procedure is identified by the
+ * call-string it is analyzed with. Its input is the state at the entry of the procedure and its outputs are the states
+ * that flow to the return sites.<br>
+ *
+ * A call whose state at the entry is subsumed by the input of a procedure that was already analyzed for the same
+ * entry address does not need to analyze the callee again. It reuses the summary instead, i.e. the outputs of the
+ * procedure flow to the return sites of the caller. As the outputs of a procedure may still grow until its fixpoint
+ * is reached the callers that reuse a summary are recorded and the outputs that are added later are passed on to them,
+ * too.
+ */
+public class ProcedureSummaries<D extends RootDomain<D>> {
+  private final Map<CallString, Summary<D>> summaries = new HashMap<>();
+  private final ListMultimap<RReilAddr, Summary<D>> summariesForEntry = LinkedListMultimap.create();
+  private int reuses;
+
+  /**
+   * The input and outputs of a procedure analyzed in one call-string.
+   */
+  public static class Summary<D extends RootDomain<D>> {
+    private final CallString procedure;
+    private D input;
+    private final Map<RReilAddr, D> outputs = new LinkedHashMap<>();
+    private final Set<CallString> callers = new LinkedHashSet<>();
+
+    Summary (CallString procedure, D input) {
+      this.procedure = procedure;
+      this.input = input;
+    }
+
+    public CallString getProcedure () {
+      return procedure;
+    }
+
+    public D getInput () {
+      return input;
+    }
+
+    /**
+     * @return The states flowing out of the procedure for each return site.
+     */
+    public Map<RReilAddr, D> getOutputs () {
+      return Collections.unmodifiableMap(outputs);
+    }
+
+    /**
+     * @return The call-strings of the callers that reuse this summary instead of analyzing the procedure themselves.
+     */
+    public Collection<CallString> getCallers () {
+      return Collections.unmodifiableSet(callers);
+    }
+
+    /**
+     * Add a state flowing out of the procedure to the given return site.
+     *
+     * @return {@code true} if the output for the return site changed or {@code false} if the state was already
+     *         included in it
+     */
+    boolean addOutput (RReilAddr returnSite, D state) {
+      D oldOutput = outputs.get(returnSite);
+      if (oldOutput == null) {
+        outputs.put(returnSite, state);
+        return true;
+      }
+      D newOutput = oldOutput.addToState(state, false);
+      if (newOutput == null)
+        return false;
+      outputs.put(returnSite, newOutput);
+      return true;
+    }
+
+    @Override public String toString () {
+      return procedure + " reused by " + callers;
+    }
+  }
+
+  /**
+   * Set the input of the procedure analyzed in the given call-string, i.e. the state at its entry.
+   */
+  public void setInput (CallString procedure, RReilAddr entry, D input) {
+    Summary<D> summary = summaries.get(procedure);
+    if (summary == null) {
+      summary = new Summary<D>(procedure, input);
+      summaries.put(procedure, summary);
+      summariesForEntry.put(entry, summary);
+    } else {
+      summary.input = input;
+    }
+  }
+
+  /**
+   * Add a state that flows out of the procedure analyzed in the given call-string to a return site.
+   *
+   * @return The callers that reuse the summary of the procedure and need the new output or an empty list if the
+   *         output did not change or the procedure is not reused
+   */
+  public Collection<CallString> addOutput (CallString procedure, RReilAddr returnSite, D state) {
+    Summary<D> summary = summaries.get(procedure);
+    if (summary == null || !summary.addOutput(returnSite, state))
+      return Collections.emptyList();
+    return new ArrayList<>(summary.callers);
+  }
+
+  /**
+   * Find a summary that can be reused by a call to the given entry address, i.e. a procedure whose input includes the
+   * state at the call. The summaries are searched in the order they were recorded. A procedure is never reused for a
+   * call-string that is itself already analyzed.
+   *
+   * @param callee The call-string the callee would be analyzed in
+   * @param entry The entry address of the callee
+   * @param state The state at the entry of the callee
+   * @return The summary to reuse or {@code null} if the callee must be analyzed
+   */
+  public Summary<D> findSubsuming (CallString callee, RReilAddr entry, D state) {
+    if (summaries.containsKey(callee))
+      return null;
+    for (Summary<D> summary : summariesForEntry.get(entry)) {
+      if (state.subsetOrEqual(summary.input))
+        return summary;
+    }
+    return null;
+  }
+
+  /**
+   * Record that the caller reuses the given summary.
+   *
+   * @return The outputs of the procedure known so far that need to flow to the caller
+   */
+  public Map<RReilAddr, D> reuse (Summary<D> summary, CallString caller) {
+    summary.callers.add(caller);
+    reuses++;
+    return summary.getOutputs();
+  }
+
+  public Summary<D> get (CallString procedure) {
+    return summaries.get(procedure);
+  }
+
+  /**
+   * @return The number of calls that reused a summary instead of analyzing the callee.
+   */
+  public int getNumberOfReuses () {
+    return reuses;
+  }
+
+  public List<Summary<D>> getSummaries (RReilAddr entry) {
+    return Collections.unmodifiableList(summariesForEntry.get(entry));
+  }
+
+  @Override public String toString () {
+    return summariesForEntry.toString();
+  }
+}
@@ -0,0 +1,93 @@
+package bindead.analyses.algorithms.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import rreil.lang.RReilAddr;
+import rreil.lang.util.VariableFactory;
+import bindead.domainnetwork.interfaces.ProgramPoint;
+
+/**
+ * Reserves the stamps for the variables allocated by the evaluations of the transfer functions of an analysis, see
+ * {@link VariableFactory#reserve(int)}. The number of stamps reserved for an evaluation is about the number that the
+ * last evaluation of the same instruction needed.<br>
+ *
+ * Optionally the variables created by the last evaluation at each program point are recorded, such that the
+ * evaluation can be replayed with the same variables, see {@link VariableFactory#replay()}. Thus a state that is
+ * recomputed from the state of its predecessor is the same as the state that was computed by the analysis.
+ */
+public class ReservedStamps {
+  /**
+   * The number of stamps reserved for an instruction that was not evaluated before.
+   */
+  private static final int minStamps = 4;
+  private static final int maxStamps = 1024;
+  private final VariableFactory variables;
+  private final Map<RReilAddr, Integer> needed = new HashMap<>();
+  private final Map<ProgramPoint, VariableFactory> used;
+
+  /**
+   * @param variables The factory that the stamps are reserved from
+   * @param recordUsed Whether to record the variables created at each program point to replay the evaluations
+   */
+  public ReservedStamps (VariableFactory variables, boolean recordUsed) {
+    this.variables = variables;
+    this.used = recordUsed ? new HashMap<ProgramPoint, VariableFactory>() : null;
+  }
+
+  /**
+   * Reserve the stamps for an evaluation of the transfer function at the given point. The reservations must be
+   * released in the same order with {@link #release(ProgramPoint, VariableFactory)}.
+   */
+  public VariableFactory reserve (ProgramPoint point) {
+    Integer last = needed.get(point.getAddress());
+    int size = minStamps;
+    // some slack for states that grow between the evaluations
+    if (last != null)
+      size = Math.min(maxStamps, Math.max(minStamps, last + last / 4 + 1));
+    VariableFactory reserved = variables.reserve(size);
+    if (used != null)
+      reserved.recordCreated();
+    return reserved;
+  }
+
+  /**
+   * Hand the unused stamps of an evaluation back and record the variables it created.
+   *
+   * @return {@code true} if the evaluation used only the reserved stamps or {@code false} if its factory was exhausted
+   *         and it needs to be evaluated again with the factory of the analysis
+   */
+  public boolean release (ProgramPoint point, VariableFactory reserved) {
+    int count = reserved.used();
+    boolean exhausted = reserved.isExhausted();
+    if (exhausted)
+      count = Math.min(maxStamps, 2 * Math.max(minStamps, count));
+    needed.put(point.getAddress(), count);
+    if (used != null) {
+      if (exhausted)
+        used.remove(point);
+      else
+        used.put(point, reserved);
+    }
+    reserved.release();
+    return !exhausted;
+  }
+
+  /**
+   * @return {@code true} if the variables of the last evaluation at the given point are recorded
+   */
+  public boolean isRecorded (ProgramPoint point) {
+    return used != null && used.containsKey(point);
+  }
+
+  /**
+   * Return the factory to evaluate the transfer function at the given point again with the variables of its last
+   * evaluation or the factory of the analysis if the variables of the point are not recorded.
+   */
+  public VariableFactory replay (ProgramPoint point) {
+    VariableFactory recorded = used == null ? null : used.get(point);
+    if (recorded == null)
+      return variables;
+    return recorded.replay();
+  }
+}
@@ -2,21 +2,30 @@ package bindead.analyses.algorithms.data;
 
 import static bindead.debug.StringHelpers.indentMultiline;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import javalx.data.Option;
 import rreil.lang.RReilAddr;
 import bindead.analyses.algorithms.AnalysisProperties;
 import bindead.analyses.algorithms.data.Flows.FlowType;
 import bindead.analyses.warnings.WarningsMap;
+import bindead.debug.HeapSizeEstimator;
+import bindead.debug.VariableStamps;
 import bindead.domainnetwork.channels.WarningsContainer;
 import bindead.domainnetwork.interfaces.AnalysisCtx;
 import bindead.domainnetwork.interfaces.ProgramPoint;
 import bindead.domainnetwork.interfaces.RootDomain;
+import bindead.environment.AnalysisEnvironment;
+import bindead.exceptions.DomainStateException.InvariantViolationException;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.HashMultiset;
@@ -26,7 +35,14 @@ import com.google.common.collect.Multiset;
 /**
  * The state space is the mapping from program points to states, where the state at each program point is actually the
  * state _before_ the program point, i.e. the incoming state.
- * Additionally, the warnings that were produced during the analysis are saved here, too.
+ * Additionally, the warnings that were produced during the analysis are saved here, too.<br>
+ *
+ * With a sparse storage (see {@link #useSparseStorage(Recomputation)}) the states are only kept at the program
+ * points where they are needed for joins and widenings, i.e. junctions, widening points and block heads. The states
+ * of the straight-line program points in between are dropped after they have been evaluated and are recomputed on
+ * demand from the nearest stored predecessor. As long as the state of a predecessor did not change since it was
+ * evaluated, its transfer function is replayed with the same variables, thus the recomputed state is the one that was
+ * dropped.
  */
 public class StateSpace<D extends RootDomain<D>> {
   private final boolean DEBUGBINARIES = AnalysisProperties.INSTANCE.debugBinaryOperations.isTrue();
@@ -40,6 +56,61 @@ public class StateSpace<D extends RootDomain<D>> {
   private final WarningsMap warningsMap = new WarningsMap();
   private final Multiset<ProgramPoint> iterationsCounter = HashMultiset.create();
   private final Multiset<ProgramPoint> wideningPoints = HashMultiset.create();
+  private WeakTopologicalOrder<ProgramPoint> order;
+  /**
+   * The number of recomputed states that are cached for the sparse storage.
+   */
+  private static final int recomputedStatesCacheSize = 256;
+  private Recomputation<D> recomputation;
+  private final Map<ProgramPoint, ProgramPoint> stateSources = new HashMap<>();
+  /**
+   * The iteration of the state that the transfer function at a program point was last evaluated with.
+   */
+  private final Map<ProgramPoint, Integer> evaluatedIterations = new HashMap<>();
+  private final Map<ProgramPoint, D> recomputedStates = new LinkedHashMap<ProgramPoint, D>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override protected boolean removeEldestEntry (Map.Entry<ProgramPoint, D> eldest) {
+      return size() > recomputedStatesCacheSize;
+    }
+  };
+
+  /**
+   * Re-evaluates the transfer function of a program point to recompute the dropped states of a sparse storage.
+   */
+  public static interface Recomputation<D> {
+    /**
+     * Returns {@code true} if the transfer function at the given point can be evaluated again without any side
+     * effects on the analysis, i.e. it depends only on the state.
+     */
+    public boolean canRecompute (ProgramPoint point);
+
+    /**
+     * Evaluate the transfer function at {@code from} on the given state and return the state flowing to the
+     * successor {@code to} or {@code null} if the successor is unreachable.
+     *
+     * @param replay {@code true} if the state is the one that the transfer function was last evaluated with, thus the
+     *          evaluation must allocate the same variables as the last time
+     */
+    public D recompute (ProgramPoint from, D state, ProgramPoint to, boolean replay);
+  }
+
+  /**
+   * Choose the widening points using the given order instead of the address order of the program points.
+   * The order must contain all the transitions that are passed to {@link #update}.
+   */
+  public void useWeakTopologicalOrder (WeakTopologicalOrder<ProgramPoint> order) {
+    this.order = order;
+  }
+
+  /**
+   * Keep the states only at junctions, widening points and block heads and recompute the states of the other
+   * program points when they are requested. Reduces the memory needed for the analysis of large binaries at the cost
+   * of evaluating the straight-line code between the stored states again on each query.
+   */
+  public void useSparseStorage (Recomputation<D> recomputation) {
+    this.recomputation = recomputation;
+  }
 
   /**
    * Set the state at a program location. Use only for bootstrapping an analysis,
@@ -57,14 +128,19 @@ public class StateSpace<D extends RootDomain<D>> {
   private void putState (ProgramPoint point, D state) {
     // the warnings channel needs to be reset for when the state will be read and evaluated again
     // otherwise we will pass on the warnings from previous program points
-    final AnalysisCtx newCtx =
-      new AnalysisCtx(Option.<ProgramPoint>some(point), state.getContext().getEnvironment(), new WarningsContainer());
-    state = state.setContext(newCtx);
+    state = withFreshContext(point, state);
     states.put(point, state);
+    recomputedStates.clear();
     iterationsCounter.add(point);
     stateSpaceForAddress.put(point.getAddress(), point);
   }
 
+  private D withFreshContext (ProgramPoint point, D state) {
+    final AnalysisCtx newCtx =
+      new AnalysisCtx(Option.<ProgramPoint>some(point), state.getContext().getEnvironment(), new WarningsContainer());
+    return state.setContext(newCtx);
+  }
+
   /**
    * Update the state space with a new value.
    *
@@ -123,9 +199,31 @@ public class StateSpace<D extends RootDomain<D>> {
     debugWideningCounter(to, isWideningPoint);
     putWarnings(from, newState.getContext().getWarningsChannel());
     putState(to, finalState);
+    stateSources.put(to, from);
     return true;
   }
 
+  /**
+   * Notify the state space that the given state of a program point has been evaluated and its successors updated.
+   * With a sparse storage the state is dropped if it is not needed for joins and can be recomputed from the state of
+   * its predecessor. Block heads, i.e. the targets of branches, are kept as branches are never re-evaluated.
+   */
+  public void evaluated (ProgramPoint point, D state) {
+    if (recomputation == null)
+      return;
+    if (states.get(point) != state) {
+      evaluatedIterations.remove(point);
+      return;
+    }
+    evaluatedIterations.put(point, iterationsCounter.count(point));
+    if (isJunction(point) || wideningPoints.contains(point))
+      return;
+    ProgramPoint source = stateSources.get(point);
+    if (source == null || !recomputation.canRecompute(source))
+      return;
+    states.remove(point);
+  }
+
   private void debugWideningCounter (ProgramPoint point, boolean isWideningPoint) {
     if (isWideningPoint && DEBUGWIDENING) {
       final int timesWidenened = wideningPoints.count(point);
@@ -178,9 +276,12 @@ public class StateSpace<D extends RootDomain<D>> {
   }
 
   /**
-   * Use a simple widening heuristic. If a path leads from a higher to a lower address then we have a backedge.
+   * Use a simple widening heuristic if no weak topological order is available.
+   * If a path leads from a higher to a lower address then we have a backedge.
    */
-  private static boolean isBackedge (ProgramPoint from, ProgramPoint to) {
+  private boolean isBackedge (ProgramPoint from, ProgramPoint to) {
+    if (order != null)
+      return order.isWideningEdge(from, to);
     return from.getAddress().compareTo(to.getAddress()) > 0;
   }
 
@@ -188,7 +289,46 @@ public class StateSpace<D extends RootDomain<D>> {
    * Retrieve the state at a certain program location.
    */
   public Option<D> get (ProgramPoint point) {
-    return Option.fromNullable(states.get(point));
+    D state = states.get(point);
+    if (state == null && recomputation != null)
+      state = recompute(point);
+    return Option.fromNullable(state);
+  }
+
+  /**
+   * Follow the sources of the dropped states back to the nearest stored or cached state and evaluate the program
+   * points on the way forward again.
+   */
+  private D recompute (ProgramPoint point) {
+    D state = recomputedStates.get(point);
+    if (state != null || !stateSources.containsKey(point))
+      return state;
+    List<ProgramPoint> path = new ArrayList<>();
+    Set<ProgramPoint> visited = new HashSet<>();
+    ProgramPoint current = point;
+    while (state == null) {
+      if (!visited.add(current))
+        throw new InvariantViolationException("Cyclic sources for the dropped state at " + point);
+      path.add(current);
+      current = stateSources.get(current);
+      if (current == null)
+        return null;
+      state = states.get(current);
+      if (state == null)
+        state = recomputedStates.get(current);
+    }
+    for (int i = path.size() - 1; i >= 0; i--) {
+      ProgramPoint next = path.get(i);
+      Integer evaluatedIteration = evaluatedIterations.get(current);
+      boolean replay = evaluatedIteration != null && evaluatedIteration == iterationsCounter.count(current);
+      state = recomputation.recompute(current, state, next, replay);
+      if (state == null)
+        return null;
+      state = withFreshContext(next, state);
+      recomputedStates.put(next, state);
+      current = next;
+    }
+    return state;
   }
 
   /**
@@ -215,6 +355,78 @@ public class StateSpace<D extends RootDomain<D>> {
     return wideningPoints;
   }
 
+  /**
+   * Measure how much memory the stored states share. The states are persistent data structures, thus a state that
+   * was derived from the state of a predecessor reuses all the subtrees that were not changed and needs only the
+   * memory for the changed bindings. Walks all the states, thus use it only for debugging.
+   */
+  public SharingStatistics measureSharing () {
+    HeapSizeEstimator stored = new HeapSizeEstimator(AnalysisEnvironment.class);
+    long copiesBytes = 0;
+    for (D state : states.values()) {
+      copiesBytes += HeapSizeEstimator.sizeOf(state, AnalysisEnvironment.class);
+      stored.add(state);
+    }
+    return new SharingStatistics(states.size(), copiesBytes, stored.totalBytes());
+  }
+
+  /**
+   * Return the stamps of the numeric variables of the stored state with the most variables in the order of their
+   * allocation. Walks all the states, thus use it only for debugging.
+   */
+  public SortedSet<Integer> largestStateVariables () {
+    SortedSet<Integer> largest = new TreeSet<>();
+    for (D state : states.values()) {
+      SortedSet<Integer> stamps = VariableStamps.of(state, AnalysisEnvironment.class);
+      if (stamps.size() > largest.size())
+        largest = stamps;
+    }
+    return largest;
+  }
+
+  /**
+   * The estimated memory of the stored states compared to the memory that copies of the states would need.
+   */
+  public static final class SharingStatistics {
+    private final int states;
+    private final long copiesBytes;
+    private final long sharedBytes;
+
+    SharingStatistics (int states, long copiesBytes, long sharedBytes) {
+      this.states = states;
+      this.copiesBytes = copiesBytes;
+      this.sharedBytes = sharedBytes;
+    }
+
+    public int getStates () {
+      return states;
+    }
+
+    /**
+     * @return The bytes needed if each state was stored as a complete copy.
+     */
+    public long getCopiesBytes () {
+      return copiesBytes;
+    }
+
+    /**
+     * @return The bytes retained by the states, counting the subtrees shared between states only once.
+     */
+    public long getSharedBytes () {
+      return sharedBytes;
+    }
+
+    public long getSavedBytes () {
+      return copiesBytes - sharedBytes;
+    }
+
+    @Override public String toString () {
+      long average = states == 0 ? 0 : sharedBytes / states;
+      return states + " states retaining " + sharedBytes + " bytes, " + getSavedBytes()
+        + " bytes saved by sharing (≈" + average + " bytes/state)";
+    }
+  }
+
   @Override public String toString () {
     StringBuilder builder = new StringBuilder();
     builder.append("Size: ");
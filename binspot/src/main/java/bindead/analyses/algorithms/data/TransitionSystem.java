@@ -37,6 +37,10 @@ public class TransitionSystem {
    * This are the over-approximated successors without taking the callstring into account.
    */
   private final Multimap<RReilAddr, RReilAddr> flatSuccessors = HashMultimap.create();
+  /**
+   * The iteration order over all the transitions. Only maintained after it was requested the first time.
+   */
+  private WeakTopologicalOrder<ProgramPoint> order;
 
   public static class ProceduralTransitions {
 
@@ -110,6 +114,33 @@ public class TransitionSystem {
     return flatSuccessors;
   }
 
+  /**
+   * Return a weak topological order of the program points connected by the transitions in this system.
+   * The order is kept up to date with transitions that are added later on.
+   */
+  public WeakTopologicalOrder<ProgramPoint> getWeakTopologicalOrder () {
+    if (order == null) {
+      order = new WeakTopologicalOrder<>();
+      for (ProceduralTransitions procedure : procedures.values()) {
+        for (Map.Entry<ProgramPoint, ProgramPoint> transition : procedure.getLocalTransitions().entries()) {
+          order.addEdge(transition.getKey(), transition.getValue());
+        }
+        for (Map.Entry<ProgramPoint, ProgramCtx> transition : procedure.getCalls().entries()) {
+          order.addEdge(transition.getKey(), transition.getValue());
+        }
+        for (Map.Entry<ProgramPoint, ProgramCtx> transition : procedure.getReturns().entries()) {
+          order.addEdge(transition.getKey(), transition.getValue());
+        }
+      }
+    }
+    return order;
+  }
+
+  private void addToOrder (ProgramPoint from, ProgramPoint to) {
+    if (order != null)
+      order.addEdge(from, to);
+  }
+
   /**
    * Return all the transitions for the given procedure identified by a callstring.
    */
@@ -124,6 +155,7 @@ public class TransitionSystem {
     ProceduralTransitions procedureTransitions = getProcedureOrFresh(procedure);
     procedureTransitions.addLocalTransition(from, to);
     flatSuccessors.put(from.getAddress(), to.getAddress());
+    addToOrder(from, to);
   }
 
   /**
@@ -134,6 +166,7 @@ public class TransitionSystem {
     procedureTransitions.addCall(from, to);
     callsites.put(to.getAddress(), from.getAddress());
     flatSuccessors.put(from.getAddress(), to.getAddress());
+    addToOrder(from, to);
   }
 
   /**
@@ -152,6 +185,7 @@ public class TransitionSystem {
     ProceduralTransitions fromProcedureTransitions = getProcedureOrFresh(from.getCallString());
     fromProcedureTransitions.addReturn(from, to);
     flatSuccessors.put(from.getAddress(), to.getAddress());
+    addToOrder(from, to);
   }
 
 }
@@ -0,0 +1,266 @@
+package bindead.analyses.algorithms.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A weak topological ordering (WTO) of the nodes of a growing directed graph as described by Bourdoncle in
+ * "Efficient chaining strategies for the fixpoint computation of abstract interpretation". The nodes are ordered
+ * topologically apart from the strongly connected components that are ordered recursively after removing their head.
+ * Iterating the nodes in this order stabilizes inner loops before their successors are evaluated and every cycle in
+ * the graph contains the head of a component, thus it is sufficient to widen at the heads.<br>
+ *
+ * As the control flow is discovered during the analysis the order is computed incrementally. Adding an edge to a new
+ * node cannot close a cycle and the new node is just ordered after all the known nodes. Only edges to known nodes
+ * that are not consistent with the current order mark the order as outdated. It is then recomputed on the next query.
+ *
+ * @param <T> The type of the nodes.
+ */
+public class WeakTopologicalOrder<T> {
+  private final Map<T, Set<T>> successors = new LinkedHashMap<>();
+  private Map<T, Integer> positions = new HashMap<>();
+  private Set<T> heads = new HashSet<>();
+  private List<Object> components = new ArrayList<>();
+  private boolean outdated = false;
+  private int version = 0;
+
+  /**
+   * Add an edge to the graph. The source node is added as the first node of the graph if the graph is empty.
+   */
+  public void addEdge (T from, T to) {
+    Set<T> fromSuccessors = getSuccessorsOrFresh(from);
+    if (!fromSuccessors.add(to))
+      return;
+    boolean isNewNode = !successors.containsKey(to);
+    getSuccessorsOrFresh(to);
+    if (!isNewNode && !isConsistentEdge(from, to))
+      outdated = true;
+  }
+
+  /**
+   * Returns the successors of a node. A new node is added to the graph and ordered after all the known nodes.
+   */
+  private Set<T> getSuccessorsOrFresh (T node) {
+    Set<T> nodeSuccessors = successors.get(node);
+    if (nodeSuccessors == null) {
+      nodeSuccessors = new LinkedHashSet<T>();
+      successors.put(node, nodeSuccessors);
+      positions.put(node, positions.size());
+      components.add(node);
+    }
+    return nodeSuccessors;
+  }
+
+  /**
+   * An edge is consistent with the order if it goes forward or back to the head of a component. In the second case
+   * any new cycle closed by the edge contains the head.
+   */
+  private boolean isConsistentEdge (T from, T to) {
+    Integer fromPosition = positions.get(from);
+    Integer toPosition = positions.get(to);
+    if (fromPosition == null || toPosition == null)
+      return false;
+    return fromPosition < toPosition || heads.contains(to);
+  }
+
+  /**
+   * Recompute the order if edges were added that are not consistent with it.
+   *
+   * @return {@code true} if the order was recomputed
+   */
+  public boolean refresh () {
+    if (!outdated)
+      return false;
+    outdated = false;
+    version++;
+    positions = new HashMap<>();
+    heads = new HashSet<>();
+    components = new ArrayList<>();
+    computeComponents(successors.keySet(), null, components);
+    return true;
+  }
+
+  /**
+   * A counter that is incremented each time the order is recomputed, i.e. the positions of the nodes change.
+   */
+  public int getVersion () {
+    return version;
+  }
+
+  /**
+   * Return the position of a node in the order or {@link Integer#MAX_VALUE} for unknown nodes. Does not recompute the
+   * order, see {@link #refresh()}.
+   */
+  public int getPosition (T node) {
+    Integer position = positions.get(node);
+    return position == null ? Integer.MAX_VALUE : position;
+  }
+
+  /**
+   * Returns {@code true} if the node is the head of a component.
+   */
+  public boolean isHead (T node) {
+    refresh();
+    return heads.contains(node);
+  }
+
+  /**
+   * Returns {@code true} if the edge leads back to the head of a component, i.e. if the state for {@code to} needs
+   * to be widened.
+   */
+  public boolean isWideningEdge (T from, T to) {
+    refresh();
+    return heads.contains(to) && getPosition(to) <= getPosition(from);
+  }
+
+  /**
+   * Compute the order of the subgraph induced by the given nodes. The edges to the head of the component that the nodes
+   * are part of are ignored. Uses Tarjan's algorithm to find the strongly connected components in the subgraph
+   * and recursively orders the components without their head. The first node of a component in depth-first order is
+   * its head.
+   */
+  private void computeComponents (Collection<T> nodes, T enclosingHead, List<Object> result) {
+    Set<T> members = new HashSet<>(nodes);
+    members.remove(enclosingHead);
+    List<List<T>> stronglyConnected = new StronglyConnectedComponents(members).compute(nodes);
+    // Tarjan's algorithm finds the components in reverse topological order
+    for (List<T> component : reversed(stronglyConnected)) {
+      T head = component.get(0);
+      if (component.size() == 1 && !successors.get(head).contains(head)) {
+        positions.put(head, positions.size());
+        result.add(head);
+      } else {
+        positions.put(head, positions.size());
+        heads.add(head);
+        List<Object> nested = new ArrayList<>();
+        nested.add(head);
+        computeComponents(component, head, nested);
+        result.add(nested);
+      }
+    }
+  }
+
+  private static <A> Iterable<A> reversed (List<A> list) {
+    List<A> copy = new ArrayList<>(list);
+    Collections.reverse(copy);
+    return copy;
+  }
+
+  /**
+   * An iterative version of Tarjan's algorithm to avoid stack overflows on big graphs.
+   */
+  private class StronglyConnectedComponents {
+    private final Set<T> members;
+    private final Map<T, Integer> index = new HashMap<>();
+    private final Map<T, Integer> lowLink = new HashMap<>();
+    private final Deque<T> stack = new ArrayDeque<>();
+    private final Set<T> onStack = new HashSet<>();
+    private final List<List<T>> result = new ArrayList<>();
+
+    StronglyConnectedComponents (Set<T> members) {
+      this.members = members;
+    }
+
+    /**
+     * @param roots The nodes in the order in which they are used as roots of the depth-first search.
+     * @return The components in reverse topological order. Each component starts with the node that was visited first.
+     */
+    List<List<T>> compute (Collection<T> roots) {
+      for (T root : roots) {
+        if (members.contains(root) && !index.containsKey(root))
+          visit(root);
+      }
+      return result;
+    }
+
+    private void visit (T root) {
+      Deque<T> path = new ArrayDeque<>();
+      Deque<Iterator<T>> pending = new ArrayDeque<>();
+      enter(root, path, pending);
+      while (!path.isEmpty()) {
+        T node = path.peek();
+        Iterator<T> nodeSuccessors = pending.peek();
+        if (nodeSuccessors.hasNext()) {
+          T successor = nodeSuccessors.next();
+          if (!members.contains(successor))
+            continue;
+          if (!index.containsKey(successor))
+            enter(successor, path, pending);
+          else if (onStack.contains(successor))
+            lowLink.put(node, Math.min(lowLink.get(node), index.get(successor)));
+        } else {
+          path.pop();
+          pending.pop();
+          if (!path.isEmpty()) {
+            T parent = path.peek();
+            lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+          }
+          if (lowLink.get(node).equals(index.get(node)))
+            result.add(popComponent(node));
+        }
+      }
+    }
+
+    private void enter (T node, Deque<T> path, Deque<Iterator<T>> pending) {
+      index.put(node, index.size());
+      lowLink.put(node, index.get(node));
+      stack.push(node);
+      onStack.add(node);
+      path.push(node);
+      pending.push(successors.get(node).iterator());
+    }
+
+    private List<T> popComponent (T root) {
+      List<T> component = new ArrayList<>();
+      T node;
+      do {
+        node = stack.pop();
+        onStack.remove(node);
+        component.add(node);
+      } while (!node.equals(root));
+      // the root was visited first and is the head of the component, the others are kept in depth-first order
+      Collections.reverse(component);
+      return component;
+    }
+  }
+
+  /**
+   * Print the order in the notation of Bourdoncle, i.e. components are enclosed in parentheses and start with
+   * their head.
+   */
+  @Override public String toString () {
+    refresh();
+    StringBuilder builder = new StringBuilder();
+    appendComponents(components, builder);
+    return builder.toString();
+  }
+
+  private static void appendComponents (List<Object> elements, StringBuilder builder) {
+    Iterator<Object> iterator = elements.iterator();
+    while (iterator.hasNext()) {
+      Object element = iterator.next();
+      if (element instanceof List) {
+        @SuppressWarnings("unchecked")
+        List<Object> component = (List<Object>) element;
+        builder.append('(');
+        appendComponents(component, builder);
+        builder.append(')');
+      } else {
+        builder.append(element);
+      }
+      if (iterator.hasNext())
+        builder.append(' ');
+    }
+  }
+}
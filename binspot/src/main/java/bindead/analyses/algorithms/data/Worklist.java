@@ -1,6 +1,7 @@
 package bindead.analyses.algorithms.data;
 
 import java.util.ArrayDeque;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.PriorityQueue;
 import java.util.Set;
@@ -9,18 +10,64 @@ import bindead.analyses.algorithms.AnalysisProperties;
 
 /**
  * A list of items in LIFO order (stack) or using a priority queue.
- * Thus the evaluation order can be adjusted.
+ * Thus the evaluation order can be adjusted. The priority is either the natural order of the items
+ * or their position in a weak topological order of the control flow graph.
  */
 public class Worklist<T extends Comparable<? super T>> {
-  private final boolean useGlobalOrdering = AnalysisProperties.INSTANCE.processAddressesInOrder.isTrue();
-  private final PriorityQueue<T> queue;
+  private final boolean useGlobalOrdering;
+  private PriorityQueue<T> queue;
   private final ArrayDeque<T> oldQueue;
   private final Set<T> inQueue;
+  private final WeakTopologicalOrder<? super T> order;
+  private int orderVersion;
 
   public Worklist () {
+    this.useGlobalOrdering = AnalysisProperties.INSTANCE.processAddressesInOrder.isTrue();
     this.queue = new PriorityQueue<>();
     this.oldQueue = new ArrayDeque<>();
     this.inQueue = new HashSet<>();
+    this.order = null;
+  }
+
+  /**
+   * Process the items in the given weak topological order. Items that are not yet part of the order are processed
+   * after the ordered ones in their natural order.
+   */
+  public Worklist (WeakTopologicalOrder<? super T> order) {
+    this.useGlobalOrdering = true;
+    this.queue = new PriorityQueue<T>(11, Worklist.<T>comparator(order));
+    this.oldQueue = new ArrayDeque<>();
+    this.inQueue = new HashSet<>();
+    this.order = order;
+    this.orderVersion = order.getVersion();
+  }
+
+  private static <T extends Comparable<? super T>> Comparator<T> comparator (
+      final WeakTopologicalOrder<? super T> order) {
+    return new Comparator<T>() {
+      @Override public int compare (T first, T second) {
+        int firstPosition = order.getPosition(first);
+        int secondPosition = order.getPosition(second);
+        if (firstPosition != secondPosition)
+          return firstPosition < secondPosition ? -1 : 1;
+        return first.compareTo(second);
+      }
+    };
+  }
+
+  /**
+   * Restore the heap property if the positions of the items changed because the order was recomputed.
+   */
+  private void synchronizeWithOrder () {
+    if (order == null)
+      return;
+    order.refresh();
+    if (orderVersion == order.getVersion())
+      return;
+    orderVersion = order.getVersion();
+    PriorityQueue<T> reordered = new PriorityQueue<>(Math.max(11, queue.size()), queue.comparator());
+    reordered.addAll(queue);
+    queue = reordered;
   }
 
   public void enqueue (T element) {
@@ -33,6 +80,7 @@ public class Worklist<T extends Comparable<? super T>> {
   private void enqueueOrdered (T element) {
     if (inQueue.contains(element))
       return;
+    synchronizeWithOrder();
     inQueue.add(element);
     queue.add(element);
   }
@@ -48,10 +96,12 @@ public class Worklist<T extends Comparable<? super T>> {
 
   public T dequeue () {
     T element;
-    if (useGlobalOrdering)
+    if (useGlobalOrdering) {
+      synchronizeWithOrder();
       element = queue.remove();
-    else
+    } else {
       element = oldQueue.pop();
+    }
     inQueue.remove(element);
     return element;
   }
@@ -0,0 +1,25 @@
+package bindead.analyses.warnings;
+
+import bindead.domainnetwork.channels.WarningMessage;
+import binparse.Segment;
+
+/**
+ * A message issued by the disassembler if the persistent disassembly cache of a segment could not be read or written.
+ * The analysis continues without the cache as it is only an optimization.
+ */
+public class DisassemblyCacheWarning extends WarningMessage.Info {
+  private static final String fmt = "Could not %s the disassembly cache for the segment %s: %s";
+  private final String action;
+  private final String segment;
+  private final Exception cause;
+
+  public DisassemblyCacheWarning (String action, Segment segment, Exception cause) {
+    this.action = action;
+    this.segment = segment.getNameOrAddress();
+    this.cause = cause;
+  }
+
+  @Override public String message () {
+    return String.format(fmt, action, segment, cause);
+  }
+}
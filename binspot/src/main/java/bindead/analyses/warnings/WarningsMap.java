@@ -1,39 +1,54 @@
 package bindead.analyses.warnings;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 
+import bindead.debug.HeapSizeEstimator;
 import bindead.domainnetwork.channels.WarningMessage;
 import bindead.domainnetwork.channels.WarningsContainer;
 import bindead.domainnetwork.interfaces.ProgramPoint;
 
 /**
  * Extends the map interface to not return {@code null} for program points
- * without warnings but an empty warnings list.
+ * without warnings but an empty warnings list.<br>
+ *
+ * The same warnings are usually emitted again in each iteration at a program point and often at many program points.
+ * Thus the warnings are interned, i.e. a warning that is equal to a previously stored one is replaced by the stored
+ * one, and the same lists of warnings are stored only once. Warnings that do not implement equality are only shared
+ * if they are the same object. The interned warnings and lists are removed again once no program point refers to them
+ * anymore. The containers returned by the accessors are copies, thus changes to them must be stored again with
+ * {@link #put(ProgramPoint, int, WarningsContainer)}.
  */
 public class WarningsMap {
-  private final Map<ProgramPoint, WarningsContainer> map;
+  private static final WarningMessage[] noWarnings = new WarningMessage[0];
+  private final Map<ProgramPoint, WarningMessage[]> map;
   // we assume that the state only grows, thus a warning if once was raised will not disappear again.
   // Thus it is enough to store the first time the warning occurred
   private final Map<ProgramPoint, Integer> iterationOfOccurrence;
+  private final Map<WarningMessage, Interned<WarningMessage>> internedMessages;
+  private final Map<List<WarningMessage>, Interned<WarningMessage[]>> internedLists;
+  private long savedBytes;
 
   public WarningsMap () {
     map = new TreeMap<>();
     iterationOfOccurrence = new HashMap<>();
+    internedMessages = new HashMap<>();
+    internedLists = new HashMap<>();
   }
 
   /**
    * Get the warnings for a program point.
    */
   public WarningsContainer get (ProgramPoint location) {
-    WarningsContainer value = map.get(location);
-    if (value == null)
-      value = new WarningsContainer();
-    return value;
+    return toContainer(map.get(location));
   }
 
   /**
@@ -48,39 +63,127 @@ public class WarningsMap {
    * Additionally associate the warnings with the iteration number at which they were emitted.
    */
   public void put (ProgramPoint location, int iteration, WarningsContainer warnings) {
-    map.put(location, warnings);
+    WarningMessage[] previous = map.put(location, intern(warnings));
+    if (previous != null)
+      release(previous);
     if (iterationOfOccurrence.get(location) == null) // only overwrite the first time we see the warning
       iterationOfOccurrence.put(location, iteration);
     else
-      assert map.get(location).size() == warnings.size();
+      assert map.get(location).length == warnings.size();
     // TODO: warnings could actually become more if the state grows. Need to get the added warnings and
     // associate them with the latest iteration count.
   }
 
   public Collection<WarningsContainer> values () {
-    return map.values();
+    List<WarningsContainer> values = new ArrayList<>(map.size());
+    for (WarningMessage[] warnings : map.values()) {
+      values.add(toContainer(warnings));
+    }
+    return values;
   }
 
   public Set<Entry<ProgramPoint, WarningsContainer>> entrySet () {
-    return map.entrySet();
+    Map<ProgramPoint, WarningsContainer> entries = new LinkedHashMap<>();
+    for (Entry<ProgramPoint, WarningMessage[]> entry : map.entrySet()) {
+      entries.put(entry.getKey(), toContainer(entry.getValue()));
+    }
+    return entries.entrySet();
   }
 
   public int totalNumberOfWarnings () {
     int numberOfWarnings = 0;
-    for (WarningsContainer entry : values()) {
-      numberOfWarnings += entry.size();
+    for (WarningMessage[] warnings : map.values()) {
+      numberOfWarnings += warnings.length;
     }
     return numberOfWarnings;
   }
 
+  /**
+   * @return The number of distinct warnings that are stored in this map.
+   */
+  public int distinctNumberOfWarnings () {
+    return internedMessages.size();
+  }
+
+  /**
+   * @return The estimated number of bytes of the duplicate warnings and warning lists that were not stored as they
+   *         were replaced by previously stored ones.
+   */
+  public long savedBytesByInterning () {
+    return savedBytes;
+  }
+
+  private WarningMessage[] intern (WarningsContainer warnings) {
+    if (warnings.isEmpty())
+      return noWarnings;
+    WarningMessage[] interned = new WarningMessage[warnings.size()];
+    int i = 0;
+    for (WarningMessage warning : warnings) {
+      interned[i++] = lookup(warning);
+    }
+    List<WarningMessage> key = Arrays.asList(interned);
+    Interned<WarningMessage[]> existing = internedLists.get(key);
+    if (existing != null) {
+      savedBytes += HeapSizeEstimator.shallowSizeOf(interned);
+      existing.uses++;
+      return existing.value;
+    }
+    for (WarningMessage warning : interned) {
+      Interned<WarningMessage> message = internedMessages.get(warning);
+      if (message == null)
+        internedMessages.put(warning, new Interned<WarningMessage>(warning));
+      else
+        message.uses++;
+    }
+    internedLists.put(key, new Interned<WarningMessage[]>(interned));
+    return interned;
+  }
+
+  private WarningMessage lookup (WarningMessage warning) {
+    Interned<WarningMessage> existing = internedMessages.get(warning);
+    if (existing == null)
+      return warning;
+    if (existing.value != warning)
+      savedBytes += HeapSizeEstimator.shallowSizeOf(warning);
+    return existing.value;
+  }
+
+  /**
+   * Remove the interned list and its warnings if no program point refers to them anymore.
+   */
+  private void release (WarningMessage[] warnings) {
+    if (warnings.length == 0)
+      return;
+    List<WarningMessage> key = Arrays.asList(warnings);
+    Interned<WarningMessage[]> list = internedLists.get(key);
+    if (--list.uses > 0)
+      return;
+    internedLists.remove(key);
+    for (WarningMessage warning : warnings) {
+      Interned<WarningMessage> message = internedMessages.get(warning);
+      if (--message.uses == 0)
+        internedMessages.remove(warning);
+    }
+  }
+
+  private static WarningsContainer toContainer (WarningMessage[] warnings) {
+    WarningsContainer container = new WarningsContainer();
+    if (warnings != null) {
+      for (WarningMessage warning : warnings) {
+        container.addWarning(warning);
+      }
+    }
+    return container;
+  }
+
   @Override public String toString () {
     StringBuilder builder = new StringBuilder();
     builder.append("Warnings: " + totalNumberOfWarnings());
     builder.append('\n');
-    for (Entry<ProgramPoint, WarningsContainer> entry : entrySet()) {
+    for (Entry<ProgramPoint, WarningMessage[]> entry : map.entrySet()) {
       ProgramPoint point = entry.getKey();
-      WarningsContainer warningsHere = entry.getValue();
-      if (!warningsHere.isEmpty()) {
+      WarningMessage[] warningsHere = entry.getValue();
+      if (warningsHere.length != 0) {
         builder.append("@ " + point);
         if (iterationOfOccurrence.containsKey(point))
           builder.append(" in iter. " + iterationOfOccurrence.get(point));
@@ -93,4 +196,17 @@ public class WarningsMap {
     }
     return builder.toString();
   }
-}
\ No newline at end of file
+
+  /**
+   * An interned value with the number of its uses, i.e. the number of program points that refer to an interned list
+   * and the number of interned lists that contain an interned warning.
+   */
+  private static final class Interned<T> {
+    private final T value;
+    private int uses = 1;
+
+    Interned (T value) {
+      this.value = value;
+    }
+  }
+}
@@ -17,6 +17,8 @@ import com.jamesmurty.utils.XMLBuilder;
 public class Linear implements Comparable<Linear>, Iterable<Linear.Term>, XmlPrintable {
   private final Term[] terms;
   private final VarSet variables;
+  // cached hash code, zero if not yet computed
+  private int hash;
   private static final Term[] EMPTY = new Term[0];
   /**
    * This variable is used as a place-holder for contant values.
@@ -636,6 +638,14 @@ public class Linear implements Comparable<Linear>, Iterable<Linear.Term>, XmlPri
    * @return A linear expression.
    */
   public static Linear linear (NumVar variable) {
+    return variable.asLinear();
+  }
+
+  /**
+   * Build the linear expression of a single variable. Use {@link #linear(NumVar)} which returns the expression shared
+   * by all users of the variable.
+   */
+  static Linear singleVariable (NumVar variable) {
     return linear(term(variable));
   }
 
@@ -1001,17 +1011,22 @@ public class Linear implements Comparable<Linear>, Iterable<Linear.Term>, XmlPri
   }
 
   @Override public boolean equals (Object o) {
+    if (this == o)
+      return true;
     if (!(o instanceof Linear))
       return false;
     Linear l = (Linear) o;
-    Linear result = sub(l);
-    return result.terms.length == 0;
+    // the terms of both expressions are normalized and sorted
+    return hashCode() == l.hashCode() && Arrays.equals(terms, l.terms);
   }
 
   @Override public int hashCode () {
-    int hash = 7;
-    hash = 37 * hash + Arrays.deepHashCode(this.terms);
-    return hash;
+    int h = hash;
+    if (h == 0) {
+      h = 37 * 7 + Arrays.deepHashCode(this.terms);
+      hash = h;
+    }
+    return h;
   }
 
   @Override public String toString () {
@@ -1,41 +1,49 @@
 package bindead.data;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import rreil.lang.MemVar;
+import rreil.lang.util.VariableFactory;
 
 /**
  * A class representing a variable in the analyzer for which a numeric value is tracked.
+ * The stamps of new variables are allocated by the {@link VariableFactory} of the current thread.
  *
  * @author Axel Simon
  */
 public class NumVar implements Comparable<NumVar> {
-  private static StampGen stamps = new StampGen(0);
-  private static Map<NumVar, String> regionNames = new TreeMap<>();
-  private static Map<String, NumVar> singletonsReverse = new TreeMap<>();
+  // the singletons keep their stamps for the life of the JVM, thus their order does not depend on the lookups
+  private static ConcurrentMap<String, NumVar> singletonsReverse = new ConcurrentHashMap<>();
   private static boolean printMemVarOnly = false;
   private static boolean printNumVarOnly = false;
 
   private final int stamp;
+  private volatile String regionName;
+  // the linear expression of only this variable, shared by all users
+  private Linear linear;
 
   /**
    * Used in {@link Linear} to instantiate special variable for constants.
    * Do not use otherwise!
    */
   NumVar (int id) {
-    assert stamps.peek() > id; // instantiating normal NumVars cannot clash with this special one.
+    assert id <= 0; // instantiating normal NumVars cannot clash with this special one as their stamps start at 1.
     stamp = id;
   }
 
   private NumVar () {
-    stamp = stamps.next();
+    stamp = VariableFactory.current().nextStamp();
   }
 
   private NumVar (String name) {
     this();
     if (name != null && !name.isEmpty())
-      regionNames.put(this, name);
+      regionName = name;
+  }
+
+  private static <V extends NumVar> V created (V variable) {
+    return VariableFactory.current().created(variable.getStamp(), variable);
   }
 
   /**
@@ -111,13 +119,13 @@ public class NumVar implements Comparable<NumVar> {
    */
   public static NumVar getSingleton (String name) {
     NumVar variable = singletonsReverse.get(name);
-    if (variable != null) {
-      return variable;
-    } else {
-      variable = fresh(name);
-      singletonsReverse.put(name, variable);
+    if (variable != null)
       return variable;
-    }
+    NumVar freshVariable = fresh(name);
+    if (!VariableFactory.mayRegisterNames())
+      return freshVariable;
+    variable = singletonsReverse.putIfAbsent(name, freshVariable);
+    return variable != null ? variable : freshVariable;
   }
 
   /**
@@ -130,14 +138,16 @@ public class NumVar implements Comparable<NumVar> {
    */
   public static AddrVar getSingletonAddress (String name) {
     NumVar variable = singletonsReverse.get(name);
-    if (variable != null) {
-      assert variable instanceof AddrVar;
-      return (AddrVar) variable;
-    } else {
-      variable = freshAddress(name);
-      singletonsReverse.put(name, variable);
-      return (AddrVar) variable;
+    if (variable == null) {
+      NumVar freshVariable = freshAddress(name);
+      if (!VariableFactory.mayRegisterNames())
+        return (AddrVar) freshVariable;
+      variable = singletonsReverse.putIfAbsent(name, freshVariable);
+      if (variable == null)
+        variable = freshVariable;
     }
+    assert variable instanceof AddrVar;
+    return (AddrVar) variable;
   }
 
   /**
@@ -146,7 +156,7 @@ public class NumVar implements Comparable<NumVar> {
    * @return the new variable
    */
   public static NumVar fresh () {
-    return new NumVar();
+    return created(new NumVar());
   }
 
   /**
@@ -157,7 +167,7 @@ public class NumVar implements Comparable<NumVar> {
    * @return the new variable
    */
   public static NumVar fresh (String name) {
-    return new NumVar(name);
+    return created(new NumVar(name));
   }
 
   /**
@@ -166,7 +176,7 @@ public class NumVar implements Comparable<NumVar> {
    * @return the new variable
    */
   public static AddrVar freshAddress () {
-    return new AddrVar();
+    return created(new AddrVar());
   }
 
   /**
@@ -175,11 +185,11 @@ public class NumVar implements Comparable<NumVar> {
    * @return the new variable
    */
   public static AddrVar freshAddress (String name) {
-    return new AddrVar(name);
+    return created(new AddrVar(name));
   }
 
   public static FlagVar freshFlag () {
-    return new FlagVar();
+    return created(new FlagVar());
   }
 
   /**
@@ -188,7 +198,7 @@ public class NumVar implements Comparable<NumVar> {
    * @return the new variable
    */
   public static FlagVar freshFlag (String name) {
-    return new FlagVar(name);
+    return created(new FlagVar(name));
   }
 
   /**
@@ -209,7 +219,7 @@ public class NumVar implements Comparable<NumVar> {
    * The name registered for the region this variable belongs to or {@code null} if it is not associated with any region.
    */
   public String getRegionName () {
-    return regionNames.get(this);
+    return regionName;
   }
 
   /**
@@ -228,7 +238,7 @@ public class NumVar implements Comparable<NumVar> {
     if (offset != 0) {
       regionName = "[" + regionName + (offset > 0 ? "+" : "") + offset + offsetUnit + "]";
     }
-    regionNames.put(this, regionName);
+    this.regionName = regionName;
   }
 
   public boolean isAddress () {
@@ -246,6 +256,18 @@ public class NumVar implements Comparable<NumVar> {
     return stamp;
   }
 
+  /**
+   * Return the linear expression consisting only of this variable.
+   */
+  Linear asLinear () {
+    Linear result = linear;
+    if (result == null) {
+      result = Linear.singleVariable(this);
+      linear = result;
+    }
+    return result;
+  }
+
   @Override public int compareTo (NumVar other) {
     return Integer.signum(stamp - other.stamp);
   }
@@ -288,35 +310,9 @@ public class NumVar implements Comparable<NumVar> {
    * Use with care!
    */
   public static void reset () {
-    stamps = new StampGen();
-    regionNames = new TreeMap<>();
-    singletonsReverse = new TreeMap<>();
-  }
-
-  /**
-   * Utility to generate numbers to be used as IDs for a class of variables.
-   */
-  private static final class StampGen {
-    private int state;
-
-    StampGen (int start) {
-      state = start;
-    }
-
-    public StampGen () {
-      this(0);
-    }
-
-    public int peek () {
-      return state;
-    }
-
-    public int next () {
-      state = state + 1;
-      if (state == -1)
-        throw new IllegalStateException("Stamp generator overflow occured.");
-      return state;
-    }
+    // the stamps are shared with the memory variables
+    MemVar.reset();
+    singletonsReverse = new ConcurrentHashMap<>();
   }
 
 }
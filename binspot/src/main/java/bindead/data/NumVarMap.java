@@ -0,0 +1,201 @@
+package bindead.data;
+
+import java.util.Iterator;
+
+import javalx.data.Option;
+import javalx.data.products.P2;
+import javalx.fn.Fn;
+import javalx.fn.Fn2;
+import javalx.persistentcollections.OrderedMap;
+import javalx.persistentcollections.ThreeWaySplit;
+import javalx.persistentcollections.trie.PatriciaTrie;
+
+/**
+ * An immutable map from numeric variables to values. The map is a {@link PatriciaTrie} indexed by the stamps of the
+ * variables, thus lookups do not need to compare variables and the set operations used to join and compare domain
+ * states skip the parts that are shared between two states. The iteration order is the order of the variables.
+ *
+ * @param <V> The type of the values.
+ */
+public final class NumVarMap<V> implements OrderedMap<NumVar, V, NumVarMap<V>> {
+  @SuppressWarnings("rawtypes") private static final NumVarMap EMPTY = new NumVarMap(PatriciaTrie.empty());
+  private final PatriciaTrie<NumVar, V> trie;
+
+  private NumVarMap (PatriciaTrie<NumVar, V> trie) {
+    this.trie = trie;
+  }
+
+  @SuppressWarnings("unchecked") public static <V> NumVarMap<V> empty () {
+    return EMPTY;
+  }
+
+  private NumVarMap<V> build (PatriciaTrie<NumVar, V> trie) {
+    if (trie == this.trie)
+      return this;
+    if (trie.isEmpty())
+      return empty();
+    return new NumVarMap<V>(trie);
+  }
+
+  @Override public int size () {
+    return trie.size();
+  }
+
+  @Override public boolean isEmpty () {
+    return trie.isEmpty();
+  }
+
+  @Override public boolean contains (NumVar key) {
+    return trie.contains(key.getStamp());
+  }
+
+  @Override public Option<V> get (NumVar key) {
+    return Option.fromNullable(trie.getOrNull(key.getStamp()));
+  }
+
+  public V getOrNull (NumVar key) {
+    return trie.getOrNull(key.getStamp());
+  }
+
+  @Override public NumVarMap<V> bind (NumVar key, V value) {
+    return build(trie.bind(key.getStamp(), key, value));
+  }
+
+  @Override public NumVarMap<V> remove (NumVar key) {
+    return build(trie.remove(key.getStamp()));
+  }
+
+  @Override public NumVarMap<V> removeMin () {
+    return build(trie.removeMin());
+  }
+
+  @Override public NumVarMap<V> removeMax () {
+    return build(trie.removeMax());
+  }
+
+  @Override public Option<P2<NumVar, V>> getMin () {
+    return Option.fromNullable(trie.getMin());
+  }
+
+  @Override public Option<P2<NumVar, V>> getMax () {
+    return Option.fromNullable(trie.getMax());
+  }
+
+  @Override public NumVarMap<V> union (NumVarMap<V> other) {
+    return build(trie.union(null, other.trie));
+  }
+
+  @Override public NumVarMap<V> union (Fn2<V, V, V> selector, NumVarMap<V> other) {
+    return build(trie.union(selector, other.trie));
+  }
+
+  @Override public NumVarMap<V> difference (NumVarMap<V> other) {
+    return build(trie.difference(other.trie));
+  }
+
+  @Override public NumVarMap<V> intersection (NumVarMap<V> other) {
+    return build(trie.intersection(null, other.trie));
+  }
+
+  @Override public NumVarMap<V> intersection (Fn2<V, V, V> selector, NumVarMap<V> other) {
+    return build(trie.intersection(selector, other.trie));
+  }
+
+  @Override public ThreeWaySplit<NumVarMap<V>> split (NumVarMap<V> other) {
+    ThreeWaySplit<PatriciaTrie<NumVar, V>> split = trie.split(other.trie);
+    return ThreeWaySplit.make(build(split.onlyInFirst()), build(split.inBothButDiffering()),
+        other.build(split.onlyInSecond()));
+  }
+
+  /**
+   * Applies the given function on the values of this map.
+   */
+  public <R> NumVarMap<R> mapOnValues (Fn<V, R> fn) {
+    PatriciaTrie<NumVar, R> result = PatriciaTrie.empty();
+    for (P2<NumVar, V> binding : trie) {
+      result = result.bind(binding._1().getStamp(), binding._1(), fn.apply(binding._2()));
+    }
+    return new NumVarMap<R>(result);
+  }
+
+  @Override public Iterator<P2<NumVar, V>> iterator () {
+    return trie.iterator();
+  }
+
+  @Override public Iterable<NumVar> keys () {
+    return new Iterable<NumVar>() {
+      @Override public Iterator<NumVar> iterator () {
+        final Iterator<P2<NumVar, V>> iterator = trie.iterator();
+        return new Iterator<NumVar>() {
+          @Override public boolean hasNext () {
+            return iterator.hasNext();
+          }
+
+          @Override public NumVar next () {
+            return iterator.next()._1();
+          }
+
+          @Override public void remove () {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  @Override public Iterable<V> values () {
+    return new Iterable<V>() {
+      @Override public Iterator<V> iterator () {
+        final Iterator<P2<NumVar, V>> iterator = trie.iterator();
+        return new Iterator<V>() {
+          @Override public boolean hasNext () {
+            return iterator.hasNext();
+          }
+
+          @Override public V next () {
+            return iterator.next()._2();
+          }
+
+          @Override public void remove () {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  @Override public String toString () {
+    StringBuilder builder = new StringBuilder();
+    Iterator<P2<NumVar, V>> iterator = iterator();
+    builder.append('{');
+    while (iterator.hasNext()) {
+      P2<NumVar, V> element = iterator.next();
+      V value = element._2();
+      builder.append(element._1());
+      builder.append('=');
+      builder.append(value == this ? "(this Map)" : value);
+      if (iterator.hasNext())
+        builder.append(", ");
+    }
+    return builder.append('}').toString();
+  }
+
+  @Override public String toString (Fn<NumVar, String> keyRenderer) {
+    Iterator<P2<NumVar, V>> iterator = iterator();
+    if (!iterator.hasNext())
+      return "{}";
+
+    StringBuilder builder = new StringBuilder();
+    builder.append('{');
+    while (iterator.hasNext()) {
+      P2<NumVar, V> element = iterator.next();
+      V value = element._2();
+      builder.append(keyRenderer.apply(element._1()));
+      builder.append('=');
+      builder.append(value == this ? "(this Map)" : value);
+      if (iterator.hasNext())
+        builder.append(", ");
+    }
+    return builder.append('}').toString();
+  }
+}
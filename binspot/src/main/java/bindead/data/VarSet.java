@@ -6,7 +6,7 @@ import java.util.Map;
 import java.util.Set;
 
 import javalx.data.products.P3;
-import javalx.persistentcollections.AVLMap;
+import javalx.persistentcollections.FiniteMap;
 
 /**
  * A container for numeric variables.
@@ -53,7 +53,7 @@ public final class VarSet implements Comparable<VarSet>, Iterable<NumVar> {
     return new VarSet(vs);
   }
 
-  public static VarSet fromKeys (AVLMap<NumVar, ?> map) {
+  public static VarSet fromKeys (FiniteMap<NumVar, ?, ?> map) {
     return from(map.keys(), map.size());
   }
 
@@ -0,0 +1,25 @@
+package bindead.data.properties;
+
+
+public class StringProperty extends Property<String> {
+
+  public StringProperty (String key) {
+    super(key, "");
+  }
+
+  public String getString () {
+    return getValue();
+  }
+
+  public boolean isEmpty () {
+    return getValue().isEmpty();
+  }
+
+  @Override public String fromString (String value) throws PropertyException {
+    return value;
+  }
+
+  @Override public String asString (String value) {
+    return value;
+  }
+}
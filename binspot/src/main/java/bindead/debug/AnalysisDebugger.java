@@ -1,5 +1,6 @@
 package bindead.debug;
 
+import java.io.IOException;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -38,6 +39,8 @@ public class AnalysisDebugger {
   private final boolean DEBUGWARNINGS = AnalysisProperties.INSTANCE.debugWarnings.isTrue();
   private final boolean DEBUGEVAL = AnalysisProperties.INSTANCE.debugAssignments.isTrue();
   private final boolean DEBUGSUMMARY = AnalysisProperties.INSTANCE.debugSummary.isTrue();
+  private final boolean MEASURESHARING = AnalysisProperties.INSTANCE.measureStateSharing.isTrue();
+  private final String VARIABLESDUMPFILE = AnalysisProperties.INSTANCE.variablesDumpFile.getString();
 
   private final BinaryCodeCache binaryCode;
   private final RReilCodeCache rreilCode;
@@ -187,9 +190,22 @@ public class AnalysisDebugger {
       }
       System.out.println("Max iterations to fixpoint: " + maxIterations);
       System.out.println("Widening points: " + wideningPoints.elementSet().size() + " @ " + wideningPointsListBuilder);
-      System.out.println("Warnings: " + warnings.totalNumberOfWarnings());
+      System.out.println("Warnings: " + warnings.totalNumberOfWarnings() + " (" + warnings.savedBytesByInterning()
+        + " bytes saved by interning)");
+      if (MEASURESHARING)
+        System.out.println("States: " + states.measureSharing());
       System.out.println();
     }
+    if (!VARIABLESDUMPFILE.isEmpty())
+      dumpVariables(states);
+  }
+
+  private void dumpVariables (StateSpace<?> states) {
+    try {
+      VariableStamps.write(VARIABLESDUMPFILE, states.largestStateVariables());
+    } catch (IOException e) {
+      System.err.println("Error writing the variables dump:\n" + VARIABLESDUMPFILE + "\n" + e);
+    }
   }
 
   public void printCode () {
@@ -0,0 +1,178 @@
+package bindead.debug;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the heap memory retained by object graphs. The objects reachable from each added root are counted only
+ * once, thus adding the states of an analysis one after the other yields the memory that each state needs in addition
+ * to the ones added before, i.e. the size of its delta to the already stored states.<br>
+ *
+ * The sizes are estimated for a 64 bit JVM with compressed references by following the instance fields through
+ * reflection. Objects of the given boundary classes, enums and classes are neither counted nor followed. Fields that
+ * cannot be accessed are ignored.
+ */
+public class HeapSizeEstimator {
+  private static final int objectHeaderSize = 12;
+  private static final int arrayHeaderSize = 16;
+  private static final int referenceSize = 4;
+  private static final int alignment = 8;
+  private static final Map<Class<?>, List<Field>> fieldsCache = Collections.synchronizedMap(
+      new HashMap<Class<?>, List<Field>>());
+  private static final Map<Class<?>, Long> shallowSizesCache = Collections.synchronizedMap(
+      new HashMap<Class<?>, Long>());
+  private final Class<?>[] boundaries;
+  private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+  private long totalBytes;
+
+  /**
+   * @param boundaries The classes whose instances are shared by all the roots and are not counted,
+   *          e.g. the environment of an analysis.
+   */
+  public HeapSizeEstimator (Class<?>... boundaries) {
+    this.boundaries = boundaries;
+  }
+
+  /**
+   * Estimate the size of the objects reachable from the given root.
+   */
+  public static long sizeOf (Object root, Class<?>... boundaries) {
+    return new HeapSizeEstimator(boundaries).add(root);
+  }
+
+  /**
+   * Estimate the size of the given object without the objects it references.
+   */
+  public static long shallowSizeOf (Object object) {
+    Class<?> type = object.getClass();
+    if (type.isArray())
+      return align(arrayHeaderSize + (long) Array.getLength(object) * sizeOfType(type.getComponentType()));
+    return shallowSize(type);
+  }
+
+  /**
+   * Add the objects reachable from the given root.
+   *
+   * @return The size of the objects that were not reachable from the roots added before.
+   */
+  public long add (Object root) {
+    long bytes = 0;
+    Deque<Object> pending = new ArrayDeque<>();
+    push(pending, root);
+    while (!pending.isEmpty()) {
+      Object object = pending.pop();
+      Class<?> type = object.getClass();
+      bytes += shallowSizeOf(object);
+      if (type.isArray()) {
+        if (!type.getComponentType().isPrimitive()) {
+          for (int i = 0; i < Array.getLength(object); i++) {
+            push(pending, Array.get(object, i));
+          }
+        }
+      } else {
+        for (Field field : fields(type)) {
+          try {
+            push(pending, field.get(object));
+          } catch (IllegalAccessException e) {
+            // not followed
+          }
+        }
+      }
+    }
+    totalBytes += bytes;
+    return bytes;
+  }
+
+  /**
+   * @return The size of all the objects reachable from the added roots.
+   */
+  public long totalBytes () {
+    return totalBytes;
+  }
+
+  private void push (Deque<Object> pending, Object object) {
+    if (object == null || isBoundary(object, boundaries) || !visited.add(object))
+      return;
+    pending.push(object);
+  }
+
+  /**
+   * Objects that are neither counted nor followed, i.e. instances of the boundary classes, enums and classes.
+   */
+  static boolean isBoundary (Object object, Class<?>... boundaries) {
+    if (object instanceof Class || object instanceof Enum || object instanceof ClassLoader
+      || object instanceof Thread)
+      return true;
+    for (Class<?> boundary : boundaries) {
+      if (boundary.isInstance(object))
+        return true;
+    }
+    return false;
+  }
+
+  private static long align (long size) {
+    return (size + alignment - 1) / alignment * alignment;
+  }
+
+  private static int sizeOfType (Class<?> type) {
+    if (type == long.class || type == double.class)
+      return 8;
+    if (type == int.class || type == float.class)
+      return 4;
+    if (type == short.class || type == char.class)
+      return 2;
+    if (type == byte.class || type == boolean.class)
+      return 1;
+    return referenceSize;
+  }
+
+  private static long shallowSize (Class<?> type) {
+    Long size = shallowSizesCache.get(type);
+    if (size == null) {
+      long fieldsSize = 0;
+      for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers()))
+            fieldsSize += sizeOfType(field.getType());
+        }
+      }
+      size = align(objectHeaderSize + fieldsSize);
+      shallowSizesCache.put(type, size);
+    }
+    return size;
+  }
+
+  /**
+   * The accessible reference fields of a class and its super classes.
+   */
+  static List<Field> fields (Class<?> type) {
+    List<Field> fields = fieldsCache.get(type);
+    if (fields == null) {
+      fields = new ArrayList<>();
+      for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+            continue;
+          try {
+            field.setAccessible(true);
+            fields.add(field);
+          } catch (RuntimeException e) {
+            // the field is not accessible, e.g. in a module of newer JVMs
+          }
+        }
+      }
+      fieldsCache.put(type, fields);
+    }
+    return fields;
+  }
+}
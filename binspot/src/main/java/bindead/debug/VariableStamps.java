@@ -0,0 +1,91 @@
+package bindead.debug;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import bindead.data.NumVar;
+
+/**
+ * Collects the stamps of the numeric variables that are reachable from an object graph, e.g. a domain state. The
+ * objects are walked in the same way as by the {@link HeapSizeEstimator}, i.e. by following the instance fields through
+ * reflection and without following into the boundary classes. The special variables for constants are ignored.<br>
+ *
+ * The stamps can be written to a file that serves as the keys for the collection benchmarks in
+ * {@code javalx-benchmarks}, see {@code javalx.benchmarks.KeyDistributions}.
+ */
+public class VariableStamps {
+  private VariableStamps () {
+  }
+
+  /**
+   * Return the stamps of the variables reachable from the given root in ascending order, i.e. in the order in which
+   * the variables were allocated.
+   */
+  public static SortedSet<Integer> of (Object root, Class<?>... boundaries) {
+    SortedSet<Integer> stamps = new TreeSet<>();
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    visited.add(root);
+    while (!pending.isEmpty()) {
+      Object object = pending.pop();
+      if (object instanceof NumVar) {
+        int stamp = ((NumVar) object).getStamp();
+        if (stamp > 0)
+          stamps.add(stamp);
+        continue;
+      }
+      for (Object referenced : referencedBy(object)) {
+        if (referenced != null && !HeapSizeEstimator.isBoundary(referenced, boundaries) && visited.add(referenced))
+          pending.push(referenced);
+      }
+    }
+    return stamps;
+  }
+
+  /**
+   * Write the stamps to the given file, one per line.
+   */
+  public static void write (String file, Collection<Integer> stamps) throws IOException {
+    List<String> lines = new ArrayList<>(stamps.size());
+    for (Integer stamp : stamps) {
+      lines.add(stamp.toString());
+    }
+    Files.write(Paths.get(file), lines, StandardCharsets.UTF_8);
+  }
+
+  private static List<Object> referencedBy (Object object) {
+    List<Object> referenced = new ArrayList<>();
+    Class<?> type = object.getClass();
+    if (type.isArray()) {
+      if (!type.getComponentType().isPrimitive()) {
+        for (int i = 0; i < Array.getLength(object); i++) {
+          referenced.add(Array.get(object, i));
+        }
+      }
+    } else {
+      for (Field field : HeapSizeEstimator.fields(type)) {
+        try {
+          referenced.add(field.get(object));
+        } catch (IllegalAccessException _) {
+          // not followed
+        }
+      }
+    }
+    return referenced;
+  }
+}
@@ -19,6 +19,10 @@ public abstract class Domain<D extends Domain<D>> implements SemiLattice<D>, Que
     this.name = name;
   }
 
+  public String getName () {
+    return name;
+  }
+
   /**
    * Convenience method to join two domain states that can be {@code null} (i.e. bottom).
    * Returns {@code null} if both states are {@code null}. Thus clients need to handle
@@ -52,6 +56,9 @@ public abstract class Domain<D extends Domain<D>> implements SemiLattice<D>, Que
    *     return numericWiden(s, s ⊔ n)
    * </pre>
    *
+   * The test for subset-or-equal and the join are performed by {@link #joinIfNotSubset(Domain)}, thus domains that
+   * override it need only one traversal of the domain hierarchy for both and a second one for the widening.
+   *
    * @param newState The new state that is to be added to this state
    * @param isWideningPoint If widening should be applied after joining this state with the new state
    * @return The joined or widened domain.
@@ -61,14 +68,11 @@ public abstract class Domain<D extends Domain<D>> implements SemiLattice<D>, Que
       debugSubsetOrEqual(isWideningPoint, true);
       return null;
     }
-    @SuppressWarnings("unchecked")
-    D thisD = (D) this;
-    final boolean isSubsetOrEqual = newState.subsetOrEqual(thisD);
-    debugSubsetOrEqual(isWideningPoint, isSubsetOrEqual);
-    if (isSubsetOrEqual) {
+    final D joinedState = joinIfNotSubset(newState);
+    debugSubsetOrEqual(isWideningPoint, joinedState == null);
+    if (joinedState == null) {
       return null;
     }
-    final D joinedState = join(newState);
     if (DEBUGBINARIES)
       debugJoined(joinedState);
     if (!isWideningPoint)
@@ -79,6 +83,22 @@ public abstract class Domain<D extends Domain<D>> implements SemiLattice<D>, Que
     return widened;
   }
 
+  /**
+   * Join the new state to this state if it is not subset-or-equal to this state. The default implementation performs
+   * both operations one after the other. Functor domains should override it with an implementation that asks the child
+   * domain to do both at once through {@code addToState(newChild, false)} of the child.
+   *
+   * @param newState The new state that is to be joined to this state
+   * @return The join of this and the new state or {@code null} if the new state is subset-or-equal to this state
+   */
+  protected D joinIfNotSubset (D newState) {
+    @SuppressWarnings("unchecked")
+    D thisD = (D) this;
+    if (newState.subsetOrEqual(thisD))
+      return null;
+    return join(newState);
+  }
+
   protected void debugWidened (final D finalState) {
     System.out.println();
     System.out.println(indentMultiline("  widened:   ", finalState.toString()) + "\n");
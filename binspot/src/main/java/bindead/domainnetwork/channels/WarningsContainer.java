@@ -1,13 +1,16 @@
 package bindead.domainnetwork.channels;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Mutable container to manage the warnings that are accumulated during the analysis.
+ * The warnings added by a task that runs in parallel to others can be deferred, see {@link #defer()}.
  */
 public class WarningsContainer implements Iterable<WarningMessage> {
+  private static final ThreadLocal<Deferred> deferred = new ThreadLocal<>();
   private final List<WarningMessage> warnings;
 
   public WarningsContainer () {
@@ -15,11 +18,17 @@ public class WarningsContainer implements Iterable<WarningMessage> {
   }
 
   public void addWarning (WarningMessage warning) {
-    warnings.add(warning);
+    Deferred pending = deferred.get();
+    if (pending != null)
+      pending.add(this, warning);
+    else
+      warnings.add(warning);
   }
 
   public void addWarnings (WarningsContainer newWarnings) {
-    warnings.addAll(newWarnings.warnings);
+    for (WarningMessage warning : newWarnings.warnings) {
+      addWarning(warning);
+    }
   }
 
   @Override public WarningsContainer clone () {
@@ -44,4 +53,49 @@ public class WarningsContainer implements Iterable<WarningMessage> {
     return warnings.iterator();
   }
 
+  /**
+   * Defer the warnings that the current thread adds to any container until {@link Deferred#stop()} is called. The
+   * deferred warnings are only added to their containers by {@link Deferred#commit()}. Thus tasks that run in parallel
+   * do not modify the containers concurrently and their warnings can be added in the order of the tasks, or dropped
+   * if the result of a task is discarded.
+   */
+  public static Deferred defer () {
+    Deferred pending = new Deferred(deferred.get());
+    deferred.set(pending);
+    return pending;
+  }
+
+  /**
+   * The warnings deferred by a thread together with the containers they were added to.
+   */
+  public static final class Deferred {
+    private final Deferred previous;
+    private final List<WarningsContainer> targets = new ArrayList<>();
+    private final List<WarningMessage> warnings = new ArrayList<>();
+
+    private Deferred (Deferred previous) {
+      this.previous = previous;
+    }
+
+    private void add (WarningsContainer target, WarningMessage warning) {
+      targets.add(target);
+      warnings.add(warning);
+    }
+
+    /**
+     * Stop deferring the warnings of the current thread. Must be called by the thread that deferred the warnings.
+     */
+    public void stop () {
+      deferred.set(previous);
+    }
+
+    /**
+     * Add the deferred warnings to their containers in the order in which they were added.
+     */
+    public void commit () {
+      for (int i = 0; i < warnings.size(); i++) {
+        targets.get(i).addWarning(warnings.get(i));
+      }
+    }
+  }
 }
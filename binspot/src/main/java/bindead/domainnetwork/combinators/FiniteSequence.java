@@ -39,7 +39,11 @@ public class FiniteSequence {
    * @param stmt the assignment
    */
   public void addAssignment (Lhs lhs, Rhs rhs) {
-    childTrans.add(new FiniteChildOp.Assignment(FiniteFactory.getInstance().assign(lhs, rhs)));
+    addAssignment(FiniteFactory.getInstance().assign(lhs, rhs));
+  }
+
+  public void addAssignment (Finite.Assign assignment) {
+    childTrans.add(new FiniteChildOp.Assignment(assignment));
   }
 
   public void addHardcopy (NumVar to, NumVar from) {
@@ -0,0 +1,136 @@
+package bindead.domainnetwork.combinators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import javalx.fn.Fn;
+import rreil.lang.util.VariableFactory;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.domainnetwork.channels.WarningsContainer;
+
+/**
+ * Evaluates the operations on the elements of a disjunctive domain in parallel on a pool shared by all domains.
+ * The results are always returned in the order of the elements and an exception is re-thrown for the first element
+ * that raised one, thus the callers see the same results as with a sequential iteration over the elements.
+ * The evaluation is only split into parallel tasks if {@link AnalysisProperties#parallelDisjunctions} is enabled and
+ * there are at least {@link #parallelThreshold} elements.<br>
+ *
+ * Each element is evaluated with its own range of variable stamps that is reserved in the order of the elements, see
+ * {@link VariableFactory#reserve(int)}. Thus the variables created for the elements, and with them the results, do not
+ * depend on the scheduling of the tasks. The operations inside of an evaluation that already uses reserved stamps,
+ * e.g. a nested disjunctive domain, are evaluated sequentially. The unused stamps are released again in the order of
+ * the elements, see {@link VariableFactory#release()}. The warnings of each element are deferred and added in the
+ * order of the elements once all are evaluated, see {@link WarningsContainer#defer()}.
+ */
+public final class ParallelDisjuncts {
+  /**
+   * The minimal number of elements for which the evaluation is split into parallel tasks. For less elements the
+   * overhead of the tasks outweighs the work on the elements.
+   */
+  public static final int parallelThreshold = 4;
+  /**
+   * The number of variable stamps reserved for the evaluation of each element. An element that needs more variables is
+   * evaluated again sequentially after the parallel evaluation of all elements.
+   */
+  private static final int stampsPerElement = 64;
+  private static final ForkJoinPool pool = new ForkJoinPool();
+
+  private ParallelDisjuncts () {
+  }
+
+  /**
+   * @return {@code true} if the given number of elements should be evaluated in parallel
+   */
+  public static boolean isParallel (int elements) {
+    return elements >= parallelThreshold && AnalysisProperties.INSTANCE.parallelDisjunctions.isTrue()
+      && !VariableFactory.current().isReserved();
+  }
+
+  /**
+   * Apply the function to each element in parallel. An element that ran out of its stamps is evaluated again on the
+   * calling thread and only the warnings of that evaluation are kept.
+   *
+   * @return The results in the order of the elements
+   */
+  public static <A, R> List<R> map (Collection<A> elements, Fn<A, R> function) {
+    VariableFactory variables = VariableFactory.current();
+    List<Evaluation<A, R>> tasks = new ArrayList<>(elements.size());
+    for (A element : elements) {
+      tasks.add(new Evaluation<A, R>(element, function, variables.reserve(stampsPerElement)));
+    }
+    evaluateAll(tasks);
+    List<R> results = new ArrayList<>(tasks.size());
+    for (Evaluation<A, R> task : tasks) {
+      task.variables.release();
+      if (task.variables.isExhausted()) {
+        results.add(function.apply(task.element));
+        continue;
+      }
+      task.warnings.commit();
+      if (task.failure != null)
+        throw rethrow(task.failure);
+      results.add(task.result);
+    }
+    return results;
+  }
+
+  private static void evaluateAll (final Collection<? extends ForkJoinTask<?>> tasks) {
+    if (ForkJoinTask.getPool() == pool) {
+      // already running in a task of the pool, e.g. for nested disjunctive domains
+      ForkJoinTask.invokeAll(tasks);
+      return;
+    }
+    pool.invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override protected void compute () {
+        invokeAll(tasks);
+      }
+    });
+  }
+
+  private static RuntimeException rethrow (Throwable failure) {
+    if (failure instanceof RuntimeException)
+      return (RuntimeException) failure;
+    if (failure instanceof Error)
+      throw (Error) failure;
+    return new RuntimeException(failure);
+  }
+
+  /**
+   * The application of the function to one element. Allocates the variables with the stamps reserved for the element
+   * and keeps the warnings and an exception to be reported in the order of the elements.
+   */
+  private static final class Evaluation<A, R> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final A element;
+    private final Fn<A, R> function;
+    private final VariableFactory variables;
+    private R result;
+    private Throwable failure;
+    private WarningsContainer.Deferred warnings;
+
+    Evaluation (A element, Fn<A, R> function, VariableFactory variables) {
+      this.element = element;
+      this.function = function;
+      this.variables = variables;
+    }
+
+    @Override protected void compute () {
+      VariableFactory previousVariables = variables.enter();
+      warnings = WarningsContainer.defer();
+      try {
+        result = function.apply(element);
+      } catch (Throwable cause) {
+        failure = cause;
+      } finally {
+        warnings.stop();
+        VariableFactory.leave(previousVariables);
+      }
+    }
+  }
+}
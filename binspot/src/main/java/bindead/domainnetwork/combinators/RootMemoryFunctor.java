@@ -7,6 +7,7 @@ import javalx.data.products.P3;
 import javalx.numeric.FiniteRange;
 import javalx.numeric.Range;
 import rreil.lang.MemVar;
+import rreil.lang.RReil;
 import rreil.lang.Rhs.Lin;
 import rreil.lang.Rhs.Rval;
 import bindead.analyses.RReilRunner;
@@ -49,6 +50,10 @@ public abstract class RootMemoryFunctor<S extends FunctorState, C extends Memory
     return RReilRunner.eval((D) this, instructions);
   }
 
+  @SuppressWarnings("unchecked") @Override final public D eval (RReil... instructions) {
+    return RReilRunner.eval((D) this, instructions);
+  }
+
   @Override public String toXml () {
     return XmlPrintHelpers.asString(name, this);
   }
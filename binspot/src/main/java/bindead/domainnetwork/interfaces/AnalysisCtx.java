@@ -1,6 +1,7 @@
 package bindead.domainnetwork.interfaces;
 
 import javalx.data.Option;
+import rreil.lang.util.VariableFactory;
 import bindead.domainnetwork.channels.WarningMessage;
 import bindead.domainnetwork.channels.WarningsContainer;
 import bindead.environment.AnalysisEnvironment;
@@ -59,6 +60,14 @@ public class AnalysisCtx {
     return environment;
   }
 
+  /**
+   * Get the factory that allocates the variables of the analysis or the one of the current thread if the
+   * context does not belong to an analysis.
+   */
+  public VariableFactory getVariableFactory () {
+    return environment != null ? environment.getVariableFactory() : VariableFactory.current();
+  }
+
   /**
    * Access the channel that is used to post warnings during domain operations.
    *
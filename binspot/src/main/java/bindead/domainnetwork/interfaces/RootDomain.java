@@ -4,6 +4,7 @@ import java.util.List;
 
 import javalx.data.products.P2;
 import rreil.lang.MemVar;
+import rreil.lang.RReil;
 import rreil.lang.RReil.Assign;
 import rreil.lang.RReil.Branch;
 import rreil.lang.RReil.Load;
@@ -61,6 +62,16 @@ public interface RootDomain<D extends SemiLattice<D>>
    */
   public D eval (String... instructions);
 
+  /**
+   * Same as {@link #eval(String...)} but for already parsed instructions, e.g. the ones of a snippet that is evaluated
+   * often and should thus not be parsed each time.
+   *
+   * @param instructions A list of non-branching RREIL instructions to be executed on this state
+   * @return The resulting state after executing the instructions
+   * @see bindead.analyses.RReilSnippet
+   */
+  public D eval (RReil... instructions);
+
   /**
    * Returns this domain with its child domains as an XML representation.
    *
@@ -37,7 +37,9 @@ public interface SemiLattice<S extends SemiLattice<S>> {
    * Enlarge the state space with another state space.
    *
    * Implementation in class Domain shows how {@link #addToState(SemiLattice, boolean)} and join/widen/subsetOrEqual
-   * can be implemented in terms of each other.
+   * can be implemented in terms of each other. As the states are added at every junction of the program, domains
+   * should implement it by calling {@code addToState} on their child only once instead of calling the three lattice
+   * operations, thus traversing the domain hierarchy only once.
    *
    * @param newState The new state that is to be added to this state
    * @param isWideningPoint If widening should be applied after joining this state with the new state
@@ -8,10 +8,10 @@ import java.util.Set;
 import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.numeric.BigInt;
-import javalx.persistentcollections.AVLMap;
 import bindead.data.Linear;
 import bindead.data.Linear.Term;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.data.VarSet;
 import bindead.debug.PrettyDomain;
 import bindead.debug.StringHelpers;
@@ -25,13 +25,13 @@ import com.jamesmurty.utils.XMLBuilder;
  * to the constraints that they occur in. Both mappings are kept in sync at all times.
  */
 class AffineState extends FunctorState {
-  public static final AffineState EMPTY = new AffineState(AVLMap.<NumVar, Linear>empty(),
-    AVLMap.<NumVar, VarSet>empty(), VarSet.empty());
-  protected final AVLMap<NumVar, Linear> affine;
-  protected final AVLMap<NumVar, VarSet> reverse;
+  public static final AffineState EMPTY = new AffineState(NumVarMap.<Linear>empty(),
+    NumVarMap.<VarSet>empty(), VarSet.empty());
+  protected final NumVarMap<Linear> affine;
+  protected final NumVarMap<VarSet> reverse;
   protected final VarSet newEqualities;
 
-  protected AffineState (AVLMap<NumVar, Linear> affine, AVLMap<NumVar, VarSet> reverse, VarSet newEqualities) {
+  protected AffineState (NumVarMap<Linear> affine, NumVarMap<VarSet> reverse, VarSet newEqualities) {
     this.affine = affine;
     this.reverse = reverse;
     this.newEqualities = newEqualities;
@@ -60,7 +60,7 @@ class AffineState extends FunctorState {
    * @param affine the map of affine equations that are to be inlined
    * @return a new expression that only contains leading variables of the equality system
    */
-  public static Linear inlineIntoLinear (Linear con, Linear.Divisor d, AVLMap<NumVar, Linear> affine) {
+  public static Linear inlineIntoLinear (Linear con, Linear.Divisor d, NumVarMap<Linear> affine) {
     Linear res = con;
     for (NumVar x : con.getVars()) {
       Linear eq = affine.get(x).getOrNull();
@@ -4,12 +4,12 @@ import java.util.HashMap;
 import java.util.Vector;
 
 import javalx.data.products.P2;
-import javalx.persistentcollections.AVLMap;
 import javalx.persistentcollections.ThreeWaySplit;
 import bindead.data.FoldMap;
 import bindead.data.Linear;
 import bindead.data.Linear.Divisor;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.data.VarPair;
 import bindead.data.VarSet;
 import bindead.domainnetwork.combinators.ZenoStateBuilder;
@@ -21,8 +21,8 @@ import bindead.exceptions.Unreachable;
 class AffineStateBuilder extends ZenoStateBuilder {
   // the class contains mutable versions of the members of AffineCtx and a sequence of operations that need to be
   // performed on the child domain
-  private AVLMap<NumVar, Linear> affine;
-  private AVLMap<NumVar, VarSet> reverse;
+  private NumVarMap<Linear> affine;
+  private NumVarMap<VarSet> reverse;
   private VarSet newEqualities = VarSet.empty();
 
   /**
@@ -277,7 +277,7 @@ class AffineStateBuilder extends ZenoStateBuilder {
    */
   boolean makeCompatible (AffineStateBuilder snd, boolean forSubset) {
     AffineStateBuilder fst = this;
-    ThreeWaySplit<AVLMap<NumVar, Linear>> diff = fst.affine.split(snd.affine);
+    ThreeWaySplit<NumVarMap<Linear>> diff = fst.affine.split(snd.affine);
     HashMap<Integer, NumVar> intToVar = new HashMap<Integer, NumVar>();
     // split is left-biased so that the diff._2() entries contain the data from affine
     Equations l = new Equations(diff.inBothButDiffering(), diff.onlyInFirst(), intToVar);
@@ -7,9 +7,9 @@ import java.util.Vector;
 
 import javalx.data.products.P2;
 import javalx.numeric.BigInt;
-import javalx.persistentcollections.AVLMap;
 import bindead.data.Linear;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 
 /**
  * A container for a system of equalities. The equalities are ordered by their key.
@@ -28,7 +28,7 @@ public class Equations extends Vector<Equation> {
     Arrays.sort(elementData, 0, elementCount);
   }
 
-  public Equations (AVLMap<NumVar,Linear> c1, AVLMap<NumVar,Linear> c2, HashMap<Integer,NumVar> intToVar) {
+  public Equations (NumVarMap<Linear> c1, NumVarMap<Linear> c2, HashMap<Integer,NumVar> intToVar) {
     super(c1.size() + c2.size());
     // iterate simultaneously through both maps and copy the equalities into
     // the vector in ascending order
@@ -365,7 +365,10 @@ public class RedundantAffine<D extends ZenoDomain<D>> extends ZenoFunctor<Affine
     // if the affine domain is not subset then there is no need to ask the child
     if (!isSubset)
       return false;
-    return childState.subsetOrEqual(other.childState);
+    D refinedChildState = refineWithFlagEqualitiesOf(other.state, childState);
+    if (refinedChildState == null)
+      return true;
+    return refinedChildState.subsetOrEqual(other.childState);
   }
 
   @Override public RedundantAffine<D> join (RedundantAffine<D> other) {
@@ -383,6 +386,26 @@ public class RedundantAffine<D extends ZenoDomain<D>> extends ZenoFunctor<Affine
     return build(fst.build(), newChildState);
   }
 
+  @Override protected RedundantAffine<D> joinIfNotSubset (RedundantAffine<D> newState) {
+    AffineStateBuilder fst = new AffineStateBuilder(newState.state);
+    AffineStateBuilder snd = new AffineStateBuilder(state);
+    // the subset test does not depend on the mode and both builders hold the joined equalities afterwards
+    boolean isSubset = fst.makeCompatible(snd, false);
+    D newChildState;
+    if (isSubset) {
+      D refinedChildState = refineWithFlagEqualitiesOf(state, newState.childState);
+      if (refinedChildState == null)
+        return null;
+      // the child performs its subset test and the join at once
+      newChildState = childState.addToState(refinedChildState, false);
+      if (newChildState == null)
+        return null;
+    } else {
+      newChildState = childState.join(newState.childState);
+    }
+    return build(snd.build(), newChildState);
+  }
+
   @Override public RedundantAffine<D> widen (RedundantAffine<D> other) {
     AffineStateBuilder fst = new AffineStateBuilder(state);
     AffineStateBuilder snd = new AffineStateBuilder(other.state);
@@ -391,13 +414,36 @@ public class RedundantAffine<D extends ZenoDomain<D>> extends ZenoFunctor<Affine
     // apply any equalities of zeno variables with flags on the child as flags are not widened in intervals
     // the equality must be enforced after widening to still hold
     AffineState newState = fst.build();
+    newChildState = refineChildWithEqualities(equalitiesWithFlags(newState), newState, newChildState);
+    return build(newState, newChildState);
+  }
+
+  /**
+   * The widening enforces the equalities with flags on the child. If the equalities of a new state include the ones of
+   * the given old state then these equalities hold in the new state, too, but a relational child does not necessarily
+   * know them. Enforce them on the child of the new state before comparing it with the child of the old state.
+   *
+   * @return The refined child of the new state or {@code null} if it is unreachable
+   */
+  private static <D extends ZenoDomain<D>> D refineWithFlagEqualitiesOf (AffineState oldState, D newChildState) {
+    for (NumVar var : equalitiesWithFlags(oldState)) {
+      Linear equality = oldState.affine.get(var).get().toEquality();
+      try {
+        newChildState = newChildState.eval(zeno.comparison(zeno.linear(equality), ZenoTestOp.EqualToZero));
+      } catch (Unreachable _) {
+        return null;
+      }
+    }
+    return newChildState;
+  }
+
+  private static VarSet equalitiesWithFlags (AffineState state) {
     VarSet equalitiesWithFlags = VarSet.empty();
-    for (P2<NumVar, Linear> tuple : newState.affine) {
+    for (P2<NumVar, Linear> tuple : state.affine) {
       if (containsFlag(tuple._2()))
         equalitiesWithFlags = equalitiesWithFlags.add(tuple._1());
     }
-    newChildState = refineChildWithEqualities(equalitiesWithFlags, newState, newChildState);
-    return build(newState, newChildState);
+    return equalitiesWithFlags;
   }
 
   private static boolean containsFlag (Linear equality) {
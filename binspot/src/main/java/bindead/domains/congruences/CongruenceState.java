@@ -7,9 +7,9 @@ import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.numeric.BigInt;
 import javalx.numeric.Congruence;
-import javalx.persistentcollections.AVLMap;
 import bindead.data.Linear;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.debug.PrettyDomain;
 import bindead.debug.StringHelpers;
 import bindead.domainnetwork.interfaces.FunctorState;
@@ -17,10 +17,10 @@ import bindead.domainnetwork.interfaces.FunctorState;
 import com.jamesmurty.utils.XMLBuilder;
 
 public class CongruenceState extends FunctorState {
-  public static final CongruenceState EMPTY = new CongruenceState(AVLMap.<NumVar, Congruence>empty());
-  protected final AVLMap<NumVar, Congruence> congruences;
+  public static final CongruenceState EMPTY = new CongruenceState(NumVarMap.<Congruence>empty());
+  protected final NumVarMap<Congruence> congruences;
 
-  public CongruenceState (AVLMap<NumVar, Congruence> congruence) {
+  public CongruenceState (NumVarMap<Congruence> congruence) {
     this.congruences = congruence;
   }
 
@@ -43,7 +43,7 @@ public class CongruenceState extends FunctorState {
    * @param congruences the map of congruences that are to be inlined
    * @return a new expression that contains scaled variables according to the congruences
    */
-  public static Linear inlineIntoLinear (Linear linear, Linear.Divisor d, AVLMap<NumVar, Congruence> congruences) {
+  public static Linear inlineIntoLinear (Linear linear, Linear.Divisor d, NumVarMap<Congruence> congruences) {
     Linear result = linear;
     for (NumVar x : linear.getVars()) {
       Option<Congruence> c = congruences.get(x);
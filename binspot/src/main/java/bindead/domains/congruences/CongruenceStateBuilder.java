@@ -5,7 +5,6 @@ import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.numeric.BigInt;
 import javalx.numeric.Congruence;
-import javalx.persistentcollections.AVLMap;
 import javalx.persistentcollections.ThreeWaySplit;
 import bindead.abstractsyntax.zeno.Zeno.Assign;
 import bindead.abstractsyntax.zeno.Zeno.Lhs;
@@ -13,6 +12,7 @@ import bindead.abstractsyntax.zeno.Zeno.Rlin;
 import bindead.data.FoldMap;
 import bindead.data.Linear;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.data.VarPair;
 import bindead.data.VarSet;
 import bindead.domainnetwork.channels.SetOfEquations;
@@ -20,7 +20,7 @@ import bindead.domainnetwork.combinators.ZenoStateBuilder;
 import bindead.exceptions.DomainStateException.VariableSupportSetException;
 
 class CongruenceStateBuilder extends ZenoStateBuilder {
-  AVLMap<NumVar, Congruence> state;
+  NumVarMap<Congruence> state;
 
   public CongruenceStateBuilder (CongruenceState state) {
     this.state = state.congruences;
@@ -93,7 +93,7 @@ class CongruenceStateBuilder extends ZenoStateBuilder {
    * @param other the state which needs to be made compatible to the current state
    */
   public void makeCompatible (CongruenceStateBuilder other) {
-    ThreeWaySplit<AVLMap<NumVar, Congruence>> split = state.split(other.state);
+    ThreeWaySplit<NumVarMap<Congruence>> split = state.split(other.state);
 
     for (P2<NumVar, Congruence> pair : split.inBothButDiffering()) {
       NumVar var = pair._1();
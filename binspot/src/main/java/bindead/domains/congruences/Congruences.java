@@ -8,7 +8,6 @@ import javalx.numeric.BigInt;
 import javalx.numeric.Bound;
 import javalx.numeric.Congruence;
 import javalx.numeric.Range;
-import javalx.persistentcollections.AVLMap;
 import javalx.persistentcollections.MultiMap;
 import javalx.persistentcollections.ThreeWaySplit;
 import rreil.lang.util.Type;
@@ -19,6 +18,7 @@ import bindead.data.FoldMap;
 import bindead.data.Linear;
 import bindead.data.Linear.Term;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.data.VarSet;
 import bindead.domainnetwork.channels.SetOfEquations;
 import bindead.domainnetwork.channels.SynthChannel;
@@ -76,8 +76,8 @@ public class Congruences<D extends ZenoDomain<D>> extends ZenoFunctor<Congruence
     CongruenceStateBuilder otherBuilder = new CongruenceStateBuilder(other.state);
     thisBuilder.makeCompatible(otherBuilder);
 
-    ThreeWaySplit<AVLMap<NumVar, Congruence>> split = split(thisBuilder.state, otherBuilder.state);
-    AVLMap<NumVar, Congruence> current = otherBuilder.state.intersection(Congruence.join, split.inBothButDiffering());
+    ThreeWaySplit<NumVarMap<Congruence>> split = split(thisBuilder.state, otherBuilder.state);
+    NumVarMap<Congruence> current = otherBuilder.state.intersection(Congruence.join, split.inBothButDiffering());
     thisBuilder.state = current.union(Congruence.join, thisBuilder.state);
 
     D thisChildState = thisBuilder.applyChildOps(childState);
@@ -89,9 +89,9 @@ public class Congruences<D extends ZenoDomain<D>> extends ZenoFunctor<Congruence
     return build(compatibleState, newChildState);
   }
 
-  private static ThreeWaySplit<AVLMap<NumVar, Congruence>> split (AVLMap<NumVar, Congruence> state,
-      AVLMap<NumVar, Congruence> other) {
-    ThreeWaySplit<AVLMap<NumVar, Congruence>> split = state.split(other);
+  private static ThreeWaySplit<NumVarMap<Congruence>> split (NumVarMap<Congruence> state,
+      NumVarMap<Congruence> other) {
+    ThreeWaySplit<NumVarMap<Congruence>> split = state.split(other);
     if (!split.onlyInFirst().isEmpty())
       throw new VariableSupportSetException();
     if (!split.onlyInSecond().isEmpty())
@@ -104,8 +104,8 @@ public class Congruences<D extends ZenoDomain<D>> extends ZenoFunctor<Congruence
     CongruenceStateBuilder otherBuilder = new CongruenceStateBuilder(other.state);
     thisBuilder.makeCompatible(otherBuilder);
 
-    ThreeWaySplit<AVLMap<NumVar, Congruence>> split = split(thisBuilder.state, other.state.congruences);
-    AVLMap<NumVar, Congruence> current = otherBuilder.state.intersection(Congruence.join, split.inBothButDiffering());
+    ThreeWaySplit<NumVarMap<Congruence>> split = split(thisBuilder.state, other.state.congruences);
+    NumVarMap<Congruence> current = otherBuilder.state.intersection(Congruence.join, split.inBothButDiffering());
     thisBuilder.state = current.union(Congruence.join, thisBuilder.state);
 
     D thisChildState = thisBuilder.applyChildOps(childState);
@@ -116,7 +116,7 @@ public class Congruences<D extends ZenoDomain<D>> extends ZenoFunctor<Congruence
   }
 
   @Override public boolean subsetOrEqual (Congruences<D> other) {
-    ThreeWaySplit<AVLMap<NumVar, Congruence>> split = split(state.congruences, other.state.congruences);
+    ThreeWaySplit<NumVarMap<Congruence>> split = split(state.congruences, other.state.congruences);
     for (Iterator<P2<NumVar, Congruence>> it = split.inBothButDiffering().iterator(); it.hasNext();) {
       P2<NumVar, Congruence> entry = it.next();
       if (!entry._2().subsetOrEqual(other.state.congruences.get(entry._1()).get()))
@@ -131,6 +131,35 @@ public class Congruences<D extends ZenoDomain<D>> extends ZenoFunctor<Congruence
     return thisChildState.subsetOrEqual(otherChildState);
   }
 
+  @Override protected Congruences<D> joinIfNotSubset (Congruences<D> newState) {
+    ThreeWaySplit<NumVarMap<Congruence>> split = split(state.congruences, newState.state.congruences);
+    boolean isSubset = true;
+    for (Iterator<P2<NumVar, Congruence>> it = split.inBothButDiffering().iterator(); isSubset && it.hasNext();) {
+      P2<NumVar, Congruence> entry = it.next();
+      if (!newState.state.congruences.get(entry._1()).get().subsetOrEqual(entry._2()))
+        isSubset = false;
+    }
+
+    // the children are scaled to the joined congruences for both the subset test and the join
+    CongruenceStateBuilder thisBuilder = new CongruenceStateBuilder(state);
+    CongruenceStateBuilder otherBuilder = new CongruenceStateBuilder(newState.state);
+    thisBuilder.makeCompatible(otherBuilder);
+    NumVarMap<Congruence> current = otherBuilder.state.intersection(Congruence.join, split.inBothButDiffering());
+    thisBuilder.state = current.union(Congruence.join, thisBuilder.state);
+
+    D thisChildState = thisBuilder.applyChildOps(childState);
+    D otherChildState = otherBuilder.applyChildOps(newState.childState);
+    D newChildState;
+    if (isSubset) {
+      newChildState = thisChildState.addToState(otherChildState, false);
+      if (newChildState == null)
+        return null;
+    } else {
+      newChildState = thisChildState.join(otherChildState);
+    }
+    return build(thisBuilder.build(), newChildState);
+  }
+
   @Override public Congruences<D> eval (Assign stmt) {
     CongruenceStateBuilder builder = new CongruenceStateBuilder(state);
     // build new assignment which is scaled according to the congruences
@@ -259,7 +288,7 @@ public class Congruences<D extends ZenoDomain<D>> extends ZenoFunctor<Congruence
    * @param congruences the variable assignments
    * @return the congruence value of the linear expression
    */
-  public static Congruence evaluateCongruences (Linear linear, AVLMap<NumVar, Congruence> congruences) {
+  public static Congruence evaluateCongruences (Linear linear, NumVarMap<Congruence> congruences) {
     Congruence res = new Congruence(Bound.ZERO, Bound.ZERO);
     // congruence sum of congr(x) * coeff(x) for each variable in the linear expression
     for (Term term : linear) {
@@ -4,7 +4,6 @@ import javalx.data.Option;
 import javalx.numeric.BigInt;
 import javalx.numeric.Bound;
 import javalx.numeric.Congruence;
-import javalx.persistentcollections.AVLMap;
 import bindead.abstractsyntax.zeno.Zeno;
 import bindead.abstractsyntax.zeno.Zeno.Assign;
 import bindead.abstractsyntax.zeno.Zeno.Bin;
@@ -19,6 +18,7 @@ import bindead.data.Linear;
 import bindead.data.Linear.Divisor;
 import bindead.data.Linear.Term;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.exceptions.Unreachable;
 
 class ScalingVisitor extends ZenoRhsVisitorSkeleton<Rhs, CongruenceStateBuilder> {
@@ -45,7 +45,7 @@ class ScalingVisitor extends ZenoRhsVisitorSkeleton<Rhs, CongruenceStateBuilder>
 
     boolean DEBUGTESTS = CongruenceProperties.INSTANCE.debugTests.isTrue();
     Linear lin = test.getExpr();
-    AVLMap<NumVar, Congruence> newState = sys.state;
+    NumVarMap<Congruence> newState = sys.state;
     boolean allReachable = true;
 
     if (lin.isConstantOnly()) {
@@ -1,9 +1,12 @@
 package bindead.domains.decisiontree;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import javalx.data.Option;
 import javalx.data.products.P2;
+import javalx.data.products.P3;
 import javalx.exceptions.UnimplementedException;
 import javalx.fn.Fn;
 import javalx.fn.Fn2;
@@ -26,6 +29,7 @@ import bindead.debug.XmlPrintHelpers;
 import bindead.domainnetwork.channels.DebugChannel;
 import bindead.domainnetwork.channels.Domain;
 import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.combinators.ParallelDisjuncts;
 import bindead.domainnetwork.interfaces.AnalysisCtx;
 import bindead.domainnetwork.interfaces.ZenoDomain;
 import bindead.domains.affine.Substitution;
@@ -33,6 +37,10 @@ import bindead.exceptions.Unreachable;
 
 import com.jamesmurty.utils.XMLBuilder;
 
+/**
+ * A tree of states partitioned by tests. The operations are applied to the subtrees of a node in parallel if the
+ * subtrees hold enough states, see {@link ParallelDisjuncts}.
+ */
 public abstract class DecisionTree<D extends ZenoDomain<D>> extends Domain<DecisionTree<D>>
     implements ZenoDomain<DecisionTree<D>> {
   protected final Option<D> state;
@@ -432,12 +440,29 @@ public abstract class DecisionTree<D extends ZenoDomain<D>> extends Domain<Decis
     public abstract Option<D> visit (Option<D> arg1, Option<D> arg2);
   }
 
-  private DecisionTree<D> accept (BinaryVisitor<D> v, DecisionTree<D> this_, DecisionTree<D> other) {
+  private DecisionTree<D> accept (final BinaryVisitor<D> v, DecisionTree<D> this_, DecisionTree<D> other) {
     P2<AVLSet<Test>, Option<D>> merged = v.visitCreateChildren(this_.state, other.state);
     Option<D> newState = merged._2();
     AVLMap<Test, DecisionTree<D>> newChildren = noChild();
     Iterator<P2<Test, DecisionTree<D>>> thisIter = this_.children.iterator();
     Iterator<P2<Test, DecisionTree<D>>> thatIter = other.children.iterator();
+    if (ParallelDisjuncts.isParallel(this_.countChildStates() + other.countChildStates())) {
+      List<P3<Test, DecisionTree<D>, DecisionTree<D>>> pairs = new ArrayList<>();
+      while (thisIter.hasNext()) {
+        P2<Test, DecisionTree<D>> pair = thisIter.next();
+        assert thatIter.hasNext();
+        pairs.add(P3.tuple3(pair._1(), pair._2(), thatIter.next()._2()));
+      }
+      List<DecisionTree<D>> results =
+        ParallelDisjuncts.map(pairs, new Fn<P3<Test, DecisionTree<D>, DecisionTree<D>>, DecisionTree<D>>() {
+          @Override public DecisionTree<D> apply (P3<Test, DecisionTree<D>, DecisionTree<D>> pair) {
+            return accept(v, pair._2(), pair._3());
+          }
+        });
+      for (int i = 0; i < pairs.size(); i++) {
+        newChildren = newChildren.bind(pairs.get(i)._1(), results.get(i));
+      }
+    }
     while (thisIter.hasNext()) {
       P2<Test, DecisionTree<D>> pair = thisIter.next();
       DecisionTree<D> thisChild = pair._2();
@@ -482,29 +507,36 @@ public abstract class DecisionTree<D extends ZenoDomain<D>> extends Domain<Decis
     return build(newState, recurseRes._2());
   }
 
-  private P2<Option<D>, AVLMap<Test, DecisionTree<D>>> accept (UnaryVisitor<D> v,
-      Fn2<DecisionTree<D>, DecisionTree<D>, DecisionTree<D>> merger, AVLMap<Test, DecisionTree<D>> children) {
-    Option<D> extraParentState = Option.<D>none();
-    AVLMap<Test, DecisionTree<D>> newTree = noChild();
+  private P2<Option<D>, AVLMap<Test, DecisionTree<D>>> accept (final UnaryVisitor<D> v,
+      final Fn2<DecisionTree<D>, DecisionTree<D>, DecisionTree<D>> merger, AVLMap<Test, DecisionTree<D>> children) {
+    List<P2<Test, DecisionTree<D>>> childList = new ArrayList<>();
     for (P2<Test, DecisionTree<D>> child : children) {
-
-      P2<Test, Option<D>> resVisitState = v.visitChangeTest(child._1(), child._2().state);
-      Option<D> newState = resVisitState._2();
-
-      // check if we are to add new tests
-      AVLSet<Test> newTests = child._2().state.isSome() ? v.newTests(child._2().state.get()) : AVLSet.<Test>empty();
-      AVLMap<Test, DecisionTree<D>> curChildren = child._2().children;
-      for (Test t : newTests) {
-        if (curChildren.contains(t))
-          continue;
-        curChildren = curChildren.bind(t, child._2().build(Option.<D>none())); // child._2(). is only here because build
-                                                                               // can't be static
+      childList.add(child);
+    }
+    List<P3<Test, Option<D>, AVLMap<Test, DecisionTree<D>>>> visited;
+    if (ParallelDisjuncts.isParallel(countStates(children))) {
+      visited = ParallelDisjuncts.map(childList,
+          new Fn<P2<Test, DecisionTree<D>>, P3<Test, Option<D>, AVLMap<Test, DecisionTree<D>>>>() {
+            @Override public P3<Test, Option<D>, AVLMap<Test, DecisionTree<D>>> apply (P2<Test, DecisionTree<D>> child) {
+              return visitChild(v, merger, child);
+            }
+          });
+    } else {
+      visited = new ArrayList<>();
+      for (P2<Test, DecisionTree<D>> child : childList) {
+        visited.add(visitChild(v, merger, child));
       }
+    }
+    // the visited children are merged in their order to obtain the same tree as with a sequential visit
+    Option<D> extraParentState = Option.<D>none();
+    AVLMap<Test, DecisionTree<D>> newTree = noChild();
+    for (int i = 0; i < childList.size(); i++) {
+      P2<Test, DecisionTree<D>> child = childList.get(i);
+      Test newTest = visited.get(i)._1();
+      Option<D> newState = visited.get(i)._2();
+      AVLMap<Test, DecisionTree<D>> newChildren = visited.get(i)._3();
 
-      P2<Option<D>, AVLMap<Test, DecisionTree<D>>> resVisitChildren = accept(v, merger, curChildren);
-      AVLMap<Test, DecisionTree<D>> newChildren = resVisitChildren._2();
-
-      if (resVisitState._1() == null) {
+      if (newTest == null) {
         // the test is to be removed, implying that all children of this node must be inserted at this level
         extraParentState = join(extraParentState, newState);
         newTree = newTree.union(merger, newChildren);
@@ -513,16 +545,54 @@ public abstract class DecisionTree<D extends ZenoDomain<D>> extends Domain<Decis
         // after the transformation and thus must be merged
         DecisionTree<D> elem = child._2().build(newState, newChildren); // child._2(). is only here because build can't
                                                                         // be static
-        Option<DecisionTree<D>> prevElem = newTree.get(resVisitState._1());
+        Option<DecisionTree<D>> prevElem = newTree.get(newTest);
         if (prevElem.isNone())
-          newTree = newTree.bind(resVisitState._1(), elem);
+          newTree = newTree.bind(newTest, elem);
         else
-          newTree = newTree.bind(resVisitState._1(), merger.apply(prevElem.get(), elem));
+          newTree = newTree.bind(newTest, merger.apply(prevElem.get(), elem));
       }
     }
     return P2.<Option<D>, AVLMap<Test, DecisionTree<D>>>tuple2(extraParentState, newTree);
   }
 
+  /**
+   * Apply the visitor to the state of a child and recursively to its children.
+   *
+   * @return the new test of the child, its new state and its new children
+   */
+  private P3<Test, Option<D>, AVLMap<Test, DecisionTree<D>>> visitChild (UnaryVisitor<D> v,
+      Fn2<DecisionTree<D>, DecisionTree<D>, DecisionTree<D>> merger, P2<Test, DecisionTree<D>> child) {
+    P2<Test, Option<D>> resVisitState = v.visitChangeTest(child._1(), child._2().state);
+
+    // check if we are to add new tests
+    AVLSet<Test> newTests = child._2().state.isSome() ? v.newTests(child._2().state.get()) : AVLSet.<Test>empty();
+    AVLMap<Test, DecisionTree<D>> curChildren = child._2().children;
+    for (Test t : newTests) {
+      if (curChildren.contains(t))
+        continue;
+      curChildren = curChildren.bind(t, child._2().build(Option.<D>none())); // child._2(). is only here because build
+                                                                             // can't be static
+    }
+
+    P2<Option<D>, AVLMap<Test, DecisionTree<D>>> resVisitChildren = accept(v, merger, curChildren);
+    return P3.tuple3(resVisitState._1(), resVisitState._2(), resVisitChildren._2());
+  }
+
+  /**
+   * @return the number of the non-bottom states in the given subtrees
+   */
+  private static <D extends ZenoDomain<D>> int countStates (AVLMap<Test, DecisionTree<D>> children) {
+    int count = 0;
+    for (DecisionTree<D> child : children.values()) {
+      count += (child.state.isSome() ? 1 : 0) + countStates(child.children);
+    }
+    return count;
+  }
+
+  private int countChildStates () {
+    return countStates(children);
+  }
+
   private DecisionTree<D> restrict () {
     // HACK: we remove the location information in order to force the ThresholdsWidening domain
     // ignore the following tests and not track them as thresholds. Otherwise we would duplicate
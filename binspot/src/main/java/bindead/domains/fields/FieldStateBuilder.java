@@ -12,7 +12,7 @@ import javalx.numeric.Interval;
 import javalx.persistentcollections.AVLMap;
 import javalx.persistentcollections.AVLSet;
 import javalx.persistentcollections.ThreeWaySplit;
-import javalx.persistentcollections.tree.FiniteRangeTree;
+import javalx.persistentcollections.tree.LongRangeTree;
 import javalx.persistentcollections.tree.OverlappingRanges;
 import rreil.lang.Field;
 import rreil.lang.MemVar;
@@ -27,6 +27,7 @@ import bindead.abstractsyntax.finite.Finite.Lhs;
 import bindead.abstractsyntax.finite.Finite.Rhs;
 import bindead.abstractsyntax.finite.Finite.Rlin;
 import bindead.abstractsyntax.finite.FiniteFactory;
+import bindead.abstractsyntax.finite.LoweringCache.Lowering;
 import bindead.data.FoldMap;
 import bindead.data.Linear;
 import bindead.data.ListVarPair;
@@ -448,18 +449,38 @@ class FieldStateBuilder<D extends FiniteDomain<D>> extends FiniteStateBuilder {
    * Translate an assignment in L(imp) to an assignment in L(finite).
    */
   void runAssign (QueryChannel channel, rreil.lang.Lhs lhs, rreil.lang.Rhs rhs) {
+    runAssign(channel, lhs, rhs, null);
+  }
+
+  /**
+   * Translate an assignment in L(imp) to an assignment in L(finite) reusing the terms of the given lowering of the
+   * statement if they are built from the same variables.
+   */
+  void runAssign (QueryChannel channel, rreil.lang.Lhs lhs, rreil.lang.Rhs rhs, Lowering lowering) {
     Finite.Lhs flhs = resolveLhs(lhs);
-    Finite.Rhs frhs = resolveRhs(rhs);
+    Finite.Rhs frhs = resolveRhs(rhs, lowering);
     if (frhs == null)
       frhs = fin.range(lhs.getSize(), Interval.unsignedTop(lhs.getSize()));
-    getChildOps().addAssignment(flhs, frhs);
+    if (lowering == null) {
+      getChildOps().addAssignment(flhs, frhs);
+      return;
+    }
+    flhs = lowering.share(lhs, flhs);
+    Finite.Assign assignment = lowering.lookupStatement(flhs, frhs);
+    if (assignment == null)
+      assignment = lowering.recordStatement(flhs, frhs, fin.assign(flhs, frhs));
+    getChildOps().addAssignment(assignment);
   }
 
   /**
    * Translate a rhs in L(imp) to an assignment in L(finite).
    */
   Finite.Rhs resolveRhs (rreil.lang.Rhs rhs) {
-    FieldVisitor<D> visitor = new FieldVisitor<D>(this);
+    return resolveRhs(rhs, null);
+  }
+
+  private Finite.Rhs resolveRhs (rreil.lang.Rhs rhs, Lowering lowering) {
+    FieldVisitor<D> visitor = new FieldVisitor<D>(this, lowering);
     return rhs.accept(visitor, null);
   }
 
@@ -495,10 +516,25 @@ class FieldStateBuilder<D extends FiniteDomain<D>> extends FiniteStateBuilder {
    * Translate a test in L(imp) to a test in L(finite).
    */
   void runTest (QueryChannel channel, Test test) {
-    Rhs cmp = resolveRhs(test.getComparison());
+    runTest(channel, test, null);
+  }
+
+  /**
+   * Translate a test in L(imp) to a test in L(finite) reusing the terms of the given lowering of the statement if
+   * they are built from the same variables.
+   */
+  void runTest (QueryChannel channel, Test test, Lowering lowering) {
+    Rhs cmp = resolveRhs(test.getComparison(), lowering);
     assert cmp != null;
     assert cmp instanceof Finite.Cmp;
-    getChildOps().addTest(fin.test((Cmp) cmp));
+    if (lowering == null) {
+      getChildOps().addTest(fin.test((Cmp) cmp));
+      return;
+    }
+    Finite.Test ftest = lowering.lookupStatement(test, cmp);
+    if (ftest == null)
+      ftest = lowering.recordStatement(test, cmp, fin.test((Cmp) cmp));
+    getChildOps().addTest(ftest);
   }
 
   D applyReorderedChildOps (D cs) {
@@ -602,7 +638,7 @@ class FieldStateBuilder<D extends FiniteDomain<D>> extends FiniteStateBuilder {
       MemVar ephemeral = mvp.getEphemeral();
       Region summary = regions.get(permanent);
       Region concrete = regions.get(ephemeral);
-      ThreeWaySplit<FiniteRangeTree<VariableCtx>> split = summary.fields.split(concrete.fields);
+      ThreeWaySplit<LongRangeTree<VariableCtx>> split = summary.fields.split(concrete.fields);
       for (P2<FiniteRange, VariableCtx> x : split.onlyInFirst()) {
         NumVar v = NumVar.fresh();
         getChildOps().addIntro(v);
@@ -648,7 +684,7 @@ class FieldStateBuilder<D extends FiniteDomain<D>> extends FiniteStateBuilder {
       MemVar ephemeral = mvp.getEphemeral();
       Region r1 = regions.get(permanent);
       // msg("unfoldCopy " + varsToExpand + " region: " + region);
-      FiniteRangeTree<VariableCtx> copiedFields = FiniteRangeTree.<VariableCtx>empty();
+      LongRangeTree<VariableCtx> copiedFields = LongRangeTree.<VariableCtx>empty();
       for (P2<FiniteRange, VariableCtx> p2 : r1.fields) {
         // XXX have to avoid self pointers here!!!
         //
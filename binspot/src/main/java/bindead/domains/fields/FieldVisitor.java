@@ -16,24 +16,36 @@ import rreil.lang.util.RhsVisitor;
 import bindead.abstractsyntax.finite.Finite;
 import bindead.abstractsyntax.finite.Finite.Rhs;
 import bindead.abstractsyntax.finite.FiniteFactory;
+import bindead.abstractsyntax.finite.LoweringCache.Lowering;
 import bindead.domainnetwork.interfaces.FiniteDomain;
 
 /**
- * Transforms an RREIL term to a finite term by resolving variables.
+ * Transforms an RREIL term to a finite term by resolving variables. If a lowering of the statement is given, the
+ * terms that are built from the same operands as in the previous evaluation of the statement are reused.
  */
 class FieldVisitor<D extends FiniteDomain<D>> implements RhsVisitor<Finite.Rhs, Void> {
   private static final FiniteFactory fin =  FiniteFactory.getInstance();
   private final FieldStateBuilder<D> builder;
+  private final Lowering lowering;
 
   protected FieldVisitor (FieldStateBuilder<D> builder) {
+    this(builder, null);
+  }
+
+  protected FieldVisitor (FieldStateBuilder<D> builder, Lowering lowering) {
     this.builder = builder;
+    this.lowering = lowering;
   }
 
   @Override public Finite.Rhs visit (Bin expr, Void _) {
     Finite.Rhs l = expr.getLeft().accept(this, _);
     Finite.Rhs r = expr.getRight().accept(this, _);
-    if (l instanceof Finite.Rlin && r instanceof Finite.Rlin)
-      return fin.binary((Finite.Rlin) l, expr.getOp(), (Finite.Rlin) r);
+    if (l instanceof Finite.Rlin && r instanceof Finite.Rlin) {
+      Finite.Rhs previous = lookup(expr, l, r);
+      if (previous != null)
+        return previous;
+      return record(expr, l, r, fin.binary((Finite.Rlin) l, expr.getOp(), (Finite.Rlin) r));
+    }
     return null;
   }
 
@@ -41,13 +53,16 @@ class FieldVisitor<D extends FiniteDomain<D>> implements RhsVisitor<Finite.Rhs,
     Finite.Rhs l = expr.getLeft().accept(this, _);
     Finite.Rhs r = expr.getRight().accept(this, _);
     if (l instanceof Finite.Rlin && r instanceof Finite.Rlin) {
+      Finite.Rhs previous = lookup(expr, l, r);
+      if (previous != null)
+        return previous;
       Finite.Rlin llin = (Finite.Rlin) l;
       Finite.Rlin rlin = (Finite.Rlin) r;
       switch (expr.getOp()) {
       case Add:
-        return llin.add(rlin);
+        return record(expr, l, r, llin.add(rlin));
       case Sub:
-        return llin.sub(rlin);
+        return record(expr, l, r, llin.sub(rlin));
       default:
         throw new RReilGrammarException();
       }
@@ -57,8 +72,12 @@ class FieldVisitor<D extends FiniteDomain<D>> implements RhsVisitor<Finite.Rhs,
 
   @Override public Rhs visit (LinScale expr, Void _) {
     Finite.Rhs opnd = expr.getOpnd().accept(this, _);
-    if (opnd instanceof Finite.Rlin)
-      return ((Finite.Rlin) opnd).smul(expr.getConst());
+    if (opnd instanceof Finite.Rlin) {
+      Finite.Rhs previous = lookup(expr, opnd);
+      if (previous != null)
+        return previous;
+      return record(expr, opnd, ((Finite.Rlin) opnd).smul(expr.getConst()));
+    }
     return null;
   }
 
@@ -71,25 +90,43 @@ class FieldVisitor<D extends FiniteDomain<D>> implements RhsVisitor<Finite.Rhs,
   @Override public Finite.Rhs visit (Cmp expr, Void _) {
     Finite.Rhs l = expr.getLeft().accept(this, _);
     Finite.Rhs r = expr.getRight().accept(this, _);
-    if (l instanceof Finite.Rlin && r instanceof Finite.Rlin)
-      return fin.comparison((Finite.Rlin) l, expr.getOp(), (Finite.Rlin) r);
+    if (l instanceof Finite.Rlin && r instanceof Finite.Rlin) {
+      Finite.Rhs previous = lookup(expr, l, r);
+      if (previous != null)
+        return previous;
+      return record(expr, l, r, fin.comparison((Finite.Rlin) l, expr.getOp(), (Finite.Rlin) r));
+    }
     return null;
   }
 
   @Override public Finite.Rhs visit (SignExtend expr, Void _) {
-    return fin.signExtend((Finite.Rlin) expr.getRhs().accept(this, _));
+    Finite.Rhs opnd = expr.getRhs().accept(this, _);
+    Finite.Rhs previous = lookup(expr, opnd);
+    if (previous != null)
+      return previous;
+    return record(expr, opnd, fin.signExtend((Finite.Rlin) opnd));
   }
 
   @Override public Finite.Rhs visit (Convert expr, Void _) {
-    return fin.convert((Finite.Rlin) expr.getRhs().accept(this, _));
+    Finite.Rhs opnd = expr.getRhs().accept(this, _);
+    Finite.Rhs previous = lookup(expr, opnd);
+    if (previous != null)
+      return previous;
+    return record(expr, opnd, fin.convert((Finite.Rlin) opnd));
   }
 
   @Override public Finite.Rlin visit (Rvar variable, Void _) {
-    return builder.resolve(variable);
+    Finite.Rlin resolved = builder.resolve(variable);
+    if (lowering == null || resolved == null)
+      return resolved;
+    return lowering.share(variable, resolved);
   }
 
   @Override public Finite.Rlin visit (Rlit literal, Void _) {
-    return fin.literal(literal.getSize(), literal.getValue());
+    Finite.Rlin previous = lowering == null ? null : lowering.<Finite.Rlin>lookup(literal);
+    if (previous != null)
+      return previous;
+    return record(literal, fin.literal(literal.getSize(), literal.getValue()));
   }
 
   @Override public Rhs visit (Address expr, Void _) {
@@ -97,6 +134,29 @@ class FieldVisitor<D extends FiniteDomain<D>> implements RhsVisitor<Finite.Rhs,
   }
 
   @Override public Finite.Rhs visit (RangeRhs range, Void _) {
-    return fin.range(range.getSize(), range.getRange());
+    Finite.Rhs previous = lowering == null ? null : lowering.<Finite.Rhs>lookup(range);
+    if (previous != null)
+      return previous;
+    return record(range, fin.range(range.getSize(), range.getRange()));
+  }
+
+  private Finite.Rhs lookup (Object expr, Finite.Rhs operand) {
+    return lowering == null ? null : lowering.<Finite.Rhs>lookup(expr, operand);
+  }
+
+  private Finite.Rhs lookup (Object expr, Finite.Rhs left, Finite.Rhs right) {
+    return lowering == null ? null : lowering.<Finite.Rhs>lookup(expr, left, right);
+  }
+
+  private <T extends Finite.Rhs> T record (Object expr, T lowered) {
+    return lowering == null ? lowered : lowering.record(expr, lowered);
+  }
+
+  private <T extends Finite.Rhs> T record (Object expr, Finite.Rhs operand, T lowered) {
+    return lowering == null ? lowered : lowering.record(expr, operand, lowered);
+  }
+
+  private <T extends Finite.Rhs> T record (Object expr, Finite.Rhs left, Finite.Rhs right, T lowered) {
+    return lowering == null ? lowered : lowering.record(expr, left, right, lowered);
   }
 }
\ No newline at end of file
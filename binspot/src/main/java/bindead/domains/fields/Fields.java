@@ -13,7 +13,7 @@ import javalx.numeric.Interval;
 import javalx.numeric.Range;
 import javalx.persistentcollections.AVLSet;
 import javalx.persistentcollections.ThreeWaySplit;
-import javalx.persistentcollections.tree.FiniteRangeTree;
+import javalx.persistentcollections.tree.LongRangeTree;
 import javalx.persistentcollections.tree.OverlappingRanges;
 import rreil.lang.Lhs;
 import rreil.lang.MemVar;
@@ -30,6 +30,7 @@ import rreil.lang.util.RhsFactory;
 import bindead.abstractsyntax.finite.Finite;
 import bindead.abstractsyntax.finite.Finite.Rlin;
 import bindead.abstractsyntax.finite.FiniteFactory;
+import bindead.abstractsyntax.finite.LoweringCache.Lowering;
 import bindead.abstractsyntax.memderef.AbstractMemPointer;
 import bindead.abstractsyntax.memderef.AbstractPointer;
 import bindead.data.MemVarPair;
@@ -39,7 +40,9 @@ import bindead.data.NumVar.AddrVar;
 import bindead.data.VarSet;
 import bindead.domainnetwork.channels.DebugChannel;
 import bindead.domainnetwork.combinators.MemoryFiniteFunctor;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
 import bindead.domainnetwork.interfaces.FiniteDomain;
+import bindead.domainnetwork.interfaces.ProgramPoint;
 import bindead.domainnetwork.interfaces.RegionCtx;
 import bindead.domains.fields.FieldGraph.Partitioning;
 import bindead.domains.fields.messages.ReadFromXrefWithNonConstantOffsetInfo;
@@ -84,10 +87,26 @@ public class Fields<D extends FiniteDomain<D>> extends MemoryFiniteFunctor<Field
 
   @Override public Fields<D> evalAssign (Lhs lhs, Rhs rhs) {
     FieldStateBuilder<D> builder = new FieldStateBuilder<D>(state);
-    builder.runAssign(childState, lhs, rhs);
+    Lowering lowering = beginLowering(rhs);
+    builder.runAssign(childState, lhs, rhs, lowering);
+    if (lowering != null)
+      lowering.end();
     return finish(builder);
   }
 
+  /**
+   * Start lowering a statement with the cache of the analysis if the location of the statement is known.
+   */
+  private Lowering beginLowering (Object statement) {
+    AnalysisCtx ctx = getContext();
+    if (ctx == null || ctx.getEnvironment() == null)
+      return null;
+    Option<ProgramPoint> location = ctx.getLocation();
+    if (location == null || location.isNone())
+      return null;
+    return ctx.getEnvironment().getLoweringCache().begin(location.get().getAddress(), statement);
+  }
+
   @Override public Fields<D> evalLoad (Lhs value, AbstractMemPointer location) {
     int accessSize = value.getSize();
     Range offset = location.getOffsetRange(childState);
@@ -130,7 +149,10 @@ public class Fields<D extends FiniteDomain<D>> extends MemoryFiniteFunctor<Field
 
   @Override public Fields<D> eval (Test test) {
     FieldStateBuilder<D> builder = new FieldStateBuilder<D>(state);
-    builder.runTest(childState, test);
+    Lowering lowering = beginLowering(test);
+    builder.runTest(childState, test, lowering);
+    if (lowering != null)
+      lowering.end();
     return finish(builder);
   }
 
@@ -390,7 +412,7 @@ public class Fields<D extends FiniteDomain<D>> extends MemoryFiniteFunctor<Field
   @Override public Fields<D> assumeRegionsAreEqual (MemVar first, MemVar second) {
     Region r1 = state.regions.get(first);
     Region r2 = state.regions.get(second);
-    ThreeWaySplit<FiniteRangeTree<VariableCtx>> split = r1.fields.split(r2.fields);
+    ThreeWaySplit<LongRangeTree<VariableCtx>> split = r1.fields.split(r2.fields);
     // when they differ, some write operation has invalidated the connector
     assert split.onlyInFirst().isEmpty();
     assert split.onlyInSecond().isEmpty();
@@ -6,7 +6,7 @@ import javalx.data.products.P2;
 import javalx.numeric.Bound;
 import javalx.numeric.FiniteRange;
 import javalx.persistentcollections.ThreeWaySplit;
-import javalx.persistentcollections.tree.FiniteRangeTree;
+import javalx.persistentcollections.tree.LongRangeTree;
 import rreil.lang.Field;
 import rreil.lang.MemVar;
 import bindead.abstractsyntax.finite.Finite.Test;
@@ -20,7 +20,7 @@ import bindead.domainnetwork.interfaces.RegionCtx;
 import bindead.domains.pointsto.PointsToProperties;
 
 class Region {
-  final FiniteRangeTree<VariableCtx> fields;
+  final LongRangeTree<VariableCtx> fields;
   final RegionCtx context;
 
   private final boolean DEBUG = PointsToProperties.INSTANCE.debugOther.isTrue();
@@ -30,13 +30,13 @@ class Region {
       System.out.println("fields.Region: " + s + "\n");
   }
 
-  Region (final FiniteRangeTree<VariableCtx> fields, RegionCtx ctx) {
+  Region (final LongRangeTree<VariableCtx> fields, RegionCtx ctx) {
     this.fields = fields;
     this.context = ctx;
   }
 
   static Region empty (RegionCtx ctx) {
-    return new Region(FiniteRangeTree.<VariableCtx>empty(), ctx);
+    return new Region(LongRangeTree.<VariableCtx>empty(), ctx);
   }
 
   Region addField (Field field, NumVar fieldVar) {
@@ -61,17 +61,18 @@ class Region {
     return context;
   }
 
-  private void makeCompatible (Region snd, FiniteSequence oco, FiniteRangeTree<VariableCtx> inBothButDiffering) {
+  private void makeCompatible (Region snd, FiniteSequence oco, LongRangeTree<VariableCtx> inBothButDiffering) {
     for (P2<FiniteRange, VariableCtx> field : inBothButDiffering) {
-      NumVar fromFst = fields.get(field._1()).get().getVariable();
-      NumVar fromSnd = snd.fields.get(field._1()).get().getVariable();
+      // the split is left biased thus only the second region needs a lookup
+      NumVar fromFst = field._2().getVariable();
+      NumVar fromSnd = snd.fields.getOrNull(field._1()).getVariable();
       if (!fromFst.equalTo(fromSnd))
         oco.addSubst(fromSnd, fromFst);
     }
   }
 
   Region mergeRegions (Region snd, FiniteSequence co, FiniteSequence oco) {
-    ThreeWaySplit<FiniteRangeTree<VariableCtx>> split = fields.split(snd.fields);
+    ThreeWaySplit<LongRangeTree<VariableCtx>> split = fields.split(snd.fields);
     // Introduce all variables that are only in this in other.
     for (P2<FiniteRange, VariableCtx> field : split.onlyInFirst()) {
       NumVar variable = field._2().getVariable();
@@ -87,13 +88,13 @@ class Region {
     return new Region(fields.union(split.onlyInSecond()), mergeContexts(snd));
   }
 
-  ThreeWaySplit<FiniteRangeTree<VariableCtx>> splitFields (Region eph) {
+  ThreeWaySplit<LongRangeTree<VariableCtx>> splitFields (Region eph) {
     return fields.split(eph.fields);
   }
 
   Region unfoldCopy (FoldMap varsToExpand, MemVar region) {
     // msg("unfoldCopy " + varsToExpand + " region: " + region);
-    FiniteRangeTree<VariableCtx> copiedFields = FiniteRangeTree.<VariableCtx>empty();
+    LongRangeTree<VariableCtx> copiedFields = LongRangeTree.<VariableCtx>empty();
     for (P2<FiniteRange, VariableCtx> p2 : fields) {
       VariableCtx ctx = p2._2();
       NumVar nv = NumVar.fresh();
@@ -125,13 +126,13 @@ class Region {
   }
 
   public void testEqual (Region r2, FiniteSequence childOps) {
-    ThreeWaySplit<FiniteRangeTree<VariableCtx>> split = fields.split(r2.fields);
+    ThreeWaySplit<LongRangeTree<VariableCtx>> split = fields.split(r2.fields);
     // Project out fields from this.
     for (P2<FiniteRange, VariableCtx> field : split.inBothButDiffering()) {
       FiniteRange interval = field._1();
-      VariableCtx variableCtx1 = fields.get(interval).get();
+      VariableCtx variableCtx1 = field._2();
       NumVar fromFst = variableCtx1.getVariable();
-      VariableCtx variableCtx2 = r2.fields.get(interval).get();
+      VariableCtx variableCtx2 = r2.fields.getOrNull(interval);
       NumVar fromSnd = variableCtx2.getVariable();
       int size = variableCtx1.getSize();
       if (size != variableCtx2.getSize())
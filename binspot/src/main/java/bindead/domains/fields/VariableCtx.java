@@ -1,5 +1,7 @@
 package bindead.domains.fields;
 
+import bindead.abstractsyntax.finite.Finite;
+import bindead.abstractsyntax.finite.FiniteFactory;
 import bindead.data.NumVar;
 
 /**
@@ -9,6 +11,8 @@ public class VariableCtx {
   // hsi: size is also implicit in fields tree.
   private final int size;
   private final NumVar variable;
+  // the finite expression of the variable, shared by all lookups of the field
+  private Finite.Rlin rlin;
 
   public VariableCtx (int size, NumVar variable) {
     assert variable != null : "invalid variable context";
@@ -24,6 +28,18 @@ public class VariableCtx {
     return variable;
   }
 
+  /**
+   * Return the finite expression denoting the value of this variable.
+   */
+  public Finite.Rlin asRlin () {
+    Finite.Rlin result = rlin;
+    if (result == null) {
+      result = FiniteFactory.getInstance().linear(size, variable);
+      rlin = result;
+    }
+    return result;
+  }
+
   @Override public String toString () {
     return variable.toString() + ':' + size;
   }
@@ -19,4 +19,17 @@ public class UnalignedMemoryAccessWarning extends WarningMessage.Warning {
   @Override public String message () {
     return String.format(fmt, field);
   }
+
+  @Override public int hashCode () {
+    return field.hashCode();
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof UnalignedMemoryAccessWarning))
+      return false;
+    UnalignedMemoryAccessWarning other = (UnalignedMemoryAccessWarning) obj;
+    return field.equals(other.field);
+  }
 }
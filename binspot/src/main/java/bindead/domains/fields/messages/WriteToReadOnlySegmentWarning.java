@@ -18,4 +18,17 @@ public class WriteToReadOnlySegmentWarning extends WarningMessage.StateRestricti
   @Override public String message () {
     return String.format(fmt, region.toString());
   }
+
+  @Override public int hashCode () {
+    return region.hashCode();
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof WriteToReadOnlySegmentWarning))
+      return false;
+    WriteToReadOnlySegmentWarning other = (WriteToReadOnlySegmentWarning) obj;
+    return region.equals(other.region);
+  }
 }
@@ -8,6 +8,7 @@ import java.util.List;
 import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.exceptions.UnimplementedException;
+import javalx.fn.Fn;
 import javalx.numeric.BigInt;
 import javalx.numeric.Range;
 import javalx.persistentcollections.AVLSet;
@@ -27,6 +28,7 @@ import bindead.domainnetwork.channels.DebugChannel;
 import bindead.domainnetwork.channels.Domain;
 import bindead.domainnetwork.channels.SetOfEquations;
 import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.combinators.ParallelDisjuncts;
 import bindead.domainnetwork.interfaces.AnalysisCtx;
 import bindead.domainnetwork.interfaces.FiniteDomain;
 import bindead.exceptions.Unreachable;
@@ -35,6 +37,8 @@ import com.jamesmurty.utils.XMLBuilder;
 
 /**
  * Defer joining of child domain until widening.
+ * The transfer functions are applied to the child states in parallel if there are enough of them,
+ * see {@link ParallelDisjuncts}. The child states are always joined sequentially in their order.
  */
 public final class FiniteDisjunction<D extends FiniteDomain<D>>
     extends Domain<FiniteDisjunction<D>>
@@ -68,17 +72,43 @@ public final class FiniteDisjunction<D extends FiniteDomain<D>>
     return new FiniteDisjunction<D>(cs);
   }
 
-  @Override public FiniteDisjunction<D> copyAndPaste (VarSet vars, FiniteDisjunction<D> from) {
-    D fromc = from.collapse();
+  /**
+   * Apply the transfer function to each child state and drop the unreachable results.
+   */
+  private FiniteDisjunction<D> map (final Fn<D, D> transfer) {
     LinkedList<D> cs = newcs();
+    if (ParallelDisjuncts.isParallel(childState.size())) {
+      List<D> results = ParallelDisjuncts.map(childState, new Fn<D, D>() {
+        @Override public D apply (D c) {
+          try {
+            return transfer.apply(c);
+          } catch (Unreachable _) {
+            return null;
+          }
+        }
+      });
+      for (D c : results)
+        if (c != null)
+          cs.add(c);
+      return build(cs);
+    }
     for (D c : childState)
       try {
-        cs.add(c.copyAndPaste(vars, fromc));
+        cs.add(transfer.apply(c));
       } catch (Unreachable _) {
       }
     return build(cs);
   }
 
+  @Override public FiniteDisjunction<D> copyAndPaste (final VarSet vars, FiniteDisjunction<D> from) {
+    final D fromc = from.collapse();
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.copyAndPaste(vars, fromc);
+      }
+    });
+  }
+
   private D collapse () {
     Iterator<D> it = childState.iterator();
     assert it.hasNext();
@@ -105,46 +135,36 @@ public final class FiniteDisjunction<D extends FiniteDomain<D>>
     return alts;
   }
 
-  @Override public FiniteDisjunction<D> eval (Assign stmt) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.eval(stmt));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> eval (final Assign stmt) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.eval(stmt);
       }
-
-    return build(cs);
+    });
   }
 
-  @Override public FiniteDisjunction<D> eval (Test test) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.eval(test));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> eval (final Test test) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.eval(test);
       }
-
-    return build(cs);
+    });
   }
 
-  @Override public FiniteDisjunction<D> introduce (NumVar var, Type type, Option<BigInt> value) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.introduce(var, type, value));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> introduce (final NumVar var, final Type type, final Option<BigInt> value) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.introduce(var, type, value);
       }
-    return build(cs);
+    });
   }
 
-  @Override public FiniteDisjunction<D> project (NumVar var) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.project(var));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> project (final NumVar var) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.project(var);
       }
-    return build(cs);
+    });
   }
 
   @Override public SetOfEquations queryEqualities (NumVar var) {
@@ -162,28 +182,24 @@ public final class FiniteDisjunction<D extends FiniteDomain<D>>
     return result;
   }
 
-  @Override public FiniteDisjunction<D> substitute (NumVar from, NumVar to) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.substitute(from, to));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> substitute (final NumVar from, final NumVar to) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.substitute(from, to);
       }
-    return build(cs);
+    });
   }
 
   /* ***********
    * Operations from interface FiniteDomain:
    *********** */
 
-  @Override public FiniteDisjunction<D> assumeConcrete (NumVar var) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.assumeConcrete(var));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> assumeConcrete (final NumVar var) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.assumeConcrete(var);
       }
-    return build(cs);
+    });
   }
 
   @Override public FiniteDisjunction<D> assumePointsToAndConcretize (Rlin refVar, AddrVar target, VarSet contents) {
@@ -382,15 +398,12 @@ public final class FiniteDisjunction<D extends FiniteDomain<D>>
     return build(cs);
   }
 
-  @Override public FiniteDisjunction<D> copyVariable (NumVar to, NumVar from) {
-    LinkedList<D> cs = newcs();
-    for (D c : childState)
-      try {
-        cs.add(c.copyVariable(to, from));
-      } catch (Unreachable _) {
+  @Override public FiniteDisjunction<D> copyVariable (final NumVar to, final NumVar from) {
+    return map(new Fn<D, D>() {
+      @Override public D apply (D c) {
+        return c.copyVariable(to, from);
       }
-    return build(cs);
-
+    });
   }
 
   @Override public FiniteDisjunction<D> assumeEdgeNG (Rlin pointerVar, AddrVar targetAddr) {
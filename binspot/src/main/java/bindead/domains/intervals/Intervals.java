@@ -13,7 +13,6 @@ import javalx.numeric.BigInt;
 import javalx.numeric.Bound;
 import javalx.numeric.Interval;
 import javalx.numeric.Range;
-import javalx.persistentcollections.AVLMap;
 import javalx.persistentcollections.ThreeWaySplit;
 import rreil.lang.MemVar;
 import rreil.lang.util.Type;
@@ -27,6 +26,7 @@ import bindead.data.FoldMap;
 import bindead.data.Linear;
 import bindead.data.Linear.Term;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 import bindead.data.VarPair;
 import bindead.data.VarSet;
 import bindead.debug.DomainStringBuilder;
@@ -52,24 +52,24 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   private final boolean DEBUGOTHER = IntervalProperties.INSTANCE.debugOther.isTrue();
 
   public static final String NAME = "INTERVALS";
-  private final AVLMap<NumVar, Interval> intervals;
+  private final NumVarMap<Interval> intervals;
   private final SynthChannel channel;
 
   public Intervals () {
-    this(AVLMap.<NumVar, Interval>empty(), new SynthChannel(), AnalysisCtx.unknown());
+    this(NumVarMap.<Interval>empty(), new SynthChannel(), AnalysisCtx.unknown());
   }
 
-  private Intervals (AVLMap<NumVar, Interval> intervals, SynthChannel channel, AnalysisCtx ctx) {
+  private Intervals (NumVarMap<Interval> intervals, SynthChannel channel, AnalysisCtx ctx) {
     super(NAME, ctx);
     this.intervals = intervals;
     this.channel = channel;
   }
 
-  private Intervals build (AVLMap<NumVar, Interval> intervals, SynthChannel channel) {
+  private Intervals build (NumVarMap<Interval> intervals, SynthChannel channel) {
     return new Intervals(intervals, channel, getContext());
   }
 
-  private Intervals build (AVLMap<NumVar, Interval> intervals) {
+  private Intervals build (NumVarMap<Interval> intervals) {
     return build(intervals, new SynthChannel());
   }
 
@@ -86,7 +86,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
       // if executing a sequence of transfer functions which set the same value, e.g. x < 0; x = 0;
       equalities = equalities.add(stmt.getLhs().getId());
     }
-    AVLMap<NumVar, Interval> newIntervals = intervals.bind(stmt.getLhs().getId(), valueApproximation);
+    NumVarMap<Interval> newIntervals = intervals.bind(stmt.getLhs().getId(), valueApproximation);
     SynthChannel synth = new SynthChannel();
     for (NumVar var : equalities)
       synth.addEquation(linear(newIntervals.get(var).get().getConstant().negate(), term(var)).toEquality());
@@ -127,7 +127,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
 
     if (AnalysisProperties.INSTANCE.debugTests.isTrue())
       System.out.println("Numeric test: " + test);
-    AVLMap<NumVar, Interval> newIntervals = intervals;
+    NumVarMap<Interval> newIntervals = intervals;
     VarSet newEqualities = VarSet.empty();
     Linear expr = test.getExpr();
     boolean allReachable = true;
@@ -250,10 +250,10 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals join (Intervals other) {
-    AVLMap<NumVar, Interval> differing = inBothButDifferingOnly(other);
+    NumVarMap<Interval> differing = inBothButDifferingOnly(other);
     SynthChannel synth = new SynthChannel();
     synth.setImplications(SynthesizedPredicatesBuilder.generateImplications(differing, other.intervals));
-    AVLMap<NumVar, Interval> joined = AVLMap.empty();
+    NumVarMap<Interval> joined = NumVarMap.empty();
     for (P2<NumVar, Interval> inThis : differing) {
       NumVar var = inThis._1();
       Interval thisValue = inThis._2();
@@ -274,27 +274,15 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals widen (Intervals other) {
-    AVLMap<NumVar, Interval> differing = inBothButDifferingOnly(other);
+    NumVarMap<Interval> differing = inBothButDifferingOnly(other);
     SynthChannel synth = new SynthChannel();
     synth.setImplications(SynthesizedPredicatesBuilder.generateImplications(differing, other.intervals));
-    AVLMap<NumVar, Interval> widened = AVLMap.empty();
+    NumVarMap<Interval> widened = NumVarMap.empty();
     for (P2<NumVar, Interval> inThis : differing) {
       NumVar var = inThis._1();
       Interval thisValue = inThis._2();
       Interval otherValue = other.intervals.get(var).get();
-      Interval resultValue;
-      if (var.isFlag()) {
-        // flags are boolean variables thus not widening them here removes the need to later wrap them to size 1.
-        // as wrapping destroys affine relations this improves the precision.
-        // especially points-to flags rely on not widening the flags.
-        resultValue = thisValue.join(otherValue);
-        // the widening is suppressed only for value that are in the boolean range [0, 1]
-        if (!resultValue.subsetOrEqual(Interval.BOOLEANTOP))
-          resultValue = thisValue.widen(otherValue);
-      } else {
-        resultValue = thisValue.widen(otherValue);
-      }
-      widened = widened.bind(var, resultValue);
+      widened = widened.bind(var, widen(var, thisValue, otherValue));
     }
     Intervals result = build(widened.union(intervals), synth);
     if (DEBUGWIDENING || DEBUGBINARIES) {
@@ -308,8 +296,63 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
 
-  private AVLMap<NumVar, Interval> inBothButDifferingOnly (Intervals other) {
-    ThreeWaySplit<AVLMap<NumVar, Interval>> split = intervals.split(other.intervals);
+  private static Interval widen (NumVar var, Interval thisValue, Interval otherValue) {
+    if (var.isFlag()) {
+      // flags are boolean variables thus not widening them here removes the need to later wrap them to size 1.
+      // as wrapping destroys affine relations this improves the precision.
+      // especially points-to flags rely on not widening the flags.
+      Interval resultValue = thisValue.join(otherValue);
+      // the widening is suppressed only for value that are in the boolean range [0, 1]
+      if (resultValue.subsetOrEqual(Interval.BOOLEANTOP))
+        return resultValue;
+    }
+    return thisValue.widen(otherValue);
+  }
+
+  /**
+   * Fused version of {@code widen(join(newState))} that splits the variables of both states only once. No state is
+   * built if the new state is subset-or-equal to this state.
+   */
+  @Override public Intervals addToState (Intervals newState, boolean isWideningPoint) {
+    if (newState == this) {
+      debugSubsetOrEqual(isWideningPoint, true);
+      return null;
+    }
+    NumVarMap<Interval> differing = inBothButDifferingOnly(newState);
+    boolean isSubset = true;
+    for (P2<NumVar, Interval> inThis : differing) {
+      if (!newState.intervals.get(inThis._1()).get().subsetOrEqual(inThis._2())) {
+        isSubset = false;
+        break;
+      }
+    }
+    debugSubsetOrEqual(isWideningPoint, isSubset);
+    if (isSubset)
+      return null;
+    NumVarMap<Interval> joined = NumVarMap.empty();
+    NumVarMap<Interval> differingFromJoined = NumVarMap.empty();
+    NumVarMap<Interval> widened = NumVarMap.empty();
+    for (P2<NumVar, Interval> inThis : differing) {
+      NumVar var = inThis._1();
+      Interval thisValue = inThis._2();
+      Interval joinedValue = thisValue.join(newState.intervals.get(var).get());
+      joined = joined.bind(var, joinedValue);
+      if (isWideningPoint && !joinedValue.equals(thisValue)) {
+        differingFromJoined = differingFromJoined.bind(var, thisValue);
+        widened = widened.bind(var, widen(var, thisValue, joinedValue));
+      }
+    }
+    SynthChannel synth = new SynthChannel();
+    if (!isWideningPoint) {
+      synth.setImplications(SynthesizedPredicatesBuilder.generateImplications(differing, newState.intervals));
+      return build(joined.union(intervals), synth);
+    }
+    synth.setImplications(SynthesizedPredicatesBuilder.generateImplications(differingFromJoined, joined));
+    return build(widened.union(intervals), synth);
+  }
+
+  private NumVarMap<Interval> inBothButDifferingOnly (Intervals other) {
+    ThreeWaySplit<NumVarMap<Interval>> split = intervals.split(other.intervals);
     if (!split.onlyInFirst().isEmpty())
       throw new VariableSupportSetException();
     if (!split.onlyInSecond().isEmpty())
@@ -318,7 +361,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public boolean subsetOrEqual (Intervals other) {
-    AVLMap<NumVar, Interval> split = inBothButDifferingOnly(other);
+    NumVarMap<Interval> split = inBothButDifferingOnly(other);
     if (DEBUGSUBSETOREQUAL) {
       System.out.println(NAME + ":");
       System.out.println(" subset-or-equal:");
@@ -337,7 +380,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals introduce (NumVar variable, Type type, Option<BigInt> value) {
-    AVLMap<NumVar, Interval> updatedIntervals = intervals;
+    NumVarMap<Interval> updatedIntervals = intervals;
     Interval initial = Interval.top();
     switch (type) {
     case Bool:
@@ -357,7 +400,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals project (VarSet vars) {
-    AVLMap<NumVar, Interval> removed = intervals;
+    NumVarMap<Interval> removed = intervals;
     for (NumVar var : vars)
       removed = removed.remove(var);
     Intervals result = build(removed);
@@ -370,7 +413,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals substitute (NumVar x, NumVar y) {
-    AVLMap<NumVar, Interval> updatedIntervals = intervals;
+    NumVarMap<Interval> updatedIntervals = intervals;
     Option<Interval> valueOfXOption = updatedIntervals.get(x);
     if (valueOfXOption.isNone())
       throw new VariableSupportSetException();
@@ -381,7 +424,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals expand (FoldMap vars) {
-    AVLMap<NumVar, Interval> updatedIntervals = intervals;
+    NumVarMap<Interval> updatedIntervals = intervals;
     for (VarPair vp : vars) {
       Option<Interval> valueOfPermanentOption = updatedIntervals.get(vp.getPermanent());
       if (valueOfPermanentOption.isNone())
@@ -393,7 +436,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals fold (FoldMap vars) {
-    AVLMap<NumVar, Interval> updatedIntervals = intervals;
+    NumVarMap<Interval> updatedIntervals = intervals;
     for (VarPair vp : vars) {
       Option<Interval> valueOfPermanentOption = updatedIntervals.get(vp.getPermanent());
       if (valueOfPermanentOption.isNone())
@@ -410,7 +453,7 @@ public class Intervals extends ZenoHeadDomain<Intervals> {
   }
 
   @Override public Intervals copyAndPaste (VarSet vars, Intervals from) {
-    AVLMap<NumVar, Interval> updatedIntervals = intervals;
+    NumVarMap<Interval> updatedIntervals = intervals;
     for (NumVar var : vars) {
       Interval value = from.intervals.get(var).getOrNull();
       if (value == null)
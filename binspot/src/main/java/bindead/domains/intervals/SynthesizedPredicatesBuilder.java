@@ -7,7 +7,6 @@ import java.util.ListIterator;
 import javalx.numeric.BigInt;
 import javalx.numeric.Bound;
 import javalx.numeric.Interval;
-import javalx.persistentcollections.AVLMap;
 import javalx.persistentcollections.MultiMap;
 import bindead.abstractsyntax.zeno.Zeno.Test;
 import bindead.abstractsyntax.zeno.Zeno.ZenoTestOp;
@@ -15,13 +14,14 @@ import bindead.abstractsyntax.zeno.ZenoFactory;
 import bindead.abstractsyntax.zeno.util.ZenoTestHelper;
 import bindead.data.Linear;
 import bindead.data.NumVar;
+import bindead.data.NumVarMap;
 
 /**
- * Synthesizes predicates for the precision loss during the intervals join.
+ * Synthesizes predicates for the precision loss during the intervals join. Also used by the octagons join.
  *
  * @author Bogdan Mihaila
  */
-class SynthesizedPredicatesBuilder {
+public class SynthesizedPredicatesBuilder {
   private static final ZenoFactory zeno = ZenoFactory.getInstance();
 
   /**
@@ -30,14 +30,14 @@ class SynthesizedPredicatesBuilder {
    * implications during the join: 5 < x → 2 <= y; -1 < y → 10 <= x thus being able to recover
    * the precision loss in the join later on when restricting one of the variables.
    */
-  public static MultiMap<Test, Test> generateImplications (AVLMap<NumVar, Interval> differingFromThis,
-      AVLMap<NumVar, Interval> allFromOther) {
+  public static MultiMap<Test, Test> generateImplications (NumVarMap<Interval> differingFromThis,
+      NumVarMap<Interval> allFromOther) {
     MultiMap<Test, Test> implications = MultiMap.empty();
     if (differingFromThis.isEmpty())
       return implications;
     List<NumVar> predicateVariablesList = new LinkedList<NumVar>();
-    AVLMap<NumVar, Test> boundsPredicatesInThis = AVLMap.empty();
-    AVLMap<NumVar, Test> boundsPredicatesInOther = AVLMap.empty();
+    NumVarMap<Test> boundsPredicatesInThis = NumVarMap.empty();
+    NumVarMap<Test> boundsPredicatesInOther = NumVarMap.empty();
     for (NumVar variable : differingFromThis.keys()) {
       Interval valueInThis = differingFromThis.getOrNull(variable);
       Interval valueInOther = allFromOther.getOrNull(variable);
@@ -75,7 +75,7 @@ class SynthesizedPredicatesBuilder {
 
   private static MultiMap<Test, Test> circularShiftedZip (MultiMap<Test, Test> implications,
       List<NumVar> predicateVariablesList,
-      AVLMap<NumVar, Test> boundsPredicatesInThis, AVLMap<NumVar, Test> boundsPredicatesInOther) {
+      NumVarMap<Test> boundsPredicatesInThis, NumVarMap<Test> boundsPredicatesInOther) {
     ListIterator<NumVar> iterator = predicateVariablesList.listIterator();
     NumVar firstVariable = iterator.next();
     while (iterator.hasNext()) {
@@ -0,0 +1,298 @@
+package bindead.domains.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import bindead.domainnetwork.channels.Domain;
+import bindead.domainnetwork.interfaces.FiniteDomain;
+import bindead.domainnetwork.interfaces.MemoryDomain;
+import bindead.domainnetwork.interfaces.ZenoDomain;
+
+/**
+ * Collects the number of calls, the time and the allocated memory spent in the operations of each domain of a domain
+ * hierarchy. The domains are instrumented by wrapping them into decorator domains that forward all operations to the
+ * wrapped domain and measure the expensive ones, see {@link #instrument(Object)}.<br>
+ *
+ * As each layer calls the operations of its child domain the measured time of an operation is split into the total
+ * time including the time spent in the child domains and the self time of the domain. The allocated memory is only
+ * the one of the domain itself and is only measured if the JVM supports it. Queries are not measured and are thus
+ * counted as self time of the querying domain.
+ */
+public class DomainMetrics {
+  public static final DomainMetrics INSTANCE = new DomainMetrics();
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private static final boolean measureAllocations = allocationsMeasurable();
+  private static final ThreadLocal<Clock> clocks = new ThreadLocal<Clock>() {
+    @Override protected Clock initialValue () {
+      return new Clock();
+    }
+  };
+  private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+  /**
+   * The measured kinds of domain operations.
+   */
+  public static enum Operation {
+    /**
+     * The transfer functions, i.e. assignments, tests, loads and stores.
+     */
+    Eval,
+    Join,
+    Widen,
+    SubsetOrEqual,
+    /**
+     * The combined join and widening when adding a new state to the state of a program point.
+     */
+    AddToState,
+    /**
+     * The operations to introduce, project, substitute, expand or fold variables and memory regions.
+     */
+    Support
+  }
+
+  private static boolean allocationsMeasurable () {
+    if (!(threads instanceof com.sun.management.ThreadMXBean))
+      return false;
+    com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+    return sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled();
+  }
+
+  private static long allocatedBytes () {
+    if (!measureAllocations)
+      return 0;
+    return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Wrap the given domain into a decorator domain that measures its operations. Domains that cannot be
+   * instrumented, e.g. root domains, are returned unchanged.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"}) public Object instrument (Object domain) {
+    String name = domain instanceof Domain ? ((Domain) domain).getName() : domain.getClass().getSimpleName();
+    if (domain instanceof MemoryDomain)
+      return new MemoryMetrics(getLayer(name), (MemoryDomain) domain);
+    if (domain instanceof FiniteDomain)
+      return new FiniteMetrics(getLayer(name), (FiniteDomain) domain);
+    if (domain instanceof ZenoDomain)
+      return new ZenoMetrics(getLayer(name), (ZenoDomain) domain);
+    return domain;
+  }
+
+  /**
+   * Return the metrics for the domain with the given name.
+   */
+  public synchronized Layer getLayer (String name) {
+    Layer layer = layers.get(name);
+    if (layer == null) {
+      layer = new Layer(name);
+      layers.put(name, layer);
+    }
+    return layer;
+  }
+
+  /**
+   * Return the metrics of all the instrumented domains ordered from the top of the domain hierarchy to the bottom.
+   */
+  public synchronized List<Layer> getLayers () {
+    // the domains are instrumented bottom-up while building the hierarchy
+    List<Layer> result = new ArrayList<>(layers.values());
+    Collections.reverse(result);
+    return result;
+  }
+
+  /**
+   * Set all the collected metrics to zero.
+   */
+  public synchronized void reset () {
+    for (Layer layer : layers.values()) {
+      layer.reset();
+    }
+  }
+
+  /**
+   * Write the collected metrics to a file. The format is CSV if the file name ends with ".csv" and JSON otherwise.
+   */
+  public void write (File file) throws IOException {
+    try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      if (file.getName().toLowerCase().endsWith(".csv"))
+        out.write(toCsv());
+      else
+        out.write(toJson());
+    }
+  }
+
+  public String toCsv () {
+    StringBuilder builder = new StringBuilder();
+    builder.append("domain,operation,calls,totalNanos,selfNanos,allocatedBytes\n");
+    for (Layer layer : getLayers()) {
+      for (Operation operation : Operation.values()) {
+        builder.append(layer.getName()).append(',');
+        builder.append(operation).append(',');
+        builder.append(layer.getCalls(operation)).append(',');
+        builder.append(layer.getTotalNanos(operation)).append(',');
+        builder.append(layer.getSelfNanos(operation)).append(',');
+        builder.append(layer.getAllocatedBytes(operation)).append('\n');
+      }
+    }
+    return builder.toString();
+  }
+
+  public String toJson () {
+    StringBuilder builder = new StringBuilder();
+    builder.append("{\n  \"measuresAllocations\": ").append(measureAllocations).append(",\n");
+    builder.append("  \"domains\": [");
+    String layerSeparator = "\n";
+    for (Layer layer : getLayers()) {
+      builder.append(layerSeparator);
+      layerSeparator = ",\n";
+      builder.append("    {\"name\": \"").append(layer.getName()).append("\", \"operations\": {");
+      String operationSeparator = "\n";
+      for (Operation operation : Operation.values()) {
+        builder.append(operationSeparator);
+        operationSeparator = ",\n";
+        builder.append("      \"").append(operation).append("\": {");
+        builder.append("\"calls\": ").append(layer.getCalls(operation));
+        builder.append(", \"totalNanos\": ").append(layer.getTotalNanos(operation));
+        builder.append(", \"selfNanos\": ").append(layer.getSelfNanos(operation));
+        builder.append(", \"allocatedBytes\": ").append(layer.getAllocatedBytes(operation));
+        builder.append('}');
+      }
+      builder.append("\n    }}");
+    }
+    builder.append("\n  ]\n}\n");
+    return builder.toString();
+  }
+
+  @Override public String toString () {
+    return toCsv();
+  }
+
+  /**
+   * The metrics of one domain. The counters are updated concurrently by the threads of a parallel analysis.
+   */
+  public static class Layer {
+    private static final int CALLS = 0;
+    private static final int TOTAL = 1;
+    private static final int SELF = 2;
+    private static final int ALLOCATED = 3;
+    private static final int COUNTERS = 4;
+    private final String name;
+    private final AtomicLongArray counters = new AtomicLongArray(Operation.values().length * COUNTERS);
+
+    private Layer (String name) {
+      this.name = name;
+    }
+
+    public String getName () {
+      return name;
+    }
+
+    public long getCalls (Operation operation) {
+      return counters.get(index(operation, CALLS));
+    }
+
+    /**
+     * The time spent in the operation including the time spent in the child domains.
+     */
+    public long getTotalNanos (Operation operation) {
+      return counters.get(index(operation, TOTAL));
+    }
+
+    /**
+     * The time spent in the operation without the time spent in the child domains.
+     */
+    public long getSelfNanos (Operation operation) {
+      return counters.get(index(operation, SELF));
+    }
+
+    /**
+     * The memory allocated by the operation without the memory allocated by the child domains.
+     */
+    public long getAllocatedBytes (Operation operation) {
+      return counters.get(index(operation, ALLOCATED));
+    }
+
+    /**
+     * Start measuring an operation of this domain. Must be followed by a call to {@link #end(Operation)} in the
+     * same thread.
+     */
+    void begin () {
+      clocks.get().begin();
+    }
+
+    void end (Operation operation) {
+      clocks.get().end(this, operation);
+    }
+
+    private void record (Operation operation, long total, long self, long allocated) {
+      counters.incrementAndGet(index(operation, CALLS));
+      counters.addAndGet(index(operation, TOTAL), total);
+      counters.addAndGet(index(operation, SELF), self);
+      counters.addAndGet(index(operation, ALLOCATED), allocated);
+    }
+
+    private void reset () {
+      for (int i = 0; i < counters.length(); i++) {
+        counters.set(i, 0);
+      }
+    }
+
+    private static int index (Operation operation, int counter) {
+      return operation.ordinal() * COUNTERS + counter;
+    }
+
+    @Override public String toString () {
+      return name;
+    }
+  }
+
+  /**
+   * Keeps track of the nested measurements of one thread. The time and memory of a finished measurement are added to
+   * the enclosing one to be able to subtract them from its self time and memory.
+   */
+  private static class Clock {
+    private int depth = -1;
+    private long[] startTimes = new long[16];
+    private long[] startAllocations = new long[16];
+    private long[] childTimes = new long[16];
+    private long[] childAllocations = new long[16];
+
+    void begin () {
+      depth++;
+      if (depth == startTimes.length) {
+        startTimes = Arrays.copyOf(startTimes, depth * 2);
+        startAllocations = Arrays.copyOf(startAllocations, depth * 2);
+        childTimes = Arrays.copyOf(childTimes, depth * 2);
+        childAllocations = Arrays.copyOf(childAllocations, depth * 2);
+      }
+      childTimes[depth] = 0;
+      childAllocations[depth] = 0;
+      startAllocations[depth] = allocatedBytes();
+      startTimes[depth] = System.nanoTime();
+    }
+
+    void end (Layer layer, Operation operation) {
+      long time = System.nanoTime() - startTimes[depth];
+      long allocated = allocatedBytes() - startAllocations[depth];
+      layer.record(operation, time, time - childTimes[depth], allocated - childAllocations[depth]);
+      depth--;
+      if (depth >= 0) {
+        childTimes[depth] += time;
+        childAllocations[depth] += allocated;
+      }
+    }
+  }
+}
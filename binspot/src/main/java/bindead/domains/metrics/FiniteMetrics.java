@@ -0,0 +1,293 @@
+package bindead.domains.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javalx.data.Option;
+import javalx.data.products.P2;
+import javalx.numeric.BigInt;
+import javalx.numeric.Range;
+import javalx.persistentcollections.AVLSet;
+import rreil.lang.MemVar;
+import rreil.lang.util.Type;
+import bindead.abstractsyntax.finite.Finite.Assign;
+import bindead.abstractsyntax.finite.Finite.Rlin;
+import bindead.abstractsyntax.finite.Finite.Test;
+import bindead.data.Linear;
+import bindead.data.ListVarPair;
+import bindead.data.NumVar;
+import bindead.data.NumVar.AddrVar;
+import bindead.data.VarSet;
+import bindead.debug.DomainStringBuilder;
+import bindead.domainnetwork.channels.DebugChannel;
+import bindead.domainnetwork.channels.SetOfEquations;
+import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
+import bindead.domainnetwork.interfaces.FiniteDomain;
+import bindead.domains.metrics.DomainMetrics.Layer;
+import bindead.domains.metrics.DomainMetrics.Operation;
+import bindead.exceptions.Unreachable;
+
+import com.jamesmurty.utils.XMLBuilder;
+
+/**
+ * A decorator for finite domains that measures the operations of the wrapped domain.
+ *
+ * @param <C> The type of the wrapped domain.
+ */
+public class FiniteMetrics<C extends FiniteDomain<C>> implements FiniteDomain<FiniteMetrics<C>> {
+  private final Layer layer;
+  private final C childState;
+
+  public FiniteMetrics (Layer layer, C childState) {
+    this.layer = layer;
+    this.childState = childState;
+  }
+
+  private FiniteMetrics<C> build (C newChildState) {
+    if (newChildState == childState)
+      return this;
+    return new FiniteMetrics<C>(layer, newChildState);
+  }
+
+  private List<P2<AddrVar, FiniteMetrics<C>>> build (List<P2<AddrVar, C>> newChildStates) {
+    List<P2<AddrVar, FiniteMetrics<C>>> result = new ArrayList<>(newChildStates.size());
+    for (P2<AddrVar, C> tuple : newChildStates) {
+      result.add(P2.tuple2(tuple._1(), build(tuple._2())));
+    }
+    return result;
+  }
+
+  /* == Measured operations == */
+
+  @Override public FiniteMetrics<C> eval (Test test) throws Unreachable {
+    layer.begin();
+    try {
+      return build(childState.eval(test));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public FiniteMetrics<C> eval (Assign stmt) {
+    layer.begin();
+    try {
+      return build(childState.eval(stmt));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public boolean subsetOrEqual (FiniteMetrics<C> other) {
+    layer.begin();
+    try {
+      return childState.subsetOrEqual(other.childState);
+    } finally {
+      layer.end(Operation.SubsetOrEqual);
+    }
+  }
+
+  @Override public FiniteMetrics<C> join (FiniteMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.join(other.childState));
+    } finally {
+      layer.end(Operation.Join);
+    }
+  }
+
+  @Override public FiniteMetrics<C> widen (FiniteMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.widen(other.childState));
+    } finally {
+      layer.end(Operation.Widen);
+    }
+  }
+
+  @Override public FiniteMetrics<C> addToState (FiniteMetrics<C> newState, boolean isWideningPoint) {
+    layer.begin();
+    try {
+      C result = childState.addToState(newState.childState, isWideningPoint);
+      return result == null ? null : build(result);
+    } finally {
+      layer.end(Operation.AddToState);
+    }
+  }
+
+  @Override public FiniteMetrics<C> copyVariable (NumVar to, NumVar from) {
+    layer.begin();
+    try {
+      return build(childState.copyVariable(to, from));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public FiniteMetrics<C> introduce (NumVar variable, Type type, Option<BigInt> value) {
+    layer.begin();
+    try {
+      return build(childState.introduce(variable, type, value));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public FiniteMetrics<C> project (NumVar variable) {
+    layer.begin();
+    try {
+      return build(childState.project(variable));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public FiniteMetrics<C> substitute (NumVar from, NumVar to) {
+    layer.begin();
+    try {
+      return build(childState.substitute(from, to));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public FiniteMetrics<C> copyAndPaste (VarSet vars, FiniteMetrics<C> from) {
+    layer.begin();
+    try {
+      return build(childState.copyAndPaste(vars, from.childState));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  /* == Forwarded operations == */
+
+  @SuppressWarnings("deprecation") @Override public List<P2<AddrVar, FiniteMetrics<C>>> deprecatedDeref (Rlin ptr,
+      VarSet summaries) throws Unreachable {
+    return build(childState.deprecatedDeref(ptr, summaries));
+  }
+
+  @Override public P2<AVLSet<AddrVar>, FiniteMetrics<C>> deref (Rlin ptr) throws Unreachable {
+    P2<AVLSet<AddrVar>, C> result = childState.deref(ptr);
+    return P2.tuple2(result._1(), build(result._2()));
+  }
+
+  @Override public FiniteMetrics<C> assumePointsToAndConcretize (Rlin reference, AddrVar target, VarSet contents) {
+    return build(childState.assumePointsToAndConcretize(reference, target, contents));
+  }
+
+  @Override public Collection<AddrVar> findPossiblePointerTargets (NumVar id) {
+    return childState.findPossiblePointerTargets(id);
+  }
+
+  @Override public Range queryEdgeFlag (NumVar src, AddrVar tgt) {
+    return childState.queryEdgeFlag(src, tgt);
+  }
+
+  @Override public FiniteMetrics<C> assumeEdgeFlag (NumVar refVar, AddrVar target, BigInt value) {
+    return build(childState.assumeEdgeFlag(refVar, target, value));
+  }
+
+  @Override public FiniteMetrics<C> assumeEdgeNG (Rlin pointerVar, AddrVar targetAddr) {
+    return build(childState.assumeEdgeNG(pointerVar, targetAddr));
+  }
+
+  @Override public FiniteMetrics<C> expandNG (ListVarPair nvps) {
+    return build(childState.expandNG(nvps));
+  }
+
+  @Override public FiniteMetrics<C> expandNG (AddrVar p, AddrVar e, ListVarPair nvps) {
+    return build(childState.expandNG(p, e, nvps));
+  }
+
+  @Override public FiniteMetrics<C> foldNG (ListVarPair nvps) {
+    return build(childState.foldNG(nvps));
+  }
+
+  @Override public FiniteMetrics<C> foldNG (AddrVar p, AddrVar e, ListVarPair nvps) {
+    return build(childState.foldNG(p, e, nvps));
+  }
+
+  @Override public FiniteMetrics<C> concretizeAndDisconnectNG (AddrVar summary, VarSet concreteVars) {
+    return build(childState.concretizeAndDisconnectNG(summary, concreteVars));
+  }
+
+  @Override public FiniteMetrics<C> bendBackGhostEdgesNG (AddrVar summary, AddrVar concrete, VarSet svs, VarSet cvs,
+      VarSet pts, VarSet ptc) {
+    return build(childState.bendBackGhostEdgesNG(summary, concrete, svs, cvs, pts, ptc));
+  }
+
+  @Override public FiniteMetrics<C> bendGhostEdgesNG (AddrVar summary, AddrVar concrete, VarSet svs, VarSet cvs,
+      VarSet pts, VarSet ptc) {
+    return build(childState.bendGhostEdgesNG(summary, concrete, svs, cvs, pts, ptc));
+  }
+
+  @Override public FiniteMetrics<C> assumeConcrete (NumVar var) {
+    return build(childState.assumeConcrete(var));
+  }
+
+  @Override public FiniteMetrics<C> assumeVarsAreEqual (int size, NumVar fst, NumVar snd) {
+    return build(childState.assumeVarsAreEqual(size, fst, snd));
+  }
+
+  @Override public AnalysisCtx getContext () {
+    return childState.getContext();
+  }
+
+  @Override public FiniteMetrics<C> setContext (AnalysisCtx ctx) {
+    return build(childState.setContext(ctx));
+  }
+
+  @Override public List<FiniteMetrics<C>> enumerateAlternatives () {
+    List<FiniteMetrics<C>> alternatives = new ArrayList<>();
+    for (C alternative : childState.enumerateAlternatives()) {
+      alternatives.add(build(alternative));
+    }
+    return alternatives;
+  }
+
+  @Override public Range queryRange (Linear expr) {
+    return childState.queryRange(expr);
+  }
+
+  @Override public Range queryRange (NumVar variable) {
+    return childState.queryRange(variable);
+  }
+
+  @Override public SetOfEquations queryEqualities (NumVar variable) {
+    return childState.queryEqualities(variable);
+  }
+
+  @Override public SynthChannel getSynthChannel () {
+    return childState.getSynthChannel();
+  }
+
+  @Override public DebugChannel getDebugChannel () {
+    return childState.getDebugChannel();
+  }
+
+  @Override public XMLBuilder toXML (XMLBuilder builder) {
+    return childState.toXML(builder);
+  }
+
+  @Override public void toString (DomainStringBuilder builder) {
+    childState.toString(builder);
+  }
+
+  @Override public void varToCompactString (StringBuilder builder, NumVar var) {
+    childState.varToCompactString(builder, var);
+  }
+
+  @Override public void memVarToCompactString (StringBuilder builder, MemVar var) {
+    childState.memVarToCompactString(builder, var);
+  }
+
+  @Override public void toCompactString (StringBuilder builder) {
+    childState.toCompactString(builder);
+  }
+
+  @Override public String toString () {
+    return childState.toString();
+  }
+}
@@ -0,0 +1,385 @@
+package bindead.domains.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javalx.data.Option;
+import javalx.data.products.P2;
+import javalx.data.products.P3;
+import javalx.numeric.BigInt;
+import javalx.numeric.FiniteRange;
+import javalx.numeric.Range;
+import javalx.persistentcollections.AVLSet;
+import rreil.lang.Lhs;
+import rreil.lang.MemVar;
+import rreil.lang.Rhs;
+import rreil.lang.Rhs.Lin;
+import rreil.lang.Rhs.Rval;
+import rreil.lang.Test;
+import rreil.lang.util.Type;
+import bindead.abstractsyntax.finite.Finite;
+import bindead.abstractsyntax.finite.Finite.Rlin;
+import bindead.abstractsyntax.memderef.AbstractMemPointer;
+import bindead.abstractsyntax.memderef.AbstractPointer;
+import bindead.data.Linear;
+import bindead.data.MemVarPair;
+import bindead.data.MemVarSet;
+import bindead.data.NumVar;
+import bindead.data.NumVar.AddrVar;
+import bindead.data.VarSet;
+import bindead.debug.DomainStringBuilder;
+import bindead.domainnetwork.channels.DebugChannel;
+import bindead.domainnetwork.channels.SetOfEquations;
+import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
+import bindead.domainnetwork.interfaces.MemoryDomain;
+import bindead.domainnetwork.interfaces.RegionCtx;
+import bindead.domains.metrics.DomainMetrics.Layer;
+import bindead.domains.metrics.DomainMetrics.Operation;
+import bindead.domains.segments.heap.PathString;
+import bindead.exceptions.Unreachable;
+
+import com.jamesmurty.utils.XMLBuilder;
+
+/**
+ * A decorator for memory domains that measures the operations of the wrapped domain.
+ *
+ * @param <C> The type of the wrapped domain.
+ */
+public class MemoryMetrics<C extends MemoryDomain<C>> implements MemoryDomain<MemoryMetrics<C>> {
+  private final Layer layer;
+  private final C childState;
+
+  public MemoryMetrics (Layer layer, C childState) {
+    this.layer = layer;
+    this.childState = childState;
+  }
+
+  private MemoryMetrics<C> build (C newChildState) {
+    if (newChildState == childState)
+      return this;
+    return new MemoryMetrics<C>(layer, newChildState);
+  }
+
+  /* == Measured operations == */
+
+  @Override public MemoryMetrics<C> evalAssign (Lhs lhs, Rhs rhs) {
+    layer.begin();
+    try {
+      return build(childState.evalAssign(lhs, rhs));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public MemoryMetrics<C> evalLoad (Lhs value, AbstractMemPointer location) {
+    layer.begin();
+    try {
+      return build(childState.evalLoad(value, location));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public MemoryMetrics<C> evalStore (AbstractMemPointer location, Lin rhs) {
+    layer.begin();
+    try {
+      return build(childState.evalStore(location, rhs));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public MemoryMetrics<C> eval (Test test) throws Unreachable {
+    layer.begin();
+    try {
+      return build(childState.eval(test));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public MemoryMetrics<C> eval (Finite.Test test) throws Unreachable {
+    layer.begin();
+    try {
+      return build(childState.eval(test));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public MemoryMetrics<C> evalFiniteAssign (Finite.Lhs lhs, Finite.Rhs rhs) {
+    layer.begin();
+    try {
+      return build(childState.evalFiniteAssign(lhs, rhs));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public boolean subsetOrEqual (MemoryMetrics<C> other) {
+    layer.begin();
+    try {
+      return childState.subsetOrEqual(other.childState);
+    } finally {
+      layer.end(Operation.SubsetOrEqual);
+    }
+  }
+
+  @Override public MemoryMetrics<C> join (MemoryMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.join(other.childState));
+    } finally {
+      layer.end(Operation.Join);
+    }
+  }
+
+  @Override public MemoryMetrics<C> widen (MemoryMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.widen(other.childState));
+    } finally {
+      layer.end(Operation.Widen);
+    }
+  }
+
+  @Override public MemoryMetrics<C> addToState (MemoryMetrics<C> newState, boolean isWideningPoint) {
+    layer.begin();
+    try {
+      C result = childState.addToState(newState.childState, isWideningPoint);
+      return result == null ? null : build(result);
+    } finally {
+      layer.end(Operation.AddToState);
+    }
+  }
+
+  @Override public MemoryMetrics<C> introduceRegion (MemVar region, RegionCtx ctx) {
+    layer.begin();
+    try {
+      return build(childState.introduceRegion(region, ctx));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> projectRegion (MemVar region) {
+    layer.begin();
+    try {
+      return build(childState.projectRegion(region));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> substituteRegion (MemVar from, MemVar to) {
+    layer.begin();
+    try {
+      return build(childState.substituteRegion(from, to));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> introduce (NumVar numericVariable, Type type, Option<BigInt> value) {
+    layer.begin();
+    try {
+      return build(childState.introduce(numericVariable, type, value));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> project (NumVar numericVariable) {
+    layer.begin();
+    try {
+      return build(childState.project(numericVariable));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> substitute (NumVar from, NumVar to) {
+    layer.begin();
+    try {
+      return build(childState.substitute(from, to));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> copyMemRegion (MemVar fromVar, MemVar toVar) {
+    layer.begin();
+    try {
+      return build(childState.copyMemRegion(fromVar, toVar));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public MemoryMetrics<C> copyAndPaste (MemVarSet vars, MemoryMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.copyAndPaste(vars, other.childState));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  /* == Forwarded operations == */
+
+  @SuppressWarnings("deprecation") @Override public List<P2<AbstractPointer, MemoryMetrics<C>>> deprecatedDeref (
+      int size, Rval ptr, VarSet summaries) throws Unreachable {
+    List<P2<AbstractPointer, C>> childResult = childState.deprecatedDeref(size, ptr, summaries);
+    List<P2<AbstractPointer, MemoryMetrics<C>>> result = new ArrayList<>(childResult.size());
+    for (P2<AbstractPointer, C> tuple : childResult) {
+      result.add(P2.tuple2(tuple._1(), build(tuple._2())));
+    }
+    return result;
+  }
+
+  @Override public List<P2<PathString, AddrVar>> findPossiblePointerTargets (MemVar id) throws Unreachable {
+    return childState.findPossiblePointerTargets(id);
+  }
+
+  @Override public P3<AVLSet<AddrVar>, MemoryMetrics<C>, Rlin> findPointerTargets (Lin ptr) throws Unreachable {
+    P3<AVLSet<AddrVar>, C, Rlin> result = childState.findPointerTargets(ptr);
+    return P3.tuple3(result._1(), build(result._2()), result._3());
+  }
+
+  @Override public MemoryMetrics<C> assignSymbolicAddressOf (Lhs var, NumVar symbolicAddress) {
+    return build(childState.assignSymbolicAddressOf(var, symbolicAddress));
+  }
+
+  @Override public MemoryMetrics<C> assumePointsToAndConcretize (Lin pointerValue, AddrVar target, MemVar region) {
+    return build(childState.assumePointsToAndConcretize(pointerValue, target, region));
+  }
+
+  @Override public Option<NumVar> pickSpecificField (MemVar region, FiniteRange access) {
+    return childState.pickSpecificField(region, access);
+  }
+
+  @Override public MemVarSet getSupportSet () {
+    return childState.getSupportSet();
+  }
+
+  @Override public MemoryMetrics<C> assumeEdgeNG (Lin fieldThatPoints, AddrVar address) {
+    return build(childState.assumeEdgeNG(fieldThatPoints, address));
+  }
+
+  @Override public MemoryMetrics<C> expandNG (List<MemVarPair> mvps) {
+    return build(childState.expandNG(mvps));
+  }
+
+  @Override public MemoryMetrics<C> expandNG (AddrVar address, AddrVar address2, List<MemVarPair> mvps) {
+    return build(childState.expandNG(address, address2, mvps));
+  }
+
+  @Override public MemoryMetrics<C> foldNG (List<MemVarPair> mvps) {
+    return build(childState.foldNG(mvps));
+  }
+
+  @Override public MemoryMetrics<C> foldNG (AddrVar address, AddrVar address2, List<MemVarPair> mvps) {
+    return build(childState.foldNG(address, address2, mvps));
+  }
+
+  @Override public MemoryMetrics<C> bendGhostEdgesNG (AddrVar summary, AddrVar concrete, MemVarSet sContents,
+      MemVarSet cContents, MemVarSet pointingToSummary, MemVarSet pointingToConcrete) {
+    return build(childState.bendGhostEdgesNG(summary, concrete, sContents, cContents, pointingToSummary,
+        pointingToConcrete));
+  }
+
+  @Override public MemoryMetrics<C> bendBackGhostEdgesNG (AddrVar summary, AddrVar concrete, MemVarSet sContents,
+      MemVarSet cContents, MemVarSet pointingToSummary, MemVarSet pointingToConcrete) {
+    return build(childState.bendBackGhostEdgesNG(summary, concrete, sContents, cContents, pointingToSummary,
+        pointingToConcrete));
+  }
+
+  @Override public MemoryMetrics<C> concretizeAndDisconnectNG (AddrVar summary, AVLSet<MemVar> concreteNodes) {
+    return build(childState.concretizeAndDisconnectNG(summary, concreteNodes));
+  }
+
+  @Override public Range queryPtsEdge (MemVar from, BigInt prefix, int size, AddrVar to) {
+    return childState.queryPtsEdge(from, prefix, size, to);
+  }
+
+  @Override public MemoryMetrics<C> assumeRegionsAreEqual (MemVar first, MemVar second) {
+    return build(childState.assumeRegionsAreEqual(first, second));
+  }
+
+  @Override public AnalysisCtx getContext () {
+    return childState.getContext();
+  }
+
+  @Override public MemoryMetrics<C> setContext (AnalysisCtx ctx) {
+    return build(childState.setContext(ctx));
+  }
+
+  @Override public List<MemoryMetrics<C>> enumerateAlternatives () {
+    List<MemoryMetrics<C>> alternatives = new ArrayList<>();
+    for (C alternative : childState.enumerateAlternatives()) {
+      alternatives.add(build(alternative));
+    }
+    return alternatives;
+  }
+
+  @Override public Range queryRange (Rval value) {
+    return childState.queryRange(value);
+  }
+
+  @Override public Range queryRange (Lin value) {
+    return childState.queryRange(value);
+  }
+
+  @Override public Range queryRange (MemVar region, FiniteRange bits) {
+    return childState.queryRange(region, bits);
+  }
+
+  @Override public Option<NumVar> resolveVariable (MemVar region, FiniteRange bits) {
+    return childState.resolveVariable(region, bits);
+  }
+
+  @Override public Range queryRange (Linear expr) {
+    return childState.queryRange(expr);
+  }
+
+  @Override public Range queryRange (NumVar variable) {
+    return childState.queryRange(variable);
+  }
+
+  @Override public SetOfEquations queryEqualities (NumVar variable) {
+    return childState.queryEqualities(variable);
+  }
+
+  @Override public SynthChannel getSynthChannel () {
+    return childState.getSynthChannel();
+  }
+
+  @Override public DebugChannel getDebugChannel () {
+    return childState.getDebugChannel();
+  }
+
+  @Override public XMLBuilder toXML (XMLBuilder builder) {
+    return childState.toXML(builder);
+  }
+
+  @Override public void toString (DomainStringBuilder builder) {
+    childState.toString(builder);
+  }
+
+  @Override public void varToCompactString (StringBuilder builder, NumVar var) {
+    childState.varToCompactString(builder, var);
+  }
+
+  @Override public void memVarToCompactString (StringBuilder builder, MemVar var) {
+    childState.memVarToCompactString(builder, var);
+  }
+
+  @Override public void toCompactString (StringBuilder builder) {
+    childState.toCompactString(builder);
+  }
+
+  @Override public String toString () {
+    return childState.toString();
+  }
+}
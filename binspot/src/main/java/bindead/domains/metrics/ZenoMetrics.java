@@ -0,0 +1,224 @@
+package bindead.domains.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javalx.data.Option;
+import javalx.numeric.BigInt;
+import javalx.numeric.Range;
+import rreil.lang.MemVar;
+import rreil.lang.util.Type;
+import bindead.abstractsyntax.zeno.Zeno;
+import bindead.data.FoldMap;
+import bindead.data.Linear;
+import bindead.data.NumVar;
+import bindead.data.VarSet;
+import bindead.debug.DomainStringBuilder;
+import bindead.domainnetwork.channels.DebugChannel;
+import bindead.domainnetwork.channels.SetOfEquations;
+import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
+import bindead.domainnetwork.interfaces.ZenoDomain;
+import bindead.domains.metrics.DomainMetrics.Layer;
+import bindead.domains.metrics.DomainMetrics.Operation;
+import bindead.exceptions.Unreachable;
+
+import com.jamesmurty.utils.XMLBuilder;
+
+/**
+ * A decorator for zeno domains that measures the operations of the wrapped domain.
+ *
+ * @param <C> The type of the wrapped domain.
+ */
+public class ZenoMetrics<C extends ZenoDomain<C>> implements ZenoDomain<ZenoMetrics<C>> {
+  private final Layer layer;
+  private final C childState;
+
+  public ZenoMetrics (Layer layer, C childState) {
+    this.layer = layer;
+    this.childState = childState;
+  }
+
+  private ZenoMetrics<C> build (C newChildState) {
+    if (newChildState == childState)
+      return this;
+    return new ZenoMetrics<C>(layer, newChildState);
+  }
+
+  /* == Measured operations == */
+
+  @Override public ZenoMetrics<C> eval (Zeno.Assign stmt) {
+    layer.begin();
+    try {
+      return build(childState.eval(stmt));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public ZenoMetrics<C> eval (Zeno.Test test) throws Unreachable {
+    layer.begin();
+    try {
+      return build(childState.eval(test));
+    } finally {
+      layer.end(Operation.Eval);
+    }
+  }
+
+  @Override public boolean subsetOrEqual (ZenoMetrics<C> other) {
+    layer.begin();
+    try {
+      return childState.subsetOrEqual(other.childState);
+    } finally {
+      layer.end(Operation.SubsetOrEqual);
+    }
+  }
+
+  @Override public ZenoMetrics<C> join (ZenoMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.join(other.childState));
+    } finally {
+      layer.end(Operation.Join);
+    }
+  }
+
+  @Override public ZenoMetrics<C> widen (ZenoMetrics<C> other) {
+    layer.begin();
+    try {
+      return build(childState.widen(other.childState));
+    } finally {
+      layer.end(Operation.Widen);
+    }
+  }
+
+  @Override public ZenoMetrics<C> addToState (ZenoMetrics<C> newState, boolean isWideningPoint) {
+    layer.begin();
+    try {
+      C result = childState.addToState(newState.childState, isWideningPoint);
+      return result == null ? null : build(result);
+    } finally {
+      layer.end(Operation.AddToState);
+    }
+  }
+
+  @Override public ZenoMetrics<C> introduce (NumVar variable, Type type, Option<BigInt> value) {
+    layer.begin();
+    try {
+      return build(childState.introduce(variable, type, value));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public ZenoMetrics<C> project (VarSet vars) {
+    layer.begin();
+    try {
+      return build(childState.project(vars));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public ZenoMetrics<C> substitute (NumVar x, NumVar y) {
+    layer.begin();
+    try {
+      return build(childState.substitute(x, y));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public ZenoMetrics<C> expand (FoldMap pairs) {
+    layer.begin();
+    try {
+      return build(childState.expand(pairs));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public ZenoMetrics<C> fold (FoldMap pairs) {
+    layer.begin();
+    try {
+      return build(childState.fold(pairs));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  @Override public ZenoMetrics<C> copyAndPaste (VarSet vars, ZenoMetrics<C> from) {
+    layer.begin();
+    try {
+      return build(childState.copyAndPaste(vars, from.childState));
+    } finally {
+      layer.end(Operation.Support);
+    }
+  }
+
+  /* == Forwarded operations == */
+
+  @Override public ZenoMetrics<C> assumeConcrete (NumVar var) {
+    return build(childState.assumeConcrete(var));
+  }
+
+  @Override public AnalysisCtx getContext () {
+    return childState.getContext();
+  }
+
+  @Override public ZenoMetrics<C> setContext (AnalysisCtx ctx) {
+    return build(childState.setContext(ctx));
+  }
+
+  @Override public List<ZenoMetrics<C>> enumerateAlternatives () {
+    List<ZenoMetrics<C>> alternatives = new ArrayList<>();
+    for (C alternative : childState.enumerateAlternatives()) {
+      alternatives.add(build(alternative));
+    }
+    return alternatives;
+  }
+
+  @Override public Range queryRange (Linear expr) {
+    return childState.queryRange(expr);
+  }
+
+  @Override public Range queryRange (NumVar variable) {
+    return childState.queryRange(variable);
+  }
+
+  @Override public SetOfEquations queryEqualities (NumVar variable) {
+    return childState.queryEqualities(variable);
+  }
+
+  @Override public SynthChannel getSynthChannel () {
+    return childState.getSynthChannel();
+  }
+
+  @Override public DebugChannel getDebugChannel () {
+    return childState.getDebugChannel();
+  }
+
+  @Override public XMLBuilder toXML (XMLBuilder builder) {
+    return childState.toXML(builder);
+  }
+
+  @Override public void toString (DomainStringBuilder builder) {
+    childState.toString(builder);
+  }
+
+  @Override public void varToCompactString (StringBuilder builder, NumVar var) {
+    childState.varToCompactString(builder, var);
+  }
+
+  @Override public void memVarToCompactString (StringBuilder builder, MemVar var) {
+    childState.memVarToCompactString(builder, var);
+  }
+
+  @Override public void toCompactString (StringBuilder builder) {
+    childState.toCompactString(builder);
+  }
+
+  @Override public String toString () {
+    return childState.toString();
+  }
+}
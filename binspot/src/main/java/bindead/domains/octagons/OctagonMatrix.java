@@ -0,0 +1,530 @@
+package bindead.domains.octagons;
+
+import java.util.Arrays;
+
+import javalx.numeric.BigInt;
+import javalx.numeric.Bound;
+import javalx.numeric.Interval;
+
+/**
+ * A difference bound matrix for the octagon constraints {@code ±x ±y <= c} over integers. Each variable {@code v} is
+ * represented by the two indices {@code 2v} for {@code +v} and {@code 2v+1} for {@code -v} and the entry {@code m[i][j]}
+ * is an upper bound of {@code V_j - V_i}. The matrix is coherent, i.e. {@code m[i][j] = m[j^1][i^1]}, thus only the
+ * lower half is stored in a packed array of primitive longs.<br>
+ *
+ * The bounds are kept in the range {@code [-LIMIT, LIMIT]}. Bounds that would overflow that range are approximated by
+ * {@code INFINITY} or {@code -LIMIT}, i.e. the constraint is weakened but the matrix stays sound.<br>
+ *
+ * The matrices are mutated only while building them, thus all the operations return new matrices.
+ */
+final class OctagonMatrix {
+  static final long INFINITY = Long.MAX_VALUE;
+  /**
+   * The largest finite bound. The sum of two bounds in range does not overflow a long.
+   */
+  static final long LIMIT = Long.MAX_VALUE / 4;
+  private final int dimension;
+  private final long[] m;
+  private boolean closed;
+
+  private OctagonMatrix (int dimension, long[] m, boolean closed) {
+    this.dimension = dimension;
+    this.m = m;
+    this.closed = closed;
+  }
+
+  /**
+   * @return A matrix for the given number of variables without any constraints.
+   */
+  static OctagonMatrix top (int dimension) {
+    long[] m = new long[size(dimension)];
+    Arrays.fill(m, INFINITY);
+    OctagonMatrix top = new OctagonMatrix(dimension, m, true);
+    for (int i = 0; i < 2 * dimension; i++) {
+      top.set(i, i, 0);
+    }
+    return top;
+  }
+
+  private static int size (int dimension) {
+    return 2 * dimension * (dimension + 1);
+  }
+
+  private static int index (int i, int j) {
+    if (j > (i | 1))
+      return index(j ^ 1, i ^ 1);
+    return j + (i + 1) * (i + 1) / 2;
+  }
+
+  /**
+   * @return The number of variables.
+   */
+  int dimension () {
+    return dimension;
+  }
+
+  /**
+   * @return {@code true} if the matrix is strongly closed, i.e. each bound is the tightest one that follows from all
+   *         the constraints.
+   */
+  boolean isClosed () {
+    return closed;
+  }
+
+  /**
+   * @return The upper bound of {@code V_j - V_i}.
+   */
+  long get (int i, int j) {
+    return m[index(i, j)];
+  }
+
+  private void set (int i, int j, long value) {
+    m[index(i, j)] = value;
+  }
+
+  private void setMin (int i, int j, long value) {
+    int index = index(i, j);
+    if (value < m[index])
+      m[index] = value;
+  }
+
+  private OctagonMatrix copy () {
+    return new OctagonMatrix(dimension, m.clone(), closed);
+  }
+
+  /**
+   * Saturating addition of bounds.
+   */
+  static long add (long a, long b) {
+    if (a == INFINITY || b == INFINITY)
+      return INFINITY;
+    return clamp(a + b);
+  }
+
+  private static long clamp (long value) {
+    if (value > LIMIT)
+      return INFINITY;
+    if (value < -LIMIT)
+      return -LIMIT;
+    return value;
+  }
+
+  /**
+   * @return The given value as a bound or {@code INFINITY} if it is out of range.
+   */
+  static long bound (BigInt value) {
+    if (value.getValue().bitLength() >= 62)
+      return value.isNegative() ? -LIMIT : INFINITY;
+    return clamp(value.longValue());
+  }
+
+  /**
+   * @return The given value as a bound or {@code INFINITY} if it is not finite or out of range.
+   */
+  static long bound (Bound value) {
+    if (!value.isFinite())
+      return INFINITY;
+    return bound(value.asInteger());
+  }
+
+  private static Bound toBound (long value, boolean negate) {
+    if (value == INFINITY)
+      return negate ? Bound.NEGINF : Bound.POSINF;
+    return BigInt.of(negate ? -value : value);
+  }
+
+  /**
+   * @return The interval of the values of the variable.
+   */
+  Interval interval (int v) {
+    long upper = get(2 * v + 1, 2 * v);
+    long lower = get(2 * v, 2 * v + 1);
+    return Interval.of(toBound(halve(lower), true), toBound(halve(upper), false));
+  }
+
+  /**
+   * @return The upper bound of {@code V_j - V_i} as a bound.
+   */
+  Bound upperBound (int i, int j) {
+    long value = get(i, j);
+    if (i == (j ^ 1))
+      value = halve(value);
+    return toBound(value, false);
+  }
+
+  private static long halve (long value) {
+    if (value == INFINITY)
+      return INFINITY;
+    return value >> 1;
+  }
+
+  /**
+   * Build a matrix for new variables from the variables of this matrix.
+   *
+   * @param sources For each new variable the index of the variable in this matrix whose constraints it receives or
+   *          {@code -1} for a variable without constraints.
+   * @return The new matrix.
+   */
+  OctagonMatrix select (int[] sources) {
+    OctagonMatrix result = top(sources.length);
+    for (int i = 0; i < 2 * sources.length; i++) {
+      int sourceI = sources[i / 2];
+      if (sourceI < 0)
+        continue;
+      for (int j = 0; j <= (i | 1); j++) {
+        int sourceJ = sources[j / 2];
+        if (sourceJ < 0)
+          continue;
+        result.set(i, j, get(2 * sourceI + (i & 1), 2 * sourceJ + (j & 1)));
+      }
+    }
+    result.closed = closed;
+    return result;
+  }
+
+  /**
+   * Combine two matrices into one over the variables of both. There are no relations between the variables of the
+   * two matrices besides the ones implied by their intervals, thus the result is closed again.
+   *
+   * @param first The matrix of the first variables.
+   * @param second The matrix of the second variables.
+   * @param sources For each variable of the result the index of its variable in the first matrix or
+   *          {@code -1 - index} of its variable in the second matrix.
+   */
+  static OctagonMatrix combine (OctagonMatrix first, OctagonMatrix second, int[] sources) {
+    OctagonMatrix result = top(sources.length);
+    for (int i = 0; i < 2 * sources.length; i++) {
+      int sourceI = sources[i / 2];
+      for (int j = 0; j <= (i | 1); j++) {
+        int sourceJ = sources[j / 2];
+        if (sourceI >= 0 && sourceJ >= 0)
+          result.set(i, j, first.get(2 * sourceI + (i & 1), 2 * sourceJ + (j & 1)));
+        else if (sourceI < 0 && sourceJ < 0)
+          result.set(i, j, second.get(2 * (-1 - sourceI) + (i & 1), 2 * (-1 - sourceJ) + (j & 1)));
+      }
+    }
+    result.closed = false;
+    if (first.closed && second.closed)
+      result.strengthen();
+    else
+      result.close();
+    return result;
+  }
+
+  /**
+   * Remove the constraints between each variable of the first and each variable of the second set and close the
+   * result, i.e. keep only the relations that follow from the other constraints.
+   */
+  OctagonMatrix forgetRelations (int[] first, int[] second) {
+    OctagonMatrix result = copy();
+    for (int v : first) {
+      for (int w : second) {
+        if (v == w)
+          continue;
+        for (int i = 2 * v; i < 2 * v + 2; i++) {
+          for (int j = 2 * w; j < 2 * w + 2; j++) {
+            result.set(i, j, INFINITY);
+            result.set(j, i, INFINITY);
+          }
+        }
+      }
+    }
+    result.close();
+    return result;
+  }
+
+  /**
+   * Remove all constraints on the variable. A closed matrix stays closed.
+   */
+  OctagonMatrix forget (int v) {
+    OctagonMatrix result = copy();
+    result.forgetInPlace(v);
+    return result;
+  }
+
+  private void forgetInPlace (int v) {
+    for (int i = 0; i < 2 * dimension; i++) {
+      for (int j = 2 * v; j < 2 * v + 2; j++) {
+        if (i != j)
+          set(i, j, INFINITY);
+      }
+    }
+  }
+
+  /**
+   * Assign an interval to the variable.
+   *
+   * @param upper The upper bound of the variable.
+   * @param minusLower The upper bound of the negated variable, i.e. the negated lower bound.
+   * @return The new matrix or {@code null} if the interval is empty.
+   */
+  OctagonMatrix assign (int v, long upper, long minusLower) {
+    OctagonMatrix result = copy();
+    result.forgetInPlace(v);
+    if (!result.addUnary(v, upper, minusLower))
+      return null;
+    return result;
+  }
+
+  /**
+   * Assign {@code sign * w + c} to the variable {@code v} with {@code v != w}.
+   */
+  OctagonMatrix assign (int v, boolean negated, int w, long c) {
+    assert v != w;
+    OctagonMatrix result = copy();
+    result.forgetInPlace(v);
+    int wIndex = negated ? 2 * w + 1 : 2 * w;
+    // v - (±w) <= c and (±w) - v <= -c
+    boolean consistent = result.addConstraintInPlace(wIndex, 2 * v, c);
+    consistent = consistent && result.addConstraintInPlace(2 * v, wIndex, add(0, -c));
+    assert consistent : "assignments cannot make a consistent matrix inconsistent";
+    return result;
+  }
+
+  /**
+   * Assign {@code sign * v + c} to the variable {@code v}. The relations of the variable are translated, thus a closed
+   * matrix stays closed.
+   */
+  OctagonMatrix translate (int v, boolean negated, long c) {
+    OctagonMatrix result = top(dimension);
+    int positive = 2 * v;
+    int negative = 2 * v + 1;
+    for (int i = 0; i < 2 * dimension; i++) {
+      for (int j = 0; j <= (i | 1); j++) {
+        int sourceI = i;
+        int sourceJ = j;
+        if (negated) {
+          if (i / 2 == v)
+            sourceI = i ^ 1;
+          if (j / 2 == v)
+            sourceJ = j ^ 1;
+        }
+        // V'_j - V'_i = V_j - V_i + delta_j - delta_i with delta = c for +v and -c for -v
+        long delta = 0;
+        if (j == positive)
+          delta = c;
+        else if (j == negative)
+          delta = -c;
+        if (i == positive)
+          delta -= c;
+        else if (i == negative)
+          delta += c;
+        result.set(i, j, add(get(sourceI, sourceJ), delta));
+      }
+    }
+    result.closed = closed;
+    return result;
+  }
+
+  /**
+   * Add the constraint {@code V_j - V_i <= c}.
+   *
+   * @return The new matrix or {@code null} if the constraint is not satisfiable.
+   */
+  OctagonMatrix addConstraint (int i, int j, long c) {
+    if (c >= get(i, j))
+      return this;
+    OctagonMatrix result = copy();
+    if (!result.addConstraintInPlace(i, j, c))
+      return null;
+    return result;
+  }
+
+  /**
+   * Add the constraints {@code v <= upper} and {@code -v <= minusLower}.
+   *
+   * @return The new matrix or {@code null} if the constraints are not satisfiable.
+   */
+  OctagonMatrix addUnaryConstraint (int v, long upper, long minusLower) {
+    OctagonMatrix result = copy();
+    if (!result.addUnary(v, upper, minusLower))
+      return null;
+    return result;
+  }
+
+  private boolean addUnary (int v, long upper, long minusLower) {
+    // 2v <= 2 * upper and -2v <= 2 * -lower
+    return addConstraintInPlace(2 * v + 1, 2 * v, add(upper, upper))
+      && addConstraintInPlace(2 * v, 2 * v + 1, add(minusLower, minusLower));
+  }
+
+  /**
+   * Incremental closure after adding a single constraint to a closed matrix. All the bounds are updated with the paths
+   * through the new constraint, its coherent counterpart or both, which needs only quadratic time.
+   */
+  private boolean addConstraintInPlace (int i, int j, long c) {
+    if (i == (j ^ 1) && c != INFINITY)
+      c = c >> 1 << 1; // the unary bounds 2v <= c are tight for integers
+    if (c >= get(i, j))
+      return true;
+    if (!closed) {
+      set(i, j, c);
+      return close();
+    }
+    set(i, j, c);
+    // the paths i -> j -> j^1 -> i^1 and j^1 -> i^1 -> i -> j that use both edges
+    long viaBoth = add(add(c, get(j, j ^ 1)), c);
+    long viaBothCoherent = add(add(c, get(i ^ 1, i)), c);
+    int n = 2 * dimension;
+    long[] toI = new long[n];
+    long[] toNotJ = new long[n];
+    long[] fromJ = new long[n];
+    long[] fromNotI = new long[n];
+    for (int p = 0; p < n; p++) {
+      toI[p] = get(p, i);
+      toNotJ[p] = get(p, j ^ 1);
+      fromJ[p] = get(j, p);
+      fromNotI[p] = get(i ^ 1, p);
+    }
+    for (int p = 0; p < n; p++) {
+      if (toI[p] == INFINITY && toNotJ[p] == INFINITY)
+        continue;
+      for (int q = 0; q <= (p | 1); q++) {
+        long bound = Math.min(add(add(toI[p], c), fromJ[q]), add(add(toNotJ[p], c), fromNotI[q]));
+        bound = Math.min(bound, add(add(toI[p], viaBoth), fromNotI[q]));
+        bound = Math.min(bound, add(add(toNotJ[p], viaBothCoherent), fromJ[q]));
+        setMin(p, q, bound);
+      }
+    }
+    return tightenAndStrengthen();
+  }
+
+  /**
+   * Compute the tight strong closure, i.e. the shortest paths followed by the tightening of the unary bounds for
+   * integers and the strengthening with the sums of unary bounds.
+   *
+   * @return {@code false} if the constraints are not satisfiable.
+   */
+  private boolean close () {
+    int n = 2 * dimension;
+    for (int k = 0; k < n; k++) {
+      for (int i = 0; i < n; i++) {
+        long toK = get(i, k);
+        if (toK == INFINITY)
+          continue;
+        for (int j = 0; j <= (i | 1); j++) {
+          setMin(i, j, add(toK, get(k, j)));
+        }
+      }
+    }
+    return tightenAndStrengthen();
+  }
+
+  private boolean tightenAndStrengthen () {
+    int n = 2 * dimension;
+    for (int i = 0; i < n; i++) {
+      if (get(i, i) < 0)
+        return false;
+      long unary = get(i, i ^ 1);
+      if (unary != INFINITY)
+        set(i, i ^ 1, unary >> 1 << 1);
+    }
+    for (int i = 0; i < n; i += 2) {
+      if (add(get(i, i + 1), get(i + 1, i)) < 0)
+        return false;
+    }
+    strengthen();
+    return true;
+  }
+
+  private void strengthen () {
+    int n = 2 * dimension;
+    for (int i = 0; i < n; i++) {
+      long fromI = get(i, i ^ 1);
+      if (fromI == INFINITY)
+        continue;
+      for (int j = 0; j <= (i | 1); j++) {
+        long toJ = get(j ^ 1, j);
+        if (toJ != INFINITY)
+          setMin(i, j, (fromI + toJ) >> 1);
+      }
+    }
+    closed = true;
+  }
+
+  /**
+   * @return A closed version of this matrix.
+   */
+  OctagonMatrix closure () {
+    if (closed)
+      return this;
+    OctagonMatrix result = copy();
+    boolean consistent = result.close();
+    assert consistent : "the matrices in a state are consistent";
+    return result;
+  }
+
+  /**
+   * The least upper bound of two matrices over the same variables. The join of closed matrices is closed.
+   */
+  OctagonMatrix join (OctagonMatrix other) {
+    assert dimension == other.dimension;
+    OctagonMatrix first = closure();
+    OctagonMatrix second = other.closure();
+    long[] joined = new long[m.length];
+    for (int i = 0; i < joined.length; i++) {
+      joined[i] = Math.max(first.m[i], second.m[i]);
+    }
+    return new OctagonMatrix(dimension, joined, true);
+  }
+
+  /**
+   * The standard widening that removes all the bounds that are not stable. The result is not closed as closing it
+   * would break the termination of the widening.
+   *
+   * @param other The matrix that is a superset of this matrix.
+   * @param joinOnly For each variable if its bounds should be joined instead of widened if both are inside the given
+   *          range.
+   * @param joinRange The range in which the bounds of the variables above are joined.
+   */
+  OctagonMatrix widen (OctagonMatrix other, boolean[] joinOnly, Interval joinRange) {
+    assert dimension == other.dimension;
+    OctagonMatrix widened = new OctagonMatrix(dimension, new long[m.length], false);
+    for (int i = 0; i < m.length; i++) {
+      widened.m[i] = other.m[i] <= m[i] ? m[i] : INFINITY;
+    }
+    long upperLimit = bound(joinRange.high());
+    long lowerLimit = bound(joinRange.low().negate());
+    long twiceUpper = add(upperLimit, upperLimit);
+    long twiceLower = add(lowerLimit, lowerLimit);
+    for (int v = 0; v < dimension; v++) {
+      if (!joinOnly[v])
+        continue;
+      long upper = Math.max(get(2 * v + 1, 2 * v), other.get(2 * v + 1, 2 * v));
+      long lower = Math.max(get(2 * v, 2 * v + 1), other.get(2 * v, 2 * v + 1));
+      if (upper <= twiceUpper && lower <= twiceLower) {
+        widened.set(2 * v + 1, 2 * v, upper);
+        widened.set(2 * v, 2 * v + 1, lower);
+      }
+    }
+    return widened;
+  }
+
+  /**
+   * @return {@code true} if all the values of this matrix are values of the other matrix.
+   */
+  boolean subsetOrEqual (OctagonMatrix other) {
+    assert dimension == other.dimension;
+    if (this == other)
+      return true;
+    long[] first = closure().m;
+    for (int i = 0; i < first.length; i++) {
+      if (first[i] > other.m[i])
+        return false;
+    }
+    return true;
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof OctagonMatrix))
+      return false;
+    OctagonMatrix other = (OctagonMatrix) obj;
+    return dimension == other.dimension && Arrays.equals(m, other.m);
+  }
+
+  @Override public int hashCode () {
+    return Arrays.hashCode(m);
+  }
+}
@@ -0,0 +1,210 @@
+package bindead.domains.octagons;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javalx.numeric.Interval;
+import bindead.data.NumVar;
+import bindead.data.VarPair;
+import bindead.data.VarSet;
+
+/**
+ * A set of variables that are related by an octagon. The variables are sorted by their stamps, thus two packs over the
+ * same variables use the same indices in their matrices and can be compared entry-wise.
+ */
+final class OctagonPack {
+  private final NumVar[] vars;
+  private final OctagonMatrix matrix;
+
+  private OctagonPack (NumVar[] vars, OctagonMatrix matrix) {
+    assert vars.length == matrix.dimension();
+    this.vars = vars;
+    this.matrix = matrix;
+  }
+
+  /**
+   * @return A pack for a single variable with the given values.
+   */
+  static OctagonPack singleton (NumVar var, Interval value) {
+    OctagonMatrix matrix = OctagonMatrix.top(1).assign(0, upper(value), minusLower(value));
+    return new OctagonPack(new NumVar[] {var}, matrix);
+  }
+
+  static long upper (Interval value) {
+    return OctagonMatrix.bound(value.high());
+  }
+
+  static long minusLower (Interval value) {
+    return OctagonMatrix.bound(value.low().negate());
+  }
+
+  int size () {
+    return vars.length;
+  }
+
+  NumVar[] getVars () {
+    return vars;
+  }
+
+  OctagonMatrix getMatrix () {
+    return matrix;
+  }
+
+  /**
+   * @return The index of the variable in the matrix or a negative value if the variable is not in this pack.
+   */
+  int indexOf (NumVar var) {
+    int low = 0;
+    int high = vars.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = vars[middle].compareTo(var);
+      if (comparison < 0)
+        low = middle + 1;
+      else if (comparison > 0)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -(low + 1);
+  }
+
+  Interval interval (NumVar var) {
+    return matrix.interval(indexOf(var));
+  }
+
+  /**
+   * @return A pack over the same variables with the given matrix or {@code null} if the matrix is {@code null}, i.e.
+   *         the matrix was not satisfiable.
+   */
+  OctagonPack withMatrix (OctagonMatrix newMatrix) {
+    if (newMatrix == null)
+      return null;
+    if (newMatrix == matrix)
+      return this;
+    return new OctagonPack(vars, newMatrix);
+  }
+
+  /**
+   * @return A pack that additionally contains the given variable without any constraints.
+   */
+  OctagonPack add (NumVar var) {
+    assert indexOf(var) < 0;
+    int position = -(indexOf(var) + 1);
+    NumVar[] newVars = new NumVar[vars.length + 1];
+    int[] sources = new int[vars.length + 1];
+    for (int i = 0; i < newVars.length; i++) {
+      if (i < position) {
+        newVars[i] = vars[i];
+        sources[i] = i;
+      } else if (i == position) {
+        newVars[i] = var;
+        sources[i] = -1;
+      } else {
+        newVars[i] = vars[i - 1];
+        sources[i] = i - 1;
+      }
+    }
+    return new OctagonPack(newVars, matrix.select(sources));
+  }
+
+  /**
+   * @return A pack with only the variables that are in the given set or {@code null} if no variable remains.
+   */
+  OctagonPack restrict (VarSet keep) {
+    int remaining = 0;
+    for (NumVar var : vars) {
+      if (keep.contains(var))
+        remaining++;
+    }
+    if (remaining == vars.length)
+      return this;
+    if (remaining == 0)
+      return null;
+    NumVar[] newVars = new NumVar[remaining];
+    int[] sources = new int[remaining];
+    int next = 0;
+    for (int i = 0; i < vars.length; i++) {
+      if (keep.contains(vars[i])) {
+        newVars[next] = vars[i];
+        sources[next] = i;
+        next++;
+      }
+    }
+    return new OctagonPack(newVars, matrix.select(sources));
+  }
+
+  /**
+   * @return A pack without the given variables or {@code null} if no variable remains.
+   */
+  OctagonPack remove (VarSet vars) {
+    return restrict(VarSet.of(this.vars).difference(vars));
+  }
+
+  /**
+   * @return A pack where the variable {@code x} is replaced by the variable {@code y}.
+   */
+  OctagonPack rename (NumVar x, NumVar y) {
+    int index = indexOf(x);
+    assert index >= 0 && indexOf(y) < 0;
+    NumVar[] newVars = vars.clone();
+    newVars[index] = y;
+    Arrays.sort(newVars);
+    int[] sources = new int[vars.length];
+    for (int i = 0; i < newVars.length; i++) {
+      sources[i] = newVars[i] == y ? index : indexOf(newVars[i]);
+    }
+    return new OctagonPack(newVars, matrix.select(sources));
+  }
+
+  /**
+   * @return A pack over the variables of both packs. The variables are only related by their intervals.
+   */
+  static OctagonPack merge (OctagonPack first, OctagonPack second) {
+    NumVar[] newVars = new NumVar[first.vars.length + second.vars.length];
+    int[] sources = new int[newVars.length];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < newVars.length; k++) {
+      if (j == second.vars.length || i < first.vars.length && first.vars[i].compareTo(second.vars[j]) < 0) {
+        newVars[k] = first.vars[i];
+        sources[k] = i++;
+      } else {
+        newVars[k] = second.vars[j];
+        sources[k] = -1 - j++;
+      }
+    }
+    return new OctagonPack(newVars, OctagonMatrix.combine(first.matrix, second.matrix, sources));
+  }
+
+  /**
+   * Add a copy of each permanent variable as the ephemeral variable of the pair. The copies have the same relations
+   * to the other variables and among themselves as the permanent variables but are not related to them.
+   */
+  OctagonPack expand (List<VarPair> pairs) {
+    NumVar[] newVars = Arrays.copyOf(vars, vars.length + pairs.size());
+    for (int i = 0; i < pairs.size(); i++) {
+      newVars[vars.length + i] = pairs.get(i).getEphemeral();
+    }
+    Arrays.sort(newVars);
+    int[] sources = new int[newVars.length];
+    for (int i = 0; i < newVars.length; i++) {
+      sources[i] = indexOf(newVars[i]);
+    }
+    int[] permanents = new int[pairs.size()];
+    int[] ephemerals = new int[pairs.size()];
+    for (int i = 0; i < pairs.size(); i++) {
+      VarPair pair = pairs.get(i);
+      int ephemeral = Arrays.binarySearch(newVars, pair.getEphemeral());
+      sources[ephemeral] = indexOf(pair.getPermanent());
+      ephemerals[i] = ephemeral;
+      permanents[i] = Arrays.binarySearch(newVars, pair.getPermanent());
+    }
+    OctagonMatrix expanded = matrix.select(sources).forgetRelations(ephemerals, permanents);
+    return new OctagonPack(newVars, expanded);
+  }
+
+  @Override public String toString () {
+    return Arrays.toString(vars);
+  }
+}
@@ -0,0 +1,760 @@
+package bindead.domains.octagons;
+
+import static bindead.data.Linear.linear;
+import static bindead.data.Linear.term;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javalx.data.Option;
+import javalx.data.products.P2;
+import javalx.numeric.BigInt;
+import javalx.numeric.Bound;
+import javalx.numeric.Interval;
+import javalx.numeric.Range;
+import javalx.persistentcollections.ThreeWaySplit;
+import rreil.lang.util.Type;
+import bindead.abstractsyntax.zeno.Zeno;
+import bindead.abstractsyntax.zeno.Zeno.Rhs;
+import bindead.abstractsyntax.zeno.Zeno.Rlin;
+import bindead.abstractsyntax.zeno.Zeno.Test;
+import bindead.abstractsyntax.zeno.ZenoRhsVisitorSkeleton;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.data.FoldMap;
+import bindead.data.Linear;
+import bindead.data.Linear.Term;
+import bindead.data.NumVar;
+import bindead.data.NumVarMap;
+import bindead.data.VarPair;
+import bindead.data.VarSet;
+import bindead.debug.DomainStringBuilder;
+import bindead.debug.StringHelpers;
+import bindead.domainnetwork.channels.SetOfEquations;
+import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
+import bindead.domainnetwork.interfaces.ZenoHeadDomain;
+import bindead.domains.intervals.SynthesizedPredicatesBuilder;
+import bindead.exceptions.DomainStateException.VariableSupportSetException;
+import bindead.exceptions.Unreachable;
+
+import com.jamesmurty.utils.XMLBuilder;
+
+/**
+ * An octagon domain that tracks the constraints {@code ±x ±y <= c} between variables. It is implemented in Java, thus
+ * in contrast to {@link bindead.domains.apron.ApronOctagons} it does not need the native Apron library.<br>
+ *
+ * The variables are partitioned into packs and only the variables of a pack are related. A pack is created for each
+ * introduced variable and packs are merged when an assignment or a test relates variables of different packs. The
+ * variable that is assigned a non-octagonal value leaves its pack. Packs are not merged beyond
+ * {@link #maxPackSize} variables, instead such relations are approximated by the intervals of the variables. Thus the
+ * cubic closure is only performed on small matrices.
+ */
+public class Octagons extends ZenoHeadDomain<Octagons> {
+  public static final String NAME = "OCTAGONS";
+  /**
+   * The maximal number of variables in a pack.
+   */
+  public static final int maxPackSize = 16;
+  private final boolean DEBUGTESTS = AnalysisProperties.INSTANCE.debugTests.isTrue();
+  private final NumVarMap<OctagonPack> packs;
+  private final SynthChannel channel;
+
+  public Octagons () {
+    this(NumVarMap.<OctagonPack>empty(), new SynthChannel(), AnalysisCtx.unknown());
+  }
+
+  private Octagons (NumVarMap<OctagonPack> packs, SynthChannel channel, AnalysisCtx ctx) {
+    super(NAME, ctx);
+    this.packs = packs;
+    this.channel = channel;
+  }
+
+  private Octagons build (NumVarMap<OctagonPack> packs, SynthChannel channel) {
+    return new Octagons(packs, channel, getContext());
+  }
+
+  private Octagons build (NumVarMap<OctagonPack> packs) {
+    return build(packs, new SynthChannel());
+  }
+
+  @Override public Octagons setContext (AnalysisCtx ctx) {
+    return new Octagons(packs, new SynthChannel(), ctx);
+  }
+
+  private static NumVarMap<OctagonPack> bind (NumVarMap<OctagonPack> packs, OctagonPack pack) {
+    NumVarMap<OctagonPack> result = packs;
+    for (NumVar var : pack.getVars()) {
+      result = result.bind(var, pack);
+    }
+    return result;
+  }
+
+  private OctagonPack packOf (NumVar var) {
+    OctagonPack pack = packs.getOrNull(var);
+    if (pack == null)
+      throw new VariableSupportSetException();
+    return pack;
+  }
+
+  private Interval interval (NumVar var) {
+    OctagonPack pack = packs.getOrNull(var);
+    if (pack == null)
+      return Interval.TOP;
+    return pack.interval(var);
+  }
+
+  /**
+   * Remove the variable from its pack and put it into a new pack with the given value.
+   */
+  private NumVarMap<OctagonPack> isolate (NumVar var, Interval value) {
+    NumVarMap<OctagonPack> result = packs;
+    OctagonPack pack = packs.getOrNull(var);
+    if (pack != null && pack.size() > 1)
+      result = bind(result, pack.remove(VarSet.of(var)));
+    return result.bind(var, OctagonPack.singleton(var, value));
+  }
+
+  @Override public Octagons eval (Zeno.Assign stmt) {
+    NumVar lhs = stmt.getLhs().getId();
+    NumVarMap<OctagonPack> newPacks = evalOctagonal(lhs, stmt.getRhs());
+    if (newPacks == null)
+      newPacks = isolate(lhs, evaluate(stmt.getRhs()));
+    SynthChannel synth = new SynthChannel();
+    Interval value = newPacks.getOrNull(lhs).interval(lhs);
+    if (value.isConstant())
+      synth.addEquation(linear(value.getConstant().negate(), term(lhs)).toEquality());
+    if (DEBUGTESTS && !synth.getEquations().isEmpty())
+      System.out.println("Synth: " + synth);
+    return build(newPacks, synth);
+  }
+
+  /**
+   * Assign an octagonal right-hand-side, i.e. {@code ±y + c}, to the variable.
+   *
+   * @return The new packs or {@code null} if the value is not octagonal.
+   */
+  private NumVarMap<OctagonPack> evalOctagonal (NumVar lhs, Rhs rhs) {
+    if (!(rhs instanceof Rlin) || !((Rlin) rhs).getDivisor().isOne())
+      return null;
+    Linear linear = ((Rlin) rhs).getLinearTerm();
+    long constant = OctagonMatrix.bound(linear.getConstant());
+    if (Math.abs(constant) >= OctagonMatrix.LIMIT)
+      return null;
+    if (linear.isConstantOnly())
+      return isolate(lhs, Interval.of(linear.getConstant()));
+    Iterator<Term> terms = linear.iterator();
+    Term term = terms.next();
+    if (terms.hasNext() || !term.getCoeff().abs().isOne())
+      return null;
+    boolean negated = term.getCoeff().isNegative();
+    NumVar rhsVar = term.getId();
+    OctagonPack rhsPack = packOf(rhsVar);
+    if (rhsVar.equalTo(lhs)) {
+      OctagonMatrix translated = rhsPack.getMatrix().translate(rhsPack.indexOf(lhs), negated, constant);
+      return bind(packs, rhsPack.withMatrix(translated));
+    }
+    OctagonPack lhsPack = packs.getOrNull(lhs);
+    int sizeWithoutLhs = rhsPack == lhsPack ? rhsPack.size() - 1 : rhsPack.size();
+    if (sizeWithoutLhs >= maxPackSize)
+      return null;
+    NumVarMap<OctagonPack> result = packs;
+    if (lhsPack != null && lhsPack != rhsPack) {
+      result = result.remove(lhs);
+      if (lhsPack.size() > 1)
+        result = bind(result, lhsPack.remove(VarSet.of(lhs)));
+    }
+    OctagonPack pack = lhsPack == rhsPack ? rhsPack : rhsPack.add(lhs);
+    OctagonMatrix assigned = pack.getMatrix().assign(pack.indexOf(lhs), negated, pack.indexOf(rhsVar), constant);
+    return bind(result, pack.withMatrix(assigned));
+  }
+
+  @Override public Octagons eval (Test test) throws Unreachable {
+    if (test.getOperator().equals(Zeno.ZenoTestOp.NotEqualToZero)) {
+      // octagons cannot express disequalities, thus split them into two inequalities and join the results
+      if (DEBUGTESTS)
+        System.out.println("Octagons splits test: " + test);
+      P2<Test, Test> tests = test.splitEquality();
+      Octagons firstState = null;
+      Octagons secondState = null;
+      try {
+        firstState = eval(tests._1());
+      } catch (Unreachable _) {
+      }
+      try {
+        secondState = eval(tests._2());
+      } catch (Unreachable _) {
+      }
+      Octagons result = joinNullables(firstState, secondState);
+      if (result == null)
+        throw new Unreachable();
+      return result;
+    }
+    if (DEBUGTESTS)
+      System.out.println("Numeric test: " + test);
+    Linear expr = test.getExpr();
+    NumVarMap<OctagonPack> newPacks = applyLessThanOrEqualToZero(packs, expr);
+    if (test.getOperator().equals(Zeno.ZenoTestOp.EqualToZero))
+      newPacks = applyLessThanOrEqualToZero(newPacks, expr.negate());
+    SynthChannel synth = new SynthChannel();
+    for (NumVar var : test.getVars()) {
+      Interval value = newPacks.getOrNull(var).interval(var);
+      if (value.isConstant())
+        synth.addEquation(linear(value.getConstant().negate(), term(var)).toEquality());
+    }
+    if (DEBUGTESTS && !synth.getEquations().isEmpty())
+      System.out.println("Synth: " + synth);
+    return build(newPacks, synth);
+  }
+
+  /**
+   * Add the constraint {@code expr <= 0}. Octagonal constraints are added to the matrices and all other constraints
+   * restrict the intervals of their variables.
+   */
+  private static NumVarMap<OctagonPack> applyLessThanOrEqualToZero (NumVarMap<OctagonPack> packs, Linear expr)
+      throws Unreachable {
+    if (expr.isConstantOnly()) {
+      if (expr.getConstant().isPositive())
+        throw new Unreachable();
+      return packs;
+    }
+    Octagons state = new Octagons(packs, null, AnalysisCtx.unknown());
+    Interval value = state.evaluate(expr);
+    if (value.low().isPositive())
+      throw new Unreachable();
+    if (!value.high().isPositive())
+      return packs; // the constraint holds already
+    long constant = OctagonMatrix.bound(expr.getConstant());
+    List<Term> terms = new ArrayList<Term>(2);
+    for (Term term : expr) {
+      terms.add(term);
+    }
+    boolean octagonal = terms.size() <= 2 && Math.abs(constant) < OctagonMatrix.LIMIT;
+    for (Term term : terms) {
+      octagonal = octagonal && term.getCoeff().abs().isOne();
+    }
+    if (octagonal && terms.size() == 2) {
+      NumVarMap<OctagonPack> result = applyOctagonal(packs, terms.get(0), terms.get(1), -constant);
+      if (result != null)
+        return result;
+    }
+    // restrict each variable by the values of the other variables
+    NumVarMap<OctagonPack> result = packs;
+    for (Term term : terms) {
+      NumVar var = term.getId();
+      BigInt coeff = term.getCoeff();
+      Bound restLow = new Octagons(result, null, AnalysisCtx.unknown()).evaluate(expr.dropTerm(var)).low();
+      if (!restLow.isFinite())
+        continue;
+      // coeff * var <= -rest thus sign(coeff) * var <= floor(-min(rest) / |coeff|)
+      long limit = OctagonMatrix.bound(restLow.asInteger().negate().divRoundDown(coeff.abs()));
+      if (limit == OctagonMatrix.INFINITY || limit == -OctagonMatrix.LIMIT)
+        continue;
+      OctagonPack pack = result.getOrNull(var);
+      int index = pack.indexOf(var);
+      OctagonMatrix matrix;
+      if (coeff.isPositive())
+        matrix = pack.getMatrix().addUnaryConstraint(index, limit, OctagonMatrix.INFINITY);
+      else
+        matrix = pack.getMatrix().addUnaryConstraint(index, OctagonMatrix.INFINITY, limit);
+      if (matrix == null)
+        throw new Unreachable();
+      result = bind(result, pack.withMatrix(matrix));
+    }
+    return result;
+  }
+
+  /**
+   * Add the constraint {@code first + second <= c} where both terms have a coefficient of {@code ±1}.
+   *
+   * @return The new packs or {@code null} if the variables cannot be put into the same pack.
+   */
+  private static NumVarMap<OctagonPack> applyOctagonal (NumVarMap<OctagonPack> packs, Term first, Term second, long c)
+      throws Unreachable {
+    NumVar x = first.getId();
+    NumVar y = second.getId();
+    OctagonPack xPack = packs.getOrNull(x);
+    OctagonPack yPack = packs.getOrNull(y);
+    if (xPack == null || yPack == null)
+      throw new VariableSupportSetException();
+    OctagonPack pack = xPack;
+    if (xPack != yPack) {
+      if (xPack.size() + yPack.size() > maxPackSize)
+        return null;
+      pack = OctagonPack.merge(xPack, yPack);
+    }
+    // the constraint is V_j - V_i <= c with V_j = ±x and V_i = ∓y
+    int xIndex = pack.indexOf(x);
+    int yIndex = pack.indexOf(y);
+    int j = first.getCoeff().isPositive() ? 2 * xIndex : 2 * xIndex + 1;
+    int i = second.getCoeff().isPositive() ? 2 * yIndex + 1 : 2 * yIndex;
+    OctagonMatrix matrix = pack.getMatrix().addConstraint(i, j, c);
+    if (matrix == null)
+      throw new Unreachable();
+    return bind(packs, pack.withMatrix(matrix));
+  }
+
+  private Interval evaluate (Rhs rhs) {
+    Interval value = rhs.accept(RhsEvaluator.instance, this);
+    if (value == null) // no integral solutions for a division
+      return Interval.TOP;
+    return value;
+  }
+
+  /**
+   * Calculate an interval for the linear expression. Expressions over two variables of the same pack are
+   * evaluated using the relation of the variables.
+   */
+  private Interval evaluate (Linear linear) {
+    Interval result = Interval.of(linear.getConstant());
+    Iterator<Term> terms = linear.iterator();
+    if (!terms.hasNext())
+      return result;
+    Term first = terms.next();
+    if (terms.hasNext()) {
+      Term second = terms.next();
+      if (!terms.hasNext()) {
+        Interval relational = evaluateOctagonal(first, second);
+        if (relational != null)
+          return relational.add(result);
+      }
+    }
+    for (Term term : linear) {
+      result = result.add(interval(term.getId()).mul(term.getCoeff()));
+    }
+    return result;
+  }
+
+  /**
+   * @return The values of the sum of the terms or {@code null} if they are not octagonal or not in the same pack.
+   */
+  private Interval evaluateOctagonal (Term first, Term second) {
+    if (!first.getCoeff().abs().isOne() || !second.getCoeff().abs().isOne())
+      return null;
+    OctagonPack pack = packs.getOrNull(first.getId());
+    if (pack == null || pack != packs.getOrNull(second.getId()))
+      return null;
+    OctagonMatrix matrix = pack.getMatrix().closure();
+    int xIndex = pack.indexOf(first.getId());
+    int yIndex = pack.indexOf(second.getId());
+    int j = first.getCoeff().isPositive() ? 2 * xIndex : 2 * xIndex + 1;
+    int i = second.getCoeff().isPositive() ? 2 * yIndex + 1 : 2 * yIndex;
+    // the sum is V_j - V_i and its negation is V_i - V_j
+    Bound upper = matrix.upperBound(i, j);
+    Bound lower = matrix.upperBound(j, i).negate();
+    return Interval.of(lower, upper);
+  }
+
+  /**
+   * The pairs of packs of this and the other state over the same variables for all the variables whose packs differ.
+   * The packs that relate variables of different packs in the other state are merged. If the resulting packs would be
+   * too large their variables are put into single packs with only their intervals instead.
+   */
+  private List<P2<OctagonPack, OctagonPack>> alignPacks (Octagons other) {
+    ThreeWaySplit<NumVarMap<OctagonPack>> split = packs.split(other.packs);
+    if (!split.onlyInFirst().isEmpty() || !split.onlyInSecond().isEmpty())
+      throw new VariableSupportSetException();
+    List<P2<OctagonPack, OctagonPack>> aligned = new ArrayList<P2<OctagonPack, OctagonPack>>();
+    VarSet visited = VarSet.empty();
+    for (NumVar start : split.inBothButDiffering().keys()) {
+      if (visited.contains(start))
+        continue;
+      // collect the variables that are transitively related in one of the states
+      Map<OctagonPack, Boolean> firstPacks = new IdentityHashMap<OctagonPack, Boolean>();
+      Map<OctagonPack, Boolean> secondPacks = new IdentityHashMap<OctagonPack, Boolean>();
+      List<NumVar> group = new ArrayList<NumVar>();
+      Deque<NumVar> pending = new ArrayDeque<NumVar>();
+      pending.push(start);
+      visited = visited.add(start);
+      while (!pending.isEmpty()) {
+        NumVar var = pending.pop();
+        group.add(var);
+        for (int side = 0; side < 2; side++) {
+          OctagonPack pack = side == 0 ? packs.getOrNull(var) : other.packs.getOrNull(var);
+          Map<OctagonPack, Boolean> seen = side == 0 ? firstPacks : secondPacks;
+          if (seen.put(pack, Boolean.TRUE) != null)
+            continue;
+          for (NumVar related : pack.getVars()) {
+            if (!visited.contains(related)) {
+              visited = visited.add(related);
+              pending.push(related);
+            }
+          }
+        }
+      }
+      if (group.size() > maxPackSize) {
+        for (NumVar var : group) {
+          aligned.add(P2.tuple2(OctagonPack.singleton(var, interval(var)),
+              OctagonPack.singleton(var, other.interval(var))));
+        }
+      } else {
+        aligned.add(P2.tuple2(mergeAll(firstPacks.keySet()), mergeAll(secondPacks.keySet())));
+      }
+    }
+    return aligned;
+  }
+
+  private static OctagonPack mergeAll (Set<OctagonPack> packs) {
+    OctagonPack result = null;
+    for (OctagonPack pack : packs) {
+      result = result == null ? pack : OctagonPack.merge(result, pack);
+    }
+    return result;
+  }
+
+  @Override public Octagons join (Octagons other) {
+    List<P2<OctagonPack, OctagonPack>> aligned = alignPacks(other);
+    NumVarMap<OctagonPack> result = packs;
+    for (P2<OctagonPack, OctagonPack> pair : aligned) {
+      OctagonPack first = pair._1();
+      OctagonPack second = pair._2();
+      if (first == second)
+        result = bind(result, first);
+      else
+        result = bind(result, first.withMatrix(first.getMatrix().join(second.getMatrix())));
+    }
+    return build(result, synthesize(aligned, result));
+  }
+
+  @Override public Octagons widen (Octagons other) {
+    List<P2<OctagonPack, OctagonPack>> aligned = alignPacks(other);
+    NumVarMap<OctagonPack> result = packs;
+    for (P2<OctagonPack, OctagonPack> pair : aligned) {
+      OctagonPack first = pair._1();
+      OctagonPack second = pair._2();
+      if (first == second) {
+        result = bind(result, first);
+        continue;
+      }
+      // flags are not widened to keep them in the boolean range, see the interval domain
+      NumVar[] vars = first.getVars();
+      boolean[] flags = new boolean[vars.length];
+      for (int i = 0; i < vars.length; i++) {
+        flags[i] = vars[i].isFlag();
+      }
+      OctagonMatrix widened = first.getMatrix().widen(second.getMatrix(), flags, Interval.BOOLEANTOP);
+      result = bind(result, first.withMatrix(widened));
+    }
+    return build(result, synthesize(aligned, result));
+  }
+
+  /**
+   * Synthesize the predicates for the bounds that are lost by joining or widening the aligned packs, as done by the
+   * join of the intervals domain, and the equalities for the variables of these packs that are still constant.
+   */
+  private static SynthChannel synthesize (List<P2<OctagonPack, OctagonPack>> aligned, NumVarMap<OctagonPack> result) {
+    NumVarMap<Interval> differing = NumVarMap.empty();
+    NumVarMap<Interval> inOther = NumVarMap.empty();
+    SynthChannel synth = new SynthChannel();
+    for (P2<OctagonPack, OctagonPack> pair : aligned) {
+      OctagonPack first = pair._1();
+      OctagonPack second = pair._2();
+      if (first == second)
+        continue;
+      for (NumVar var : first.getVars()) {
+        Interval thisValue = first.interval(var);
+        Interval otherValue = second.interval(var);
+        if (!thisValue.isEqualTo(otherValue)) {
+          differing = differing.bind(var, thisValue);
+          inOther = inOther.bind(var, otherValue);
+          continue;
+        }
+        Interval value = result.getOrNull(var).interval(var);
+        if (value.isConstant())
+          synth.addEquation(linear(value.getConstant().negate(), term(var)).toEquality());
+      }
+    }
+    synth.setImplications(SynthesizedPredicatesBuilder.generateImplications(differing, inOther));
+    return synth;
+  }
+
+  @Override public boolean subsetOrEqual (Octagons other) {
+    for (P2<OctagonPack, OctagonPack> pair : alignPacks(other)) {
+      if (!pair._1().getMatrix().subsetOrEqual(pair._2().getMatrix()))
+        return false;
+    }
+    return true;
+  }
+
+  @Override public Octagons introduce (NumVar variable, Type type, Option<BigInt> value) {
+    assert !packs.contains(variable);
+    Interval initial;
+    switch (type) {
+    case Bool:
+      initial = Interval.BOOLEANTOP;
+      break;
+    case Address:
+      initial = Interval.GREATER_THAN_OR_EQUAL_TO_ZERO;
+      break;
+    case Zeno:
+    default:
+      initial = Interval.TOP;
+      break;
+    }
+    if (value.isSome())
+      initial = Interval.of(value.get());
+    return build(packs.bind(variable, OctagonPack.singleton(variable, initial)));
+  }
+
+  @Override public Octagons project (VarSet vars) {
+    NumVarMap<OctagonPack> result = packs;
+    Map<OctagonPack, Boolean> changed = new IdentityHashMap<OctagonPack, Boolean>();
+    for (NumVar var : vars) {
+      OctagonPack pack = packs.getOrNull(var);
+      if (pack == null)
+        continue;
+      result = result.remove(var);
+      if (changed.put(pack, Boolean.TRUE) == null) {
+        OctagonPack remaining = pack.remove(vars);
+        if (remaining != null)
+          result = bind(result, remaining);
+      }
+    }
+    return build(result);
+  }
+
+  @Override public Octagons substitute (NumVar x, NumVar y) {
+    OctagonPack pack = packOf(x);
+    return build(bind(packs.remove(x), pack.rename(x, y)));
+  }
+
+  @Override public Octagons expand (FoldMap pairs) {
+    Map<OctagonPack, List<VarPair>> byPack = new LinkedHashMap<OctagonPack, List<VarPair>>();
+    for (VarPair pair : pairs) {
+      OctagonPack pack = packOf(pair.getPermanent());
+      List<VarPair> pairsOfPack = byPack.get(pack);
+      if (pairsOfPack == null) {
+        pairsOfPack = new ArrayList<VarPair>();
+        byPack.put(pack, pairsOfPack);
+      }
+      pairsOfPack.add(pair);
+    }
+    NumVarMap<OctagonPack> result = packs;
+    for (Map.Entry<OctagonPack, List<VarPair>> entry : byPack.entrySet()) {
+      OctagonPack pack = entry.getKey();
+      List<VarPair> pairsOfPack = entry.getValue();
+      if (pack.size() + pairsOfPack.size() <= maxPackSize) {
+        result = bind(result, pack.expand(pairsOfPack));
+      } else {
+        for (VarPair pair : pairsOfPack) {
+          result = result.bind(pair.getEphemeral(),
+              OctagonPack.singleton(pair.getEphemeral(), pack.interval(pair.getPermanent())));
+        }
+      }
+    }
+    return build(result);
+  }
+
+  @Override public Octagons fold (FoldMap pairs) {
+    // Semantics: forall (x, y) ∈ pairs: (D join D.swap(x, y)).drop(y)
+    Octagons thisPrime = project(pairs.getPermanent());
+    for (VarPair pair : pairs) {
+      thisPrime = thisPrime.substitute(pair.getEphemeral(), pair.getPermanent());
+    }
+    Octagons thisDoublePrime = project(pairs.getEphemeral());
+    return thisPrime.join(thisDoublePrime);
+  }
+
+  @Override public Octagons copyAndPaste (VarSet vars, Octagons from) {
+    NumVarMap<OctagonPack> result = packs;
+    Map<OctagonPack, Boolean> copied = new IdentityHashMap<OctagonPack, Boolean>();
+    for (NumVar var : vars) {
+      assert !packs.contains(var);
+      OctagonPack pack = from.packOf(var);
+      if (copied.put(pack, Boolean.TRUE) == null)
+        result = bind(result, pack.restrict(vars));
+    }
+    return build(result);
+  }
+
+  @Override public Range queryRange (Linear lin) {
+    return Range.from(evaluate(lin));
+  }
+
+  @Override public SetOfEquations queryEqualities (NumVar variable) {
+    return SetOfEquations.empty();
+  }
+
+  @Override public SynthChannel getSynthChannel () {
+    return channel;
+  }
+
+  /**
+   * @return The distinct packs of this state.
+   */
+  private List<OctagonPack> distinctPacks () {
+    Map<OctagonPack, Boolean> distinct = new IdentityHashMap<OctagonPack, Boolean>();
+    List<OctagonPack> result = new ArrayList<OctagonPack>();
+    for (OctagonPack pack : packs.values()) {
+      if (distinct.put(pack, Boolean.TRUE) == null)
+        result.add(pack);
+    }
+    return result;
+  }
+
+  /**
+   * Append the relations of the pack that are more precise than the intervals of the variables.
+   */
+  private static void appendRelations (StringBuilder builder, OctagonPack pack) {
+    NumVar[] vars = pack.getVars();
+    OctagonMatrix matrix = pack.getMatrix();
+    for (int v = 0; v < vars.length; v++) {
+      for (int w = 0; w < v; w++) {
+        for (int i = 2 * w; i < 2 * w + 2; i++) {
+          for (int j = 2 * v; j < 2 * v + 2; j++) {
+            long bound = matrix.get(i, j);
+            long implied = OctagonMatrix.add(matrix.get(j ^ 1, j), matrix.get(i, i ^ 1));
+            if (bound == OctagonMatrix.INFINITY || implied != OctagonMatrix.INFINITY && 2 * bound >= implied)
+              continue;
+            // V_j - V_i with V_2v = v and V_2v+1 = -v
+            builder.append(j % 2 == 0 ? "" : "-").append(vars[v]);
+            builder.append(i % 2 == 0 ? " - " : " + ").append(vars[w]);
+            builder.append(" <= ").append(bound).append(", ");
+          }
+        }
+      }
+    }
+  }
+
+  @Override public void varToCompactString (StringBuilder builder, NumVar var) {
+    Interval interval = interval(var);
+    if (interval.isConstant())
+      builder.append(interval.toString());
+    else
+      builder.append(var.toString());
+  }
+
+  @Override public void toCompactString (StringBuilder builder) {
+    builder.append(NAME + ": #" + packs.size() + " ");
+    builder.append("{");
+    for (P2<NumVar, OctagonPack> binding : packs) {
+      NumVar var = binding._1();
+      Interval interval = binding._2().interval(var);
+      if (interval.isConstant() || interval.isTop())
+        continue;
+      builder.append(var + "=");
+      interval.toStringDotted(builder);
+      builder.append(", ");
+    }
+    for (OctagonPack pack : distinctPacks()) {
+      appendRelations(builder, pack);
+    }
+    if (builder.charAt(builder.length() - 1) == ' ')
+      builder.setLength(builder.length() - 2);
+    builder.append("}");
+  }
+
+  @Override public XMLBuilder toXML (XMLBuilder builder) {
+    builder = builder.e(NAME);
+    for (P2<NumVar, OctagonPack> binding : packs) {
+      Interval value = binding._2().interval(binding._1());
+      builder = builder.e("Entry")
+          .a("type", "interval")
+          .e("Variable")
+          .t(binding._1().toString())
+          .up()
+          .e("Value")
+          .e("lowerBound")
+          .t(value.low().toString())
+          .up()
+          .e("upperBound")
+          .t(value.high().toString())
+          .up()
+          .up()
+          .up();
+    }
+    for (OctagonPack pack : distinctPacks()) {
+      StringBuilder relations = new StringBuilder();
+      appendRelations(relations, pack);
+      if (relations.length() > 0)
+        builder = builder.e("Relations").t(relations.substring(0, relations.length() - 2)).up();
+    }
+    return builder.up();
+  }
+
+  @Override public void toString (DomainStringBuilder builder) {
+    builder.append(NAME, toString());
+  }
+
+  @Override public String toString () {
+    StringBuilder builder = new StringBuilder();
+    builder.append(NAME + ": #" + packs.size() + " {");
+    Iterator<NumVar> iterator = StringHelpers.sortLexically(packs.keys()).iterator();
+    while (iterator.hasNext()) {
+      NumVar var = iterator.next();
+      builder.append(var).append('=').append(interval(var));
+      if (iterator.hasNext())
+        builder.append(", ");
+    }
+    builder.append('}');
+    StringBuilder relations = new StringBuilder();
+    for (OctagonPack pack : distinctPacks()) {
+      appendRelations(relations, pack);
+    }
+    if (relations.length() > 0)
+      builder.append(" {").append(relations.substring(0, relations.length() - 2)).append('}');
+    return builder.toString();
+  }
+
+  private final static class RhsEvaluator extends ZenoRhsVisitorSkeleton<Interval, Octagons> {
+    public static RhsEvaluator instance = new RhsEvaluator();
+
+    @Override public Interval visit (Zeno.Bin stmt, Octagons state) {
+      Interval left = stmt.getLeft().accept(this, state);
+      Interval right = stmt.getRight().accept(this, state);
+      if (left == null || right == null)
+        return Interval.TOP;
+      if (left.isConstant() && right.isConstant())
+        return Interval.of(applyToConstants(stmt.getOp(), left.getConstant(), right.getConstant()));
+      switch (stmt.getOp()) {
+      case Mul:
+        return left.mul(right);
+      case Div:
+        return left.divRoundZero(right);
+      case Shl:
+        return left.shl(right);
+      case Shr:
+        return left.shr(right);
+      default:
+        return Interval.TOP;
+      }
+    }
+
+    private static BigInt applyToConstants (Zeno.ZenoBinOp op, BigInt left, BigInt right) {
+      switch (op) {
+      case Div:
+        if (right.isZero()) // ARM semantics
+          return Bound.ZERO;
+        return left.divRoundZero(right);
+      case Mod:
+        return left.mod(right);
+      case Mul:
+        return left.mul(right);
+      case Shl:
+        return left.shl(right);
+      case Shr:
+        return left.shr(right);
+      default:
+        throw new IllegalArgumentException();
+      }
+    }
+
+    /**
+     * Calculate an interval for the linear expression. Returns {@code null} if the division by the divisor of the Rlin
+     * does not contain integral solutions.
+     */
+    @Override public Interval visit (Zeno.Rlin stmt, Octagons state) {
+      return state.evaluate(stmt.getLinearTerm()).divRoundInvards(stmt.getDivisor());
+    }
+
+    @Override public Interval visit (Zeno.RangeRhs range, Octagons state) {
+      return range.getRange().convexHull();
+    }
+  }
+}
@@ -549,6 +549,10 @@ class PredicatesState extends FunctorState {
         @Override public AVLSet<Flag> apply (AVLSet<Flag> a, AVLSet<Flag> b) {
           return a.union(b);
         }
+
+        @Override public boolean isIdempotent () {
+          return true;
+        }
       };
       varOccurrences = varOccurrences.union(selector2, other.varOccurrences);
     }
@@ -559,6 +563,10 @@ class PredicatesState extends FunctorState {
         @Override public AVLSet<Test> apply (AVLSet<Test> a, AVLSet<Test> b) {
           return a.union(b);
         }
+
+        @Override public boolean isIdempotent () {
+          return true;
+        }
       };
       return first.union(selector, second);
     }
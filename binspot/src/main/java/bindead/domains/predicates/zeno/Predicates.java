@@ -175,6 +175,23 @@ public class Predicates<D extends ZenoDomain<D>> extends ZenoFunctor<PredicatesS
     return build(joinedBuilder.build(), joinedChildState);
   }
 
+  @Override protected Predicates<D> joinIfNotSubset (Predicates<D> newState) {
+    PredicatesStateBuilder thisBuilder = new PredicatesStateBuilder(state, childState);
+    PredicatesStateBuilder otherBuilder = new PredicatesStateBuilder(newState.state, newState.childState);
+    D joinedChildState;
+    if (otherBuilder.isSubset(thisBuilder)) {
+      // the child performs its subset test and the join at once
+      joinedChildState = childState.addToState(newState.childState, false);
+      if (joinedChildState == null)
+        return null;
+    } else {
+      joinedChildState = childState.join(newState.childState);
+    }
+    PredicatesStateBuilder joinedBuilder = thisBuilder.join(otherBuilder);
+    addSynthesizedPredicates(joinedChildState.getSynthChannel().getImplications(), joinedBuilder);
+    return build(joinedBuilder.build(), joinedChildState);
+  }
+
   @Override public Predicates<D> widen (Predicates<D> other) {
     PredicatesStateBuilder thisBuilder = new PredicatesStateBuilder(state, childState);
     PredicatesStateBuilder otherBuilder = new PredicatesStateBuilder(other.state, other.childState);
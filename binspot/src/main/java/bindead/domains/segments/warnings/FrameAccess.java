@@ -22,4 +22,16 @@ public class FrameAccess extends Warning {
     return String.format(fmt, flag);
   }
 
+  @Override public int hashCode () {
+    return flag.hashCode();
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof FrameAccess))
+      return false;
+    FrameAccess other = (FrameAccess) obj;
+    return flag.equals(other.flag);
+  }
 }
@@ -19,4 +19,16 @@ public class IllegalPointerArithmetics extends StateRestrictionWarning {
     return String.format(fmt, msg);
   }
 
+  @Override public int hashCode () {
+    return msg.hashCode();
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof IllegalPointerArithmetics))
+      return false;
+    IllegalPointerArithmetics other = (IllegalPointerArithmetics) obj;
+    return msg.equals(other.msg);
+  }
 }
@@ -19,4 +19,16 @@ public class UninitializedValue extends StateRestrictionWarning {
     return String.format(fmt, ptr);
   }
 
+  @Override public int hashCode () {
+    return ptr.hashCode();
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof UninitializedValue))
+      return false;
+    UninitializedValue other = (UninitializedValue) obj;
+    return ptr.equals(other.ptr);
+  }
 }
@@ -15,4 +15,16 @@ public class UnknownStackFrame extends StateRestrictionWarning {
     return String.format(fmt, target);
   }
 
+  @Override public int hashCode () {
+    return target.hashCode();
+  }
+
+  @Override public boolean equals (Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof UnknownStackFrame))
+      return false;
+    UnknownStackFrame other = (UnknownStackFrame) obj;
+    return target.equals(other.target);
+  }
 }
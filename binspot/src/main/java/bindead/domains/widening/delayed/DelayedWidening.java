@@ -91,6 +91,30 @@ public class DelayedWidening<D extends ZenoDomain<D>> extends ZenoFunctor<Delaye
     return build(other.state, newChildState);
   }
 
+  /**
+   * Fused version of {@code widen(join(newState))} that lets the child perform the test for subset-or-equal, the join
+   * and the widening in one traversal.
+   */
+  @Override public DelayedWidening<D> addToState (DelayedWidening<D> newState, boolean isWideningPoint) {
+    if (newState == this)
+      return null;
+    // the widening is suppressed if the new state contains new constant assignments
+    AVLSet<ProgramPoint> newConstAssignments = newState.state.assignments.difference(state.assignments);
+    boolean applyWidening = isWideningPoint && newConstAssignments.isEmpty();
+    D newChildState = childState.addToState(newState.childState, applyWidening);
+    if (newChildState == null)
+      return null;
+    if (isWideningPoint && DEBUGWIDENING) {
+      String message =
+        applyWidening ? "applying widening" : "widening suppressed because of "
+          + newConstAssignments.size() + " new constant assignments from: " + newConstAssignments;
+      Option<ProgramPoint> location = getContext().getLocation();
+      System.out.println(name + " (widening)@" + location + ": " + message);
+    }
+    DelayedWideningState joinedState = new DelayedWideningState(state.assignments.union(newState.state.assignments));
+    return build(joinedState, newChildState);
+  }
+
   @Override public DelayedWidening<D> eval (Assign stmt) {
     Option<ProgramPoint> location = getContext().getLocation();
     D newChildState = childState.eval(stmt);    // evaluate on child as result is needed later on for constants test
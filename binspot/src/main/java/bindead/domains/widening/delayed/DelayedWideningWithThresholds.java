@@ -80,6 +80,16 @@ public class DelayedWideningWithThresholds<D extends ZenoDomain<D>> extends
     return build(other.state, newChildState);
   }
 
+  @Override public DelayedWideningWithThresholds<D> addToState (DelayedWideningWithThresholds<D> newState,
+      boolean isWideningPoint) {
+    if (newState == this)
+      return null;
+    D newChildState = childState.addToState(newState.childState, isWideningPoint);
+    if (newChildState == null)
+      return null;
+    return build(newState.state, newChildState);
+  }
+
   @Override public DelayedWideningWithThresholds<D> eval (Assign stmt) {
     ZenoFactory zeno = ZenoFactory.getInstance();
     D newChildState = childState.eval(stmt);    // evaluate on child as result is needed later on for constants test
@@ -159,6 +159,18 @@ public class ThresholdsWidening<D extends ZenoDomain<D>> extends
     return build(builder.build(), newChildState);
   }
 
+  @Override protected ThresholdsWidening<D> joinIfNotSubset (ThresholdsWidening<D> newState) {
+    // the subset test only depends on the child, thus the child can perform it together with the join
+    D newChildState = childState.addToState(newState.childState, false);
+    if (newChildState == null)
+      return null;
+    ThresholdsWideningStateBuilder<D> builder = new ThresholdsWideningStateBuilder<D>(state);
+    ThresholdsWideningStateBuilder<D> otherBuilder = new ThresholdsWideningStateBuilder<D>(newState.state);
+    builder.mergeThresholds(childState, newState.childState, otherBuilder);
+    builder.removeNonRedundantThresholds(newChildState);
+    return build(builder.build(), newChildState);
+  }
+
   @Override public boolean subsetOrEqual (ThresholdsWidening<D> other) {
     // seem to not be needed!
 //    ThresholdsWideningStateBuilder<D> builder = new ThresholdsWideningStateBuilder<D>(state);
@@ -123,6 +123,10 @@ class ThresholdsWideningState extends FunctorState {
       @Override public Integer apply (Integer a, Integer b) {
         return Math.max(a, b);
       }
+
+      @Override public boolean isIdempotent () {
+        return true;
+      }
     };
 
     private MutableState (MultiMap<Threshold, ProgramPoint> thresholds, MultiMap<NumVar, Threshold> reverse,
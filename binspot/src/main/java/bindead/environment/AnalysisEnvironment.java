@@ -1,5 +1,7 @@
 package bindead.environment;
 
+import rreil.lang.util.VariableFactory;
+import bindead.abstractsyntax.finite.LoweringCache;
 import bindead.analyses.callback.Callbacks;
 import bindead.analyses.systems.SystemModel;
 import bindead.environment.abi.ABI;
@@ -12,12 +14,16 @@ import bindead.environment.platform.Platform;
  * <li> {@link ABI}</li>
  * <li> {@link SystemModel}</li>
  * <li> {@link Callbacks}</li>
+ * <li> {@link VariableFactory}</li>
+ * <li> {@link LoweringCache}</li>
  * </ul>
  */
 public class AnalysisEnvironment {
   private final Platform platform;
   private final SystemModel systemModel;
   private final Callbacks callbacks;
+  private final VariableFactory variables = new VariableFactory();
+  private final LoweringCache lowering = new LoweringCache();
 
   public AnalysisEnvironment (Platform platform) {
     this(platform, null);
@@ -51,6 +57,20 @@ public class AnalysisEnvironment {
     return callbacks;
   }
 
+  /**
+   * The factory that allocates the variables of an analysis in this environment.
+   */
+  public VariableFactory getVariableFactory () {
+    return variables;
+  }
+
+  /**
+   * The cache of the finite syntax that the statements of an analysis in this environment were lowered to.
+   */
+  public LoweringCache getLoweringCache () {
+    return lowering;
+  }
+
   public ABI getABI () {
     return getSystemModel() == null ? null : getSystemModel().getABI();
   }
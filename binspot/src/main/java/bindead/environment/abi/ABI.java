@@ -11,6 +11,7 @@ import rreil.lang.RReil.Branch;
 import rreil.lang.RReilAddr;
 import rreil.lang.Rhs.Rvar;
 import bindead.analyses.ProgramAddress;
+import bindead.analyses.RReilSnippet;
 import bindead.domainnetwork.interfaces.ProgramPoint;
 import bindead.domainnetwork.interfaces.RootDomain;
 import bindead.environment.platform.Platform;
@@ -24,19 +25,40 @@ public abstract class ABI {
   private static final String tempReg = "tmpReg_" + ABI.class.getSimpleName();
   private final Platform platform;
   private final int archSize;
+  // the instructions evaluated at each call and return are parsed only once
+  private final RReil[] incStackPointer;
+  private final RReil[] decStackPointer;
+  private final RReilSnippet setInstructionPointer;
+  private final RReilSnippet loadFromStack;
+  private final RReil[] loadReturnAddress;
+  private final Branch returnToLoadedAddress;
 
   public ABI (Platform platform) {
     this.platform = platform;
     archSize = platform.defaultArchitectureSize();
+    String sp = platform.getStackPointer();
+    int stackCellSizeInBytes = archSize / 8;
+    incStackPointer = RReilSnippet.compile(add(sp, sp, stackCellSizeInBytes)).bind();
+    decStackPointer = RReilSnippet.compile(sub(sp, sp, stackCellSizeInBytes)).bind();
+    setInstructionPointer = RReilSnippet.compile(mov(platform.getInstructionPointer(), "$0"));
+    loadFromStack = RReilSnippet.compile(sub(sp, sp, "$0"), load(tempReg, sp));
+    loadReturnAddress = RReilSnippet.compile(load(tempReg, sp)).bind();
+    returnToLoadedAddress = (Branch) RReilSnippet.compile(ret(tempReg)).bind()[0];
   }
 
   // REFACTOR: move all this methods and the stack inc/dec, canary to the platform class
-  protected String sub (String targetReg, String sourceReg, int value) {
-    return String.format("sub.%d %s, %s, %d", archSize, targetReg, sourceReg, value);
+  /**
+   * @param value A constant or a placeholder of a {@link RReilSnippet}.
+   */
+  protected String sub (String targetReg, String sourceReg, Object value) {
+    return String.format("sub.%d %s, %s, %s", archSize, targetReg, sourceReg, value);
   }
 
-  protected String add (String targetReg, String sourceReg, int value) {
-    return String.format("add.%d %s, %s, %d", archSize, targetReg, sourceReg, value);
+  /**
+   * @param value A constant or a placeholder of a {@link RReilSnippet}.
+   */
+  protected String add (String targetReg, String sourceReg, Object value) {
+    return String.format("add.%d %s, %s, %s", archSize, targetReg, sourceReg, value);
   }
 
   protected String load (String targetReg, String sourceReg) {
@@ -74,25 +96,21 @@ public abstract class ABI {
    * Add 1 to the stack pointer, where "1" means one time the platform's addressable unit size.
    */
   public <D extends RootDomain<D>> D incStackPointer (D state) {
-    int stackCellSizeInBytes = archSize / 8;
-    String sp = getPlatform().getStackPointer();
-    return state.eval(add(sp, sp, stackCellSizeInBytes));
+    return state.eval(incStackPointer);
   }
 
   /**
    * Subtract 1 from the stack pointer, where "1" means one time the platform's addressable unit size.
    */
   public <D extends RootDomain<D>> D decStackPointer (D state) {
-    int stackCellSizeInBytes = archSize / 8;
-    String sp = getPlatform().getStackPointer();
-    return state.eval(sub(sp, sp, stackCellSizeInBytes));
+    return state.eval(decStackPointer);
   }
 
   /**
    * Set the value of the instruction pointer/program counter.
    */
   public <D extends RootDomain<D>> D setInstructionPointer (D state, long pcValue) {
-    state = state.eval(String.format("mov.%d %s, %d", archSize, platform.getInstructionPointer(), pcValue));
+    state = state.eval(setInstructionPointer.bind(pcValue));
     return state;
   }
 
@@ -162,13 +180,9 @@ public abstract class ABI {
    */
   public Range getValueFromStack (int offset, RootDomain<?> domainState) {
     int stackCellSizeInBytes = archSize / 8;
-    String sp = getPlatform().getStackPointer();
     RootDomain<?> state = domainState;
     // XXX bm: the subtraction should actually be an addition on some platforms where the stack grows upwards
-    String[] insns = {
-      sub(sp, sp, stackCellSizeInBytes * offset),
-      load(tempReg, sp)};
-    state = (RootDomain<?>) state.eval(insns);
+    state = (RootDomain<?>) state.eval(loadFromStack.bind(stackCellSizeInBytes * offset));
     return getValueOf(tempReg, state);
   }
 
@@ -203,14 +217,13 @@ public abstract class ABI {
    */
   public <D extends RootDomain<D>> D evalReturn (D domainState) {
     D state = domainState;
-    String sp = getPlatform().getStackPointer();
     // save return address in tempReg
-    state = state.eval(load(tempReg, sp));
+    state = state.eval(loadReturnAddress);
     // adjust stack pointer to point before the return address, i.e. into the previous stack frame
     state = incStackPointer(state);
     // evaluate the return on the domain
     ProgramAddress dummyPoint = new ProgramAddress(RReilAddr.ZERO);
-    List<P2<RReilAddr, D>> result = ABI.evalBranch(state, ret(tempReg), dummyPoint, dummyPoint);
+    List<P2<RReilAddr, D>> result = state.eval(returnToLoadedAddress, dummyPoint, dummyPoint);
     assert result.size() == 1;
     state = result.get(0)._2();
     return state;
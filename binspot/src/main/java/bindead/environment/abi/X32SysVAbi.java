@@ -4,11 +4,10 @@ import java.util.Arrays;
 import java.util.List;
 
 import javalx.numeric.Range;
-
-
-
+import rreil.lang.RReil;
 import rreil.lang.RReilAddr;
 import rreil.lang.Rhs.Rvar;
+import bindead.analyses.RReilSnippet;
 import bindead.domainnetwork.interfaces.RootDomain;
 import bindead.environment.platform.Platform;
 
@@ -18,9 +17,16 @@ public class X32SysVAbi extends ABI {
   private static final String SYSCALL_RET_REGISTER = "eax";
   private static final String SYSCALL_NR_REGISTER = "eax";
   private static final String tempReg = "tmpReg_" + X32SysVAbi.class.getSimpleName();
+  private final RReilSnippet loadFromStack;
+  private final RReilSnippet setReturnValue;
+  private final RReil[] loadReturnAddress;
 
   public X32SysVAbi (Platform platform) {
     super(platform);
+    String sp = platform.getStackPointer();
+    loadFromStack = RReilSnippet.compile(add(tempReg, sp, "$0"), load("$1", tempReg));
+    setReturnValue = RReilSnippet.compile(mov(CLIB_RETURN_REGISTER, "$0"));
+    loadReturnAddress = RReilSnippet.compile(load(tempReg, sp)).bind();
   }
 
   @Override public Rvar getReturnParameterAllocation () {
@@ -52,21 +58,17 @@ public class X32SysVAbi extends ABI {
 
   @Override
   public <D extends RootDomain<D>> D assignFunctionParameterToRegister (int parameterNumber, String reg, D domainState) {
-    String sp = getPlatform().getStackPointer();
     int size = getPlatform().defaultArchitectureSize();
     // SysV ABI says that the parameters are on the stack at ebp/esp + {8, 12, 16, 20 ...}
     // the initial offset 8 is because of the space reserved for the return address and frame pointer saving
     // as the frame pointer saving is done in the callee prolog and thus not done at function entry point the parameter
     // offset are really ebp/esp + {4, 8, 12, 16 ...}
     int parameterOffset = size / 8 * parameterNumber + 4;
-    String[] insns = {
-      add(tempReg, sp, parameterOffset),
-      load(reg, tempReg)};
-    return domainState.eval(insns);
+    return domainState.eval(loadFromStack.bind(parameterOffset, reg));
   }
 
   @Override public <D extends RootDomain<D>> D setRegisterAsReturnValue (String reg, D domainState) {
-    return domainState.eval(mov(CLIB_RETURN_REGISTER, reg));
+    return domainState.eval(setReturnValue.bind(reg));
   }
 
   /**
@@ -74,9 +76,8 @@ public class X32SysVAbi extends ABI {
    * value.
    */
   @Override public RReilAddr getReturnAddress (RootDomain<?> domainState) {
-    String sp = getPlatform().getStackPointer();
     RootDomain<?> state = domainState;
-    state = (RootDomain<?>) state.eval(load(tempReg, sp));
+    state = (RootDomain<?>) state.eval(loadReturnAddress);
     Range returnAddress = getValueOf(tempReg, state);
     if (!returnAddress.isConstant())
       throw new UnsupportedOperationException("Non-constant return address.");
@@ -7,8 +7,10 @@ import java.util.List;
 
 import javalx.data.products.P2;
 import javalx.numeric.Range;
+import rreil.lang.RReil;
 import rreil.lang.RReilAddr;
 import rreil.lang.Rhs.Rvar;
+import bindead.analyses.RReilSnippet;
 import bindead.domainnetwork.interfaces.RootDomain;
 import bindead.environment.platform.Platform;
 
@@ -21,10 +23,18 @@ public class X64SysVAbi extends ABI {
   private static final String[] SYSCALL_INPUT_REGISTERS = {"rdi", "rsi", "rdx", "r10", "r8", "r9"};
   private static final String SYSCALL_RET_REGISTER = "rax";
   private static final String SYSCALL_NR_REGISTER = "rax";
-
+  private final RReilSnippet loadFromStack;
+  private final RReilSnippet assignRegister;
+  private final RReilSnippet setReturnValue;
+  private final RReil[] loadReturnAddress;
 
   public X64SysVAbi (Platform platform) {
     super(platform);
+    String sp = platform.getStackPointer();
+    loadFromStack = RReilSnippet.compile(add(tempReg, sp, "$0"), load(tempReg, tempReg));
+    assignRegister = RReilSnippet.compile(mov("$0", "$1"));
+    setReturnValue = RReilSnippet.compile(mov(CLIB_RETURN_REGISTERS_1, "$0"));
+    loadReturnAddress = RReilSnippet.compile(load(tempReg, sp)).bind();
   }
 
   public FunctionParameterAllocations getParameterAllocationsFor (RootDomain<?> state, EParamType retType,
@@ -103,17 +113,13 @@ public class X64SysVAbi extends ABI {
   }
 
   public Range getStackParameterValue (int parameterNumber, RootDomain<?> domainState) {
-    String sp = getPlatform().getStackPointer();
     int size = getPlatform().defaultArchitectureSize();
     // SysV ABI amd64 says that the parameters are on the stack at ebp/esp + {16, 24, 32, 40 ...}
     // the initial offset 16 is because of the space reserved for the return address and frame pointer saving
     // as the frame pointer saving is done in the callee prolog and thus not done at function entry point the parameter
     // offset are really ebp/esp + {8, 16, 24, 32 ...}
     int parameterOffset = size / 8 * parameterNumber + 8;
-    String[] insns = {
-      add(tempReg, sp, parameterOffset),
-      load(tempReg, tempReg)};
-    RootDomain<?> state = (RootDomain<?>) domainState.eval(insns);
+    RootDomain<?> state = (RootDomain<?>) domainState.eval(loadFromStack.bind(parameterOffset));
     Range value = getValueOf(tempReg, state);
     return value;
   }
@@ -122,11 +128,11 @@ public class X64SysVAbi extends ABI {
   @Override public <D extends RootDomain<D>> D assignFunctionParameterToRegister (int parameterNumber, String reg,
       D domainState) {
     String parameterReg = getFunctionParameterRegister(parameterNumber);
-    return domainState.eval(mov(reg, parameterReg));
+    return domainState.eval(assignRegister.bind(reg, parameterReg));
   }
 
   @Override public <D extends RootDomain<D>> D setRegisterAsReturnValue (String reg, D domainState) {
-    return domainState.eval(mov(CLIB_RETURN_REGISTERS_1, reg));
+    return domainState.eval(setReturnValue.bind(reg));
   }
 
   private Rvar getFunctionParameterStackAllocation (int parameterNumber, RootDomain<?> state) {
@@ -148,9 +154,8 @@ public class X64SysVAbi extends ABI {
    * value.
    */
   @Override public RReilAddr getReturnAddress (RootDomain<?> domainState) {
-    String sp = getPlatform().getStackPointer();
     RootDomain<?> state = domainState;
-    state = (RootDomain<?>) state.eval(load(tempReg, sp));
+    state = (RootDomain<?>) state.eval(loadReturnAddress);
     Range returnAddress = getValueOf(tempReg, state);
     if (!returnAddress.isConstant())
       throw new UnsupportedOperationException("Non-constant return address.");
@@ -1,5 +1,6 @@
 package cli;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -17,6 +18,7 @@ import bindead.analyses.algorithms.AnalysisProperties;
 import bindead.analyses.algorithms.CallStringAnalysis;
 import bindead.debug.DebugHelper;
 import bindead.debug.StringHelpers;
+import bindead.domains.metrics.DomainMetrics;
 import binparse.Binary;
 import binparse.BinaryFileFormat;
 import binparse.Segment;
@@ -59,6 +61,11 @@ public class Bindead {
           + "following jump targets that can statically be resolved, that is, without a value analysis.")
     private boolean disassemble = false;
 
+    @Parameter(names = {"-pd", "--parallel-disassembly"}, description = "Decode all the executable code of the "
+      + "binary in parallel before the recursive descent disassembly (only for the \"builtin\" disassembler frontend). "
+      + "The disassembled code is the same as without this option.")
+    private boolean parallelDisassembly = false;
+
     @Parameter(names = {"-a", "--analyze"},
         description = "Disassemble and analyze the binary. Performs a recursive descent disassembly, "
           + "following jump targets inferred by the value analysis.")
@@ -107,6 +114,10 @@ public class Bindead {
       + " that needs to be analyzed.")
     private boolean optimizeRREIL = false;
 
+    @Parameter(names = {"-dc", "--disassembly-cache"}, description = "A directory to store the disassembled and "
+      + "translated code in. Later runs on the same binaries reuse the stored code instead of disassembling it again.")
+    private String disassemblyCache;
+
     // FIXME: summarization should be merged into a call-string analysis with parameter 0
     @Parameter(names = {"-ai", "--analyzer-interprocedural"}, description = "Choose the interprocedural analyzer mode. "
       + "Can be either \"callstring\" or \"summarization\".",
@@ -126,6 +137,29 @@ public class Bindead {
         validateWith = PositiveIntegerValidator.class)
     private Integer callstringLength = 5;
 
+    @Parameter(names = {"-par", "--parallel"}, description = "Evaluate independent program points in parallel "
+      + "(only for the \"callstring\" interprocedural analyzer). The results are the same for any number of threads.")
+    private boolean parallel = false;
+
+    @Parameter(names = {"-wto", "--weak-topological-order"}, description = "Process the program points in a weak "
+      + "topological order of the control flow graph and widen only at the heads of its components.")
+    private boolean weakTopologicalOrder = false;
+
+    @Parameter(names = {"-dm", "--domain-metrics"}, description = "Measure the calls, time and allocations of the "
+      + "operations of each abstract domain and write them to the given file. The file is written as CSV if its name "
+      + "ends with \".csv\" and as JSON otherwise.")
+    private String domainMetrics;
+
+    @Parameter(names = {"-ms", "--measure-sharing"}, description = "Estimate the memory retained by the states of "
+      + "the analysis and the memory saved by sharing the unchanged parts between the states and print it "
+      + "with the analysis summary.")
+    private boolean measureSharing = false;
+
+    @Parameter(names = {"-dv", "--dump-variables"}, description = "A file to write the stamps of the numeric "
+      + "variables of the largest state of the analysis to, one per line. The file can be used as the keys of the "
+      + "collection benchmarks with -Djavalx.benchmarks.keys=<file>.")
+    private String dumpVariables;
+
     public static class PositiveIntegerValidator implements IParameterValidator {
       @Override public void validate (String name, String value) throws ParameterException {
         int n = Integer.parseInt(value);
@@ -393,6 +427,12 @@ public class Bindead {
         domainHierarchy = domainHierarchy + " " + domain;
       }
     }
+    AnalysisProperties.INSTANCE.parallelFixpoint.setValue(options.parallel);
+    AnalysisProperties.INSTANCE.measureStateSharing.setValue(options.measureSharing);
+    if (options.dumpVariables != null)
+      AnalysisProperties.INSTANCE.variablesDumpFile.setValue(options.dumpVariables);
+    AnalysisProperties.INSTANCE.iterateInWeakTopologicalOrder.setValue(options.weakTopologicalOrder);
+    AnalysisProperties.INSTANCE.collectDomainMetrics.setValue(options.domainMetrics != null);
     AnalysisFactory factory = new AnalysisFactory(domainHierarchy);
     Analysis<?> analyzer;
     if (options.interprocAnalyzer.toLowerCase().equals("callstring"))
@@ -408,6 +448,16 @@ public class Bindead {
       ((CallStringAnalysis) analyzer).runFrom(startAddress, options.callstringLength);
     else
       analyzer.runFrom(startAddress);
+    if (options.domainMetrics != null)
+      writeDomainMetrics(options.domainMetrics);
+  }
+
+  private static void writeDomainMetrics (String fileName) {
+    try {
+      DomainMetrics.INSTANCE.write(new File(fileName));
+    } catch (IOException e) {
+      System.err.println("Error writing domain metrics:\n" + fileName + "\n" + e);
+    }
   }
 
   private static void disassemble (Binary file, ClOptions options) {
@@ -415,6 +465,7 @@ public class Bindead {
     // be more relaxed about errors when only disassembling the code without analyzing it
     AnalysisProperties.INSTANCE.skipDisassembleErrors.setValue(true);
     AnalysisProperties.INSTANCE.ignoreNonExistentJumpTargets.setValue(true);
+    AnalysisProperties.INSTANCE.parallelDisassembly.setValue(options.parallelDisassembly);
 
     // the analysis environment is actually not used in the disassembler below but
     // might still be of use later on when dealing with the results
@@ -456,6 +507,8 @@ public class Bindead {
     else
       throw new ParameterException("Unimplemented functionality for parameter:" + options.disFrontend);
 
+    if (options.disassemblyCache != null)
+      AnalysisProperties.INSTANCE.disassemblyCacheDirectory.setValue(options.disassemblyCache);
     if (options.printRReilCode)
       DebugHelper.analysisKnobs.printRReilCodeListing();
     if (options.printNativeCode)
@@ -0,0 +1,97 @@
+package rreil.interpreter;
+
+import java.util.Arrays;
+
+import rreil.lang.Lhs;
+import rreil.lang.MemVar;
+import rreil.lang.Rhs.Rvar;
+import rreil.lang.lowlevel.LowLevelRReilFactory;
+import rreil.lang.util.LowLevelToRReilTranslator;
+
+/**
+ * The state of a {@link CompiledRReilMachine}: the program counter, a flat register file and the memory. The registers
+ * are stored as longs in the slots assigned to them by the machine.
+ */
+public final class CompiledCtx {
+  private static final LowLevelRReilFactory factory = LowLevelRReilFactory.getInstance();
+  private final CompiledRReilMachine machine;
+  private final PagedMemory memory;
+  long[] registers = new long[32];
+  long pc;
+
+  public CompiledCtx (CompiledRReilMachine machine, PagedMemory memory, long pc) {
+    this.machine = machine;
+    this.memory = memory;
+    this.pc = pc;
+  }
+
+  public PagedMemory getMemory () {
+    return memory;
+  }
+
+  public long getPc () {
+    return pc;
+  }
+
+  public void setPc (long pc) {
+    this.pc = pc;
+  }
+
+  /**
+   * Return the register file with room for all the registers known to the machine.
+   */
+  long[] registers (int slots) {
+    if (registers.length < slots)
+      registers = Arrays.copyOf(registers, Math.max(slots, registers.length * 2));
+    return registers;
+  }
+
+  public long get (MemVar register) {
+    int slot = machine.slotOf(register);
+    return registers(slot + 1)[slot];
+  }
+
+  /**
+   * Return the unsigned value of the given register slice.
+   */
+  public long get (Rvar variable) {
+    return get(variable.getRegionId()) >>> variable.getOffset() & CompiledRReilMachine.mask(variable.getSize());
+  }
+
+  public void set (Lhs lhs, long value) {
+    int slot = machine.slotOf(lhs.getRegionId());
+    long[] regs = registers(slot + 1);
+    long mask = CompiledRReilMachine.mask(lhs.getSize()) << lhs.getOffset();
+    regs[slot] = regs[slot] & ~mask | value << lhs.getOffset() & mask;
+  }
+
+  public void set (Rvar variable, long value) {
+    set(variable.asLhs(), value);
+  }
+
+  /**
+   * Set the value of a native register, e.g. {@code eax}.
+   */
+  public void set (String name, long value) {
+    set(translate(name), value);
+  }
+
+  /**
+   * Return the value of a native register, e.g. {@code eax}.
+   */
+  public long get (String name) {
+    return get(translate(name));
+  }
+
+  public long getBool (String name) {
+    return get(LowLevelToRReilTranslator.translateRvar(factory.flag(name)));
+  }
+
+  public void setBool (String name, long value) {
+    set(LowLevelToRReilTranslator.translateRvar(factory.flag(name)), value);
+  }
+
+  private Rvar translate (String name) {
+    return LowLevelToRReilTranslator.translateRvar(machine.getDisassembler().translateIdentifier(name));
+  }
+}
@@ -0,0 +1,877 @@
+package rreil.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javalx.numeric.BigInt;
+import javalx.numeric.Bound;
+import rreil.disassembler.Instruction;
+import rreil.lang.Lhs;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReil.Assertion;
+import rreil.lang.RReil.Assign;
+import rreil.lang.RReil.Branch;
+import rreil.lang.RReil.BranchToNative;
+import rreil.lang.RReil.BranchToRReil;
+import rreil.lang.RReil.Flop;
+import rreil.lang.RReil.Load;
+import rreil.lang.RReil.Native;
+import rreil.lang.RReil.Nop;
+import rreil.lang.RReil.PrimOp;
+import rreil.lang.RReil.Store;
+import rreil.lang.RReil.Throw;
+import rreil.lang.RReilAddr;
+import rreil.lang.Rhs.Address;
+import rreil.lang.Rhs.Bin;
+import rreil.lang.Rhs.Cmp;
+import rreil.lang.Rhs.Convert;
+import rreil.lang.Rhs.LinBin;
+import rreil.lang.Rhs.LinRval;
+import rreil.lang.Rhs.LinScale;
+import rreil.lang.Rhs.RangeRhs;
+import rreil.lang.Rhs.Rlit;
+import rreil.lang.Rhs.Rvar;
+import rreil.lang.Rhs.SignExtend;
+import rreil.lang.SignednessHint;
+import rreil.lang.lowlevel.LowLevelRReil;
+import rreil.lang.util.RReilVisitor;
+import rreil.lang.util.RhsVisitor;
+import bindis.DecodeException;
+import bindis.Disassembler;
+
+/**
+ * A virtual machine for executing {@code RReil} code that is fast enough to run the translated code of whole
+ * programs. The native instructions up to the next branch are decoded once into a basic block that is cached by its
+ * address. The statements of a block are compiled into closures over a flat register file of longs, see
+ * {@link CompiledCtx}, and the memory is a sparse {@link PagedMemory}.<br>
+ *
+ * The statements have the semantics of {@link RReilInterp} with the values computed modulo 2^64 instead of as
+ * arbitrary precision integers. Thus registers must not be wider than 64 bits. The native branches set the program
+ * counter of the context and branches to {@code RReil} addresses are supported within an instruction. Unlike the
+ * default interpreter, undefined values evaluate to the lowest value of their range, as the translated code assigns
+ * them e.g. to the flags that an instruction leaves undefined.
+ */
+public class CompiledRReilMachine {
+  private static final int maxBlockLength = 64;
+  private final Disassembler dis;
+  private final byte[] code;
+  private final long codeAddress;
+  private final Map<MemVar, Integer> slots = new HashMap<MemVar, Integer>();
+  private final Map<Long, Block> blocks = new HashMap<Long, Block>();
+
+  /**
+   * @param dis The disassembler used to decode and translate the instructions.
+   * @param code The code to be executed. It must not be modified while the machine is used.
+   * @param codeAddress The address of the first byte of the code.
+   */
+  public CompiledRReilMachine (Disassembler dis, byte[] code, long codeAddress) {
+    this.dis = dis;
+    this.code = code;
+    this.codeAddress = codeAddress;
+  }
+
+  public Disassembler getDisassembler () {
+    return dis;
+  }
+
+  /**
+   * Return an empty state with the program counter at the start of the code.
+   */
+  public CompiledCtx emptyCtx () {
+    return new CompiledCtx(this, new PagedMemory(dis.getByteOrder()), codeAddress);
+  }
+
+  /**
+   * Execute the instruction at the program counter.
+   *
+   * @return {@code false} if the program counter is outside of the code
+   */
+  public boolean step (CompiledCtx ctx) {
+    return run(ctx, 1) == 1;
+  }
+
+  /**
+   * Execute instructions starting at the program counter until the program counter leaves the code or the given
+   * number of instructions has been executed.
+   *
+   * @return the number of executed instructions
+   */
+  public long run (CompiledCtx ctx, long maxInstructions) {
+    long executed = 0;
+    Block block = null;
+    while (executed < maxInstructions) {
+      long pc = ctx.pc;
+      Block next;
+      if (block != null && block.successor != null && block.successorAddress == pc) {
+        next = block.successor;
+      } else {
+        next = lookup(pc);
+        if (next == null)
+          break;
+        if (block != null) {
+          block.successor = next;
+          block.successorAddress = pc;
+        }
+      }
+      block = next;
+      executed = executed + block.execute(ctx, ctx.registers(slots.size()), maxInstructions - executed);
+    }
+    return executed;
+  }
+
+  private boolean inCode (long address) {
+    return address >= codeAddress && address - codeAddress < code.length;
+  }
+
+  private Block lookup (long pc) {
+    Block block = blocks.get(pc);
+    if (block == null) {
+      if (!inCode(pc))
+        return null;
+      block = compileBlock(pc);
+      blocks.put(pc, block);
+    }
+    return block;
+  }
+
+  private Block compileBlock (long pc) {
+    List<CompiledInstruction> instructions = new ArrayList<CompiledInstruction>();
+    long address = pc;
+    while (instructions.size() < maxBlockLength && inCode(address)) {
+      Instruction instruction;
+      try {
+        instruction = dis.decodeOne(code, (int) (address - codeAddress), address);
+      } catch (DecodeException e) {
+        // report the error only when the instruction is executed
+        if (instructions.isEmpty())
+          throw e;
+        break;
+      }
+      CompiledInstruction compiled = new StatementCompiler(instruction).compile();
+      instructions.add(compiled);
+      address = compiled.next;
+      if (compiled.branches)
+        break;
+    }
+    return new Block(instructions.toArray(new CompiledInstruction[instructions.size()]));
+  }
+
+  int slotOf (MemVar register) {
+    Integer slot = slots.get(register);
+    if (slot == null) {
+      slot = slots.size();
+      slots.put(register, slot);
+    }
+    return slot;
+  }
+
+  static long mask (int size) {
+    return size >= 64 ? -1L : (1L << size) - 1;
+  }
+
+  private static void checkWidth (int size, int offset, Object variable) {
+    if (size + offset > 64)
+      throw new RReilMachineException("Registers wider than 64 bits are not supported: " + variable);
+  }
+
+  static int compareUnsigned (long a, long b) {
+    return Long.compare(a ^ Long.MIN_VALUE, b ^ Long.MIN_VALUE);
+  }
+
+  static long divideUnsigned (long dividend, long divisor) {
+    if (divisor < 0)
+      return compareUnsigned(dividend, divisor) < 0 ? 0 : 1;
+    if (dividend >= 0)
+      return dividend / divisor;
+    long quotient = (dividend >>> 1) / divisor << 1;
+    long remainder = dividend - quotient * divisor;
+    return quotient + (compareUnsigned(remainder, divisor) >= 0 ? 1 : 0);
+  }
+
+  static long remainderUnsigned (long dividend, long divisor) {
+    return dividend - divideUnsigned(dividend, divisor) * divisor;
+  }
+
+  /**
+   * A sequence of instructions that is only left by the branch of its last instruction.
+   */
+  private static final class Block {
+    private final CompiledInstruction[] instructions;
+    // the block executed after this one the last time
+    private Block successor;
+    private long successorAddress;
+
+    Block (CompiledInstruction[] instructions) {
+      this.instructions = instructions;
+    }
+
+    int execute (CompiledCtx ctx, long[] regs, long maxInstructions) {
+      int length = (int) Math.min(maxInstructions, instructions.length);
+      for (int i = 0; i < length; i++) {
+        CompiledInstruction instruction = instructions[i];
+        ctx.pc = instruction.next;
+        instruction.execute(ctx, regs);
+        if (ctx.pc != instruction.next)
+          return i + 1;
+      }
+      return length;
+    }
+  }
+
+  private static final class CompiledInstruction {
+    private final long next;
+    private final Stmt[] statements;
+    private final boolean branches;
+
+    CompiledInstruction (long next, Stmt[] statements, boolean branches) {
+      this.next = next;
+      this.statements = statements;
+      this.branches = branches;
+    }
+
+    void execute (CompiledCtx ctx, long[] regs) {
+      int i = 0;
+      while (i < statements.length) {
+        i = statements[i].run(ctx, regs);
+      }
+    }
+  }
+
+  /**
+   * Compiles the statements of one native instruction.
+   */
+  private final class StatementCompiler implements RReilVisitor<Stmt, Void> {
+    private final Instruction instruction;
+    private final ExprCompiler exprs = new ExprCompiler();
+    private final List<BranchWithinInstruction> branchesWithin = new ArrayList<BranchWithinInstruction>();
+    private boolean branches;
+
+    StatementCompiler (Instruction instruction) {
+      this.instruction = instruction;
+    }
+
+    CompiledInstruction compile () {
+      List<Stmt> statements = new ArrayList<Stmt>();
+      // the index of the compiled statement for each RReil offset
+      Map<Integer, Integer> indices = new HashMap<Integer, Integer>();
+      for (LowLevelRReil insn : instruction.toRReilInstructions()) {
+        RReil rreil = insn.toRReil();
+        indices.put(insn.address().offset(), statements.size());
+        Stmt statement;
+        try {
+          statement = rreil.accept(this, null);
+        } catch (RReilMachineException e) {
+          statement = new Unsupported(e.getMessage());
+        }
+        if (statement != null)
+          statements.add(statement);
+      }
+      int end = statements.size();
+      for (int i = 0; i < end; i++) {
+        statements.get(i).next = i + 1;
+      }
+      for (BranchWithinInstruction branch : branchesWithin) {
+        Integer target = indices.get(branch.targetOffset);
+        branch.target = target == null ? end : target;
+      }
+      for (Stmt statement : statements) {
+        if (statement instanceof NativeBranch)
+          ((NativeBranch) statement).end = end;
+      }
+      long next = instruction.baseAddress() + instruction.length();
+      return new CompiledInstruction(next, statements.toArray(new Stmt[end]), branches);
+    }
+
+    private int slot (Lhs lhs) {
+      checkWidth(lhs.getSize(), lhs.getOffset(), lhs);
+      return slotOf(lhs.getRegionId());
+    }
+
+    @Override public Stmt visit (Assign stmt, Void data) {
+      exprs.signed = SignednessHint.DontCare;
+      Lhs lhs = stmt.getLhs();
+      Expr value = stmt.getRhs().accept(exprs, null);
+      return new AssignStmt(slot(lhs), lhs.getOffset(), lhs.getSize(), value);
+    }
+
+    @Override public Stmt visit (Load stmt, Void data) {
+      exprs.signed = SignednessHint.DontCare;
+      Lhs lhs = stmt.getLhs();
+      Expr address = stmt.getReadAddress().accept(exprs, null);
+      return new LoadStmt(slot(lhs), lhs.getOffset(), lhs.getSize(), stmt.lhsSize(), address);
+    }
+
+    @Override public Stmt visit (Store stmt, Void data) {
+      exprs.signed = SignednessHint.DontCare;
+      Expr address = stmt.getWriteAddress().accept(exprs, null);
+      Expr value = stmt.getRhs().accept(exprs, null);
+      return new StoreStmt(stmt.rhsSize(), address, value);
+    }
+
+    @Override public Stmt visit (Branch stmt, Void data) {
+      branches = true;
+      exprs.signed = SignednessHint.DontCare;
+      return new NativeBranch(new Const(1), stmt.getTarget().accept(exprs, null));
+    }
+
+    @Override public Stmt visit (BranchToNative stmt, Void data) {
+      branches = true;
+      exprs.signed = SignednessHint.DontCare;
+      Expr condition = stmt.getCond().accept(exprs, null);
+      return new NativeBranch(condition, stmt.getTarget().accept(exprs, null));
+    }
+
+    @Override public Stmt visit (BranchToRReil stmt, Void data) {
+      RReilAddr target = stmt.getTarget().getAddress();
+      if (target.base() != instruction.baseAddress())
+        throw new RReilMachineException("Branches to the RReil code of other instructions are not supported");
+      exprs.signed = SignednessHint.DontCare;
+      BranchWithinInstruction branch = new BranchWithinInstruction(stmt.getCond().accept(exprs, null), target.offset());
+      branchesWithin.add(branch);
+      return branch;
+    }
+
+    @Override public Stmt visit (PrimOp stmt, Void data) {
+      return new Unsupported("Primitive operations are not supported: " + stmt);
+    }
+
+    @Override public Stmt visit (Native stmt, Void data) {
+      return new Unsupported("Native statements are not supported: " + stmt);
+    }
+
+    @Override public Stmt visit (Nop stmt, Void data) {
+      return null;
+    }
+
+    @Override public Stmt visit (Assertion stmt, Void data) {
+      return null;
+    }
+
+    @Override public Stmt visit (Throw stmt, Void data) {
+      return new Unsupported("Exceptions are not supported: " + stmt);
+    }
+
+    @Override public Stmt visit (Flop stmt, Void data) {
+      return new Unsupported("Floating point operations are not supported: " + stmt);
+    }
+  }
+
+  /**
+   * Compiles the right-hand-sides. Keeps track of the signedness of the operands the same way as {@link RReilInterp}.
+   */
+  private final class ExprCompiler implements RhsVisitor<Expr, Void> {
+    private SignednessHint signed;
+
+    @Override public Expr visit (Bin expr, Void data) {
+      signed = expr.getOp().signedness();
+      Expr left = expr.getLeft().accept(this, null);
+      Expr right = expr.getRight().accept(this, null);
+      switch (expr.getOp()) {
+      case Add:
+        return new Add(left, right);
+      case Sub:
+        return new Sub(left, right);
+      case And:
+        return new And(left, right);
+      case Divu:
+        return new Divu(left, right);
+      case Divs:
+        return new Divs(left, right);
+      case Mod:
+        return new Mod(left, right);
+      case Mods:
+        return new Mods(left, right);
+      case Or:
+        return new Or(left, right);
+      case Mul:
+        return new Mul(left, right);
+      case Shl:
+        return new Shl(left, right);
+      case Shr:
+        return new Shr(left, right);
+      case Shrs:
+        return new Shrs(left, right);
+      case Xor:
+        return new Xor(left, right);
+      default:
+        throw new RReilMachineException("Unhandled binary operation: " + expr.getOp());
+      }
+    }
+
+    @Override public Expr visit (LinBin expr, Void data) {
+      signed = expr.getOp().signedness();
+      Expr left = expr.getLeft().accept(this, null);
+      Expr right = expr.getRight().accept(this, null);
+      switch (expr.getOp()) {
+      case Add:
+        return new Add(left, right);
+      case Sub:
+        return new Sub(left, right);
+      default:
+        throw new RReilMachineException("Unhandled binary operation: " + expr.getOp());
+      }
+    }
+
+    @Override public Expr visit (LinRval expr, Void data) {
+      return expr.getRval().accept(this, null);
+    }
+
+    @Override public Expr visit (LinScale expr, Void data) {
+      signed = SignednessHint.DontCare;
+      Expr operand = expr.getOpnd().accept(this, null);
+      return new Scale(operand, expr.getConst().getValue().longValue());
+    }
+
+    @Override public Expr visit (Cmp expr, Void data) {
+      signed = expr.getOp().signedness();
+      Expr left = expr.getLeft().accept(this, null);
+      Expr right = expr.getRight().accept(this, null);
+      switch (expr.getOp()) {
+      case Cmpeq:
+        return new Cmpeq(left, right);
+      case Cmpneq:
+        return new Cmpneq(left, right);
+      case Cmples:
+        return new Cmples(left, right);
+      case Cmpleu:
+        return new Cmpleu(left, right);
+      case Cmplts:
+        return new Cmplts(left, right);
+      case Cmpltu:
+        return new Cmpltu(left, right);
+      default:
+        throw new RReilMachineException("Unhandled comparison operation: " + expr.getOp());
+      }
+    }
+
+    @Override public Expr visit (SignExtend expr, Void data) {
+      signed = SignednessHint.ForceSigned;
+      return expr.getRhs().accept(this, null);
+    }
+
+    @Override public Expr visit (Convert expr, Void data) {
+      signed = SignednessHint.ForceUnsigned;
+      return expr.getRhs().accept(this, null);
+    }
+
+    @Override public Expr visit (Rvar variable, Void data) {
+      checkWidth(variable.getSize(), variable.getOffset(), variable);
+      int slot = slotOf(variable.getRegionId());
+      if (signed == SignednessHint.ForceSigned)
+        return new SignedVar(slot, variable.getOffset(), variable.getSize());
+      return new UnsignedVar(slot, variable.getOffset(), variable.getSize());
+    }
+
+    @Override public Expr visit (Rlit literal, Void data) {
+      int size = literal.getSize();
+      if (size > 64)
+        throw new RReilMachineException("Literals wider than 64 bits are not supported: " + literal);
+      BigInt value = literal.getValue();
+      long bits = value.getValue().longValue() & mask(size);
+      if (signed == SignednessHint.ForceSigned && size < 64)
+        bits = bits << 64 - size >> 64 - size;
+      return new Const(bits);
+    }
+
+    @Override public Expr visit (RangeRhs range, Void data) {
+      // an undefined value, the same value is chosen as by the interpreter that allows undefined values
+      Bound low = range.getRange().low();
+      BigInt value = low.isFinite() ? low.asInteger() : Bound.ZERO;
+      return new Const(value.getValue().longValue() & mask(range.getSize()));
+    }
+
+    @Override public Expr visit (Address expr, Void data) {
+      throw new RReilMachineException("Addresses are not supported: " + expr);
+    }
+  }
+
+  private static abstract class Stmt {
+    int next;
+
+    /**
+     * Execute the statement.
+     *
+     * @return the index of the next statement of the instruction
+     */
+    abstract int run (CompiledCtx ctx, long[] regs);
+  }
+
+  private static final class AssignStmt extends Stmt {
+    private final int slot;
+    private final int offset;
+    private final long mask;
+    private final Expr value;
+
+    AssignStmt (int slot, int offset, int size, Expr value) {
+      this.slot = slot;
+      this.offset = offset;
+      this.mask = mask(size) << offset;
+      this.value = value;
+    }
+
+    @Override int run (CompiledCtx ctx, long[] regs) {
+      regs[slot] = regs[slot] & ~mask | value.eval(regs) << offset & mask;
+      return next;
+    }
+  }
+
+  private static final class LoadStmt extends Stmt {
+    private final int slot;
+    private final int offset;
+    private final long mask;
+    private final int size;
+    private final Expr address;
+
+    LoadStmt (int slot, int offset, int lhsSize, int size, Expr address) {
+      this.slot = slot;
+      this.offset = offset;
+      this.mask = mask(lhsSize) << offset;
+      this.size = size;
+      this.address = address;
+    }
+
+    @Override int run (CompiledCtx ctx, long[] regs) {
+      long value = ctx.getMemory().load(size, address.eval(regs));
+      regs[slot] = regs[slot] & ~mask | value << offset & mask;
+      return next;
+    }
+  }
+
+  private static final class StoreStmt extends Stmt {
+    private final int size;
+    private final Expr address;
+    private final Expr value;
+
+    StoreStmt (int size, Expr address, Expr value) {
+      this.size = size;
+      this.address = address;
+      this.value = value;
+    }
+
+    @Override int run (CompiledCtx ctx, long[] regs) {
+      ctx.getMemory().store(size, address.eval(regs), value.eval(regs));
+      return next;
+    }
+  }
+
+  private static final class NativeBranch extends Stmt {
+    private final Expr condition;
+    private final Expr target;
+    int end;
+
+    NativeBranch (Expr condition, Expr target) {
+      this.condition = condition;
+      this.target = target;
+    }
+
+    @Override int run (CompiledCtx ctx, long[] regs) {
+      if (condition.eval(regs) == 0)
+        return next;
+      ctx.pc = target.eval(regs);
+      return end;
+    }
+  }
+
+  private static final class BranchWithinInstruction extends Stmt {
+    private final Expr condition;
+    private final int targetOffset;
+    int target;
+
+    BranchWithinInstruction (Expr condition, int targetOffset) {
+      this.condition = condition;
+      this.targetOffset = targetOffset;
+    }
+
+    @Override int run (CompiledCtx ctx, long[] regs) {
+      if (condition.eval(regs) == 0)
+        return next;
+      return target;
+    }
+  }
+
+  private static final class Unsupported extends Stmt {
+    private final String message;
+
+    Unsupported (String message) {
+      this.message = message;
+    }
+
+    @Override int run (CompiledCtx ctx, long[] regs) {
+      throw new RReilMachineException(message);
+    }
+  }
+
+  private static abstract class Expr {
+    abstract long eval (long[] regs);
+  }
+
+  private static abstract class BinExpr extends Expr {
+    final Expr left;
+    final Expr right;
+
+    BinExpr (Expr left, Expr right) {
+      this.left = left;
+      this.right = right;
+    }
+  }
+
+  private static final class Const extends Expr {
+    private final long value;
+
+    Const (long value) {
+      this.value = value;
+    }
+
+    @Override long eval (long[] regs) {
+      return value;
+    }
+  }
+
+  private static final class UnsignedVar extends Expr {
+    private final int slot;
+    private final int offset;
+    private final long mask;
+
+    UnsignedVar (int slot, int offset, int size) {
+      this.slot = slot;
+      this.offset = offset;
+      this.mask = mask(size);
+    }
+
+    @Override long eval (long[] regs) {
+      return regs[slot] >>> offset & mask;
+    }
+  }
+
+  private static final class SignedVar extends Expr {
+    private final int slot;
+    private final int left;
+    private final int right;
+
+    SignedVar (int slot, int offset, int size) {
+      this.slot = slot;
+      this.left = 64 - size - offset;
+      this.right = 64 - size;
+    }
+
+    @Override long eval (long[] regs) {
+      return regs[slot] << left >> right;
+    }
+  }
+
+  private static final class Add extends BinExpr {
+    Add (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) + right.eval(regs);
+    }
+  }
+
+  private static final class Sub extends BinExpr {
+    Sub (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) - right.eval(regs);
+    }
+  }
+
+  private static final class Scale extends Expr {
+    private final Expr operand;
+    private final long factor;
+
+    Scale (Expr operand, long factor) {
+      this.operand = operand;
+      this.factor = factor;
+    }
+
+    @Override long eval (long[] regs) {
+      return operand.eval(regs) * factor;
+    }
+  }
+
+  private static final class And extends BinExpr {
+    And (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) & right.eval(regs);
+    }
+  }
+
+  private static final class Or extends BinExpr {
+    Or (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) | right.eval(regs);
+    }
+  }
+
+  private static final class Xor extends BinExpr {
+    Xor (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) ^ right.eval(regs);
+    }
+  }
+
+  private static final class Mul extends BinExpr {
+    Mul (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) * right.eval(regs);
+    }
+  }
+
+  private static final class Divu extends BinExpr {
+    Divu (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return divideUnsigned(left.eval(regs), right.eval(regs));
+    }
+  }
+
+  private static final class Divs extends BinExpr {
+    Divs (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) / right.eval(regs);
+    }
+  }
+
+  private static final class Mod extends BinExpr {
+    Mod (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return remainderUnsigned(left.eval(regs), right.eval(regs));
+    }
+  }
+
+  private static final class Mods extends BinExpr {
+    Mods (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) % right.eval(regs);
+    }
+  }
+
+  private static final class Shl extends BinExpr {
+    Shl (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      long value = left.eval(regs);
+      long amount = right.eval(regs);
+      return amount < 0 || amount >= 64 ? 0 : value << amount;
+    }
+  }
+
+  private static final class Shr extends BinExpr {
+    Shr (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      long value = left.eval(regs);
+      long amount = right.eval(regs);
+      return amount < 0 || amount >= 64 ? 0 : value >>> amount;
+    }
+  }
+
+  private static final class Shrs extends BinExpr {
+    Shrs (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      long value = left.eval(regs);
+      long amount = right.eval(regs);
+      // a negative amount shifts to the left as in BigInt
+      if (amount < 0)
+        return amount <= -64 ? 0 : value << -amount;
+      return value >> Math.min(amount, 63);
+    }
+  }
+
+  private static final class Cmpeq extends BinExpr {
+    Cmpeq (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) == right.eval(regs) ? 1 : 0;
+    }
+  }
+
+  private static final class Cmpneq extends BinExpr {
+    Cmpneq (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) != right.eval(regs) ? 1 : 0;
+    }
+  }
+
+  private static final class Cmples extends BinExpr {
+    Cmples (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) <= right.eval(regs) ? 1 : 0;
+    }
+  }
+
+  private static final class Cmplts extends BinExpr {
+    Cmplts (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return left.eval(regs) < right.eval(regs) ? 1 : 0;
+    }
+  }
+
+  private static final class Cmpleu extends BinExpr {
+    Cmpleu (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return compareUnsigned(left.eval(regs), right.eval(regs)) <= 0 ? 1 : 0;
+    }
+  }
+
+  private static final class Cmpltu extends BinExpr {
+    Cmpltu (Expr left, Expr right) {
+      super(left, right);
+    }
+
+    @Override long eval (long[] regs) {
+      return compareUnsigned(left.eval(regs), right.eval(regs)) < 0 ? 1 : 0;
+    }
+  }
+}
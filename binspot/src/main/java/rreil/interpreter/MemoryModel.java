@@ -63,11 +63,11 @@ public final class MemoryModel {
         break;
       }
       case 32: {
-        data.putInt((int) (address - baseAddress), value.intValue());
+        data.putInt((int) (address - baseAddress), value.getValue().intValue());
         break;
       }
       case 64: {
-        data.putLong((int) (address - baseAddress), value.longValue());
+        data.putLong((int) (address - baseAddress), value.getValue().longValue());
         break;
       }
       default:
@@ -0,0 +1,181 @@
+package rreil.interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A sparse memory for the {@link CompiledRReilMachine}. The memory is split into pages that are allocated on the first
+ * write to them. Reading from memory that was never written yields zero. The values are read and written as longs
+ * without boxing.
+ */
+public final class PagedMemory {
+  private static final int pageBits = 12;
+  private static final int pageSize = 1 << pageBits;
+  private static final int pageMask = pageSize - 1;
+  private final ByteOrder order;
+  // open addressing hash table from page numbers to pages
+  private long[] pageNumbers = new long[64];
+  private ByteBuffer[] pages = new ByteBuffer[64];
+  private int size;
+  private long lastPageNumber = -1;
+  private ByteBuffer lastPage;
+
+  public PagedMemory (ByteOrder order) {
+    this.order = order;
+  }
+
+  public ByteOrder getByteOrder () {
+    return order;
+  }
+
+  /**
+   * Copy the given bytes to memory, e.g. the data of a segment.
+   */
+  public void write (long address, byte[] data) {
+    for (int i = 0; i < data.length; i++) {
+      page(address + i, true).put(offset(address + i), data[i]);
+    }
+  }
+
+  public byte[] read (long address, int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = loadByte(address + i);
+    }
+    return data;
+  }
+
+  /**
+   * Load an unsigned value of {@code size} bits from memory.
+   */
+  public long load (int size, long address) {
+    checkSize(size);
+    int offset = offset(address);
+    if (offset + size / 8 <= pageSize) {
+      ByteBuffer page = page(address, false);
+      if (page == null)
+        return 0;
+      switch (size) {
+      case 8:
+        return page.get(offset) & 0xffL;
+      case 16:
+        return page.getShort(offset) & 0xffffL;
+      case 32:
+        return page.getInt(offset) & 0xffffffffL;
+      case 64:
+        return page.getLong(offset);
+      default:
+        break;
+      }
+    }
+    long value = 0;
+    int bytes = size / 8;
+    for (int i = 0; i < bytes; i++) {
+      long b = loadByte(address + i) & 0xffL;
+      if (order == ByteOrder.LITTLE_ENDIAN)
+        value = value | b << 8 * i;
+      else
+        value = value << 8 | b;
+    }
+    return value;
+  }
+
+  /**
+   * Store the lower {@code size} bits of {@code value} to memory.
+   */
+  public void store (int size, long address, long value) {
+    checkSize(size);
+    int offset = offset(address);
+    if (offset + size / 8 <= pageSize) {
+      ByteBuffer page = page(address, true);
+      switch (size) {
+      case 8:
+        page.put(offset, (byte) value);
+        return;
+      case 16:
+        page.putShort(offset, (short) value);
+        return;
+      case 32:
+        page.putInt(offset, (int) value);
+        return;
+      case 64:
+        page.putLong(offset, value);
+        return;
+      default:
+        break;
+      }
+    }
+    int bytes = size / 8;
+    for (int i = 0; i < bytes; i++) {
+      int shift = order == ByteOrder.LITTLE_ENDIAN ? 8 * i : 8 * (bytes - 1 - i);
+      page(address + i, true).put(offset(address + i), (byte) (value >>> shift));
+    }
+  }
+
+  private static void checkSize (int size) {
+    if (size <= 0 || size > 64 || size % 8 != 0)
+      throw new RReilMachineException("Invalid memory access size :" + size);
+  }
+
+  private byte loadByte (long address) {
+    ByteBuffer page = page(address, false);
+    if (page == null)
+      return 0;
+    return page.get(offset(address));
+  }
+
+  private static int offset (long address) {
+    return (int) address & pageMask;
+  }
+
+  private ByteBuffer page (long address, boolean allocate) {
+    long number = address >>> pageBits;
+    if (number == lastPageNumber)
+      return lastPage;
+    int mask = pages.length - 1;
+    int i = hash(number) & mask;
+    while (pages[i] != null) {
+      if (pageNumbers[i] == number)
+        return cache(number, pages[i]);
+      i = (i + 1) & mask;
+    }
+    if (!allocate)
+      return null;
+    ByteBuffer page = ByteBuffer.allocate(pageSize).order(order);
+    pageNumbers[i] = number;
+    pages[i] = page;
+    size++;
+    if (size * 2 > pages.length)
+      grow();
+    return cache(number, page);
+  }
+
+  private ByteBuffer cache (long number, ByteBuffer page) {
+    lastPageNumber = number;
+    lastPage = page;
+    return page;
+  }
+
+  private void grow () {
+    long[] oldNumbers = pageNumbers;
+    ByteBuffer[] oldPages = pages;
+    pageNumbers = new long[oldNumbers.length * 2];
+    pages = new ByteBuffer[oldPages.length * 2];
+    int mask = pages.length - 1;
+    for (int j = 0; j < oldPages.length; j++) {
+      if (oldPages[j] == null)
+        continue;
+      int i = hash(oldNumbers[j]) & mask;
+      while (pages[i] != null) {
+        i = (i + 1) & mask;
+      }
+      pageNumbers[i] = oldNumbers[j];
+      pages[i] = oldPages[j];
+    }
+  }
+
+  private static int hash (long number) {
+    long h = number * 0x9e3779b97f4a7c15L;
+    return (int) (h ^ h >>> 32);
+  }
+}
@@ -40,9 +40,19 @@ import rreil.lang.util.RhsVisitor;
  * @author mb0
  */
 public final class RReilInterp implements RReilVisitor<Void, InterpCtx> {
-  private static final Eval eval = new Eval(); // Be aware that {Eval} mutates its state!
+  private final Eval eval; // Be aware that {Eval} mutates its state!
 
-  public RReilInterp (final Rvar pc) {}
+  public RReilInterp (final Rvar pc) {
+    this(pc, false);
+  }
+
+  /**
+   * @param undefinedValues Whether the undefined values, i.e. the ranges, evaluate to their lowest value as in the
+   *          {@link CompiledRReilMachine} instead of being rejected
+   */
+  public RReilInterp (final Rvar pc, boolean undefinedValues) {
+    eval = new Eval(undefinedValues);
+  }
 
   public void run (RReil insn, final InterpCtx ctx) {
     insn.accept(this, ctx);
@@ -109,13 +119,22 @@ public final class RReilInterp implements RReilVisitor<Void, InterpCtx> {
   }
 
   private static final class Eval implements RhsVisitor<BigInt, InterpCtx> {
+    private final boolean undefinedValues;
     private SignednessHint signed;
 
+    private Eval (boolean undefinedValues) {
+      this.undefinedValues = undefinedValues;
+    }
+
     @Override public BigInt visit (Bin expr, InterpCtx ctx) {
       signed = expr.getOp().signedness();
       final BigInt left = expr.getLeft().accept(this, ctx);
       final BigInt right = expr.getRight().accept(this, ctx);
       switch (expr.getOp()) {
+        case Add:
+          return left.add(right);
+        case Sub:
+          return left.sub(right);
         case And:
           return left.and(right);
         case Divu:
@@ -124,6 +143,8 @@ public final class RReilInterp implements RReilVisitor<Void, InterpCtx> {
           return left.div(right);
         case Mod:
           return left.mod(right);
+        case Mods:
+          return left.remainder(right);
         case Or:
           return left.or(right);
         case Mul:
@@ -217,7 +238,11 @@ public final class RReilInterp implements RReilVisitor<Void, InterpCtx> {
     }
 
     @Override public BigInt visit (RangeRhs range, InterpCtx ctx) {
-      throw new RReilMachineException("Range values not allowed");
+      if (!undefinedValues)
+        throw new RReilMachineException("Range values not allowed");
+      // an undefined value, thus any value of the range is a valid result
+      Bound low = range.getRange().low();
+      return low.isFinite() ? low.asInteger() : Bound.ZERO;
     }
 
     @Override public BigInt visit (Address expr, InterpCtx data) {
@@ -21,16 +21,26 @@ public class RReilMachine {
   private static final RhsFactory exprs = RhsFactory.getInstance();
   private final Disassembler dis;
   private final Rvar pc;
+  private final boolean undefinedValues;
 
   public RReilMachine (Disassembler dis, int pcBitWidth) {
-    this.dis = dis;
-    pc = exprs.variable(pcBitWidth, 0, MemVar.getVarOrFresh("$pc"));
+    this(dis, pcBitWidth, false);
   }
 
   public RReilMachine (Disassembler dis) {
     this(dis, $DefaultPcBitWidth);
   }
 
+  /**
+   * @param undefinedValues Whether the undefined values that the translation of some instructions assigns, e.g. to
+   *          the flags, evaluate to their lowest value as in the {@link CompiledRReilMachine} instead of being rejected
+   */
+  public RReilMachine (Disassembler dis, int pcBitWidth, boolean undefinedValues) {
+    this.dis = dis;
+    this.undefinedValues = undefinedValues;
+    pc = exprs.variable(pcBitWidth, 0, MemVar.getVarOrFresh("$pc"));
+  }
+
   public void evalOne (final MachineCtx ctx) {
     Instruction instruction = dis.decodeOne(ctx.getCode(), ctx.getOffset(), ctx.getStartPc());
     run(buildInsnMap(instruction), ctx);
@@ -53,7 +63,7 @@ public class RReilMachine {
   }
 
   private void run (final Map<Integer, RReil> code, final MachineCtx ctx) {
-    final RReilInterp interp = new RReilInterp(pc);
+    final RReilInterp interp = new RReilInterp(pc, undefinedValues);
     // final RegisterModel registers = ctx.getCtx().getRegisters();
     // registers.set(pc.asLhs(), BigInt.ZERO);
     BigInt currentPc = Bound.ZERO;
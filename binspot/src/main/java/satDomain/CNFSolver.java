@@ -4,26 +4,75 @@
  */
 package satDomain;
 
+import org.sat4j.core.VecInt;
 import org.sat4j.minisat.SolverFactory;
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.ISolver;
 import org.sat4j.specs.TimeoutException;
 
 /**
+ * An incremental solver session. The clauses of a CNF are added once and kept in the solver such that the
+ * satisfiability of a growing CNF can be checked repeatedly without adding all its clauses again.
+ *
+ * A session can be shared by the copies of a CNF. As the clauses of one copy must then not constrain the others, the
+ * clauses added after sharing are guarded by selector variables and are only enabled by passing their selectors as
+ * assumptions to {@link #checkSat(int[])}. The selectors are allocated above the range of variables reserved for the
+ * clauses.
+ *
+ * The clauses of a selector that is not used anymore are disabled for good with {@link #retire(int)} but they are still
+ * kept by the solver. Thus a session that was used for many checks should be replaced by a new one, see
+ * {@link #isWornOut()}.
+ *
  * @author Axel Simon
  * @author hsi
  *
  */
 class CNFSolver {
+  /**
+   * The number of selectors after which a session is worn out.
+   */
+  static final int maxSelectors = 512;
+  /**
+   * The number of clauses guarded by selectors after which a session is worn out.
+   */
+  static final int maxGuardedClauses = 8192;
   private ISolver solver;
+  private final int reservedVars;
+  private int lastSelector;
+  private boolean shared;
+  private int clauses;
+  private int guardedClauses;
 
   CNFSolver (int numVars) {
     solver = SolverFactory.newDefault();
-    final int resVars = solver.newVar(numVars);
-    assert resVars == numVars;
+    // leave some room for the variables introduced later on by the CNF
+    reservedVars = numVars * 2 + 64;
+    lastSelector = reservedVars;
+    final int resVars = solver.newVar(reservedVars);
+    assert resVars == reservedVars;
+  }
+
+  /**
+   * Returns {@code true} if clauses over the variables up to {@code lastVar} do not clash with the selectors.
+   */
+  boolean canHold (int lastVar) {
+    return lastVar <= reservedVars;
   }
 
-  void addClause (Clause clause) {
+  synchronized void share () {
+    shared = true;
+  }
+
+  synchronized boolean isShared () {
+    return shared;
+  }
+
+  synchronized int newSelector () {
+    return ++lastSelector;
+  }
+
+  synchronized void addClause (Clause clause) {
+    clauses++;
     if (solver != null)
       try {
         addClauseUnchecked(clause);
@@ -32,11 +81,43 @@ class CNFSolver {
       }
   }
 
-  boolean checkSat () {
+  /**
+   * Add a clause that is only enabled if the given selector is assumed to be true.
+   */
+  synchronized void addClause (Clause clause, int selector) {
+    guardedClauses++;
+    addClause(clause.append(-selector));
+  }
+
+  /**
+   * Disable the clauses of the given selector permanently. The selector must not be used afterwards.
+   */
+  synchronized void retire (int selector) {
+    addClause(new Clause(new int[] {-selector}));
+  }
+
+  /**
+   * Returns {@code true} if so many selectors or guarded clauses were added that a new session should be used instead.
+   */
+  synchronized boolean isWornOut () {
+    return lastSelector - reservedVars > maxSelectors || guardedClauses > maxGuardedClauses;
+  }
+
+  /**
+   * Returns the number of clauses added to this session.
+   */
+  synchronized int size () {
+    return clauses;
+  }
+
+  /**
+   * Check the satisfiability of the unguarded clauses and the clauses enabled by the given selectors.
+   */
+  synchronized boolean checkSat (int[] selectors) {
     if (solver == null)
       return false;
     try {
-      return solver.isSatisfiable();
+      return solver.isSatisfiable(new VecInt(selectors.clone()));
     } catch (final TimeoutException e) {
       throw new UnexpectedComplexity("checkSat");
     }
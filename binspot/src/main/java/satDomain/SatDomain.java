@@ -1,6 +1,7 @@
 package satDomain;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,7 +13,13 @@ import bindead.debug.Benchmark;
  * @author hsi
  */
 public class SatDomain extends NumDomain<SatDomain> {
+  private static final int[] noSelectors = new int[0];
   private List<Clause> Cclauses;
+  // the solver session containing the first sessionClauses clauses, the clauses added to it after it has been shared
+  // with a copy are enabled by the selectors
+  private CNFSolver session;
+  private int sessionClauses;
+  private int[] sessionSelectors = noSelectors;
 
   public SatDomain () {
     super();
@@ -25,6 +32,12 @@ public class SatDomain extends NumDomain<SatDomain> {
     for (final Clause c : other.Cclauses) {
       assumeClause(new Clause(c));
     }
+    if (other.session != null && !other.session.isWornOut()) {
+      other.session.share();
+      session = other.session;
+      sessionClauses = other.sessionClauses;
+      sessionSelectors = other.sessionSelectors;
+    }
   }
 
   public void addClausesToInverter (final NativeInverter p) {
@@ -83,8 +96,10 @@ public class SatDomain extends NumDomain<SatDomain> {
     final ListIterator<Clause> iter = Cclauses.listIterator();
     while (iter.hasNext()) {
       final Clause clause = iter.next();
-      if (clause.containsAnyOf(fromSet))
+      if (clause.containsAnyOf(fromSet)) {
         iter.add(clause.renamedClause(renaming));
+        resetSession();
+      }
     }
     return renaming;
   }
@@ -107,22 +122,34 @@ public class SatDomain extends NumDomain<SatDomain> {
     // Benchmark.log("isSubset: other " + other);
     assert other.getLastVar() == getLastVar();
     // Benchmark.log(showType() + ".joinNumeric(" + other.showType() + ")");
-    final SatDomain thisN = new SatDomain(this);
+    final Object key = SatResults.key(getLastVar(), Cclauses, other.Cclauses);
+    final Boolean known = SatResults.get(key);
+    if (known != null)
+      return known;
     final SatDomain otherN = new SatDomain(other);
     otherN.invert("isSubset", getLastVar());
-    // Benchmark.log("other inverted: " + thisN);
+    // the inverted clauses are only enabled by the selector for this check
+    final CNFSolver solver = syncSession();
+    final int selector = solver.newSelector();
     for (final Clause c : otherN.Cclauses)
-      thisN.Cclauses.add(c);
-    // Benchmark.log("inverted otherN with thisN: " + thisN);
-    final boolean ready = thisN.isUnsatisfiable();
+      solver.addClause(c, selector);
+    final int[] selectors = Arrays.copyOf(sessionSelectors, sessionSelectors.length + 1);
+    selectors[sessionSelectors.length] = selector;
+    final boolean ready = !solver.checkSat(selectors);
+    solver.retire(selector);
     // Benchmark.log("isSubset: result " + ready);
+    SatResults.put(key, ready);
     return ready;
   }
 
-  // later: use minisat for this
   @Override public boolean isUnsatisfiable () {
     // Benchmark.log(showType() + ".isBottom()");
-    final boolean satisfiable = createSolver().checkSat();
+    final Object key = SatResults.key(getLastVar(), Cclauses);
+    final Boolean known = SatResults.get(key);
+    if (known != null)
+      return known;
+    final boolean satisfiable = syncSession().checkSat(sessionSelectors);
+    SatResults.put(key, !satisfiable);
     return !satisfiable;
   }
 
@@ -133,6 +160,7 @@ public class SatDomain extends NumDomain<SatDomain> {
     caddAllWithLiteral(d, cls);
     caddAllWithLiteral(-d, other.Cclauses);
     setLastVar(Math.max(getLastVar(), other.getLastVar()));
+    resetSession();
   }
 
   public void mergeVars (int i, int j) {
@@ -147,6 +175,7 @@ public class SatDomain extends NumDomain<SatDomain> {
       for (final Clause c : Cclauses)
         cls.add(c.mergeVars(i, j));
       Cclauses = cls;
+      resetSession();
       // assumeEquality(i, j);
     }
   }
@@ -211,6 +240,7 @@ public class SatDomain extends NumDomain<SatDomain> {
     for (final Clause c : Cclauses)
       cls.add(c.renamedClause(subst));
     Cclauses = cls;
+    resetSession();
   }
 
   void csetToBottom () {
@@ -220,6 +250,7 @@ public class SatDomain extends NumDomain<SatDomain> {
 
   void csetToTop () {
     Cclauses.clear();
+    resetSession();
   }
 
   boolean isTriviallyFalse () {
@@ -248,12 +279,46 @@ public class SatDomain extends NumDomain<SatDomain> {
       Cclauses.add(c.append(i));
   }
 
-  private CNFSolver createSolver () {
-    // Benchmark.log(showType() + ".createSolver()");
-    final CNFSolver s = new CNFSolver(getLastVar());
-    for (final Clause clause : Cclauses)
-      s.addClause(clause);
-    return s;
+  /**
+   * Add the clauses that were appended since the last check to the solver session. A new session is only created if
+   * the clauses were modified otherwise, if the new variables clash with the selectors of the session or if the session
+   * is worn out by the clauses of previous checks.
+   */
+  private CNFSolver syncSession () {
+    if (session == null || !session.canHold(getLastVar()) || session.isWornOut()) {
+      // Benchmark.log(showType() + ".createSolver()");
+      session = new CNFSolver(getLastVar());
+      sessionClauses = 0;
+      sessionSelectors = noSelectors;
+    }
+    if (sessionClauses < Cclauses.size()) {
+      final ListIterator<Clause> newClauses = Cclauses.listIterator(sessionClauses);
+      if (session.isShared()) {
+        final int selector = session.newSelector();
+        while (newClauses.hasNext())
+          session.addClause(newClauses.next(), selector);
+        sessionSelectors = Arrays.copyOf(sessionSelectors, sessionSelectors.length + 1);
+        sessionSelectors[sessionSelectors.length - 1] = selector;
+      } else {
+        while (newClauses.hasNext())
+          session.addClause(newClauses.next());
+      }
+      sessionClauses = Cclauses.size();
+    }
+    return session;
+  }
+
+  /**
+   * Returns the number of clauses in the solver session of this domain.
+   */
+  int sessionSize () {
+    return session == null ? 0 : session.size();
+  }
+
+  private void resetSession () {
+    session = null;
+    sessionClauses = 0;
+    sessionSelectors = noSelectors;
   }
 
   private void invert (String reason, int last) {
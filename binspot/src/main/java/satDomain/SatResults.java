@@ -0,0 +1,80 @@
+package satDomain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memoizes the results of the satisfiability and entailment checks of the CNFs. The results are shared by all the
+ * {@link SatDomain} instances, thus also by the ones wrapped in the {@link AffineSatDomain}s. The least recently used
+ * results are evicted.
+ */
+final class SatResults {
+  private static final int cacheSize = 4096;
+  private static final Map<Object, Boolean> results =
+    Collections.synchronizedMap(new LinkedHashMap<Object, Boolean>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override protected boolean removeEldestEntry (Map.Entry<Object, Boolean> eldest) {
+        return size() > cacheSize;
+      }
+    });
+
+  private SatResults () {
+  }
+
+  static Boolean get (Object key) {
+    return results.get(key);
+  }
+
+  static void put (Object key, boolean result) {
+    results.put(key, result);
+  }
+
+  /**
+   * The key for the check of a CNF.
+   */
+  static Object key (int lastVar, List<Clause> clauses) {
+    return new ClauseSet(lastVar, clauses);
+  }
+
+  /**
+   * The key for the check that the first CNF is a subset of the second one.
+   */
+  static Object key (int lastVar, List<Clause> clauses, List<Clause> otherClauses) {
+    return Arrays.asList(new ClauseSet(lastVar, clauses), new ClauseSet(lastVar, otherClauses));
+  }
+
+  /**
+   * The clauses of a CNF as a value. The clause arrays are never modified thus they are not copied.
+   */
+  private static final class ClauseSet {
+    private final int lastVar;
+    private final int[][] clauses;
+    private final int hashCode;
+
+    ClauseSet (int lastVar, List<Clause> cnf) {
+      this.lastVar = lastVar;
+      clauses = new int[cnf.size()][];
+      int i = 0;
+      for (final Clause clause : cnf)
+        clauses[i++] = clause.clause;
+      hashCode = 31 * lastVar + Arrays.deepHashCode(clauses);
+    }
+
+    @Override public int hashCode () {
+      return hashCode;
+    }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof ClauseSet))
+        return false;
+      final ClauseSet other = (ClauseSet) obj;
+      return hashCode == other.hashCode && lastVar == other.lastVar && Arrays.deepEquals(clauses, other.clauses);
+    }
+  }
+}
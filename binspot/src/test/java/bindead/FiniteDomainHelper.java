@@ -78,6 +78,16 @@ public class FiniteDomainHelper {
       return build((FiniteDomain) wrappedDomain.widen(other.wrappedDomain));
     }
 
+    /**
+     * Add the other state to this state.
+     * @return the joined (or widened) state or {@code null} if the other state is subset-or-equal to this state
+     */
+    @SuppressWarnings("unchecked") public RichFiniteDomain addToState (RichFiniteDomain other,
+        boolean isWideningPoint) {
+      FiniteDomain result = (FiniteDomain) wrappedDomain.addToState(other.wrappedDomain, isWideningPoint);
+      return result == null ? null : build(result);
+    }
+
     public boolean subsetOrEqual (RichFiniteDomain other) {
       return wrappedDomain.subsetOrEqual(other.wrappedDomain);
     }
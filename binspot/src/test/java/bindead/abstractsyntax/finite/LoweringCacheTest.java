@@ -0,0 +1,91 @@
+package bindead.abstractsyntax.finite;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javalx.numeric.BigInt;
+
+import org.junit.Test;
+
+import rreil.lang.BinOp;
+import rreil.lang.RReilAddr;
+import bindead.abstractsyntax.finite.Finite.Rhs;
+import bindead.abstractsyntax.finite.Finite.Rlin;
+import bindead.data.NumVar;
+
+/**
+ * Check that a statement lowered again with the same operands yields the previously built syntax.
+ */
+public class LoweringCacheTest {
+  private static final FiniteFactory fin = FiniteFactory.getInstance();
+  private static final RReilAddr address = RReilAddr.valueOf(0x1000);
+  private final Object statement = new Object();
+  private final Object variable = new Object();
+  private final Object literal = new Object();
+  private final Object binary = new Object();
+
+  private Rhs lower (LoweringCache cache, NumVar x) {
+    return lower(cache, address, x);
+  }
+
+  private Rhs lower (LoweringCache cache, RReilAddr address, NumVar x) {
+    LoweringCache.Lowering lowering = cache.begin(address, statement);
+    Rlin left = lowering.share(variable, fin.linear(32, x));
+    Rlin right = lowering.lookup(literal);
+    if (right == null)
+      right = lowering.record(literal, fin.literal(32, BigInt.of(4)));
+    Rhs result = lowering.lookup(binary, left, right);
+    if (result == null)
+      result = lowering.record(binary, left, right, fin.binary(left, BinOp.Add, right));
+    lowering.end();
+    return result;
+  }
+
+  @Test public void sameVariablesReuseSyntax () {
+    LoweringCache cache = new LoweringCache();
+    NumVar x = NumVar.fresh("x");
+    Rhs first = lower(cache, x);
+    Rhs second = lower(cache, x);
+    assertThat(second, sameInstance(first));
+    assertThat(cache.size(), is(1));
+  }
+
+  @Test public void otherVariablesLowerAgain () {
+    LoweringCache cache = new LoweringCache();
+    Rhs first = lower(cache, NumVar.fresh("x"));
+    Rhs second = lower(cache, NumVar.fresh("y"));
+    assertThat(second == first, is(false));
+    assertThat(second.equals(first), is(false));
+    // the new lowering replaced the old one
+    assertThat(lower(cache, NumVar.fresh("z")) == second, is(false));
+  }
+
+  @Test public void otherStatementsDoNotSeeLowering () {
+    LoweringCache cache = new LoweringCache();
+    lower(cache, NumVar.fresh("x"));
+    LoweringCache.Lowering lowering = cache.begin(address, new Object());
+    assertThat(lowering.lookup(literal), is(nullValue()));
+  }
+
+  @Test public void cacheIsBounded () {
+    LoweringCache cache = new LoweringCache();
+    NumVar x = NumVar.fresh("x");
+    for (int i = 0; i <= LoweringCache.maxStatements; i++) {
+      lower(cache, RReilAddr.valueOf(i), x);
+    }
+    assertThat(cache.size() <= LoweringCache.maxStatements, is(true));
+    cache.clear();
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test public void equalSyntaxHasEqualHashes () {
+    NumVar x = NumVar.fresh("x");
+    Rhs a = fin.binary(fin.linear(32, x), BinOp.Add, fin.literal(32, BigInt.of(4)));
+    Rhs b = fin.binary(fin.linear(32, x), BinOp.Add, fin.literal(32, BigInt.of(4)));
+    assertThat(a, is(b));
+    assertThat(a.hashCode(), is(b.hashCode()));
+    assertThat(a.equals(fin.binary(fin.linear(32, x), BinOp.Sub, fin.literal(32, BigInt.of(4)))), is(false));
+  }
+}
@@ -0,0 +1,225 @@
+package bindead.analyses;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rreil.disassembler.Instruction;
+import rreil.lang.RReil;
+import rreil.lang.RReilAddr;
+import rreil.lang.lowlevel.LowLevelRReil;
+import rreil.lang.util.RReilSerializer;
+import bindead.TestsHelper;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindis.Disassembler;
+import bindis.x86.x32.X32Disassembler;
+import bindis.x86.x64.X64Disassembler;
+import binparse.AbstractBinary;
+import binparse.Binary;
+import binparse.Segment;
+
+/**
+ * Check that the code read from the persistent disassembly cache is the same as the disassembled code.
+ */
+public class DisassemblyCacheTest {
+  private static final String example = "array-sum-int-x32";
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.disassemblyCacheDirectory.setValue("");
+  }
+
+  @Test public void serializedCodeIsEqual () throws IOException {
+    for (Binary binary : new Binary[] {TestsHelper.get32bitExamplesBinary("crackaddr-good"),
+      TestsHelper.get64bitExamplesBinary("avltreeWeiss-O2")}) {
+      List<RReil> code = linearSweep(binary);
+      assertTrue(code.size() > 100);
+      RReilSerializer.Writer writer = new RReilSerializer.Writer();
+      for (RReil stmt : code) {
+        writer.write(stmt);
+      }
+      RReilSerializer.Reader reader =
+        new RReilSerializer.Reader(ByteBuffer.wrap(writer.toByteArray()), writer.getStrings());
+      for (RReil stmt : code) {
+        RReil read = reader.read();
+        assertThat(read, is(stmt));
+        assertThat(read.toString(), is(stmt.toString()));
+      }
+    }
+  }
+
+  @Test public void warmRunUsesCachedCode () throws IOException {
+    AnalysisProperties.INSTANCE.disassemblyCacheDirectory.setValue(folder.getRoot().getPath());
+    Analysis<?> cold = new AnalysisFactory().runAnalysis(TestsHelper.get32bitExamplesBinary(example));
+    File[] cacheFiles = cacheFiles();
+    assertThat(cacheFiles.length, is(1));
+    byte[] cacheContents = Files.readAllBytes(cacheFiles[0].toPath());
+
+    Analysis<?> warm = new AnalysisFactory().runAnalysis(TestsHelper.get32bitExamplesBinary(example));
+    // all the instructions were found in the cache thus it was not written again
+    assertThat(Files.readAllBytes(cacheFiles[0].toPath()), is(cacheContents));
+    SortedMap<Long, Instruction> coldInstructions = cold.getBinaryCode().getInstructions();
+    SortedMap<Long, Instruction> warmInstructions = warm.getBinaryCode().getInstructions();
+    assertThat(warmInstructions.keySet(), is(coldInstructions.keySet()));
+    for (Map.Entry<Long, Instruction> entry : warmInstructions.entrySet()) {
+      Instruction warmInsn = entry.getValue();
+      Instruction coldInsn = coldInstructions.get(entry.getKey());
+      assertThat(warmInsn.length(), is(coldInsn.length()));
+      assertThat(warmInsn.toString(), is(coldInsn.toString()));
+      assertThat(warm.getBinaryCode().toRichInstructionString(warmInsn),
+          is(cold.getBinaryCode().toRichInstructionString(coldInsn)));
+    }
+    Map<RReilAddr, RReil> coldCode = cold.getRReilCode().getInstructions();
+    Map<RReilAddr, RReil> warmCode = warm.getRReilCode().getInstructions();
+    assertThat(warmCode, is(coldCode));
+  }
+
+  @Test public void concurrentSavesAreMerged () throws IOException {
+    Segment segment = textSegment(TestsHelper.get32bitExamplesBinary(example));
+    List<Instruction> instructions = decode(segment, 40);
+    DisassemblyCache first = DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE);
+    DisassemblyCache second = DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE);
+    for (int i = 0; i < instructions.size(); i++) {
+      // both caches contain the instructions in the middle
+      if (i < 30)
+        first.add(instructions.get(i));
+      if (i >= 10)
+        second.add(instructions.get(i));
+    }
+    first.save();
+    second.save();
+    DisassemblyCache merged = DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE);
+    assertThat(merged.size(), is(instructions.size()));
+    for (Instruction insn : instructions) {
+      Instruction cached = merged.lookup(insn.baseAddress());
+      assertThat(cached.length(), is(insn.length()));
+      assertThat(cached.mnemonic(), is(insn.mnemonic()));
+      assertThat(translation(cached), is(translation(insn)));
+    }
+  }
+
+  @Test public void brokenCacheFileIsIgnored () throws IOException {
+    Segment segment = textSegment(TestsHelper.get32bitExamplesBinary(example));
+    List<Instruction> instructions = decode(segment, 20);
+    DisassemblyCache cache = DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE);
+    for (Instruction insn : instructions) {
+      cache.add(insn);
+    }
+    cache.save();
+    File cacheFile = cacheFiles()[0];
+    byte[] contents = Files.readAllBytes(cacheFile.toPath());
+    // truncated in the index
+    Files.write(cacheFile.toPath(), Arrays.copyOf(contents, contents.length / 2));
+    assertThat(DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE).size(), is(0));
+    // a string that is longer than the file
+    byte[] broken = contents.clone();
+    ByteBuffer.wrap(broken).putInt(12, Integer.MAX_VALUE);
+    Files.write(cacheFile.toPath(), broken);
+    assertThat(DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE).size(), is(0));
+    // an instruction that is positioned outside of the data
+    broken = contents.clone();
+    ByteBuffer.wrap(broken).putInt(indexPosition(contents) + 8, contents.length);
+    Files.write(cacheFile.toPath(), broken);
+    DisassemblyCache reopened = DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE);
+    assertThat(reopened.size(), is(0));
+    // the broken file is replaced with the next save
+    reopened.add(instructions.get(0));
+    reopened.save();
+    assertThat(DisassemblyCache.open(folder.getRoot(), segment, X32Disassembler.INSTANCE).size(), is(1));
+  }
+
+  private static List<RReil> translation (Instruction insn) {
+    List<RReil> stmts = new ArrayList<>();
+    for (LowLevelRReil stmt : insn.toRReilInstructions()) {
+      stmts.add(stmt.toRReil());
+    }
+    return stmts;
+  }
+
+  /**
+   * Return the position of the first index entry in the cache file, i.e. after the header and the string table.
+   */
+  private static int indexPosition (byte[] contents) {
+    ByteBuffer in = ByteBuffer.wrap(contents);
+    in.position(8);
+    int stringsCount = in.getInt();
+    for (int i = 0; i < stringsCount; i++) {
+      int length = in.getInt();
+      in.position(in.position() + length);
+    }
+    return in.position() + 4;
+  }
+
+  private File[] cacheFiles () {
+    return folder.getRoot().listFiles(new FilenameFilter() {
+      @Override public boolean accept (File directory, String name) {
+        return name.endsWith(".rreil");
+      }
+    });
+  }
+
+  private static Segment textSegment (Binary binary) {
+    for (Segment segment : binary.getSegments()) {
+      if (segment.getNameOrAddress().equals(".text"))
+        return segment;
+    }
+    throw new IllegalArgumentException("No code segment in " + binary);
+  }
+
+  /**
+   * Decode the given number of instructions from the start of the segment.
+   */
+  private static List<Instruction> decode (Segment segment, int count) {
+    List<Instruction> instructions = new ArrayList<>();
+    int offset = 0;
+    while (instructions.size() < count) {
+      Instruction insn = X32Disassembler.INSTANCE.decodeOne(segment.getData(), offset, segment.getAddress() + offset);
+      instructions.add(insn);
+      offset += insn.length();
+    }
+    return instructions;
+  }
+
+  /**
+   * Disassemble the code segments from the start and translate the instructions that are supported.
+   */
+  private static List<RReil> linearSweep (Binary binary) {
+    Disassembler disassembler = binary.getArchitectureName().equals(AbstractBinary.x86_32)
+        ? X32Disassembler.INSTANCE : X64Disassembler.INSTANCE;
+    List<RReil> code = new ArrayList<>();
+    for (Segment segment : binary.getSegments()) {
+      if (!segment.getNameOrAddress().equals(".text"))
+        continue;
+      byte[] data = segment.getData();
+      int offset = 0;
+      while (offset < data.length) {
+        try {
+          Instruction insn = disassembler.decodeOne(data, offset, segment.getAddress() + offset);
+          offset += insn.length();
+          for (LowLevelRReil stmt : insn.toRReilInstructions()) {
+            code.add(stmt.toRReil());
+          }
+        } catch (RuntimeException e) {
+          offset++;
+        }
+      }
+    }
+    return code;
+  }
+}
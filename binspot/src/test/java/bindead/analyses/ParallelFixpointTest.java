@@ -0,0 +1,210 @@
+package bindead.analyses;
+
+import static bindead.TestsHelper.lines;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import javalx.numeric.Range;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rreil.lang.Field;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReilAddr;
+import bindead.TestsHelper;
+import bindead.analyses.AnalysisFactory.AnalysisDebugHooks;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.analyses.algorithms.data.CallString;
+import bindead.analyses.algorithms.data.CallString.Transition;
+import bindead.analyses.algorithms.data.ProgramCtx;
+import bindead.debug.VariableStamps;
+import bindead.domainnetwork.interfaces.ProgramPoint;
+import bindead.domainnetwork.interfaces.RootDomain;
+import bindead.environment.AnalysisEnvironment;
+import binparse.Binary;
+import binparse.rreil.RReilBinary;
+
+/**
+ * Check that the parallel evaluation of the call-string analysis infers the same results as the sequential one.
+ */
+public class ParallelFixpointTest {
+  private static final String assembly = lines(
+      "option DEFAULT_SIZE = 32",
+      "mov x, 0",
+      "mov y, 100",
+      "mov z, [0, 10]",
+      "loop:",
+      "cmplts LT, x, 10",
+      "xor.1 GE, LT, 1",
+      "brc GE, exit:",
+      "add x, x, 1",
+      "sub y, y, 1",
+      "cmples LE, z, 5",
+      "brc LE, small:",
+      "add z, z, 2",
+      "br loop:",
+      "small:",
+      "add z, z, 1",
+      "br loop:",
+      "exit:",
+      "mov r, x",
+      "add r, r, y",
+      "halt");
+  private static final String[] variables = {"x", "y", "z", "r"};
+  /**
+   * The predicates that the octagons synthesize at the joins depend on the order in which the states are joined, which
+   * differs between the parallel and the sequential fixpoint, thus they are not tracked here.
+   */
+  private static final String relationalDomainHierarchy =
+    AnalysisFactory.defaultDomainHierarchy.replace(" Intervals ", " Octagons ").replace(" Predicates(Z) ",
+        " -Predicates(Z) ");
+  private static final String[] registers = {"eax", "ebx", "ecx", "edx", "esi", "edi", "esp", "ebp"};
+  private static RReilAddr startAddress;
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.parallelFixpoint.setValue(false);
+  }
+
+  @Test public void sameResultsAsSequential () {
+    assertSameResults(runCallStringAnalysis(false), runCallStringAnalysis(true));
+  }
+
+  @Test public void deterministicResults () {
+    Analysis<?> first = runCallStringAnalysis(true);
+    for (int i = 0; i < 5; i++) {
+      assertSameResults(first, runCallStringAnalysis(true));
+    }
+  }
+
+  /**
+   * The relational domains depend on the order of the variables, e.g. for the choice of the pivots in the affine
+   * domain, thus the variables allocated in parallel must be the same as in a sequential run.
+   */
+  @Test public void relationalSameResultsAsSequential () {
+    Analysis<?> sequential = runCallStringAnalysis(false, relationalDomainHierarchy);
+    for (int i = 0; i < 5; i++) {
+      assertSameResults(sequential, runCallStringAnalysis(true, relationalDomainHierarchy));
+    }
+  }
+
+  /**
+   * A binary with calls and loops whose branches put several program points on the worklist at once, thus they are
+   * evaluated by more than one worker. The registers must have the same values as in a sequential run.
+   */
+  @Test public void binarySameValuesAsSequential () throws IOException {
+    Map<ProgramCtx, String> sequential = runOnBinary(false, false);
+    assertThat(runOnBinary(true, false), is(sequential));
+  }
+
+  /**
+   * The parallel evaluation takes the states for a batch of program points at the beginning of a round, thus it
+   * evaluates other states than the sequential one and allocates other temporary variables. Its own variables must
+   * however not depend on the scheduling of the threads, i.e. they must be allocated in the same order in each run.
+   * The first run registers the variables of the registers and memory regions, which keep their stamps in the later
+   * runs, thus only the runs after it are compared.
+   */
+  @Test public void binaryDeterministicVariables () throws IOException {
+    runOnBinary(true, true);
+    Map<ProgramCtx, String> first = runOnBinary(true, true);
+    for (int i = 0; i < 3; i++) {
+      assertThat(runOnBinary(true, true), is(first));
+    }
+  }
+
+  /**
+   * Run the call-string analysis on a binary and describe the state at each program point by the values of the
+   * registers and optionally the variables of the state. The stamps of the variables are numbered in ascending order
+   * over all the states of the analysis, thus the description does not depend on the stamps allocated by other
+   * analyses.
+   */
+  private static Map<ProgramCtx, String> runOnBinary (boolean parallel, boolean withVariables) throws IOException {
+    AnalysisProperties.INSTANCE.parallelFixpoint.setValue(parallel);
+    Binary binary = TestsHelper.get32bitExamplesBinary("crackaddr-good-oversimplified-nodata");
+    Analysis<?> analysis = new AnalysisFactory().getCallstringAnalysis(binary);
+    final Set<ProgramCtx> points = new LinkedHashSet<>();
+    analysis.setDebugHooks(new AnalysisDebugHooks() {
+      @Override public <D extends RootDomain<D>> void beforeEval (RReil insn, ProgramPoint point, D domainState,
+          Analysis<D> analysis) {
+        points.add((ProgramCtx) point);
+      }
+
+      @Override public <D extends RootDomain<D>> void afterEval (RReil insn, ProgramPoint point, RReilAddr target,
+          D domainState, Analysis<D> analysis) {
+      }
+    });
+    analysis.runFrom(AnalysisFactory.getStartAddress(binary));
+    Map<ProgramCtx, RootDomain<?>> states = new HashMap<>();
+    SortedSet<Integer> allStamps = new TreeSet<>();
+    for (ProgramCtx point : points) {
+      RootDomain<?> state = analysis.getState(point.getCallString(), point.getAddress()).get();
+      states.put(point, state);
+      allStamps.addAll(VariableStamps.of(state, AnalysisEnvironment.class));
+    }
+    List<Integer> order = new ArrayList<>(allStamps);
+    Map<ProgramCtx, String> described = new HashMap<>();
+    for (ProgramCtx point : points) {
+      RootDomain<?> state = states.get(point);
+      StringBuilder builder = new StringBuilder();
+      for (String register : registers) {
+        builder.append(register).append('=').append(state.queryRange(MemVar.getVarOrFresh(register),
+            Field.finiteRangeKey(0, 32))).append(' ');
+      }
+      if (withVariables) {
+        for (int stamp : VariableStamps.of(state, AnalysisEnvironment.class)) {
+          builder.append('v').append(order.indexOf(stamp)).append(' ');
+        }
+      }
+      described.put(point, builder.toString());
+    }
+    return described;
+  }
+
+  private static void assertSameResults (Analysis<?> expected, Analysis<?> actual) {
+    Map<RReilAddr, RReil> code = expected.getRReilCode().getInstructions();
+    assertThat(actual.getRReilCode().getInstructions().keySet(), is(code.keySet()));
+    for (RReilAddr address : code.keySet()) {
+      for (String variable : variables) {
+        assertThat("Value of " + variable + " at " + address,
+            query(actual, address, variable), is(query(expected, address, variable)));
+      }
+    }
+  }
+
+  private static Analysis<?> runCallStringAnalysis (boolean parallel) {
+    return runCallStringAnalysis(parallel, AnalysisFactory.defaultDomainHierarchy);
+  }
+
+  private static Analysis<?> runCallStringAnalysis (boolean parallel, String domainHierarchy) {
+    AnalysisProperties.INSTANCE.parallelFixpoint.setValue(parallel);
+    RReilBinary binary = RReilBinary.fromString(assembly);
+    Analysis<?> analysis = new AnalysisFactory(domainHierarchy).getCallstringAnalysis(binary);
+    startAddress = AnalysisFactory.getStartAddress(binary);
+    analysis.runFrom(startAddress);
+    return analysis;
+  }
+
+  /**
+   * Query the value of a variable in the procedure that the analysis started with.
+   */
+  private static String query (Analysis<?> analysis, RReilAddr address, String variable) {
+    CallString entry = CallString.root().push(new Transition(RReilAddr.ZERO, startAddress));
+    RootDomain<?> state = analysis.getState(entry, address).getOrNull();
+    if (state == null)
+      return "unreachable";
+    Range value = state.queryRange(MemVar.getVarOrFresh(variable), Field.finiteRangeKey(0, 32));
+    return String.valueOf(value);
+  }
+
+}
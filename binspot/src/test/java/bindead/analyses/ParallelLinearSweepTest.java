@@ -0,0 +1,86 @@
+package bindead.analyses;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rreil.disassembler.Instruction;
+import rreil.lang.RReil;
+import rreil.lang.RReilAddr;
+import bindead.TestsHelper;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindis.Disassembler;
+import bindis.x86.x32.X32Disassembler;
+import bindis.x86.x64.X64Disassembler;
+import binparse.AbstractBinary;
+import binparse.Binary;
+
+/**
+ * Check that the parallel disassembly yields the same code as the sequential one.
+ */
+public class ParallelLinearSweepTest {
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.parallelDisassembly.setValue(false);
+    pool.shutdown();
+  }
+
+  @Test public void chunksResynchronize () throws IOException {
+    for (Binary binary : new Binary[] {TestsHelper.get32bitExamplesBinary("crackaddr-good"),
+      TestsHelper.get64bitExamplesBinary("avltreeWeiss-O2")}) {
+      SortedMap<Long, Instruction> sequential = sweep(binary, Integer.MAX_VALUE, new ForkJoinPool(1));
+      assertTrue(sequential.size() > 100);
+      for (int chunkSize : new int[] {1, 7, 64, 1000}) {
+        SortedMap<Long, Instruction> parallel = sweep(binary, chunkSize, pool);
+        assertThat(parallel.keySet(), is(sequential.keySet()));
+        for (Map.Entry<Long, Instruction> entry : parallel.entrySet()) {
+          Instruction expected = sequential.get(entry.getKey());
+          assertThat(entry.getValue().length(), is(expected.length()));
+          assertThat(entry.getValue().toRReilInstructions().size(), is(expected.toRReilInstructions().size()));
+        }
+      }
+    }
+  }
+
+  @Test public void recursiveDisassemblyUsesDecodedCode () throws IOException {
+    Binary binary = TestsHelper.get32bitExamplesBinary("crackaddr-good");
+    Analysis<?> sequential = disassemble(binary);
+    AnalysisProperties.INSTANCE.parallelDisassembly.setValue(true);
+    Analysis<?> parallel = disassemble(binary);
+    SortedMap<Long, Instruction> instructions = parallel.getBinaryCode().getInstructions();
+    assertTrue(instructions.size() > 50);
+    assertThat(instructions.keySet(), is(sequential.getBinaryCode().getInstructions().keySet()));
+    for (Map.Entry<Long, Instruction> entry : instructions.entrySet()) {
+      Instruction expected = sequential.getBinaryCode().getInstruction(entry.getKey());
+      assertThat(parallel.getBinaryCode().toRichInstructionString(entry.getValue()),
+          is(sequential.getBinaryCode().toRichInstructionString(expected)));
+    }
+    Map<RReilAddr, RReil> code = parallel.getRReilCode().getInstructions();
+    assertThat(code, is((Map<RReilAddr, RReil>) sequential.getRReilCode().getInstructions()));
+  }
+
+  private static Analysis<?> disassemble (Binary binary) {
+    Analysis<?> disassembler = new AnalysisFactory().getRecursiveDisassembler(binary);
+    disassembler.runFrom(AnalysisFactory.getStartAddress(binary));
+    return disassembler;
+  }
+
+  private static SortedMap<Long, Instruction> sweep (Binary binary, int chunkSize, ForkJoinPool pool) {
+    Disassembler disassembler = binary.getArchitectureName().equals(AbstractBinary.x86_32)
+        ? X32Disassembler.INSTANCE : X64Disassembler.INSTANCE;
+    ConcurrentNavigableMap<Long, Instruction> instructions = new ConcurrentSkipListMap<>();
+    new ParallelLinearSweep(binary, disassembler, chunkSize).run(pool, instructions);
+    return instructions;
+  }
+}
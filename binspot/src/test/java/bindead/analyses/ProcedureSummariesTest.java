@@ -0,0 +1,96 @@
+package bindead.analyses;
+
+import static bindead.TestsHelper.lines;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import javalx.numeric.Range;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rreil.lang.Field;
+import rreil.lang.MemVar;
+import rreil.lang.RReilAddr;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.analyses.algorithms.CallStringAnalysis;
+import bindead.analyses.algorithms.data.CallString;
+import bindead.analyses.algorithms.data.CallString.Transition;
+import bindead.domainnetwork.interfaces.RootDomain;
+import binparse.rreil.RReilBinary;
+
+/**
+ * Check that the call-string analysis reuses the summaries of procedures for calls with included entry states.
+ */
+public class ProcedureSummariesTest {
+  private static final AnalysisFactory analyzer = new AnalysisFactory("Root Fields PointsTo Wrapping Intervals");
+  private static final String assembly = lines(
+      "option DEFAULT_SIZE = 32",
+      "mov x, [0, 10]",
+      "mov y, 0",
+      "mov n, [0, 1]",
+      "cmpeq c, n, 0",
+      "brc c, second:",
+      "mov n, 0",
+      "mov c, 0",
+      "mov lr, done:",
+      "call h:",
+      "second:",
+      "mov n, 0",
+      "mov c, 0",
+      "mov x, 3",
+      "mov lr, done:",
+      "call h:",
+      "done:",
+      "mov r, y",
+      "halt",
+      "h:",
+      "add y, x, 1",
+      "return lr");
+  private static RReilBinary binary;
+  private static RReilAddr startAddress;
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.procedureSummaries.setValue(false);
+  }
+
+  @Test public void includedCallReusesSummary () {
+    CallStringAnalysis<?> analysis = runCallStringAnalysis(true);
+    assertThat(analysis.getProcedureSummaries().getNumberOfReuses(), is(1));
+    assertThat(analysis.getProcedureSummaries().getSummaries(label("h")).size(), is(1));
+    assertThat(query(analysis, "done", "y"), is("[1, 11]"));
+  }
+
+  @Test public void sameResultsAsWithoutSummaries () {
+    CallStringAnalysis<?> withSummaries = runCallStringAnalysis(true);
+    CallStringAnalysis<?> without = runCallStringAnalysis(false);
+    assertThat(without.getProcedureSummaries().getNumberOfReuses(), is(0));
+    assertThat(query(withSummaries, "done", "y"), is(query(without, "done", "y")));
+  }
+
+  private static CallStringAnalysis<?> runCallStringAnalysis (boolean summaries) {
+    AnalysisProperties.INSTANCE.procedureSummaries.setValue(summaries);
+    binary = RReilBinary.fromString(assembly);
+    CallStringAnalysis<?> analysis = (CallStringAnalysis<?>) analyzer.getCallstringAnalysis(binary);
+    startAddress = AnalysisFactory.getStartAddress(binary);
+    analysis.runFrom(startAddress);
+    return analysis;
+  }
+
+  private static RReilAddr label (String name) {
+    return RReilAddr.valueOf(binary.getSymbol(name).get().getAddress());
+  }
+
+  /**
+   * Query the value of a variable in the procedure that the analysis started with.
+   */
+  private static String query (Analysis<?> analysis, String label, String variable) {
+    CallString entry = CallString.root().push(new Transition(RReilAddr.ZERO, startAddress));
+    RootDomain<?> state = analysis.getState(entry, label(label)).getOrNull();
+    if (state == null)
+      return "unreachable";
+    Range value = state.queryRange(MemVar.getVarOrFresh(variable), Field.finiteRangeKey(0, 32));
+    return String.valueOf(value);
+  }
+
+}
@@ -0,0 +1,61 @@
+package bindead.analyses;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import rreil.lang.RReil;
+
+/**
+ * Check that binding the placeholders of a snippet yields the same instructions as parsing the instructions with the
+ * arguments in place.
+ */
+public class RReilSnippetTest {
+
+  private static void assertSameInstructions (RReil[] bound, String... expected) {
+    assertThat(bound.length, is(expected.length));
+    for (int i = 0; i < expected.length; i++) {
+      assertThat(bound[i], is(RReil.from(expected[i])));
+    }
+  }
+
+  @Test public void literalsAreBound () {
+    RReilSnippet snippet = RReilSnippet.compile("sub.32 tmp, $0, eip", "add.32 eip, eip, tmp");
+    assertThat(snippet.arity(), is(1));
+    assertSameInstructions(snippet.bind(0x8048000L), "sub.32 tmp, 134512640, eip", "add.32 eip, eip, tmp");
+    assertSameInstructions(snippet.bind(12), "sub.32 tmp, 12, eip", "add.32 eip, eip, tmp");
+  }
+
+  @Test public void registersAreBound () {
+    RReilSnippet snippet = RReilSnippet.compile("add.64 tmp, rsp, $0", "load.64.64 $1, tmp", "mov.64 rax, $1");
+    assertThat(snippet.arity(), is(2));
+    assertSameInstructions(snippet.bind(16, "rdi"), "add.64 tmp, rsp, 16", "load.64.64 rdi, tmp", "mov.64 rax, rdi");
+  }
+
+  @Test public void placeholdersInOtherInstructions () {
+    RReilSnippet snippet = RReilSnippet.compile("store.32.32 $0, $1", "call.32 $1", "prim fixAtConstantAddress ($0.32)");
+    assertSameInstructions(snippet.bind("esp", 42), "store.32.32 esp, 42", "call.32 42",
+        "prim fixAtConstantAddress (esp.32)");
+  }
+
+  @Test public void instructionsAreParsedOnce () {
+    RReilSnippet snippet = RReilSnippet.compile("mov.32 eip, $0", "mov.32 eax, 0");
+    int parsed = RReilSnippet.parsedInstructions();
+    RReil[] first = snippet.bind(1);
+    RReil[] second = snippet.bind(2);
+    assertThat(RReilSnippet.parsedInstructions(), is(parsed));
+    // instructions without placeholders are shared
+    assertThat(second[1], sameInstance(first[1]));
+    assertSameInstructions(RReilSnippet.compile("mov.32 eax, 0").bind(), "mov.32 eax, 0");
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void missingArgumentsAreRejected () {
+    RReilSnippet.compile("add.32 esp, esp, $0").bind();
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void literalsCannotBeAssigned () {
+    RReilSnippet.compile("mov.32 $0, 1").bind(4);
+  }
+}
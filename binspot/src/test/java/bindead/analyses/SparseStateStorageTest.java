@@ -0,0 +1,161 @@
+package bindead.analyses;
+
+import static bindead.TestsHelper.lines;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javalx.numeric.Range;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rreil.lang.Field;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReilAddr;
+import bindead.analyses.AnalysisFactory.AnalysisDebugHooks;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.analyses.algorithms.data.CallString;
+import bindead.analyses.algorithms.data.CallString.Transition;
+import bindead.analyses.algorithms.data.ProgramCtx;
+import bindead.debug.VariableStamps;
+import bindead.domainnetwork.interfaces.ProgramPoint;
+import bindead.domainnetwork.interfaces.RootDomain;
+import bindead.environment.AnalysisEnvironment;
+import binparse.rreil.RReilBinary;
+
+/**
+ * Check that the states recomputed by the sparse state storage are the same as the ones stored by the full one.
+ */
+public class SparseStateStorageTest {
+  private static final String assembly = lines(
+      "option DEFAULT_SIZE = 32",
+      "mov x, 0",
+      "mov y, 100",
+      "mov z, [0, 10]",
+      "loop:",
+      "cmplts LT, x, 10",
+      "xor.1 GE, LT, 1",
+      "brc GE, exit:",
+      "add x, x, 1",
+      "sub y, y, 1",
+      "cmples LE, z, 5",
+      "brc LE, small:",
+      "add z, z, 2",
+      "mov t, z",
+      "add t, t, x",
+      "br loop:",
+      "small:",
+      "add z, z, 1",
+      "br loop:",
+      "exit:",
+      "mov r, x",
+      "add r, r, y",
+      "sub r, r, 1",
+      "mov t, r",
+      "halt");
+  private static final String[] variables = {"x", "y", "z", "r", "t"};
+  private static RReilAddr startAddress;
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.sparseStateStorage.setValue(false);
+  }
+
+  @Test public void callStringAnalysis () {
+    Analysis<?> full = runAnalysis(false, true);
+    Analysis<?> sparse = runAnalysis(true, true);
+    CallString entry = CallString.root().push(new Transition(RReilAddr.ZERO, startAddress));
+    assertSameStates(entry, full, sparse);
+  }
+
+  @Test public void fixpointAnalysis () {
+    Analysis<?> full = runAnalysis(false, false);
+    Analysis<?> sparse = runAnalysis(true, false);
+    assertSameStates(CallString.root(), full, sparse);
+  }
+
+  @Test public void callStringAnalysisRecomputesSameVariables () {
+    assertRecomputedAsEvaluated(true);
+  }
+
+  @Test public void fixpointAnalysisRecomputesSameVariables () {
+    assertRecomputedAsEvaluated(false);
+  }
+
+  /**
+   * The recomputed states must be the ones that the analysis evaluated last at each point, i.e. with the same
+   * variables and not only the same values.
+   */
+  private static void assertRecomputedAsEvaluated (boolean withCallStrings) {
+    AnalysisProperties.INSTANCE.sparseStateStorage.setValue(true);
+    RReilBinary binary = RReilBinary.fromString(assembly);
+    Analysis<?> analysis;
+    if (withCallStrings)
+      analysis = new AnalysisFactory().getCallstringAnalysis(binary);
+    else
+      analysis = new AnalysisFactory().getFixpointAnalysis(binary);
+    final Map<ProgramCtx, RootDomain<?>> evaluated = new HashMap<>();
+    analysis.setDebugHooks(new AnalysisDebugHooks() {
+      @Override public <D extends RootDomain<D>> void beforeEval (RReil insn, ProgramPoint point, D domainState,
+          Analysis<D> analysis) {
+        evaluated.put((ProgramCtx) point, domainState);
+      }
+
+      @Override public <D extends RootDomain<D>> void afterEval (RReil insn, ProgramPoint point, RReilAddr target,
+          D domainState, Analysis<D> analysis) {
+      }
+    });
+    analysis.runFrom(AnalysisFactory.getStartAddress(binary));
+    int recomputed = 0;
+    for (Entry<ProgramCtx, RootDomain<?>> entry : evaluated.entrySet()) {
+      ProgramCtx point = entry.getKey();
+      RootDomain<?> state = analysis.getState(point.getCallString(), point.getAddress()).get();
+      if (state != entry.getValue())
+        recomputed++;
+      assertThat("Variables at " + point, VariableStamps.of(state, AnalysisEnvironment.class),
+          is(VariableStamps.of(entry.getValue(), AnalysisEnvironment.class)));
+      assertThat("State at " + point, state.toString(), is(entry.getValue().toString()));
+    }
+    assertTrue("no state was recomputed", recomputed > 0);
+  }
+
+  private static void assertSameStates (CallString callString, Analysis<?> full, Analysis<?> sparse) {
+    Map<RReilAddr, RReil> code = full.getRReilCode().getInstructions();
+    assertThat(sparse.getRReilCode().getInstructions().keySet(), is(code.keySet()));
+    // query the points backwards to start the recomputations from the furthest point
+    RReilAddr[] addresses = code.keySet().toArray(new RReilAddr[0]);
+    for (int i = addresses.length - 1; i >= 0; i--) {
+      for (String variable : variables) {
+        assertThat("Value of " + variable + " at " + addresses[i], query(sparse, callString, addresses[i], variable),
+            is(query(full, callString, addresses[i], variable)));
+      }
+    }
+  }
+
+  private static Analysis<?> runAnalysis (boolean sparse, boolean withCallStrings) {
+    AnalysisProperties.INSTANCE.sparseStateStorage.setValue(sparse);
+    RReilBinary binary = RReilBinary.fromString(assembly);
+    Analysis<?> analysis;
+    if (withCallStrings)
+      analysis = new AnalysisFactory().getCallstringAnalysis(binary);
+    else
+      analysis = new AnalysisFactory().getFixpointAnalysis(binary);
+    startAddress = AnalysisFactory.getStartAddress(binary);
+    analysis.runFrom(startAddress);
+    return analysis;
+  }
+
+  private static String query (Analysis<?> analysis, CallString callString, RReilAddr address, String variable) {
+    RootDomain<?> state = analysis.getState(callString, address).getOrNull();
+    if (state == null)
+      return "unreachable";
+    Range value = state.queryRange(MemVar.getVarOrFresh(variable), Field.finiteRangeKey(0, 32));
+    return String.valueOf(value);
+  }
+
+}
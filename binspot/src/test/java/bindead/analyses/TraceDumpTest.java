@@ -0,0 +1,122 @@
+package bindead.analyses;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rreil.lang.RReilAddr;
+import bindead.analyses.algorithms.TraceIterator;
+import binparse.Segment;
+import binparse.trace.ControlFlowReader;
+import binparse.trace.TraceDump;
+import binparse.trace.TraceSerializer.ControlFlowTrace;
+import binparse.trace.TraceSerializer.ControlFlowTrace.ControlFlow;
+import binparse.trace.TraceSerializer.Module;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Check that the control flow and the segments of a trace dump are read lazily with the same contents as the
+ * protobuf messages written by the tracer.
+ */
+public class TraceDumpTest {
+  // more jumps than fit into one chunk of the reader
+  private static final int jumps = 150000;
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static long currentPC (int i) {
+    return 0x8048000L + i * 4;
+  }
+
+  private static long nextPC (int i) {
+    return 0x8049000L + i * 8;
+  }
+
+  private static boolean condition (int i) {
+    return i % 3 == 0;
+  }
+
+  private String writeControlFlow () throws IOException {
+    String prefix = folder.newFile("trace").getPath();
+    ControlFlowTrace.Builder trace = ControlFlowTrace.newBuilder();
+    for (int i = 0; i < jumps; i++) {
+      trace.addJumps(ControlFlow.newBuilder().setCurrentPC(currentPC(i)).setNextPC(nextPC(i))
+          .setJumpConditionWas(condition(i)));
+    }
+    try (OutputStream out = new FileOutputStream(prefix + ".flow")) {
+      trace.build().writeTo(out);
+    }
+    return prefix;
+  }
+
+  private static void assertControlFlow (ControlFlowReader reader) throws IOException {
+    try {
+      int i = 0;
+      while (reader.hasNext()) {
+        reader.next();
+        assertThat(reader.getCurrentPC(), is(currentPC(i)));
+        assertThat(reader.getNextPC(), is(nextPC(i)));
+        assertThat(reader.getJumpConditionWas(), is(condition(i)));
+        i++;
+      }
+      assertThat(i, is(jumps));
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test public void readProtobufControlFlow () throws IOException {
+    TraceDump dump = new TraceDump(writeControlFlow(), null);
+    assertControlFlow(dump.getControlFlow());
+  }
+
+  @Test public void readConvertedControlFlow () throws IOException {
+    TraceDump dump = new TraceDump(writeControlFlow(), null);
+    dump.convertControlFlow();
+    assertControlFlow(dump.getControlFlow());
+  }
+
+  @Test public void iterateOverBranches () throws IOException {
+    TraceDump dump = new TraceDump(writeControlFlow(), null);
+    TraceIterator branches = new TraceIterator(dump);
+    // the first jump is skipped by the iterator
+    int i = 1;
+    while (true) {
+      assertTrue(branches.nextBranchIsAt(RReilAddr.valueOf(currentPC(i))));
+      assertThat(branches.getBranchTarget(), is(RReilAddr.valueOf(nextPC(i))));
+      assertThat(branches.getBranchConditionEvaluation(), is(condition(i)));
+      if (!branches.hasNext())
+        break;
+      branches.advance();
+      i++;
+    }
+    assertThat(i, is(jumps - 1));
+  }
+
+  @Test public void mapStackSegment () throws IOException {
+    String prefix = folder.newFile("trace").getPath();
+    byte[] data = new byte[4096];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    Module.Segment stack = Module.Segment.newBuilder().setName("stack").setFileName("").setPermissions(6)
+        .setEndianness(Module.Segment.Endianness.LITTLE).setAddress(0xbfff0000L).setSize(data.length)
+        .setData(ByteString.copyFrom(data)).build();
+    try (OutputStream out = new FileOutputStream(prefix + ".stack")) {
+      stack.writeTo(out);
+    }
+    Segment segment = new TraceDump(prefix, null).getStack();
+    assertThat(segment.getAddress(), is(0xbfff0000L));
+    assertThat(segment.getSize(), is((long) data.length));
+    assertThat(segment.getData(), is(data));
+    assertTrue(segment.getBuffer().isDirect());
+  }
+}
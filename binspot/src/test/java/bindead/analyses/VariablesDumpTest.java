@@ -0,0 +1,56 @@
+package bindead.analyses;
+
+import static bindead.TestsHelper.lines;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import bindead.analyses.algorithms.AnalysisProperties;
+
+/**
+ * Check that the stamps of the variables of an analysis are dumped in the format read by the collection benchmarks.
+ */
+public class VariablesDumpTest {
+  private final static AnalysisFactory analyzer = new AnalysisFactory();
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test public void stampsAreDumpedInAllocationOrder () throws IOException {
+    String assembly = lines(
+        "option DEFAULT_SIZE = 32",
+        "mov i, 0",
+        "mov j, 10",
+        "loop:",
+        "  cmplts LTS, i, j",
+        "  brc LTS, body:",
+        "  br exit:",
+        "  body:",
+        "  add i, i, 1",
+        "  br loop:",
+        "exit:",
+        "halt"
+      );
+    String file = folder.newFile("variables").getPath();
+    AnalysisProperties.INSTANCE.variablesDumpFile.setValue(file);
+    try {
+      analyzer.runAnalysis(assembly);
+    } finally {
+      AnalysisProperties.INSTANCE.variablesDumpFile.setValue("");
+    }
+    List<String> stamps = Files.readAllLines(folder.getRoot().toPath().resolve("variables"), StandardCharsets.UTF_8);
+    assertFalse("no variables were dumped", stamps.isEmpty());
+    int previous = 0;
+    for (String line : stamps) {
+      int stamp = Integer.parseInt(line);
+      assertTrue("stamp " + stamp + " follows " + previous, stamp > previous);
+      previous = stamp;
+    }
+  }
+}
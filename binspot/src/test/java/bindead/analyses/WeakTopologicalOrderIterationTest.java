@@ -0,0 +1,93 @@
+package bindead.analyses;
+
+import static bindead.TestsHelper.lines;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import javalx.numeric.Range;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rreil.lang.Field;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReilAddr;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.analyses.algorithms.data.CallString;
+import bindead.domainnetwork.interfaces.RootDomain;
+import binparse.rreil.RReilBinary;
+
+/**
+ * Check that iterating in a weak topological order of the control flow graph infers the same loop invariants as the
+ * default iteration order.
+ */
+public class WeakTopologicalOrderIterationTest {
+  private static final String assembly = lines(
+      "option DEFAULT_SIZE = 32",
+      "mov x, 0",
+      "mov y, 100",
+      "mov z, [0, 10]",
+      "loop:",
+      "cmplts LT, x, 10",
+      "xor.1 GE, LT, 1",
+      "brc GE, exit:",
+      "mov i, 0",
+      "inner:",
+      "cmplts LT, i, 5",
+      "xor.1 GE, LT, 1",
+      "brc GE, next:",
+      "add i, i, 1",
+      "br inner:",
+      "next:",
+      "add x, x, 1",
+      "sub y, y, 1",
+      "br loop:",
+      "exit:",
+      "mov r, x",
+      "add r, r, y",
+      "halt");
+  private static final String[] variables = {"x", "y", "i", "r"};
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.iterateInWeakTopologicalOrder.setValue(false);
+  }
+
+  @Test public void sameResultsAsDefaultOrder () {
+    Analysis<?> defaultOrder = runAnalysis(false);
+    Analysis<?> weakTopologicalOrder = runAnalysis(true);
+    Map<RReilAddr, RReil> code = defaultOrder.getRReilCode().getInstructions();
+    assertThat(weakTopologicalOrder.getRReilCode().getInstructions().keySet(), is(code.keySet()));
+    for (RReilAddr address : code.keySet()) {
+      for (String variable : variables) {
+        assertThat("Value of " + variable + " at " + address,
+            query(weakTopologicalOrder, address, variable), is(query(defaultOrder, address, variable)));
+      }
+    }
+  }
+
+  @Test public void loopInvariants () {
+    Analysis<?> analysis = runAnalysis(true);
+    RReilAddr exit = RReilAddr.valueOf(0x10);
+    assertThat(query(analysis, exit, "x"), is("[10]"));
+    assertThat(query(analysis, exit, "y"), is("[90]"));
+    assertThat(query(analysis, RReilAddr.valueOf(0x0c), "i"), is("[5]"));
+  }
+
+  private static Analysis<?> runAnalysis (boolean weakTopologicalOrder) {
+    AnalysisProperties.INSTANCE.iterateInWeakTopologicalOrder.setValue(weakTopologicalOrder);
+    RReilBinary binary = RReilBinary.fromString(assembly);
+    return new AnalysisFactory().runAnalysis(binary);
+  }
+
+  private static String query (Analysis<?> analysis, RReilAddr address, String variable) {
+    RootDomain<?> state = analysis.getState(CallString.root(), address).getOrNull();
+    if (state == null)
+      return "unreachable";
+    Range value = state.queryRange(MemVar.getVarOrFresh(variable), Field.finiteRangeKey(0, 32));
+    return String.valueOf(value);
+  }
+
+}
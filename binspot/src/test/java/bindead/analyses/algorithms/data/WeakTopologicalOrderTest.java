@@ -0,0 +1,60 @@
+package bindead.analyses.algorithms.data;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Check the weak topological order on the examples from Bourdoncle's paper and its incremental computation.
+ */
+public class WeakTopologicalOrderTest {
+
+  private static WeakTopologicalOrder<Integer> orderOf (int... edges) {
+    WeakTopologicalOrder<Integer> order = new WeakTopologicalOrder<>();
+    for (int i = 0; i < edges.length; i += 2) {
+      order.addEdge(edges[i], edges[i + 1]);
+    }
+    return order;
+  }
+
+  @Test public void nestedLoops () {
+    WeakTopologicalOrder<Integer> order = orderOf(1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 5, 6, 7, 7, 3, 7, 8);
+    assertThat(order.toString(), is("1 2 (3 4 (5 6) 7) 8"));
+    assertThat(order.isHead(3), is(true));
+    assertThat(order.isHead(5), is(true));
+    assertThat(order.isHead(6), is(false));
+    assertThat(order.isWideningEdge(7, 3), is(true));
+    assertThat(order.isWideningEdge(6, 5), is(true));
+    assertThat(order.isWideningEdge(4, 5), is(false));
+    assertThat(order.isWideningEdge(2, 3), is(false));
+  }
+
+  @Test public void selfLoop () {
+    WeakTopologicalOrder<Integer> order = orderOf(1, 2, 2, 2, 2, 3);
+    assertThat(order.toString(), is("1 (2) 3"));
+    assertThat(order.isWideningEdge(2, 2), is(true));
+  }
+
+  @Test public void orderIsOnlyRecomputedForBackwardEdges () {
+    WeakTopologicalOrder<Integer> order = orderOf(1, 2, 2, 3, 3, 4);
+    order.refresh();
+    int version = order.getVersion();
+    assertThat(order.toString(), is("1 2 3 4"));
+    // a forward edge and an edge to a new node keep the order
+    order.addEdge(2, 4);
+    order.addEdge(4, 5);
+    assertThat(order.refresh(), is(false));
+    assertThat(order.getVersion(), is(version));
+    assertThat(order.getPosition(4) < order.getPosition(5), is(true));
+    // closing a loop changes the order
+    order.addEdge(4, 2);
+    assertThat(order.refresh(), is(true));
+    assertThat(order.toString(), is("1 (2 3 4) 5"));
+    // edges back to the head of the component keep the order
+    version = order.getVersion();
+    order.addEdge(3, 2);
+    assertThat(order.refresh(), is(false));
+    assertThat(order.getVersion(), is(version));
+  }
+}
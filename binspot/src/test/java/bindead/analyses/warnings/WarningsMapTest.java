@@ -0,0 +1,119 @@
+package bindead.analyses.warnings;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import rreil.lang.RReilAddr;
+import bindead.analyses.algorithms.data.CallString;
+import bindead.analyses.algorithms.data.ProgramCtx;
+import bindead.domainnetwork.channels.WarningMessage;
+import bindead.domainnetwork.channels.WarningsContainer;
+
+/**
+ * Check that equal warnings are stored only once and only as long as they are used.
+ */
+public class WarningsMapTest {
+  private static ProgramCtx point (long address) {
+    return new ProgramCtx(CallString.root(), RReilAddr.valueOf(address));
+  }
+
+  private static WarningsContainer warnings (String... messages) {
+    WarningsContainer container = new WarningsContainer();
+    for (String message : messages) {
+      container.addWarning(new TestInfo(message));
+    }
+    return container;
+  }
+
+  @Test public void equalWarningsAreInterned () {
+    WarningsMap map = new WarningsMap();
+    for (int i = 0; i < 10; i++) {
+      map.put(point(i), 0, warnings("a", "b"));
+    }
+    map.put(point(10), 0, warnings("b"));
+    assertThat(map.totalNumberOfWarnings(), is(21));
+    assertThat(map.distinctNumberOfWarnings(), is(2));
+    assertTrue(map.savedBytesByInterning() > 0);
+    WarningMessage first = map.get(point(0)).iterator().next();
+    assertThat(map.get(point(9)).iterator().next(), sameInstance(first));
+    Iterator<WarningMessage> lonely = map.get(point(10)).iterator();
+    assertThat(lonely.next().message(), is("b"));
+    assertThat(lonely.hasNext(), is(false));
+  }
+
+  @Test public void returnedWarningsAreCopies () {
+    WarningsMap map = new WarningsMap();
+    map.put(point(0), 0, warnings("a"));
+    WarningsContainer warnings = map.get(point(0));
+    warnings.addWarning(new TestInfo("b"));
+    assertThat(map.get(point(0)).size(), is(1));
+    map.put(point(0), 1, warnings);
+    assertThat(map.get(point(0)).size(), is(2));
+    assertThat(map.getIterationOfWarnings(point(0)), is(0));
+    assertThat(map.get(point(1)).isEmpty(), is(true));
+  }
+
+  @Test public void replacedWarningsAreRemoved () {
+    WarningsMap map = new WarningsMap();
+    map.put(point(0), 0, warnings("a", "b"));
+    map.put(point(1), 0, warnings("a", "b"));
+    map.put(point(0), 1, warnings("c", "d"));
+    assertThat(map.distinctNumberOfWarnings(), is(4));
+    map.put(point(1), 1, warnings("c", "d"));
+    assertThat(map.distinctNumberOfWarnings(), is(2));
+    assertThat(map.totalNumberOfWarnings(), is(4));
+  }
+
+  @Test public void warningsWithoutEqualityAreNotMerged () {
+    WarningsMap map = new WarningsMap();
+    WarningsContainer warnings = new WarningsContainer();
+    warnings.addWarning(new UnequalInfo("a"));
+    warnings.addWarning(new UnequalInfo("a"));
+    map.put(point(0), 0, warnings);
+    assertThat(map.distinctNumberOfWarnings(), is(2));
+    assertThat(map.totalNumberOfWarnings(), is(2));
+  }
+
+  private static class TestInfo extends WarningMessage.Info {
+    private final String message;
+
+    TestInfo (String message) {
+      this.message = message;
+    }
+
+    @Override public String message () {
+      return message;
+    }
+
+    @Override public int hashCode () {
+      return message.hashCode();
+    }
+
+    @Override public boolean equals (Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof TestInfo))
+        return false;
+      TestInfo other = (TestInfo) obj;
+      return message.equals(other.message);
+    }
+  }
+
+  private static class UnequalInfo extends WarningMessage.Info {
+    private final String message;
+
+    UnequalInfo (String message) {
+      this.message = message;
+    }
+
+    @Override public String message () {
+      return message;
+    }
+  }
+}
@@ -1,8 +1,13 @@
 package bindead.data;
 
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
+import java.lang.ref.WeakReference;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -23,4 +28,53 @@ public class CallStringTest {
     assertThat(set, hasItem(cs2));
   }
 
-}
\ No newline at end of file
+  @Test public void hashConsing () {
+    CallString root = CallString.root();
+    assertSame(root, CallString.root());
+    CallString cs1 = root.push(call(1, 2)).push(call(3, 4));
+    CallString cs2 = root.push(call(1, 2)).push(call(3, 4));
+    assertSame(cs1, cs2);
+    assertSame(root.push(call(1, 2)), cs1.pop(call(3, 4)));
+    assertSame(root, cs1.unsafePop().unsafePop());
+    assertEquals(2, cs1.size());
+    assertEquals(call(3, 4), cs1.peek());
+  }
+
+  @Test public void onlySignificantCallsAreCompared () {
+    CallString root = CallString.root(2);
+    CallString cs1 = root.push(call(1, 2)).push(call(3, 4)).push(call(5, 6)).push(call(9, 10));
+    CallString cs2 = root.push(call(7, 8)).push(call(3, 4)).push(call(5, 6)).push(call(9, 10));
+    assertEquals(cs1, cs2);
+    assertEquals(cs1.hashCode(), cs2.hashCode());
+    assertEquals(cs1.getSignificantTransitions(), cs2.getSignificantTransitions());
+    assertEquals(3, cs1.getSignificantTransitions().size());
+    assertEquals(4, cs1.getAllTransitions().size());
+    // popping restores the calls that were not significant before
+    assertNotEquals(cs1.unsafePop().unsafePop(), cs2.unsafePop().unsafePop());
+    assertNotEquals(CallString.root(2), CallString.root(3));
+  }
+
+  @Test public void lastCallAndKCallsBeforeAreSignificant () {
+    CallString cs1 = CallString.root(1).push(call(1, 2)).push(call(3, 4));
+    CallString cs2 = CallString.root(1).push(call(7, 8)).push(call(3, 4));
+    assertNotEquals(cs1, cs2);
+    assertEquals(cs1.push(call(5, 6)), cs2.push(call(5, 6)));
+    assertEquals(CallString.root(0).push(call(1, 2)), CallString.root(0).push(call(3, 4)));
+    assertEquals(0, CallString.root(0).push(call(1, 2)).getSignificantTransitions().size());
+  }
+
+  @Test public void unusedCallStringsAreReclaimed () throws InterruptedException {
+    CallString root = CallString.root();
+    WeakReference<CallString> unused = new WeakReference<>(root.push(call(11, 12)).push(call(13, 14)));
+    for (int attempt = 0; attempt < 50 && unused.get() != null; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(unused.get());
+  }
+
+  private static Transition call (int from, int to) {
+    return new Transition(RReilAddr.valueOf(from), RReilAddr.valueOf(to));
+  }
+
+}
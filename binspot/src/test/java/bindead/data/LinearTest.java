@@ -159,4 +159,20 @@ public class LinearTest {
     renamed = renamed.renameVar(pairs);
     assertThat(rhs, is(renamed));
   }
-}
\ No newline at end of file
+
+  @Test public void equalityAgreesWithSubtraction () {
+    for (int i = 0; i < 10000; i++) {
+      Linear a = genLinear();
+      Linear b = genLinear();
+      boolean equal = a.sub(b).isZero();
+      assertThat(a.equals(b), is(equal));
+      if (equal)
+        assertThat(a.hashCode(), is(b.hashCode()));
+    }
+  }
+
+  @Test public void singleVariablesAreShared () {
+    assertThat(linear(x) == linear(x), is(true));
+    assertThat(linear(x), is(linear(term(x))));
+  }
+}
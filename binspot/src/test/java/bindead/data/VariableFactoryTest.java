@@ -0,0 +1,164 @@
+package bindead.data;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import rreil.lang.MemVar;
+import rreil.lang.util.VariableFactory;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
+
+public class VariableFactoryTest {
+  private static final int threads = 8;
+  private static final int variablesPerThread = 5000;
+
+  @Test public void enteredFactoryIsUsedByThread () {
+    VariableFactory global = VariableFactory.current();
+    VariableFactory factory = new VariableFactory();
+    VariableFactory previous = factory.enter();
+    try {
+      assertThat(VariableFactory.current(), sameInstance(factory));
+    } finally {
+      VariableFactory.leave(previous);
+    }
+    assertThat(VariableFactory.current(), sameInstance(global));
+  }
+
+  @Test public void concurrentAllocationYieldsUniqueStamps () throws Exception {
+    final Set<Integer> stamps = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    final VariableFactory shared = new VariableFactory();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        // half of the threads share a factory and the others use their own one
+        final VariableFactory factory = i % 2 == 0 ? shared : new VariableFactory();
+        results.add(executor.submit(new Callable<Integer>() {
+          @Override public Integer call () {
+            VariableFactory previous = factory.enter();
+            try {
+              int duplicates = 0;
+              for (int j = 0; j < variablesPerThread; j++) {
+                if (!stamps.add(NumVar.fresh().getStamp()))
+                  duplicates++;
+              }
+              return duplicates;
+            } finally {
+              VariableFactory.leave(previous);
+            }
+          }
+        }));
+      }
+      for (Future<Integer> result : results) {
+        assertThat(result.get(), is(0));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(stamps.size(), is(threads * variablesPerThread));
+  }
+
+  @Test public void singletonsAreSharedBetweenFactories () {
+    NumVar singleton = NumVar.getSingleton("variableFactoryTest");
+    VariableFactory previous = new VariableFactory().enter();
+    try {
+      assertThat(NumVar.getSingleton("variableFactoryTest"), sameInstance(singleton));
+      assertThat(NumVar.fresh("variableFactoryTest"), not(sameInstance(singleton)));
+    } finally {
+      VariableFactory.leave(previous);
+    }
+  }
+
+  @Test public void memVarsAreAllocatedByEnteredFactory () {
+    VariableFactory factory = new VariableFactory();
+    VariableFactory previous = factory.enter();
+    try {
+      MemVar first = MemVar.fresh();
+      NumVar second = NumVar.fresh();
+      MemVar third = MemVar.fresh();
+      // the stamps of both kinds of variables are handed out in sequence from the block of the factory
+      assertThat(second.getStamp(), is(first.stamp + 1));
+      assertThat(third.stamp, is(first.stamp + 2));
+    } finally {
+      VariableFactory.leave(previous);
+    }
+  }
+
+  @Test public void printedNamesAreNotRegistered () {
+    MemVar region = MemVar.fresh();
+    assertThat(region.getName(), is("m" + region.stamp));
+    assertThat(MemVar.getVarOrNull(region.getName()), nullValue());
+    MemVar named = MemVar.fresh("variableFactoryTestRegion");
+    assertThat(MemVar.getVarOrNull("variableFactoryTestRegion"), sameInstance(named));
+  }
+
+  @Test public void namedVariablesKeepTheirStamps () throws InterruptedException {
+    int region = MemVar.getVarOrFresh("variableFactoryTestKept").stamp;
+    int singleton = NumVar.getSingleton("variableFactoryTestKept").getStamp();
+    for (int attempt = 0; attempt < 5; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    // a name that is looked up again must not be created anew with a later stamp
+    assertThat(MemVar.getVarOrFresh("variableFactoryTestKept").stamp, is(region));
+    assertThat(NumVar.getSingleton("variableFactoryTestKept").getStamp(), is(singleton));
+  }
+
+  @Test public void contextWithoutAnalysisUsesFactoryOfThread () {
+    VariableFactory factory = new VariableFactory();
+    VariableFactory previous = factory.enter();
+    try {
+      assertThat(AnalysisCtx.unknown().getVariableFactory(), sameInstance(factory));
+    } finally {
+      VariableFactory.leave(previous);
+    }
+  }
+
+  @Test public void reservedStampsDependOnlyOnReservationOrder () {
+    VariableFactory factory = new VariableFactory();
+    VariableFactory first = factory.reserve(4);
+    VariableFactory second = factory.reserve(4);
+    // use the reserved factories in the opposite order
+    int secondStamp = allocateWith(second);
+    int firstStamp = allocateWith(first);
+    assertThat(secondStamp, is(firstStamp + 4));
+    assertThat(first.isReserved(), is(true));
+    assertThat(first.isExhausted(), is(false));
+    assertThat(allocateWith(factory), is(secondStamp + 4));
+  }
+
+  @Test public void reservedFactoryIsExhaustedWhenRunningOutOfStamps () {
+    VariableFactory factory = new VariableFactory();
+    VariableFactory reserved = factory.reserve(2);
+    for (int i = 0; i < 2; i++) {
+      allocateWith(reserved);
+    }
+    assertThat(reserved.isExhausted(), is(false));
+    allocateWith(reserved);
+    assertThat(reserved.isExhausted(), is(true));
+  }
+
+  private static int allocateWith (VariableFactory factory) {
+    VariableFactory previous = factory.enter();
+    try {
+      return NumVar.fresh().getStamp();
+    } finally {
+      VariableFactory.leave(previous);
+    }
+  }
+
+}
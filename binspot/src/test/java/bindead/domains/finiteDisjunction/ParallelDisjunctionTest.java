@@ -0,0 +1,135 @@
+package bindead.domains.finiteDisjunction;
+
+import static bindead.data.Linear.linear;
+import static bindead.data.Linear.num;
+import static bindead.data.Linear.term;
+import static bindead.debug.DebugHelper.logln;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javalx.fn.Fn;
+import javalx.numeric.Interval;
+
+import org.junit.After;
+import org.junit.Test;
+
+import bindead.FiniteDomainHelper;
+import bindead.FiniteDomainHelper.RichFiniteDomain;
+import bindead.analyses.DomainFactory;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.data.NumVar;
+import bindead.domainnetwork.channels.WarningMessage;
+import bindead.domainnetwork.channels.WarningsContainer;
+import bindead.domainnetwork.combinators.ParallelDisjuncts;
+import bindead.domainnetwork.interfaces.AnalysisCtx;
+import bindead.domainnetwork.interfaces.FiniteDomain;
+
+/**
+ * Check that the parallel evaluation of the disjunctive domains infers the same states as the sequential one.
+ */
+@SuppressWarnings({"rawtypes"})
+public class ParallelDisjunctionTest {
+  private static final NumVar x = NumVar.fresh("x");
+  private static final NumVar y = NumVar.fresh("y");
+  private static final int disjuncts = ParallelDisjuncts.parallelThreshold + 2;
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.parallelDisjunctions.setValue(false);
+  }
+
+  @Test public void disjunctionSameAsSequential () {
+    String sequential = evaluate("Disjunction Wrapping Intervals", false);
+    String parallel = evaluate("Disjunction Wrapping Intervals", true);
+    assertThat(parallel, is(sequential));
+  }
+
+  @Test public void phasedSameAsSequential () {
+    String sequential = evaluate("Wrapping Phased Intervals", false);
+    String parallel = evaluate("Wrapping Phased Intervals", true);
+    assertThat(parallel, is(sequential));
+  }
+
+  @Test public void relationalSameAsSequential () {
+    String sequential = evaluate("Disjunction Wrapping Affine Octagons", false);
+    for (int run = 0; run < 5; run++) {
+      String parallel = evaluate("Disjunction Wrapping Affine Octagons", true);
+      assertThat(parallel, is(sequential));
+    }
+  }
+
+  @Test public void unreachableDisjunctsAreRemoved () {
+    AnalysisProperties.INSTANCE.parallelDisjunctions.setValue(true);
+    RichFiniteDomain d = disjunction("Disjunction Wrapping Intervals");
+    d = d.lessOrEqualTo(x, 1);
+    FiniteDisjunction<?> disjunction = (FiniteDisjunction<?>) d.getWrappedDomain();
+    assertThat(disjunction.childState.size(), is(2));
+    d.assertValueIs(y, Interval.of(0, 10));
+  }
+
+  /**
+   * The warnings of the elements are added in their order, regardless of the order in which the elements finish, and
+   * the warnings of an element that is evaluated again because it ran out of variables are only added once.
+   */
+  @Test public void warningsInOrderOfElements () {
+    final WarningsContainer warnings = new WarningsContainer();
+    List<Integer> elements = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < disjuncts; i++) {
+      elements.add(i);
+      expected.add("#EE: element " + i);
+    }
+    ParallelDisjuncts.map(elements, new Fn<Integer, Void>() {
+      @Override public Void apply (final Integer element) {
+        try {
+          Thread.sleep(10 * (disjuncts - element));
+        } catch (InterruptedException _) {
+          Thread.currentThread().interrupt();
+        }
+        warnings.addWarning(new WarningMessage.StateRestrictionWarning() {
+          @Override public String message () {
+            return "element " + element;
+          }
+        });
+        // the second element needs more variables than are reserved for it
+        for (int i = 0; element == 1 && i < 1000; i++) {
+          NumVar.fresh();
+        }
+        return null;
+      }
+    });
+    List<String> added = new ArrayList<>();
+    for (WarningMessage warning : warnings) {
+      added.add(warning.detailedMessage());
+    }
+    assertThat(added, is(expected));
+  }
+
+  /**
+   * Build a join of states that differ in the values of the variables, i.e. one disjunct for each state.
+   */
+  private static RichFiniteDomain disjunction (String domainHierarchy) {
+    FiniteDomain top = DomainFactory.parseFiniteDomain(domainHierarchy);
+    top = (FiniteDomain) top.setContext(AnalysisCtx.unknown());
+    RichFiniteDomain d = FiniteDomainHelper.for32bitVars(top).introduce(x).introduce(y);
+    RichFiniteDomain joined = null;
+    for (int i = 0; i < disjuncts; i++) {
+      RichFiniteDomain disjunct = d.assign(x, i).assign(y, 10 * i);
+      joined = joined == null ? disjunct : joined.join(disjunct);
+    }
+    return joined;
+  }
+
+  private static String evaluate (String domainHierarchy, boolean parallel) {
+    AnalysisProperties.INSTANCE.parallelDisjunctions.setValue(parallel);
+    RichFiniteDomain d = disjunction(domainHierarchy);
+    d = d.assign(y, linear(num(1), term(x), term(y)));
+    d = d.lessOrEqualTo(x, disjuncts - 2);
+    RichFiniteDomain next = d.assign(x, linear(num(1), term(x)));
+    RichFiniteDomain widened = d.widen(d.join(next));
+    logln(widened);
+    return d + "\n" + d.subsetOrEqual(next) + "\n" + widened;
+  }
+}
@@ -1,6 +1,8 @@
 package bindead.domains.intervals;
 
+import static bindead.data.Linear.linear;
 import static bindead.debug.DebugHelper.logln;
+import static org.junit.Assert.assertNull;
 import javalx.numeric.Interval;
 
 import org.junit.Test;
@@ -72,4 +74,26 @@ public class IntervalsTest {
     d = d.assign(x2, Interval.of(-2147483648, 2147483647));
   }
 
+  /**
+   * The fused addToState of the default numeric domains must yield the same values as the lattice operations.
+   */
+  @Test public void addToStateEqualsLatticeOperations () {
+    FiniteDomain stack = DomainFactory.parseFiniteDomain(
+        "Wrapping DelayedWidening ThresholdsWidening Predicates(Z) RedundantAffine Congruences Intervals");
+    RichFiniteDomain d = FiniteDomainHelper.for32bitVars(stack);
+    d = d.introduce(x1);
+    d = d.introduce(x2, 2);
+    RichFiniteDomain first = d.assign(x1, 0);
+    RichFiniteDomain second = d.assign(x1, Interval.of(0, 4));
+    assertNull(second.addToState(first, false));
+    assertNull(second.addToState(first, true));
+    RichFiniteDomain joined = first.addToState(second, false);
+    joined.assertValueIs(x1, first.join(second).getWrappedDomain().queryRange(linear(x1)).convexHull());
+    joined.assertValueIs(x1, Interval.of(0, 4));
+    joined.assertValueIs(x2, 2);
+    RichFiniteDomain widened = first.addToState(second, true);
+    widened.assertValueIs(x1, first.widen(first.join(second)).getWrappedDomain().queryRange(linear(x1)).convexHull());
+    widened.assertValueIs(x2, 2);
+  }
+
 }
@@ -0,0 +1,102 @@
+package bindead.domains.metrics;
+
+import static bindead.TestsHelper.lines;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javalx.numeric.Range;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rreil.lang.Field;
+import rreil.lang.MemVar;
+import rreil.lang.RReilAddr;
+import bindead.analyses.Analysis;
+import bindead.analyses.AnalysisFactory;
+import bindead.analyses.algorithms.AnalysisProperties;
+import bindead.analyses.algorithms.data.CallString;
+import bindead.domainnetwork.interfaces.RootDomain;
+import bindead.domains.fields.Fields;
+import bindead.domains.intervals.Intervals;
+import bindead.domains.metrics.DomainMetrics.Layer;
+import bindead.domains.metrics.DomainMetrics.Operation;
+import binparse.rreil.RReilBinary;
+
+/**
+ * Check that the instrumented domain hierarchy infers the same results and that the operations of each domain are
+ * counted.
+ */
+public class DomainMetricsTest {
+  private static final String assembly = lines(
+      "option DEFAULT_SIZE = 32",
+      "mov x, 0",
+      "mov y, 100",
+      "loop:",
+      "cmplts LT, x, 10",
+      "xor.1 GE, LT, 1",
+      "brc GE, exit:",
+      "add x, x, 1",
+      "sub y, y, 1",
+      "br loop:",
+      "exit:",
+      "mov r, x",
+      "add r, r, y",
+      "halt");
+
+  @After public void restoreDefault () {
+    AnalysisProperties.INSTANCE.collectDomainMetrics.setValue(false);
+  }
+
+  @Test public void sameResultsAsUninstrumented () {
+    Analysis<?> plain = runAnalysis(false);
+    Analysis<?> instrumented = runAnalysis(true);
+    for (RReilAddr address : plain.getRReilCode().getInstructions().keySet()) {
+      for (String variable : new String[] {"x", "y", "r"}) {
+        assertThat(query(instrumented, address, variable), is(query(plain, address, variable)));
+      }
+    }
+  }
+
+  @Test public void operationsOfEachDomainAreCounted () {
+    DomainMetrics.INSTANCE.reset();
+    runAnalysis(true);
+    List<String> names = new ArrayList<>();
+    for (Layer layer : DomainMetrics.INSTANCE.getLayers()) {
+      names.add(layer.getName());
+    }
+    assertTrue(names.indexOf(Fields.NAME) >= 0);
+    assertTrue(names.indexOf(Fields.NAME) < names.indexOf(Intervals.NAME));
+    Layer intervals = DomainMetrics.INSTANCE.getLayer(Intervals.NAME);
+    assertTrue(intervals.getCalls(Operation.Eval) > 0);
+    assertTrue(intervals.getCalls(Operation.SubsetOrEqual) > 0);
+    assertTrue(intervals.getCalls(Operation.Widen) > 0);
+    Layer fields = DomainMetrics.INSTANCE.getLayer(Fields.NAME);
+    assertTrue(fields.getCalls(Operation.AddToState) > 0);
+    for (Operation operation : Operation.values()) {
+      assertTrue(fields.getSelfNanos(operation) <= fields.getTotalNanos(operation));
+    }
+    String csvLine = Intervals.NAME + ",Eval," + intervals.getCalls(Operation.Eval);
+    assertThat(DomainMetrics.INSTANCE.toCsv(), containsString(csvLine));
+    assertThat(DomainMetrics.INSTANCE.toJson(), containsString("{\"name\": \"" + Intervals.NAME + "\""));
+  }
+
+  private static Analysis<?> runAnalysis (boolean collectMetrics) {
+    AnalysisProperties.INSTANCE.collectDomainMetrics.setValue(collectMetrics);
+    RReilBinary binary = RReilBinary.fromString(assembly);
+    return new AnalysisFactory().runAnalysis(binary);
+  }
+
+  private static String query (Analysis<?> analysis, RReilAddr address, String variable) {
+    RootDomain<?> state = analysis.getState(CallString.root(), address).getOrNull();
+    if (state == null)
+      return "unreachable";
+    Range value = state.queryRange(MemVar.getVarOrFresh(variable), Field.finiteRangeKey(0, 32));
+    return String.valueOf(value);
+  }
+}
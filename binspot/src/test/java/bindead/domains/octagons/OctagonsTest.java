@@ -0,0 +1,182 @@
+package bindead.domains.octagons;
+
+import static bindead.data.Linear.linear;
+import static bindead.data.Linear.num;
+import static bindead.data.Linear.term;
+import static bindead.TestsHelper.lines;
+import static bindead.debug.DebugHelper.logln;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import javalx.data.Option;
+import javalx.numeric.BigInt;
+import javalx.numeric.Bound;
+import javalx.numeric.Interval;
+import javalx.numeric.Range;
+
+import org.junit.Test;
+
+import rreil.lang.RReilAddr;
+import rreil.lang.util.Type;
+import bindead.FiniteDomainHelper;
+import bindead.FiniteDomainHelper.RichFiniteDomain;
+import bindead.TestsHelper;
+import bindead.abstractsyntax.zeno.ZenoFactory;
+import bindead.analyses.Analysis;
+import bindead.analyses.AnalysisFactory;
+import bindead.analyses.DomainFactory;
+import bindead.data.Linear;
+import bindead.data.NumVar;
+import bindead.domainnetwork.channels.SynthChannel;
+import bindead.domainnetwork.interfaces.FiniteDomain;
+
+@SuppressWarnings({"rawtypes"})
+public class OctagonsTest {
+  private static final FiniteDomain top = DomainFactory.parseFiniteDomain("Wrapping Octagons");
+  private static final AnalysisFactory analyzer = new AnalysisFactory(
+      AnalysisFactory.defaultDomainHierarchy.replace(" Intervals ", " Octagons ")).enableDomains("Undef");
+  private static final NumVar x1 = NumVar.fresh("x1");
+  private static final NumVar x2 = NumVar.fresh("x2");
+  private static final NumVar x3 = NumVar.fresh("x3");
+  private static final ZenoFactory zeno = ZenoFactory.getInstance();
+
+  /**
+   * Return the TOP domain value for 32 bit variables.
+   */
+  private static RichFiniteDomain getTop () {
+    return FiniteDomainHelper.for32bitVars(top);
+  }
+
+  @Test public void testRefinesRelatedVariable () {
+    RichFiniteDomain d = getTop();
+    d = d.introduce(x1);
+    d = d.introduce(x2);
+    d = d.assign(x1, Interval.of(0, 10));
+    d = d.assign(x2, x1);
+    logln(d);
+    d = d.lessOrEqualTo(x1, 5);
+    logln(d);
+    d.assertValueIs(x1, Interval.of(0, 5));
+    d.assertValueIs(x2, Interval.of(0, 5));
+  }
+
+  @Test public void transitiveInequalities () {
+    RichFiniteDomain d = getTop();
+    d = d.introduce(x1);
+    d = d.introduce(x2);
+    d = d.introduce(x3);
+    d = d.assign(x1, Interval.of(0, 100));
+    d = d.assign(x2, Interval.of(0, 100));
+    d = d.assign(x3, Interval.of(0, 100));
+    d = d.lessOrEqualTo(x1, x2);
+    d = d.lessOrEqualTo(x2, x3);
+    d = d.lessOrEqualTo(x3, 7);
+    logln(d);
+    d.assertValueIs(x1, Interval.of(0, 7));
+    d.assertValueIs(x2, Interval.of(0, 7));
+  }
+
+  @Test public void joinKeepsRelation () {
+    RichFiniteDomain d = getTop();
+    d = d.introduce(x1);
+    d = d.introduce(x2);
+    RichFiniteDomain first = d.assign(x1, 1).assign(x2, linearSum(x1, 1));
+    RichFiniteDomain second = d.assign(x1, 5).assign(x2, linearSum(x1, 1));
+    d = first.join(second);
+    logln(d);
+    d.assertValueIs(x2, Interval.of(2, 6));
+    d = d.lessOrEqualTo(x1, 2);
+    logln(d);
+    d.assertValueIs(x2, Interval.of(2, 3));
+    assertThat(first.subsetOrEqual(first.join(second)), is(true));
+    assertThat(first.join(second).subsetOrEqual(first), is(false));
+  }
+
+  @Test public void widenKeepsRelation () {
+    RichFiniteDomain d = getTop();
+    d = d.introduce(x1, 0);
+    d = d.introduce(x2);
+    d = d.assign(x2, x1);
+    RichFiniteDomain next = d.lessOrEqualTo(x1, 99);
+    next = next.assign(x1, linearSum(x1, 1)).assign(x2, linearSum(x2, 1));
+    RichFiniteDomain loop = d.widen(d.join(next));
+    logln(loop);
+    loop.assertValueIs(x1, Interval.of(Bound.ZERO, Bound.POSINF));
+    Range difference = loop.getWrappedDomain().queryRange(linear(term(x2), term(num(-1), x1)));
+    assertThat(difference.convexHull(), is(Interval.of(0)));
+  }
+
+  @Test public void packsAreBounded () {
+    RichFiniteDomain d = getTop();
+    int count = Octagons.maxPackSize + 4;
+    NumVar[] vars = new NumVar[count];
+    for (int i = 0; i < count; i++) {
+      vars[i] = NumVar.fresh("v" + i);
+      d = d.introduce(vars[i]);
+    }
+    d = d.assign(vars[0], Interval.of(0, 10));
+    for (int i = 1; i < count; i++) {
+      d = d.assign(vars[i], linearSum(vars[i - 1], 1));
+    }
+    logln(d);
+    d.assertValueIs(vars[count - 1], Interval.of(count - 1, count + 9));
+    d = d.lessOrEqualTo(vars[0], 0);
+    // only the variables in the pack of the first variable are refined
+    d.assertValueIs(vars[1], 1);
+    d.assertValueIs(vars[count - 1], Interval.of(count - 1, count + 9));
+  }
+
+  /**
+   * Like the intervals, the join synthesizes implications between the bounds that the convex hull loses and the
+   * equalities of the variables that are still constant.
+   */
+  @Test public void joinSynthesizesLostBoundsAndEqualities () {
+    Octagons d = new Octagons();
+    d = d.introduce(x1, Type.Zeno, Option.<BigInt>none());
+    d = d.introduce(x2, Type.Zeno, Option.<BigInt>none());
+    d = d.introduce(x3, Type.Zeno, Option.<BigInt>some(BigInt.of(7)));
+    d = d.eval(zeno.assign(zeno.variable(x2), zeno.linear(x3)));
+    Octagons first = d.eval(zeno.assign(zeno.variable(x1), zeno.literal(BigInt.of(1))));
+    first = first.eval(zeno.assign(zeno.variable(x2), zeno.literal(BigInt.of(-5))));
+    Octagons second = d.eval(zeno.assign(zeno.variable(x1), zeno.literal(BigInt.of(10))));
+    second = second.eval(zeno.assign(zeno.variable(x2), zeno.literal(BigInt.of(3))));
+    SynthChannel synth = first.join(second).getSynthChannel();
+    logln(synth);
+    assertThat(synth.getImplications().isEmpty(), is(false));
+    assertThat(synth.getEquations().getVars().contains(x3), is(true));
+  }
+
+  /**
+   * The widening of the redundant affine domain enforces the equalities with the flags of Undef on the octagons.
+   * The loop head must still become stable, i.e. the widened state must include the states flowing back into it.
+   */
+  @Test(timeout = 10000) public void loopWithFlagsUnderRedundantAffineStabilizes () {
+    // i = 0
+    // while (i <= 10)
+    //   i++
+    String assembly = lines(
+        "option DEFAULT_SIZE = 8",
+        "mov pc, 0",
+        "mov i, 0",
+        "mov j, 5",
+        "loop:",
+        // LES exists only in the loop, thus the join at the loop head introduces an Undef flag with an equality e = i
+        "  cmples LES, 10, i",
+        "  brc LES, exit:",
+        "  add i, i, 1",
+        "  add j, j, 1",
+        "  sub tmp, 1, pc",
+        "  add pc, pc, tmp",
+        "  br loop:",
+        "exit:",
+        "assert i = 10",
+        "halt ");
+    Analysis<?> analysis = analyzer.runAnalysis(assembly);
+    TestsHelper.evaluateAssertions(analysis);
+    RReilAddr loopHead = RReilAddr.valueOf(3);
+    assertThat(analysis.getProgressMonitoring().getIterationCount(loopHead) <= 4, is(true));
+  }
+
+  private static Linear linearSum (NumVar var, long constant) {
+    return linear(num(constant), term(var));
+  }
+}
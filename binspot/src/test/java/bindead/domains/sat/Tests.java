@@ -61,6 +61,32 @@ public class Tests {
     assert d1.isSubset(d2);
   }
 
+  @Test public void incrementalChecksOnCopies () {
+    final SatDomain d = new SatDomain();
+    final int v1 = d.freshTopVar();
+    final int v2 = d.freshTopVar();
+    d.assumeClause(new int[] {v1, v2});
+    Assert.assertFalse(d.isUnsatisfiable());
+    // the clauses of a copy must not constrain the original sharing the same solver
+    final SatDomain c = d.copy();
+    c.assumeClause(new int[] {-v1});
+    c.assumeClause(new int[] {-v2});
+    Assert.assertTrue(c.isUnsatisfiable());
+    Assert.assertFalse(d.isUnsatisfiable());
+    d.assumeClause(new int[] {-v1});
+    Assert.assertFalse(d.isUnsatisfiable());
+    final SatDomain c2 = d.copy();
+    c2.assumeClause(new int[] {-v2});
+    Assert.assertTrue(c2.isUnsatisfiable());
+    Assert.assertFalse(d.isUnsatisfiable());
+    final SatDomain top = new SatDomain();
+    top.freshTopVar();
+    top.freshTopVar();
+    Assert.assertTrue(d.isSubset(top));
+    Assert.assertTrue(c2.isSubset(top));
+    Assert.assertFalse(d.isUnsatisfiable());
+  }
+
   @Before public void setup2 () {
     cls = new Clause(new int[] {1, 2, -3, 4, -5, 6, 7});
     cls2 = new Clause(new int[] {6, -3, 4, 2, -5, 1, 7});
@@ -0,0 +1,227 @@
+package rreil.interpreter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import javalx.numeric.BigInt;
+
+import org.junit.Test;
+
+import rreil.disassembler.translators.x86.common.X86Helpers;
+import rreil.disassembler.translators.x86.x32.X32RegisterTranslator;
+import bindis.x86.x32.X32Disassembler;
+
+/**
+ * Check that the compiled machine computes the same results as the interpreter.
+ */
+public class CompiledRReilMachineTest {
+  private static final X32Disassembler dis = X32Disassembler.INSTANCE;
+  private static final long codeAddress = 0x8048000L;
+  private static final String[] registers = {"eax", "ebx", "ecx", "edx"};
+  private static final String[] flags = {"CF", "OF", "SF", "ZF", X86Helpers.BELOW_OR_EQUAL_FLAG,
+    X86Helpers.LESS_FLAG, X86Helpers.LESS_OR_EQUAL_FLAG};
+  private static final long[] edgeValues = {0, 1, 2, 31, 0x7fffffffL, 0x80000000L, 0xffffffffL, 0xfffffffeL};
+  private static final long dataAddress = MemoryModel.DEFAULT_BASE_ADDRESS;
+  private static final int dataSize = MemoryModel.DEFAULT_SIZE;
+
+  private static byte[] code (int... bytes) {
+    byte[] code = new byte[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      code[i] = (byte) bytes[i];
+    }
+    return code;
+  }
+
+  @Test public void loop () {
+    // mov ecx, 1000; L: add eax, ecx; dec ecx; jnz L
+    byte[] code = code(0xb9, 0xe8, 0x03, 0x00, 0x00, 0x01, 0xc8, 0x49, 0x75, 0xfb);
+    CompiledRReilMachine machine = new CompiledRReilMachine(dis, code, codeAddress);
+    CompiledCtx ctx = machine.emptyCtx();
+    long executed = machine.run(ctx, Long.MAX_VALUE);
+    assertThat(executed, is(1 + 1000 * 3L));
+    assertThat(ctx.get("eax"), is(500500L));
+    assertThat(ctx.get("ecx"), is(0L));
+    assertThat(ctx.getPc(), is(codeAddress + code.length));
+  }
+
+  @Test public void stepsAreCounted () {
+    // mov ecx, 1000; L: add eax, ecx; dec ecx; jnz L
+    byte[] code = code(0xb9, 0xe8, 0x03, 0x00, 0x00, 0x01, 0xc8, 0x49, 0x75, 0xfb);
+    CompiledRReilMachine machine = new CompiledRReilMachine(dis, code, codeAddress);
+    CompiledCtx ctx = machine.emptyCtx();
+    assertThat(machine.run(ctx, 3), is(3L));
+    assertThat(ctx.get("eax"), is(1000L));
+    assertThat(ctx.getPc(), is(codeAddress + 8));
+    assertThat(machine.step(ctx), is(true));
+    assertThat(ctx.getPc(), is(codeAddress + 5));
+  }
+
+  @Test public void memory () {
+    // push eax; pop ebx; mov [esp - 2], bx; mov cx, [esp - 3]
+    byte[] code = code(0x50, 0x5b, 0x66, 0x89, 0x5c, 0x24, 0xfe, 0x66, 0x8b, 0x4c, 0x24, 0xfd);
+    CompiledRReilMachine machine = new CompiledRReilMachine(dis, code, codeAddress);
+    CompiledCtx ctx = machine.emptyCtx();
+    ctx.set("esp", 0xbffff000L);
+    ctx.set("eax", 0x12345678L);
+    machine.run(ctx, Long.MAX_VALUE);
+    assertThat(ctx.get("ebx"), is(0x12345678L));
+    assertThat(ctx.get("esp"), is(0xbffff000L));
+    assertThat(ctx.getMemory().load(32, 0xbffff000L - 4), is(0x56785678L));
+    assertThat(ctx.get("ecx"), is(0x7856L));
+  }
+
+  @Test public void pagedMemory () {
+    PagedMemory little = new PagedMemory(ByteOrder.LITTLE_ENDIAN);
+    PagedMemory big = new PagedMemory(ByteOrder.BIG_ENDIAN);
+    // crosses a page boundary
+    long address = 0x10000L - 3;
+    little.store(64, address, 0x0102030405060708L);
+    big.store(64, address, 0x0102030405060708L);
+    assertThat(little.load(64, address), is(0x0102030405060708L));
+    assertThat(big.load(64, address), is(0x0102030405060708L));
+    assertThat(little.load(8, address), is(0x08L));
+    assertThat(big.load(8, address), is(0x01L));
+    assertThat(little.load(32, 0x20000L), is(0L));
+    for (int i = 0; i < 1000; i++) {
+      little.store(32, i * 0x1000L + 2, i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertThat(little.load(32, i * 0x1000L + 2), is((long) i));
+    }
+  }
+
+  /**
+   * Executes the instructions with random and edge case operands on both machines.
+   */
+  @Test public void sameResultsAsInterpreter () {
+    int[][] instructions = {
+      {0x01, 0xd8}, // add eax, ebx
+      {0x29, 0xd8}, // sub eax, ebx
+      {0x39, 0xd8}, // cmp eax, ebx
+      {0x21, 0xd8}, // and eax, ebx
+      {0x09, 0xd8}, // or eax, ebx
+      {0x31, 0xd8}, // xor eax, ebx
+      {0x85, 0xd8}, // test eax, ebx
+      {0x40}, // inc eax
+      {0x48}, // dec eax
+      {0xf7, 0xd8}, // neg eax
+      {0xf7, 0xd0}, // not eax
+      {0x0f, 0xaf, 0xc3}, // imul eax, ebx
+      {0x0f, 0xb6, 0xc3}, // movzx eax, bl
+      {0x0f, 0xbe, 0xc3}, // movsx eax, bl
+      {0x88, 0xf8}, // mov al, bh
+      {0x89, 0xd8}, // mov eax, ebx
+    };
+    Random random = new Random(0x5eed);
+    for (int[] bytes : instructions) {
+      byte[] code = code(bytes);
+      CompiledRReilMachine machine = new CompiledRReilMachine(dis, code, codeAddress);
+      for (int i = 0; i < 200; i++) {
+        long a = i < edgeValues.length * edgeValues.length ? edgeValues[i % edgeValues.length] : random.nextLong();
+        long b = i < edgeValues.length * edgeValues.length ? edgeValues[i / edgeValues.length] : random.nextLong();
+        assertSameResults(machine, code, a & 0xffffffffL, b & 0xffffffffL, 0);
+      }
+    }
+  }
+
+  /**
+   * Divides {@code edx:eax} on both machines and compares the quotients in {@code eax} and the remainders in
+   * {@code edx}. The disassembler decodes the implicit {@code eax} as the first operand and the translation divides by
+   * it, thus both operands are kept non-zero.
+   */
+  @Test public void sameDivisionsAsInterpreter () {
+    byte[] unsigned = code(0xf7, 0xf3); // div ebx
+    byte[] signed = code(0xf7, 0xfb); // idiv ebx
+    CompiledRReilMachine unsignedMachine = new CompiledRReilMachine(dis, unsigned, codeAddress);
+    CompiledRReilMachine signedMachine = new CompiledRReilMachine(dis, signed, codeAddress);
+    Random random = new Random(0x5eed);
+    for (int i = 0; i < 200; i++) {
+      long a = i < edgeValues.length * edgeValues.length ? edgeValues[i % edgeValues.length] : random.nextLong();
+      long b = i < edgeValues.length * edgeValues.length ? edgeValues[i / edgeValues.length] : random.nextLong();
+      a = a & 0xffffffffL;
+      b = b & 0xffffffffL;
+      if (a == 0 || b == 0)
+        continue;
+      assertSameResults(unsignedMachine, unsigned, a, b, 0);
+      // sign extend eax into edx as done by cdq
+      long d = (int) a < 0 ? 0xffffffffL : 0;
+      assertSameResults(signedMachine, signed, a, b, d);
+    }
+  }
+
+  /**
+   * Loads and stores through the address in {@code ebx} on both machines and compares the registers and the memory.
+   */
+  @Test public void sameMemoryAccessesAsInterpreter () {
+    int[][] instructions = {
+      {0x8b, 0x03}, // mov eax, [ebx]
+      {0x89, 0x03}, // mov [ebx], eax
+      {0x88, 0x03}, // mov [ebx], al
+      {0x66, 0x89, 0x03}, // mov [ebx], ax
+      {0x0f, 0xb6, 0x03}, // movzx eax, byte [ebx]
+      {0x0f, 0xbf, 0x03}, // movsx eax, word [ebx]
+      {0x01, 0x03}, // add [ebx], eax
+      {0x03, 0x03}, // add eax, [ebx]
+    };
+    Random random = new Random(0x5eed);
+    for (int[] bytes : instructions) {
+      byte[] code = code(bytes);
+      CompiledRReilMachine machine = new CompiledRReilMachine(dis, code, codeAddress);
+      for (int i = 0; i < 100; i++) {
+        long a = i < edgeValues.length ? edgeValues[i] : random.nextLong();
+        long b = dataAddress + random.nextInt(dataSize - 4);
+        assertSameResults(machine, code, a & 0xffffffffL, b, 0);
+      }
+    }
+  }
+
+  @Test(expected = RReilMachineException.class) public void undefinedValuesAreRejectedByDefault () {
+    // div ebx leaves the flags undefined
+    byte[] code = code(0xf7, 0xf3);
+    InterpCtx interpCtx = new InterpCtx(64, X32RegisterTranslator.$, new MemoryModel(ByteOrder.LITTLE_ENDIAN));
+    interpCtx.set("eax", BigInt.of(7));
+    interpCtx.set("ebx", BigInt.of(2));
+    interpCtx.set("edx", BigInt.ZERO);
+    new RReilMachine(dis).evalOne(new MachineCtx(interpCtx, code, 0, codeAddress));
+  }
+
+  private static void assertSameResults (CompiledRReilMachine machine, byte[] code, long a, long b, long d) {
+    InterpCtx interpCtx = new InterpCtx(64, X32RegisterTranslator.$, new MemoryModel(ByteOrder.LITTLE_ENDIAN));
+    CompiledCtx ctx = machine.emptyCtx();
+    for (String register : registers) {
+      interpCtx.set(register, BigInt.ZERO);
+    }
+    for (String flag : flags) {
+      interpCtx.setBool(flag, BigInt.ZERO);
+    }
+    interpCtx.set("eax", BigInt.of(a));
+    interpCtx.set("ebx", BigInt.of(b));
+    interpCtx.set("edx", BigInt.of(d));
+    ctx.set("eax", a);
+    ctx.set("ebx", b);
+    ctx.set("edx", d);
+    // the same data in the memory of both machines
+    for (int offset = 0; offset < dataSize; offset += 4) {
+      long word = (a ^ offset * 0x01010101L) & 0xffffffffL;
+      interpCtx.store(32, dataAddress + offset, BigInt.of(word));
+      ctx.getMemory().store(32, dataAddress + offset, word);
+    }
+    new RReilMachine(dis, 32, true).evalOne(new MachineCtx(interpCtx, code, 0, codeAddress));
+    machine.run(ctx, 1);
+    String operands = String.format("%s with %x, %x, %x", dis.decodeOne(code, 0, codeAddress), a, b, d);
+    for (String register : registers) {
+      assertThat(register + " for " + operands, BigInt.of(ctx.get(register)), is(interpCtx.get(register)));
+    }
+    for (String flag : flags) {
+      assertThat(flag + " for " + operands, BigInt.of(ctx.getBool(flag)), is(interpCtx.getBool(flag)));
+    }
+    for (int offset = 0; offset < dataSize; offset += 4) {
+      long address = dataAddress + offset;
+      assertThat("memory at " + Long.toHexString(address) + " for " + operands,
+          BigInt.of(ctx.getMemory().load(32, address)), is(interpCtx.load(32, address)));
+    }
+  }
+}
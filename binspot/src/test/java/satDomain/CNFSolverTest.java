@@ -0,0 +1,38 @@
+package satDomain;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CNFSolverTest {
+  private static final int vars = 16;
+
+  /**
+   * The clauses added for the entailment checks must not accumulate in the solver session shared by the copies.
+   */
+  @Test public void sessionSizeStaysBounded () {
+    final SatDomain d = new SatDomain();
+    final SatDomain top = new SatDomain();
+    final int[] clause = new int[vars];
+    for (int i = 0; i < vars; i++) {
+      clause[i] = d.freshTopVar();
+      top.freshTopVar();
+    }
+    d.assumeClause(clause.clone());
+    assertFalse(d.isUnsatisfiable());
+    int maxSessionSize = 0;
+    for (int check = 0; check < CNFSolver.maxGuardedClauses; check++) {
+      // a different clause for each check such that the results are not cached
+      for (int i = 0; i < vars; i++) {
+        clause[i] = (check & 1 << i) != 0 ? -(i + 1) : i + 1;
+      }
+      final SatDomain c = d.copy();
+      c.assumeClause(clause.clone());
+      assertTrue(c.isSubset(top));
+      maxSessionSize = Math.max(maxSessionSize, c.sessionSize());
+    }
+    assertTrue("session grew to " + maxSessionSize + " clauses",
+        maxSessionSize <= CNFSolver.maxGuardedClauses + CNFSolver.maxSelectors + vars);
+  }
+}
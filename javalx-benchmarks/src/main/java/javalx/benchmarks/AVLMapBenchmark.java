@@ -0,0 +1,95 @@
+package javalx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javalx.data.products.P2;
+import javalx.persistentcollections.AVLMap;
+import javalx.persistentcollections.ThreeWaySplit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the {@link AVLMap} that is used by the domains on top of the {@link AVLTreeBenchmark tree}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AVLMapBenchmark {
+  @Param({"16", "256", "4096"}) public int size;
+  private int[] keys;
+  private AVLMap<Integer, Integer> tree;
+  private AVLMap<Integer, Integer> updated;
+  private AVLMap<Integer, Integer> independent;
+
+  @Setup public void setup () {
+    keys = KeyDistributions.variables(size);
+    tree = build(keys, 0);
+    updated = tree;
+    for (int index : KeyDistributions.updatedIndices(size)) {
+      updated = updated.bind(keys[index], -index);
+    }
+    independent = build(keys, 0);
+  }
+
+  private static AVLMap<Integer, Integer> build (int[] keys, int value) {
+    AVLMap<Integer, Integer> result = AVLMap.empty();
+    for (int key : keys) {
+      result = result.bind(key, value);
+    }
+    return result;
+  }
+
+  @Benchmark public AVLMap<Integer, Integer> bind () {
+    return build(keys, 1);
+  }
+
+  @Benchmark public void get (Blackhole blackhole) {
+    for (int key : keys) {
+      blackhole.consume(tree.getOrNull(key));
+    }
+  }
+
+  @Benchmark public AVLMap<Integer, Integer> remove () {
+    AVLMap<Integer, Integer> result = tree;
+    for (int key : keys) {
+      result = result.remove(key);
+    }
+    return result;
+  }
+
+  @Benchmark public AVLMap<Integer, Integer> unionShared () {
+    return tree.union(updated);
+  }
+
+  @Benchmark public AVLMap<Integer, Integer> unionIndependent () {
+    return tree.union(independent);
+  }
+
+  @Benchmark public ThreeWaySplit<AVLMap<Integer, Integer>> splitShared () {
+    return tree.split(updated);
+  }
+
+  @Benchmark public ThreeWaySplit<AVLMap<Integer, Integer>> splitIndependent () {
+    return tree.split(independent);
+  }
+
+  @Benchmark public void iterate (Blackhole blackhole) {
+    for (P2<Integer, Integer> binding : tree) {
+      blackhole.consume(binding);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package javalx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javalx.numeric.BigInt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the {@link BigInt} arithmetic on a mix of small values and values at the bounds of machine
+ * integers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BigIntBenchmark {
+  private static final int SIZE = 1024;
+  private BigInt[] values;
+
+  @Setup public void setup () {
+    values = KeyDistributions.values(SIZE);
+  }
+
+  @Benchmark public void addSub (Blackhole blackhole) {
+    for (int i = 1; i < values.length; i++) {
+      blackhole.consume(values[i - 1].add(values[i]).sub(values[i]));
+    }
+  }
+
+  @Benchmark public void mul (Blackhole blackhole) {
+    for (int i = 1; i < values.length; i++) {
+      blackhole.consume(values[i - 1].mul(values[i]));
+    }
+  }
+
+  @Benchmark public void div (Blackhole blackhole) {
+    for (int i = 1; i < values.length; i++) {
+      if (values[i].sign() != 0)
+        blackhole.consume(values[i - 1].divRoundDown(values[i]));
+    }
+  }
+
+  @Benchmark public void bitwise (Blackhole blackhole) {
+    for (int i = 1; i < values.length; i++) {
+      blackhole.consume(values[i - 1].and(values[i]).or(values[i]).xor(values[i - 1]).shl(3).shr(5));
+    }
+  }
+
+  @Benchmark public void compare (Blackhole blackhole) {
+    for (int i = 1; i < values.length; i++) {
+      blackhole.consume(values[i - 1].compareTo(values[i]));
+      blackhole.consume(values[i - 1].isEqualTo(values[i]));
+    }
+  }
+
+  /**
+   * The operations in the proportions in which they are applied by the numeric domains.
+   */
+  @Benchmark public void mix (Blackhole blackhole) {
+    for (int i = 1; i < values.length; i++) {
+      BigInt a = values[i - 1];
+      BigInt b = values[i];
+      BigInt sum = a.add(b);
+      blackhole.consume(sum.compareTo(a) < 0 ? a : sum);
+      if ((i & 3) == 0)
+        blackhole.consume(a.mul(b));
+      if ((i & 7) == 0 && b.sign() != 0)
+        blackhole.consume(a.divRoundZero(b));
+      if ((i & 15) == 0)
+        blackhole.consume(a.and(BigInt.of(0xffffffffL)));
+    }
+  }
+}
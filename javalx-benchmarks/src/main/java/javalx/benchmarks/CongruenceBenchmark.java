@@ -0,0 +1,66 @@
+package javalx.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javalx.numeric.BigInt;
+import javalx.numeric.Congruence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the {@link Congruence} operations. The congruences have the strides of array and structure
+ * accesses, i.e. mostly small powers of two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CongruenceBenchmark {
+  private static final int SIZE = 1024;
+  private static final long[] scales = {0, 1, 2, 4, 4, 8, 8, 12, 16, 24};
+  private Congruence[] congruences;
+  private BigInt[] constants;
+
+  @Setup public void setup () {
+    Random random = KeyDistributions.random();
+    congruences = new Congruence[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      long scale = scales[random.nextInt(scales.length)];
+      congruences[i] = new Congruence(scale, scale == 0 ? random.nextInt(256) : random.nextInt((int) scale));
+    }
+    constants = KeyDistributions.values(SIZE);
+  }
+
+  @Benchmark public void arithmetic (Blackhole blackhole) {
+    for (int i = 1; i < congruences.length; i++) {
+      Congruence a = congruences[i - 1];
+      Congruence b = congruences[i];
+      blackhole.consume(a.add(b));
+      blackhole.consume(a.mul(b));
+      blackhole.consume(a.mul(constants[i]));
+    }
+  }
+
+  @Benchmark public void lattice (Blackhole blackhole) {
+    for (int i = 1; i < congruences.length; i++) {
+      Congruence a = congruences[i - 1];
+      Congruence b = congruences[i];
+      blackhole.consume(a.join(b));
+      blackhole.consume(a.meet(b));
+      blackhole.consume(a.subsetOrEqual(b));
+    }
+  }
+}
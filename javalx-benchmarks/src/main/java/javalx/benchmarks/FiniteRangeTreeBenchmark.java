@@ -0,0 +1,92 @@
+package javalx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javalx.data.products.P2;
+import javalx.numeric.FiniteRange;
+import javalx.persistentcollections.ThreeWaySplit;
+import javalx.persistentcollections.tree.FiniteRangeTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the {@link FiniteRangeTree} holding the fields of a memory region. The overlap queries are the
+ * lookups performed for each memory access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FiniteRangeTreeBenchmark {
+  @Param({"8", "64", "1024"}) public int size;
+  private FiniteRange[] fields;
+  private FiniteRange[] accesses;
+  private FiniteRangeTree<Integer> tree;
+  private FiniteRangeTree<Integer> updated;
+
+  @Setup public void setup () {
+    fields = KeyDistributions.fields(size);
+    tree = build(fields, 0);
+    updated = tree;
+    for (int index : KeyDistributions.updatedIndices(size)) {
+      updated = updated.bind(fields[index], -index);
+    }
+    // word sized accesses at the start of each field
+    accesses = new FiniteRange[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      long offset = fields[i].low().longValue();
+      accesses[i] = FiniteRange.of(offset, offset + 31);
+    }
+  }
+
+  private static FiniteRangeTree<Integer> build (FiniteRange[] fields, int value) {
+    FiniteRangeTree<Integer> result = FiniteRangeTree.empty();
+    for (FiniteRange field : fields) {
+      result = result.bind(field, value);
+    }
+    return result;
+  }
+
+  @Benchmark public FiniteRangeTree<Integer> bind () {
+    return build(fields, 1);
+  }
+
+  @Benchmark public void get (Blackhole blackhole) {
+    for (FiniteRange field : fields) {
+      blackhole.consume(tree.getOrNull(field));
+    }
+  }
+
+  @Benchmark public void searchOverlaps (Blackhole blackhole) {
+    for (FiniteRange access : accesses) {
+      blackhole.consume(tree.searchOverlaps(access));
+    }
+  }
+
+  @Benchmark public FiniteRangeTree<Integer> union () {
+    return tree.union(updated);
+  }
+
+  @Benchmark public ThreeWaySplit<FiniteRangeTree<Integer>> split () {
+    return tree.split(updated);
+  }
+
+  @Benchmark public void iterate (Blackhole blackhole) {
+    for (P2<FiniteRange, Integer> binding : tree) {
+      blackhole.consume(binding);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package javalx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javalx.numeric.BigInt;
+import javalx.numeric.Interval;
+import javalx.numeric.IntervalSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the {@link Interval} and {@link IntervalSet} arithmetic and lattice operations. The intervals are
+ * built from the bounds of {@link KeyDistributions#values(int)} with some of them being unbounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalBenchmark {
+  private static final int SIZE = 1024;
+  private Interval[] intervals;
+  private IntervalSet[] intervalSets;
+
+  @Setup public void setup () {
+    BigInt[] values = KeyDistributions.values(SIZE + 1);
+    intervals = new Interval[SIZE];
+    intervalSets = new IntervalSet[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      BigInt a = values[i];
+      BigInt b = values[i + 1];
+      BigInt low = a.compareTo(b) <= 0 ? a : b;
+      BigInt high = a.compareTo(b) <= 0 ? b : a;
+      if (i % 16 == 0)
+        intervals[i] = Interval.upFrom(low);
+      else if (i % 16 == 1)
+        intervals[i] = Interval.downFrom(high);
+      else
+        intervals[i] = Interval.of(low, high);
+    }
+    for (int i = 0; i < SIZE; i++) {
+      Interval first = intervals[i];
+      Interval second = intervals[(i + 7) % SIZE];
+      intervalSets[i] = first.overlaps(second) ? IntervalSet.valueOf(first) : IntervalSet.valueOf(first, second);
+    }
+  }
+
+  @Benchmark public void arithmetic (Blackhole blackhole) {
+    for (int i = 1; i < intervals.length; i++) {
+      Interval a = intervals[i - 1];
+      Interval b = intervals[i];
+      blackhole.consume(a.add(b));
+      blackhole.consume(a.sub(b));
+      blackhole.consume(a.mul(b));
+    }
+  }
+
+  @Benchmark public void lattice (Blackhole blackhole) {
+    for (int i = 1; i < intervals.length; i++) {
+      Interval a = intervals[i - 1];
+      Interval b = intervals[i];
+      Interval joined = a.join(b);
+      blackhole.consume(joined);
+      blackhole.consume(a.widen(joined));
+      blackhole.consume(a.meet(b));
+      blackhole.consume(a.subsetOrEqual(b));
+    }
+  }
+
+  /**
+   * The operations in the proportions in which they are applied by the intervals domain.
+   */
+  @Benchmark public void mix (Blackhole blackhole) {
+    for (int i = 1; i < intervals.length; i++) {
+      Interval a = intervals[i - 1];
+      Interval b = intervals[i];
+      blackhole.consume(a.add(b));
+      blackhole.consume(a.subsetOrEqual(b));
+      if ((i & 1) == 0)
+        blackhole.consume(a.join(b));
+      if ((i & 3) == 0)
+        blackhole.consume(a.meet(b));
+      if ((i & 7) == 0)
+        blackhole.consume(a.mul(b));
+      if ((i & 31) == 0)
+        blackhole.consume(a.widen(a.join(b)));
+    }
+  }
+
+  @Benchmark public void intervalSets (Blackhole blackhole) {
+    for (int i = 1; i < intervalSets.length; i++) {
+      IntervalSet a = intervalSets[i - 1];
+      IntervalSet b = intervalSets[i];
+      blackhole.consume(a.add(b));
+      blackhole.consume(a.join(b));
+      blackhole.consume(a.meet(b));
+      blackhole.consume(a.subsetOrEqual(b));
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package javalx.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javalx.numeric.BigInt;
+import javalx.numeric.FiniteRange;
+
+/**
+ * Keys and values with the shape of the ones found in the states of the abstract domains. The numeric variables of a
+ * state are mostly consecutive as they are allocated by a counter, with gaps left by the temporaries that were
+ * projected out again. The fields of a memory region are aligned, mostly word sized and sometimes overlapped by
+ * smaller fields.<br>
+ *
+ * The variable keys can also be read from a dump of a real domain state by setting the system property
+ * {@code javalx.benchmarks.keys} to a file containing one integer key per line. The keys are then used in the order of
+ * the file and repeated if the benchmark needs more keys than contained in the file. Such a dump is written by an
+ * analysis with the option {@code --dump-variables <file>} of the command line analyzer or with the analysis property
+ * {@code variablesDumpFile} set. It contains the stamps of the variables of the largest state in the order of their
+ * allocation, e.g.
+ *
+ * <pre>
+ * java -jar bindead.jar --dump-variables keys.txt binary
+ * java -Djavalx.benchmarks.keys=keys.txt -jar javalx-benchmarks/target/benchmarks.jar
+ * </pre>
+ */
+public class KeyDistributions {
+  public static final String KEYS_FILE_PROPERTY = "javalx.benchmarks.keys";
+  private static final long SEED = 0x5eed;
+
+  public static Random random () {
+    return new Random(SEED);
+  }
+
+  /**
+   * Return the identifiers of the numeric variables of a domain state.
+   */
+  public static int[] variables (int size) {
+    String keysFile = System.getProperty(KEYS_FILE_PROPERTY);
+    if (keysFile != null)
+      return fromFile(keysFile, size);
+    Random random = random();
+    int[] keys = new int[size];
+    int key = 0;
+    for (int i = 0; i < size; i++) {
+      key = key + 1;
+      // about every fifth variable follows a gap of projected temporaries
+      if (random.nextInt(5) == 0)
+        key = key + 1 + random.nextInt(8);
+      keys[i] = key;
+    }
+    shuffle(keys, random);
+    return keys;
+  }
+
+  private static int[] fromFile (String keysFile, int size) {
+    List<Integer> dumped = new ArrayList<>();
+    try {
+      for (String line : Files.readAllLines(Paths.get(keysFile), StandardCharsets.UTF_8)) {
+        line = line.trim();
+        if (!line.isEmpty())
+          dumped.add(Integer.parseInt(line));
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not read the keys from " + keysFile, e);
+    }
+    if (dumped.isEmpty())
+      throw new IllegalArgumentException("No keys in " + keysFile);
+    int[] keys = new int[size];
+    // repeated keys are shifted to keep them distinct
+    int shift = 0;
+    for (int i = 0; i < size; i++) {
+      if (i > 0 && i % dumped.size() == 0)
+        shift = shift + Integer.MAX_VALUE / 64;
+      keys[i] = dumped.get(i % dumped.size()) + shift;
+    }
+    return keys;
+  }
+
+  /**
+   * Return the fields of a memory region, e.g. a stack frame. The fields are given in the order of their offsets.
+   */
+  public static FiniteRange[] fields (int size) {
+    Random random = random();
+    FiniteRange[] fields = new FiniteRange[size];
+    long offset = 0;
+    for (int i = 0; i < size; i++) {
+      int bits;
+      int kind = random.nextInt(10);
+      if (kind < 6)
+        bits = 32;
+      else if (kind < 8)
+        bits = 64;
+      else if (kind < 9)
+        bits = 8;
+      else
+        bits = 16;
+      fields[i] = FiniteRange.of(offset, offset + bits - 1);
+      // some fields are accessed bytewise, too, resulting in overlapping fields
+      if (bits > 8 && random.nextInt(8) == 0 && i + 1 < size) {
+        i++;
+        fields[i] = FiniteRange.of(offset, offset + 7);
+      }
+      offset = offset + Math.max(bits, 32);
+    }
+    return fields;
+  }
+
+  /**
+   * Return numeric values as they occur in the analyzed code: mostly small constants and offsets, some values at
+   * the bounds of 32 bit and 64 bit integers from wrapping and masking and a few that exceed 64 bits.
+   */
+  public static BigInt[] values (int size) {
+    Random random = random();
+    BigInt[] values = new BigInt[size];
+    for (int i = 0; i < size; i++) {
+      int kind = random.nextInt(20);
+      if (kind < 14)
+        values[i] = BigInt.of(random.nextInt(2049) - 1024);
+      else if (kind < 18)
+        values[i] = BigInt.of((random.nextBoolean() ? 0xffffffffL : 0x7fffffffL) - random.nextInt(16));
+      else if (kind < 19)
+        values[i] = BigInt.of(Long.MAX_VALUE - random.nextInt(16));
+      else
+        values[i] = BigInt.powerOfTwo(64).add(BigInt.of(random.nextInt(1024)));
+    }
+    return values;
+  }
+
+  private static void shuffle (int[] keys, Random random) {
+    for (int i = keys.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = keys[i];
+      keys[i] = keys[j];
+      keys[j] = tmp;
+    }
+  }
+
+  /**
+   * Return the indices of the keys that are updated between two states that are joined, i.e. about a tenth of them.
+   */
+  public static int[] updatedIndices (int size) {
+    Random random = random();
+    int[] indices = new int[Math.max(1, size / 10)];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = random.nextInt(size);
+    }
+    return indices;
+  }
+}
@@ -0,0 +1,117 @@
+package javalx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javalx.data.products.P2;
+import javalx.persistentcollections.ThreeWaySplit;
+import javalx.persistentcollections.trie.PatriciaTrie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the integer keyed tries. The deprecated {@link javalx.persistentcollections.trie.IntTrie} is kept as
+ * a baseline for the {@link PatriciaTrie} that replaced it. It is referenced by its qualified name as the compiler
+ * warns about the import of a deprecated class even if the warnings are suppressed.
+ */
+@SuppressWarnings("deprecation")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark {
+  @Param({"16", "256", "4096"}) public int size;
+  private int[] keys;
+  private javalx.persistentcollections.trie.IntTrie<Integer> intTrie;
+  private javalx.persistentcollections.trie.IntTrie<Integer> intTrieUpdated;
+  private PatriciaTrie<Integer, Integer> trie;
+  private PatriciaTrie<Integer, Integer> trieUpdated;
+  private PatriciaTrie<Integer, Integer> trieIndependent;
+
+  @Setup public void setup () {
+    keys = KeyDistributions.variables(size);
+    intTrie = buildIntTrie(keys, 0);
+    trie = buildPatriciaTrie(keys, 0);
+    intTrieUpdated = intTrie;
+    trieUpdated = trie;
+    for (int index : KeyDistributions.updatedIndices(size)) {
+      intTrieUpdated = intTrieUpdated.bind(keys[index], -index);
+      trieUpdated = trieUpdated.bind(keys[index], keys[index], -index);
+    }
+    trieIndependent = buildPatriciaTrie(keys, 0);
+  }
+
+  private static javalx.persistentcollections.trie.IntTrie<Integer> buildIntTrie (int[] keys, int value) {
+    javalx.persistentcollections.trie.IntTrie<Integer> result = javalx.persistentcollections.trie.IntTrie.empty();
+    for (int key : keys) {
+      result = result.bind(key, value);
+    }
+    return result;
+  }
+
+  private static PatriciaTrie<Integer, Integer> buildPatriciaTrie (int[] keys, int value) {
+    PatriciaTrie<Integer, Integer> result = PatriciaTrie.empty();
+    for (int key : keys) {
+      result = result.bind(key, key, value);
+    }
+    return result;
+  }
+
+  @Benchmark public javalx.persistentcollections.trie.IntTrie<Integer> intTrieBind () {
+    return buildIntTrie(keys, 1);
+  }
+
+  @Benchmark public void intTrieGet (Blackhole blackhole) {
+    for (int key : keys) {
+      blackhole.consume(intTrie.get(key));
+    }
+  }
+
+  @Benchmark public javalx.persistentcollections.trie.IntTrie<Integer> intTrieUnion () {
+    return intTrie.union(intTrieUpdated);
+  }
+
+  @Benchmark public PatriciaTrie<Integer, Integer> patriciaTrieBind () {
+    return buildPatriciaTrie(keys, 1);
+  }
+
+  @Benchmark public void patriciaTrieGet (Blackhole blackhole) {
+    for (int key : keys) {
+      blackhole.consume(trie.getOrNull(key));
+    }
+  }
+
+  @Benchmark public PatriciaTrie<Integer, Integer> patriciaTrieUnionShared () {
+    return trie.union(null, trieUpdated);
+  }
+
+  @Benchmark public PatriciaTrie<Integer, Integer> patriciaTrieUnionIndependent () {
+    return trie.union(null, trieIndependent);
+  }
+
+  @Benchmark public ThreeWaySplit<PatriciaTrie<Integer, Integer>> patriciaTrieSplitShared () {
+    return trie.split(trieUpdated);
+  }
+
+  @Benchmark public ThreeWaySplit<PatriciaTrie<Integer, Integer>> patriciaTrieSplitIndependent () {
+    return trie.split(trieIndependent);
+  }
+
+  @Benchmark public void patriciaTrieIterate (Blackhole blackhole) {
+    for (P2<Integer, Integer> binding : trie) {
+      blackhole.consume(binding);
+    }
+  }
+}
@@ -18,6 +18,16 @@ public abstract class Fn2<A, B, C> {
    */
   public abstract C apply (A a, B b);
 
+  /**
+   * Whether applying this function to a value and itself yields that value again. The persistent collections keep
+   * the bindings that are shared by both operands of a union or intersection without applying such a selector.
+   *
+   * @return {@code false} unless overridden by an idempotent function.
+   */
+  public boolean isIdempotent () {
+    return false;
+  }
+
   public final Fn2<B, A, C> flip () {
     return new Fn2<B, A, C>() {
       @Override
@@ -53,6 +63,11 @@ public abstract class Fn2<A, B, C> {
       public A apply (final A a, final B b) {
         return a;
       }
+
+      @Override
+      public boolean isIdempotent () {
+        return true;
+      }
     };
   }
 
@@ -65,6 +80,11 @@ public abstract class Fn2<A, B, C> {
       public B apply (final A a, final B b) {
         return b;
       }
+
+      @Override
+      public boolean isIdempotent () {
+        return true;
+      }
     };
   }
 }
@@ -0,0 +1,79 @@
+package javalx.mutablecollections;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A map that references its values only weakly. An entry is removed once its value is not referenced from anywhere
+ * else anymore. Thus the map can be used to look up objects by a key, e.g. variables by their name, without keeping
+ * them alive. The map can be used concurrently by several threads.
+ */
+public final class WeakValueMap<K, V> {
+  private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+  private final ReferenceQueue<V> collected = new ReferenceQueue<>();
+
+  /**
+   * @return the value associated with the key or {@code null} if there is none
+   */
+  public V get (K key) {
+    Entry<K, V> entry = entries.get(key);
+    return entry == null ? null : entry.get();
+  }
+
+  /**
+   * Associate the value with the key and replace any value associated before.
+   */
+  public void put (K key, V value) {
+    removeCollected();
+    entries.put(key, new Entry<>(key, value, collected));
+  }
+
+  /**
+   * Associate the value with the key if no value is associated with it yet.
+   *
+   * @return the value that is associated with the key afterwards
+   */
+  public V putIfAbsent (K key, V value) {
+    removeCollected();
+    Entry<K, V> newEntry = new Entry<>(key, value, collected);
+    while (true) {
+      Entry<K, V> entry = entries.putIfAbsent(key, newEntry);
+      if (entry == null)
+        return value;
+      V existing = entry.get();
+      if (existing != null)
+        return existing;
+      // the value of the old entry was collected but the entry is not removed yet
+      if (entries.replace(key, entry, newEntry))
+        return value;
+    }
+  }
+
+  /**
+   * @return the number of entries whose values were not collected yet
+   */
+  public int size () {
+    removeCollected();
+    return entries.size();
+  }
+
+  private void removeCollected () {
+    Reference<? extends V> reference;
+    while ((reference = collected.poll()) != null) {
+      Entry<?, ?> entry = (Entry<?, ?>) reference;
+      entries.remove(entry.key, entry);
+    }
+  }
+
+  private static final class Entry<K, V> extends WeakReference<V> {
+    private final K key;
+
+    Entry (K key, V value, ReferenceQueue<V> queue) {
+      super(value, queue);
+      this.key = key;
+    }
+  }
+}
@@ -5,24 +5,57 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 
 /**
- * Rich wrapper for big integers.
+ * Rich wrapper for big integers.<br>
+ * Values that fit into a {@code long} are stored inline and the arithmetic on them is performed on longs. Only if a
+ * result overflows it is computed and stored as {@link BigInteger}. Thus a value is either small or big but never
+ * both, which keeps equality and ordering checks on small values cheap. Small constants are cached.
  */
 public class BigInt extends Bound {
-  private final BigInteger value;
+  private final long small;
+  /**
+   * The value if it does not fit into a long or {@code null} otherwise.
+   */
+  private final BigInteger big;
 
-  private BigInt (BigInteger value) {
-    this.value = value;
+  private BigInt (long small) {
+    this.small = small;
+    this.big = null;
+  }
+
+  private BigInt (BigInteger big) {
+    this.small = 0;
+    this.big = big;
+  }
+
+  /**
+   * A lazily initialized cache for the small constants. It needs to be in its own class as the superclass
+   * {@link Bound} already creates constants while this class is initialized.
+   */
+  private static final class Cache {
+    private static final int LOW = -128;
+    private static final int HIGH = 1024;
+    private static final BigInt[] values = new BigInt[HIGH - LOW + 1];
+
+    static {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = new BigInt(LOW + i);
+      }
+    }
   }
 
   public BigInteger getValue () {
-    return value;
+    return bigIntegerValue();
   }
 
   public static BigInt of (long value) {
-    return of(BigInteger.valueOf(value));
+    if (Cache.LOW <= value && value <= Cache.HIGH)
+      return Cache.values[(int) value - Cache.LOW];
+    return new BigInt(value);
   }
 
   public static BigInt of (BigInteger value) {
+    if (value.bitLength() < Long.SIZE)
+      return of(value.longValue());
     return new BigInt(value);
   }
 
@@ -34,33 +67,40 @@ public class BigInt extends Bound {
     return Bound.ONE.shl(power);
   }
 
-  private boolean isInRange (long lowerBound, long upperBound) {
-    return BigInteger.valueOf(lowerBound).compareTo(value) <= 0
-      && value.compareTo(BigInteger.valueOf(upperBound)) <= 0;
+  private boolean isSmall () {
+    return big == null;
   }
 
   public int intValue () {
     long min = Integer.MIN_VALUE;
     long max = Integer.MAX_VALUE;
-    if (!isInRange(min, max))
-      throw new ArithmeticException("Value " + value
+    if (!isSmall() || small < min || small > max)
+      throw new ArithmeticException("Value " + this
         + " cannot correctly be converted to fit integer range: "
         + min + ", " + max);
-    return value.intValue();
+    return (int) small;
   }
 
   public long longValue () {
     long min = Long.MIN_VALUE;
     long max = Long.MAX_VALUE;
-    if (!isInRange(min, max))
-      throw new ArithmeticException("Value " + value
+    if (!isSmall())
+      throw new ArithmeticException("Value " + this
         + " cannot correctly be converted to fit long range: "
         + min + ", " + max);
-    return value.longValue();
+    return small;
   }
 
   public BigInteger bigIntegerValue () {
-    return value;
+    if (isSmall())
+      return BigInteger.valueOf(small);
+    return big;
+  }
+
+  private int bitLength () {
+    if (isSmall())
+      return Long.SIZE - Long.numberOfLeadingZeros(small < 0 ? ~small : small);
+    return big.bitLength();
   }
 
   @Override public String toString () {
@@ -97,7 +137,7 @@ public class BigInt extends Bound {
 
   private String toBinaryString (int size, boolean signExtend) {
     StringBuilder builder = new StringBuilder();
-    byte[] internalByteRepresentation = value.toByteArray();
+    byte[] internalByteRepresentation = bigIntegerValue().toByteArray();
     for (byte part : internalByteRepresentation) {
       builder.append(toBitsString(part));
     }
@@ -133,27 +173,33 @@ public class BigInt extends Bound {
   }
 
   public String toDecimalString () {
-    return value.toString();
+    if (isSmall())
+      return Long.toString(small);
+    return big.toString();
   }
 
   public String toHexString () {
-    return value.toString(16);
+    return toStringUsingRadix(16);
   }
 
   public String toStringUsingRadix (int radix) {
-    return value.toString(radix);
+    if (isSmall())
+      return Long.toString(small, radix);
+    return big.toString(radix);
   }
 
   public boolean isLessThan (BigInt other) {
-    return value.compareTo(other.value) < 0;
+    return compareTo(other) < 0;
   }
 
   public boolean isGreaterThan (BigInt other) {
-    return value.compareTo(other.value) > 0;
+    return compareTo(other) > 0;
   }
 
   @Override public BigInt negate () {
-    return of(value.negate());
+    if (isSmall() && small != Long.MIN_VALUE)
+      return of(-small);
+    return of(bigIntegerValue().negate());
   }
 
   public BigInt sub (long other) {
@@ -161,7 +207,13 @@ public class BigInt extends Bound {
   }
 
   public BigInt sub (BigInt other) {
-    return of(value.subtract(other.value));
+    if (isSmall() && other.isSmall()) {
+      long result = small - other.small;
+      // overflow iff the operands have different signs and the sign of the result differs from the first operand
+      if (((small ^ other.small) & (small ^ result)) >= 0)
+        return of(result);
+    }
+    return of(bigIntegerValue().subtract(other.bigIntegerValue()));
   }
 
   public BigInt mul (long other) {
@@ -169,15 +221,32 @@ public class BigInt extends Bound {
   }
 
   public BigInt mul (BigInt other) {
-    return of(value.multiply(other.value));
+    if (isSmall() && other.isSmall()) {
+      long a = small;
+      long b = other.small;
+      long result = a * b;
+      if ((int) a == a && (int) b == b)
+        return of(result);
+      if (a == 0 || (result / a == b && !(a == -1 && b == Long.MIN_VALUE)))
+        return of(result);
+    }
+    return of(bigIntegerValue().multiply(other.bigIntegerValue()));
   }
 
   public BigInt pow (int exponent) {
-    return of(value.pow(exponent));
+    return of(bigIntegerValue().pow(exponent));
   }
 
   public BigInt pow (BigInt exponent) {
-    return of(value.pow(exponent.intValue()));
+    return of(bigIntegerValue().pow(exponent.intValue()));
+  }
+
+  /**
+   * Returns {@code true} if this divided by other can be computed on longs. The division of the smallest long by -1
+   * overflows and the division by zero is left to {@link BigInteger} to signal it.
+   */
+  private boolean isSmallDivision (BigInt other) {
+    return isSmall() && other.isSmall() && other.small != 0 && !(small == Long.MIN_VALUE && other.small == -1);
   }
 
   /**
@@ -192,8 +261,14 @@ public class BigInt extends Bound {
    * Integer division that rounds up (towards +infinity).
    */
   @Override public BigInt divRoundUp (BigInt other) {
-    BigDecimal a = new BigDecimal(this.value);
-    BigDecimal b = new BigDecimal(other.value);
+    if (isSmallDivision(other)) {
+      long quotient = small / other.small;
+      if (small % other.small != 0 && (small ^ other.small) >= 0)
+        quotient++;
+      return of(quotient);
+    }
+    BigDecimal a = new BigDecimal(bigIntegerValue());
+    BigDecimal b = new BigDecimal(other.bigIntegerValue());
     BigDecimal result = a.divide(b, RoundingMode.CEILING);
     return of(result.toBigInteger());
   }
@@ -202,8 +277,14 @@ public class BigInt extends Bound {
    * Integer division that rounds down (towards -infinity).
    */
   public BigInt divRoundDown (BigInt other) {
-    BigDecimal a = new BigDecimal(this.value);
-    BigDecimal b = new BigDecimal(other.value);
+    if (isSmallDivision(other)) {
+      long quotient = small / other.small;
+      if (small % other.small != 0 && (small ^ other.small) < 0)
+        quotient--;
+      return of(quotient);
+    }
+    BigDecimal a = new BigDecimal(bigIntegerValue());
+    BigDecimal b = new BigDecimal(other.bigIntegerValue());
     BigDecimal result = a.divide(b, RoundingMode.FLOOR);
     return of(result.toBigInteger());
   }
@@ -212,15 +293,17 @@ public class BigInt extends Bound {
    * Integer division that rounds towards 0.
    */
   public BigInt divRoundZero (BigInt other) {
-    return of(value.divide(other.value));
+    if (isSmallDivision(other))
+      return of(small / other.small);
+    return of(bigIntegerValue().divide(other.bigIntegerValue()));
   }
 
   /**
    * Integer division that rounds to the nearest integer.
    */
   public BigInt divRoundNearest (BigInt other) {
-    BigDecimal a = new BigDecimal(this.value);
-    BigDecimal b = new BigDecimal(other.value);
+    BigDecimal a = new BigDecimal(bigIntegerValue());
+    BigDecimal b = new BigDecimal(other.bigIntegerValue());
     BigDecimal result = a.divide(b, RoundingMode.HALF_EVEN);
     return of(result.toBigInteger());
   }
@@ -230,8 +313,13 @@ public class BigInt extends Bound {
    * If the division cannot be performed exactly then {@code null} is returned.
    */
   public BigInt divRoundNone (BigInt other) {
-    BigDecimal a = new BigDecimal(this.value);
-    BigDecimal b = new BigDecimal(other.value);
+    if (isSmallDivision(other)) {
+      if (small % other.small != 0)
+        return null;
+      return of(small / other.small);
+    }
+    BigDecimal a = new BigDecimal(bigIntegerValue());
+    BigDecimal b = new BigDecimal(other.bigIntegerValue());
     try {
       BigDecimal result = a.divide(b, RoundingMode.UNNECESSARY);
       return of(result.toBigInteger());
@@ -248,7 +336,11 @@ public class BigInt extends Bound {
    * remainder use {@link #remainder(BigInt)}.
    */
   public BigInt mod (BigInt other) {
-    return of(value.mod(other.value));
+    if (isSmall() && other.isSmall() && other.small > 0) {
+      long result = small % other.small;
+      return of(result < 0 ? result + other.small : result);
+    }
+    return of(bigIntegerValue().mod(other.bigIntegerValue()));
   }
 
   /**
@@ -257,7 +349,9 @@ public class BigInt extends Bound {
    * @see #mod(BigInt)
    */
   public BigInt remainder (BigInt other) {
-    return of(value.remainder(other.value));
+    if (isSmallDivision(other))
+      return of(small % other.small);
+    return of(bigIntegerValue().remainder(other.bigIntegerValue()));
   }
 
   /**
@@ -265,55 +359,93 @@ public class BigInt extends Bound {
    * the division result as first element and the remainder as the second element.
    */
   public BigInt[] divideAndRemainder (BigInt other) {
-    BigInteger[] res = value.divideAndRemainder(other.value);
+    if (isSmallDivision(other))
+      return new BigInt[] {of(small / other.small), of(small % other.small)};
+    BigInteger[] res = bigIntegerValue().divideAndRemainder(other.bigIntegerValue());
     return new BigInt[] {of(res[0]), of(res[1])};
   }
 
   public BigInt gcd (BigInt other) {
-    return of(value.gcd(other.value));
+    if (isSmall() && other.isSmall() && small != Long.MIN_VALUE && other.small != Long.MIN_VALUE) {
+      long a = Math.abs(small);
+      long b = Math.abs(other.small);
+      while (b != 0) {
+        long t = a % b;
+        a = b;
+        b = t;
+      }
+      return of(a);
+    }
+    return of(bigIntegerValue().gcd(other.bigIntegerValue()));
   }
 
   public BigInt shl (int n) {
-    return of(value.shiftLeft(n));
+    if (isSmall()) {
+      if (n < 0)
+        return shr(-n);
+      if (n < Long.SIZE - 1 && (small << n) >> n == small)
+        return of(small << n);
+    }
+    return of(bigIntegerValue().shiftLeft(n));
   }
 
   public BigInt shl (BigInt n) {
-    return of(value.shiftLeft(n.intValue()));
+    return shl(n.intValue());
   }
 
   public BigInt shr (int n) {
-    return of(value.shiftRight(n));
+    if (isSmall()) {
+      if (n < 0)
+        return shl(-n);
+      return of(small >> Math.min(n, Long.SIZE - 1));
+    }
+    return of(big.shiftRight(n));
   }
 
   public BigInt shr (BigInt n) {
-    return of(value.shiftRight(n.intValue()));
+    return shr(n.intValue());
   }
 
   /**
    * Bitwise not, , i.e. {@code ~value}.
    */
   public BigInt not () {
-    return of(value.not());
+    if (isSmall())
+      return of(~small);
+    return of(big.not());
   }
 
+  // the bitwise operations on BigInteger use an infinite twos complement representation
+  // thus they yield the same results as on longs for values that fit into a long
+
   public BigInt and (BigInt other) {
-    return of(value.and(other.value));
+    if (isSmall() && other.isSmall())
+      return of(small & other.small);
+    return of(bigIntegerValue().and(other.bigIntegerValue()));
   }
 
   public BigInt or (BigInt other) {
-    return of(value.or(other.value));
+    if (isSmall() && other.isSmall())
+      return of(small | other.small);
+    return of(bigIntegerValue().or(other.bigIntegerValue()));
   }
 
   public BigInt xor (BigInt other) {
-    return of(value.xor(other.value));
+    if (isSmall() && other.isSmall())
+      return of(small ^ other.small);
+    return of(bigIntegerValue().xor(other.bigIntegerValue()));
   }
 
   public BigInt abs () {
-    return of(value.abs());
+    if (sign() >= 0)
+      return this;
+    return negate();
   }
 
   @Override public int sign () {
-    return value.signum();
+    if (isSmall())
+      return Long.signum(small);
+    return big.signum();
   }
 
   public boolean isOne () {
@@ -321,7 +453,7 @@ public class BigInt extends Bound {
   }
 
   public static BigInt minOr (BigInt a, BigInt b, BigInt c, BigInt d) {
-    int bitLength = a.xor(c).value.bitLength();
+    int bitLength = a.xor(c).bitLength();
     return minOr(a, b, c, d, powerOfTwo(bitLength));
   }
 
@@ -351,7 +483,7 @@ public class BigInt extends Bound {
   }
 
   public static BigInt maxOr (BigInt a, BigInt b, BigInt c, BigInt d) {
-    int bitLength = b.and(d).value.bitLength();
+    int bitLength = b.and(d).bitLength();
     return maxOr(a, b, c, d, powerOfTwo(bitLength));
   }
 
@@ -388,7 +520,7 @@ public class BigInt extends Bound {
   }
 
   public static BigInt minXor (BigInt a, BigInt b, BigInt c, BigInt d) {
-    int bitLength = a.xor(c).value.bitLength();
+    int bitLength = a.xor(c).bitLength();
     return minXor(a, b, c, d, powerOfTwo(bitLength));
   }
 
@@ -416,7 +548,7 @@ public class BigInt extends Bound {
   }
 
   public static BigInt maxXor (BigInt a, BigInt b, BigInt c, BigInt d) {
-    int bitLength = b.and(d).value.bitLength();
+    int bitLength = b.and(d).bitLength();
     return maxXor(a, b, c, d, powerOfTwo(bitLength));
   }
 
@@ -451,7 +583,7 @@ public class BigInt extends Bound {
   }
 
   @Override public BigInt max (BigInt other) {
-    return of(value.max(other.value));
+    return compareTo(other) >= 0 ? this : other;
   }
 
   @Override public Bound min (Bound other) {
@@ -459,7 +591,7 @@ public class BigInt extends Bound {
   }
 
   @Override public BigInt min (BigInt other) {
-    return of(value.min(other.value));
+    return compareTo(other) <= 0 ? this : other;
   }
 
   @Override public Bound add (Bound other) {
@@ -468,7 +600,13 @@ public class BigInt extends Bound {
 
   @Override
   public BigInt add (BigInt other) {
-    return of(value.add(other.value));
+    if (isSmall() && other.isSmall()) {
+      long result = small + other.small;
+      // overflow iff both operands have the same sign and the sign of the result differs
+      if (((small ^ result) & (other.small ^ result)) >= 0)
+        return of(result);
+    }
+    return of(bigIntegerValue().add(other.bigIntegerValue()));
   }
 
   @Override public Bound sub (Bound other) {
@@ -532,11 +670,22 @@ public class BigInt extends Bound {
   }
 
   public boolean isEqualTo (BigInt other) {
-    return value.equals(other.value);
+    if (isSmall())
+      return other.isSmall() && small == other.small;
+    return big.equals(other.big);
   }
 
+  /**
+   * Computes the same hash code as {@link BigInteger#hashCode()} for the value.
+   */
   @Override public int hashCode () {
-    return value.hashCode();
+    if (isSmall()) {
+      // the magnitude of the smallest long is its unsigned interpretation
+      long magnitude = Math.abs(small);
+      int hash = 31 * (int) (magnitude >>> 32) + (int) magnitude;
+      return hash * Long.signum(small);
+    }
+    return big.hashCode();
   }
 
   @Override public int compareTo (Bound other) {
@@ -544,7 +693,9 @@ public class BigInt extends Bound {
   }
 
   @Override public int compareTo (BigInt other) {
-    return value.compareTo(other.value);
+    if (isSmall() && other.isSmall())
+      return small < other.small ? -1 : (small == other.small ? 0 : 1);
+    return bigIntegerValue().compareTo(other.bigIntegerValue());
   }
 
 }
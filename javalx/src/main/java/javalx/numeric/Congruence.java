@@ -17,6 +17,10 @@ public class Congruence {
     @Override public Congruence apply (Congruence a, Congruence b) {
       return a.join(b);
     }
+
+    @Override public boolean isIdempotent () {
+      return true;
+    }
   };
 
   /**
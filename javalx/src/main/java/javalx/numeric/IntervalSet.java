@@ -41,6 +41,10 @@ public class IntervalSet implements Comparable<IntervalSet>, Iterable<Interval>
       @Override public IntervalSet apply (IntervalSet a, IntervalSet b) {
         return a.join(b);
       }
+
+      @Override public boolean isIdempotent () {
+        return true;
+      }
     };
   public static final Fn2<IntervalSet, IntervalSet, IntervalSet> widen =
     new Fn2<IntervalSet, IntervalSet, IntervalSet>() {
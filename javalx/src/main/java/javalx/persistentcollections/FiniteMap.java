@@ -42,13 +42,14 @@ public interface FiniteMap<K, V, M extends FiniteMap<K, V, M>> extends Iterable<
 
   /**
    * Combine this map with another. If both contain the same keys then the given selector function is applied
-   * to produce the combined value for the common key.
+   * to produce the combined value for the common key. Mappings that are shared by both maps are kept without applying
+   * the selector only if it is idempotent, see {@link Fn2#isIdempotent()}.
    */
   public M union (Fn2<V, V, V> selector, M other);
 
   /**
    * Intersect this map with another and return the common elements. The values for the elements are taken by applying
-   * the given selector.
+   * the given selector. As for {@link #union(Fn2, FiniteMap)} shared mappings are only kept for idempotent selectors.
    */
   public M intersection (Fn2<V, V, V> selector, M other);
 
@@ -6,26 +6,29 @@ import javalx.data.Option;
 import javalx.data.products.P2;
 import javalx.fn.Fn;
 import javalx.fn.Fn2;
-import javalx.persistentcollections.tree.AVLTree;
+import javalx.persistentcollections.trie.PatriciaTrie;
 
 /**
- * An immutable map from integers to values.
+ * An immutable map from integers to values. The map is backed by a {@link PatriciaTrie} thus lookups do not need to
+ * compare the keys and the set operations are fast for maps that were derived from each other.
  *
  * @param <V> The type of the values.
  */
 public final class IntMap<V> implements OrderedMap<Integer, V, IntMap<V>> {
-  private final AVLTree<Integer, V> tree;
-  private final Fn<AVLTree<Integer, V>, IntMap<V>> buildFn = new Fn<AVLTree<Integer, V>, IntMap<V>>() {
-    @Override public IntMap<V> apply (AVLTree<Integer, V> tree) {
+  private final PatriciaTrie<Integer, V> tree;
+  private final Fn<PatriciaTrie<Integer, V>, IntMap<V>> buildFn = new Fn<PatriciaTrie<Integer, V>, IntMap<V>>() {
+    @Override public IntMap<V> apply (PatriciaTrie<Integer, V> tree) {
       return build(tree);
     }
   };
 
-  private IntMap (final AVLTree<Integer, V> tree) {
+  private IntMap (final PatriciaTrie<Integer, V> tree) {
     this.tree = tree;
   }
 
-  private static <V> IntMap<V> build (AVLTree<Integer, V> tree) {
+  private IntMap<V> build (PatriciaTrie<Integer, V> tree) {
+    if (tree == this.tree)
+      return this;
     return new IntMap<V>(tree);
   }
 
@@ -38,15 +41,15 @@ public final class IntMap<V> implements OrderedMap<Integer, V, IntMap<V>> {
   }
 
   @Override public boolean contains (Integer key) {
-    return tree.get(key).isSome();
+    return tree.contains(key);
   }
 
   public static <V> IntMap<V> empty () {
-    return build(AVLTree.<Integer, V>empty());
+    return new IntMap<V>(PatriciaTrie.<Integer, V>empty());
   }
 
   @Override public IntMap<V> union (IntMap<V> other) {
-    return build(tree.union(other.tree));
+    return build(tree.union(null, other.tree));
   }
 
   @Override public IntMap<V> union (Fn2<V, V, V> selector, IntMap<V> other) {
@@ -58,7 +61,7 @@ public final class IntMap<V> implements OrderedMap<Integer, V, IntMap<V>> {
   }
 
   @Override public IntMap<V> intersection (IntMap<V> other) {
-    return build(tree.intersection(other.tree));
+    return build(tree.intersection(null, other.tree));
   }
 
   @Override public IntMap<V> intersection (Fn2<V, V, V> selector, IntMap<V> other) {
@@ -66,11 +69,11 @@ public final class IntMap<V> implements OrderedMap<Integer, V, IntMap<V>> {
   }
 
   @Override public Option<V> get (Integer key) {
-    return tree.get(key);
+    return Option.fromNullable(tree.getOrNull(key));
   }
 
   @Override public IntMap<V> bind (Integer key, V value) {
-    return build(tree.bind(key, value));
+    return build(tree.bind(key, key, value));
   }
 
   @Override public IntMap<V> remove (Integer key) {
@@ -78,11 +81,11 @@ public final class IntMap<V> implements OrderedMap<Integer, V, IntMap<V>> {
   }
 
   @Override public Option<P2<Integer, V>> getMax () {
-    return tree.getMax();
+    return Option.fromNullable(tree.getMax());
   }
 
   @Override public Option<P2<Integer, V>> getMin () {
-    return tree.getMin();
+    return Option.fromNullable(tree.getMin());
   }
 
   @Override public IntMap<V> removeMax () {
@@ -24,11 +24,19 @@ public class MultiMap<K, V> implements Iterable<P2<K, V>> {
     @Override public AVLSet<V> apply (AVLSet<V> a, AVLSet<V> b) {
       return a.union(b);
     }
+
+    @Override public boolean isIdempotent () {
+      return true;
+    }
   };
   private final Fn2<AVLSet<V>, AVLSet<V>, AVLSet<V>> setIntersection = new Fn2<AVLSet<V>, AVLSet<V>, AVLSet<V>>() {
     @Override public AVLSet<V> apply (AVLSet<V> a, AVLSet<V> b) {
       return a.intersection(b);
     }
+
+    @Override public boolean isIdempotent () {
+      return true;
+    }
   };
 
   private MultiMap (AVLMap<K, AVLSet<V>> map) {
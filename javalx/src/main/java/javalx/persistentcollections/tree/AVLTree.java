@@ -219,7 +219,52 @@ public final class AVLTree<K, V> implements ExtendedTree<K, V, AVLTree<K, V>> {
     return join(left.entry, left.left, join(e, left.right, right));
   }
 
-  // TODO: switch to hedgeUnion
+  /**
+   * The result of splitting a tree at a key in one traversal: the trees with the lower and upper keys and the entry
+   * for the key itself or {@code null} if the key is not in the tree. If the key is in the root of the tree then the
+   * subtrees are returned as they are and can thus be recognized by reference in the set operations below.
+   */
+  private static final class KeySplit<K, V> {
+    private final AVLTree<K, V> lower;
+    private final Entry<K, V> entry;
+    private final AVLTree<K, V> upper;
+
+    private KeySplit (AVLTree<K, V> lower, Entry<K, V> entry, AVLTree<K, V> upper) {
+      this.lower = lower;
+      this.entry = entry;
+      this.upper = upper;
+    }
+  }
+
+  private final KeySplit<K, V> splitAt (K key) {
+    if (isEmpty())
+      return new KeySplit<K, V>(this, null, this);
+    @SuppressWarnings("unchecked")
+    int compareTo = ((Comparable<K>) key).compareTo(entry.getKey());
+    if (compareTo < 0) {
+      KeySplit<K, V> split = left.splitAt(key);
+      return new KeySplit<K, V>(split.lower, split.entry, concat3(entry, split.upper, right));
+    } else if (compareTo > 0) {
+      KeySplit<K, V> split = right.splitAt(key);
+      return new KeySplit<K, V>(concat3(entry, left, split.lower), split.entry, split.upper);
+    } else {
+      return new KeySplit<K, V>(left, entry, right);
+    }
+  }
+
+  /**
+   * Rebuild this node with the given entry and subtrees. Returns this tree if nothing changed.
+   */
+  private AVLTree<K, V> rebuild (Entry<K, V> e, AVLTree<K, V> newLeft, AVLTree<K, V> newRight) {
+    if (e == entry && newLeft == left && newRight == right)
+      return this;
+    return concat3(e, newLeft, newRight);
+  }
+
+  private static <V> boolean isEqualValue (V value, V otherValue) {
+    return value == otherValue || value.equals(otherValue);
+  }
+
   @Override public final AVLTree<K, V> union (AVLTree<K, V> other) {
     if (isEmpty())
       return other;
@@ -228,32 +273,27 @@ public final class AVLTree<K, V> implements ExtendedTree<K, V, AVLTree<K, V>> {
     else if (this == other)
       return this;
     else {
-      final AVLTree<K, V> lowerSubTree = other.splitTail(entry.getKey());
-      final AVLTree<K, V> upperSubTree = other.splitHead(entry.getKey());
-
-      return concat3(entry, left.union(lowerSubTree), right.union(upperSubTree));
+      KeySplit<K, V> split = other.splitAt(entry.getKey());
+      return rebuild(entry, left.union(split.lower), right.union(split.upper));
     }
   }
 
-  // TODO: switch to hedgeUnion
   @Override public final AVLTree<K, V> union (Fn2<V, V, V> selector, AVLTree<K, V> other) {
     if (isEmpty())
       return other;
     else if (other.isEmpty())
       return this;
-    else if (this == other)
+    else if (this == other && selector.isIdempotent())
       return this;
     else {
-      final AVLTree<K, V> lowerSubTree = other.splitTail(entry.getKey());
-      final AVLTree<K, V> upperSubTree = other.splitHead(entry.getKey());
-
-      final Option<V> valueInOther = other.get(entry.getKey());
-      if (valueInOther.isSome()) {
-        final V v = selector.apply(entry.getValue(), valueInOther.get());
-        Entry<K, V> e = new Entry<K, V>(entry.getKey(), v);
-        return concat3(e, left.union(selector, lowerSubTree), right.union(selector, upperSubTree));
-      } else
-        return concat3(entry, left.union(selector, lowerSubTree), right.union(selector, upperSubTree));
+      KeySplit<K, V> split = other.splitAt(entry.getKey());
+      Entry<K, V> e = entry;
+      if (split.entry != null && (split.entry != entry || !selector.isIdempotent())) {
+        final V v = selector.apply(entry.getValue(), split.entry.getValue());
+        if (v != entry.getValue())
+          e = new Entry<K, V>(entry.getKey(), v);
+      }
+      return rebuild(e, left.union(selector, split.lower), right.union(selector, split.upper));
     }
   }
 
@@ -265,17 +305,13 @@ public final class AVLTree<K, V> implements ExtendedTree<K, V, AVLTree<K, V>> {
     else if (this == other)
       return this;
     else {
-      K otherKey = other.entry.getKey();
-      final AVLTree<K, V> lowerSubTree = this.splitTail(otherKey);
-      final AVLTree<K, V> upperSubTree = this.splitHead(otherKey);
-      final Option<V> valueInThis = this.get(otherKey);
-      if (valueInThis.isSome())
-        return concat3( // Be left biased.
-            new Entry<K, V>(otherKey, valueInThis.get()),
-            lowerSubTree.intersection(other.left),
-            upperSubTree.intersection(other.right));
+      KeySplit<K, V> split = other.splitAt(entry.getKey());
+      AVLTree<K, V> lowerSubTree = left.intersection(split.lower);
+      AVLTree<K, V> upperSubTree = right.intersection(split.upper);
+      if (split.entry != null)
+        return rebuild(entry, lowerSubTree, upperSubTree); // Be left biased.
       else
-        return concat(lowerSubTree.intersection(other.left), upperSubTree.intersection(other.right));
+        return concat(lowerSubTree, upperSubTree);
     }
   }
 
@@ -284,19 +320,22 @@ public final class AVLTree<K, V> implements ExtendedTree<K, V, AVLTree<K, V>> {
       return this;
     else if (other.isEmpty())
       return other;
-    else if (this == other)
+    else if (this == other && selector.isIdempotent())
       return this;
     else {
-      final AVLTree<K, V> lowerSubTree = this.splitTail(other.entry.getKey());
-      final AVLTree<K, V> upperSubTree = this.splitHead(other.entry.getKey());
-      final Option<V> valueInThis = this.get(other.entry.getKey());
-      if (valueInThis.isSome()) {
-        final V v = selector.apply(valueInThis.get(), other.entry.getValue());
-        return concat3(new Entry<K, V>(other.entry.getKey(), v),
-            lowerSubTree.intersection(selector, other.left),
-            upperSubTree.intersection(selector, other.right));
+      KeySplit<K, V> split = other.splitAt(entry.getKey());
+      AVLTree<K, V> lowerSubTree = left.intersection(selector, split.lower);
+      AVLTree<K, V> upperSubTree = right.intersection(selector, split.upper);
+      if (split.entry != null) {
+        Entry<K, V> e = entry;
+        if (split.entry != entry || !selector.isIdempotent()) {
+          final V v = selector.apply(entry.getValue(), split.entry.getValue());
+          if (v != entry.getValue())
+            e = new Entry<K, V>(entry.getKey(), v);
+        }
+        return rebuild(e, lowerSubTree, upperSubTree);
       } else
-        return concat(lowerSubTree.intersection(selector, other.left), upperSubTree.intersection(selector, other.right));
+        return concat(lowerSubTree, upperSubTree);
     }
   }
 
@@ -308,51 +347,50 @@ public final class AVLTree<K, V> implements ExtendedTree<K, V, AVLTree<K, V>> {
     else if (this == other)
       return AVLTree.<K, V>empty();
     else {
-      K otherKey = other.entry.getKey();
-      final AVLTree<K, V> lowerSubTree = this.splitTail(otherKey);
-      final AVLTree<K, V> upperSubTree = this.splitHead(otherKey);
-      return concat(lowerSubTree.difference(other.left), upperSubTree.difference(other.right));
+      KeySplit<K, V> split = other.splitAt(entry.getKey());
+      AVLTree<K, V> lowerSubTree = left.difference(split.lower);
+      AVLTree<K, V> upperSubTree = right.difference(split.upper);
+      if (split.entry != null)
+        return concat(lowerSubTree, upperSubTree);
+      else
+        return rebuild(entry, lowerSubTree, upperSubTree);
     }
   }
 
-  private final AVLTree<K, V> intersectionWithNonEqualValues (AVLTree<K, V> other) {
-    if (isEmpty()) {
-      return this;
+  /**
+   * Computes all three parts of the split in a single traversal of both trees. Subtrees that are shared by reference
+   * between the two trees are skipped, thus for trees that were derived from each other the costs are proportional to
+   * the differences and not to the sizes of the trees.
+   */
+  @Override public final ThreeWaySplit<AVLTree<K, V>> split (AVLTree<K, V> other) {
+    if (this == other) {
+      AVLTree<K, V> empty = AVLTree.<K, V>empty();
+      return ThreeWaySplit.<AVLTree<K, V>>make(empty, empty, empty);
+    } else if (isEmpty()) {
+      return ThreeWaySplit.<AVLTree<K, V>>make(this, this, other);
     } else if (other.isEmpty()) {
-      return other;
-    } else if (this == other) {
-      return AVLTree.<K, V>empty();
+      return ThreeWaySplit.<AVLTree<K, V>>make(this, other, other);
     } else {
-      K otherKey = other.entry.getKey();
-      final AVLTree<K, V> lowerSubTree = this.splitTail(otherKey);
-      final AVLTree<K, V> upperSubTree = this.splitHead(otherKey);
-      final Option<V> valueInThis = this.get(otherKey);
-      if (valueInThis.isSome()) {
-        final V actualValueInThis = valueInThis.get();
-        final V actualValueInOther = other.entry.getValue();
-        // Filter values; Only non-equal values are kept.
-        if (actualValueInThis == actualValueInOther || actualValueInThis.equals(actualValueInOther))
-          return concat(lowerSubTree.intersectionWithNonEqualValues(other.left),
-              upperSubTree.intersectionWithNonEqualValues(other.right));
-        else
-          return concat3(// Be left biased.
-              new Entry<K, V>(otherKey, valueInThis.get()), lowerSubTree.intersectionWithNonEqualValues(other.left),
-              upperSubTree.intersectionWithNonEqualValues(other.right));
+      KeySplit<K, V> split = other.splitAt(entry.getKey());
+      ThreeWaySplit<AVLTree<K, V>> lower = left.split(split.lower);
+      ThreeWaySplit<AVLTree<K, V>> upper = right.split(split.upper);
+      AVLTree<K, V> onlyInLeft;
+      AVLTree<K, V> inBothWithNonEqualValues;
+      if (split.entry == null) {
+        onlyInLeft = concat3(entry, lower.onlyInFirst(), upper.onlyInFirst());
+        inBothWithNonEqualValues = concat(lower.inBothButDiffering(), upper.inBothButDiffering());
       } else {
-        return concat(lowerSubTree.intersectionWithNonEqualValues(other.left),
-            upperSubTree.intersectionWithNonEqualValues(other.right));
+        onlyInLeft = concat(lower.onlyInFirst(), upper.onlyInFirst());
+        if (split.entry == entry || isEqualValue(entry.getValue(), split.entry.getValue()))
+          inBothWithNonEqualValues = concat(lower.inBothButDiffering(), upper.inBothButDiffering());
+        else // Be left biased.
+          inBothWithNonEqualValues = concat3(entry, lower.inBothButDiffering(), upper.inBothButDiffering());
       }
+      AVLTree<K, V> onlyInRight = concat(lower.onlyInSecond(), upper.onlyInSecond());
+      return ThreeWaySplit.<AVLTree<K, V>>make(onlyInLeft, inBothWithNonEqualValues, onlyInRight);
     }
   }
 
-  @Override public final ThreeWaySplit<AVLTree<K, V>> split (AVLTree<K, V> other) {
-    AVLTree<K, V> inBoth = this.intersection(other);
-    AVLTree<K, V> inBothWithNonEqualValues = this.intersectionWithNonEqualValues(other);
-    AVLTree<K, V> onlyInLeft = this.difference(inBoth);
-    AVLTree<K, V> onlyInRight = other.difference(inBoth);
-    return ThreeWaySplit.<AVLTree<K, V>>make(onlyInLeft, inBothWithNonEqualValues, onlyInRight);
-  }
-
   private static <K, V> AVLTree<K, V> concat3 (Entry<K, V> e, AVLTree<K, V> left, AVLTree<K, V> right) {
     if (left.isEmpty())
       return right.bind(e);
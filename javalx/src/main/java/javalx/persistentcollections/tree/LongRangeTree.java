@@ -0,0 +1,733 @@
+package javalx.persistentcollections.tree;
+
+import static javalx.data.Option.none;
+import static javalx.data.Option.some;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javalx.data.Option;
+import javalx.data.products.P2;
+import javalx.fn.Fn2;
+import javalx.numeric.BigInt;
+import javalx.numeric.Bound;
+import javalx.numeric.FiniteRange;
+import javalx.numeric.Interval;
+import javalx.persistentcollections.ThreeWaySplit;
+import javalx.xml.XmlPrintable;
+
+import com.jamesmurty.utils.XMLBuilder;
+
+/**
+ * An interval tree like {@link FiniteRangeTree} for ranges with {@code long} bounds. The bounds and the maximum
+ * augmentation are stored as primitive values such that the lookups do not compare {@code BigInt}s. The point and
+ * overlap queries can be performed without allocations using an {@link OverlapVisitor}.<br>
+ *
+ * The set operations and the three way split merge the sorted bindings of both trees in one pass and build balanced
+ * trees from the result. Only keys that fit into a {@code long} can be bound, use {@link FiniteRangeTree} for other
+ * keys. The queries accept any key: the bounds of an overlap query are clamped to the range of {@code long} and a
+ * lookup of a key outside of it finds nothing as it cannot be bound.
+ *
+ * @param <V> The type of the values
+ */
+public final class LongRangeTree<V> implements ExtendedTree<FiniteRange, V, LongRangeTree<V>>, XmlPrintable {
+  private static final int WEIGHT = 3;
+  private static final BigInt MIN = BigInt.of(Long.MIN_VALUE);
+  private static final BigInt MAX = BigInt.of(Long.MAX_VALUE);
+  private static final LongRangeTree<Object> EMPTY = new LongRangeTree<Object>();
+  private final long low;
+  private final long high;
+  private final long max;
+  private final V value;
+  private final int size;
+  private final LongRangeTree<V> left;
+  private final LongRangeTree<V> right;
+
+  /**
+   * Receives the bindings overlapping a range in the order of the ranges.
+   */
+  public static interface OverlapVisitor<V> {
+    /**
+     * @return {@code false} to stop the search
+     */
+    public boolean visit (long low, long high, V value);
+  }
+
+  private LongRangeTree () {
+    this.low = 0;
+    this.high = 0;
+    this.max = Long.MIN_VALUE;
+    this.value = null;
+    this.size = 0;
+    this.left = null;
+    this.right = null;
+  }
+
+  private LongRangeTree (long low, long high, V value, LongRangeTree<V> left, LongRangeTree<V> right) {
+    assert low <= high : "Range is not well-formed: [" + low + ", " + high + "]";
+    this.low = low;
+    this.high = high;
+    this.value = value;
+    this.size = left.size + right.size + 1;
+    this.max = Math.max(high, Math.max(left.max, right.max));
+    this.left = left;
+    this.right = right;
+  }
+
+  @SuppressWarnings("unchecked") public static <V> LongRangeTree<V> empty () {
+    return (LongRangeTree<V>) EMPTY;
+  }
+
+  /**
+   * @return {@code true} if both bounds of the key fit into a {@code long}
+   */
+  private static boolean fits (FiniteRange key) {
+    return !key.low().isLessThan(MIN) && !MAX.isLessThan(key.high());
+  }
+
+  private static long lowOf (FiniteRange key) {
+    return clamp(key.low());
+  }
+
+  private static long highOf (FiniteRange key) {
+    return clamp(key.high());
+  }
+
+  /**
+   * @return {@code true} if no range that fits into a {@code long} overlaps the range with the given bounds
+   */
+  private static boolean isOutsideOfLongRange (Bound low, Bound high) {
+    return high.isFinite() && high.asInteger().isLessThan(MIN) || low.isFinite() && MAX.isLessThan(low.asInteger());
+  }
+
+  /**
+   * Clamp the bound to the range of {@code long}. Clamping the bounds of a range that overlaps the range of
+   * {@code long} does not change the bindings that it overlaps.
+   */
+  private static long clamp (BigInt value) {
+    if (value.isLessThan(MIN))
+      return Long.MIN_VALUE;
+    if (MAX.isLessThan(value))
+      return Long.MAX_VALUE;
+    return value.longValue();
+  }
+
+  private static long clamp (Bound bound) {
+    if (!bound.isFinite())
+      return bound == Bound.NEGINF ? Long.MIN_VALUE : Long.MAX_VALUE;
+    return clamp(bound.asInteger());
+  }
+
+  private static int compare (long low, long high, long otherLow, long otherHigh) {
+    int cmp = Long.compare(low, otherLow);
+    return cmp == 0 ? Long.compare(high, otherHigh) : cmp;
+  }
+
+  private int compareTo (long otherLow, long otherHigh) {
+    return compare(low, high, otherLow, otherHigh);
+  }
+
+  @Override public int size () {
+    return size;
+  }
+
+  @Override public boolean isEmpty () {
+    return size == 0;
+  }
+
+  @Override public Option<V> get (FiniteRange key) {
+    if (!fits(key))
+      return none();
+    LongRangeTree<V> node = find(lowOf(key), highOf(key));
+    if (node == null)
+      return none();
+    return some(node.value);
+  }
+
+  @Override public V getOrNull (FiniteRange key) {
+    if (!fits(key))
+      return null;
+    return getOrNull(lowOf(key), highOf(key));
+  }
+
+  public V getOrNull (long low, long high) {
+    LongRangeTree<V> node = find(low, high);
+    return node == null ? null : node.value;
+  }
+
+  private LongRangeTree<V> find (long low, long high) {
+    LongRangeTree<V> node = this;
+    while (!node.isEmpty()) {
+      int cmp = node.compareTo(low, high);
+      if (cmp == 0)
+        return node;
+      node = cmp > 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the key does not fit into a {@code long}
+   */
+  @Override public LongRangeTree<V> bind (FiniteRange key, V value) {
+    if (!fits(key))
+      throw new IllegalArgumentException("The range " + key + " does not fit into a long, use a FiniteRangeTree.");
+    return bind(lowOf(key), highOf(key), value);
+  }
+
+  public LongRangeTree<V> bind (long low, long high, V value) {
+    if (isEmpty())
+      return new LongRangeTree<V>(low, high, value, this, this);
+    int cmp = compareTo(low, high);
+    if (cmp > 0)
+      return balance(this.low, this.high, this.value, left.bind(low, high, value), right);
+    else if (cmp < 0)
+      return balance(this.low, this.high, this.value, left, right.bind(low, high, value));
+    else if (this.value == value)
+      return this;
+    else
+      return new LongRangeTree<V>(low, high, value, left, right);
+  }
+
+  @Override public LongRangeTree<V> remove (FiniteRange key) {
+    if (!fits(key))
+      return this;
+    return remove(lowOf(key), highOf(key));
+  }
+
+  public LongRangeTree<V> remove (long low, long high) {
+    if (isEmpty())
+      return this;
+    int cmp = compareTo(low, high);
+    if (cmp > 0) {
+      LongRangeTree<V> newLeft = left.remove(low, high);
+      return newLeft == left ? this : balance(this.low, this.high, value, newLeft, right);
+    } else if (cmp < 0) {
+      LongRangeTree<V> newRight = right.remove(low, high);
+      return newRight == right ? this : balance(this.low, this.high, value, left, newRight);
+    } else {
+      return concat(left, right);
+    }
+  }
+
+  /* == Interval tree queries == */
+
+  /**
+   * Visit all the bindings whose ranges overlap {@code [low, high]} in the order of their ranges.
+   *
+   * @return {@code false} if the visitor stopped the search
+   */
+  public boolean visitOverlaps (long low, long high, OverlapVisitor<? super V> visitor) {
+    if (isEmpty() || max < low)
+      return true;
+    if (!left.visitOverlaps(low, high, visitor))
+      return false;
+    // all ranges in the right subtree start after this one
+    if (this.low > high)
+      return true;
+    if (this.high >= low && !visitor.visit(this.low, this.high, value))
+      return false;
+    return right.visitOverlaps(low, high, visitor);
+  }
+
+  /**
+   * Return the value of the first range overlapping {@code [low, high]} or {@code null} if there is none.
+   */
+  public V findOverlap (long low, long high) {
+    if (isEmpty() || max < low)
+      return null;
+    V inLeft = left.findOverlap(low, high);
+    if (inLeft != null)
+      return inLeft;
+    if (this.low > high)
+      return null;
+    if (this.high >= low)
+      return value;
+    return right.findOverlap(low, high);
+  }
+
+  /**
+   * Count the ranges overlapping {@code [low, high]} but stop counting at {@code limit}.
+   */
+  public int countOverlaps (long low, long high, int limit) {
+    if (isEmpty() || max < low || limit <= 0)
+      return 0;
+    int count = left.countOverlaps(low, high, limit);
+    if (count >= limit || this.low > high)
+      return count;
+    if (this.high >= low)
+      count++;
+    return count + right.countOverlaps(low, high, limit - count);
+  }
+
+  public boolean hasOverlaps (FiniteRange range) {
+    if (isOutsideOfLongRange(range.low(), range.high()))
+      return false;
+    return countOverlaps(lowOf(range), highOf(range), 1) > 0;
+  }
+
+  public OverlappingRanges<V> searchOverlaps (FiniteRange key) {
+    if (isOutsideOfLongRange(key.low(), key.high()))
+      return new OverlappingRanges<V>();
+    return searchOverlaps(lowOf(key), highOf(key));
+  }
+
+  /**
+   * Return all the bindings whose ranges overlap the given interval. Infinite bounds of the interval are clamped to
+   * the range of {@code long}.
+   */
+  public OverlappingRanges<V> searchOverlaps (Interval key) {
+    if (isOutsideOfLongRange(key.low(), key.high()))
+      return new OverlappingRanges<V>();
+    return searchOverlaps(clamp(key.low()), clamp(key.high()));
+  }
+
+  public OverlappingRanges<V> searchOverlaps (long low, long high) {
+    final OverlappingRanges<V> overlapping = new OverlappingRanges<V>();
+    visitOverlaps(low, high, new OverlapVisitor<V>() {
+      @Override public boolean visit (long low, long high, V value) {
+        overlapping.add(FiniteRange.of(low, high), value);
+        return true;
+      }
+    });
+    return overlapping;
+  }
+
+  /* == Balancing == */
+
+  private static <V> LongRangeTree<V> join (long low, long high, V value, LongRangeTree<V> left,
+      LongRangeTree<V> right) {
+    return new LongRangeTree<V>(low, high, value, left, right);
+  }
+
+  private static <V> LongRangeTree<V> balance (long low, long high, V value, LongRangeTree<V> left,
+      LongRangeTree<V> right) {
+    if (Math.abs(left.size - right.size) > 1) {
+      if (right.size >= WEIGHT * left.size) {
+        if (right.left.size < right.right.size)
+          return join(right.low, right.high, right.value, join(low, high, value, left, right.left), right.right);
+        LongRangeTree<V> rl = right.left;
+        return join(rl.low, rl.high, rl.value, join(low, high, value, left, rl.left),
+            join(right.low, right.high, right.value, rl.right, right.right));
+      } else if (left.size >= WEIGHT * right.size) {
+        if (left.right.size < left.left.size)
+          return join(left.low, left.high, left.value, left.left, join(low, high, value, left.right, right));
+        LongRangeTree<V> lr = left.right;
+        return join(lr.low, lr.high, lr.value, join(left.low, left.high, left.value, left.left, lr.left),
+            join(low, high, value, lr.right, right));
+      }
+    }
+    return join(low, high, value, left, right);
+  }
+
+  private static <V> LongRangeTree<V> concat3 (long low, long high, V value, LongRangeTree<V> left,
+      LongRangeTree<V> right) {
+    if (left.isEmpty())
+      return right.bind(low, high, value);
+    else if (right.isEmpty())
+      return left.bind(low, high, value);
+    else if (WEIGHT * left.size < right.size)
+      return balance(right.low, right.high, right.value, concat3(low, high, value, left, right.left), right.right);
+    else if (WEIGHT * right.size < left.size)
+      return balance(left.low, left.high, left.value, left.left, concat3(low, high, value, left.right, right));
+    else
+      return join(low, high, value, left, right);
+  }
+
+  private static <V> LongRangeTree<V> concat (LongRangeTree<V> left, LongRangeTree<V> right) {
+    if (left.isEmpty())
+      return right;
+    else if (right.isEmpty())
+      return left;
+    else if (WEIGHT * left.size < right.size)
+      return balance(right.low, right.high, right.value, concat(left, right.left), right.right);
+    else if (WEIGHT * right.size < left.size)
+      return balance(left.low, left.high, left.value, left.left, concat(left.right, right));
+    else {
+      LongRangeTree<V> min = right.min();
+      return balance(min.low, min.high, min.value, left, right.removeMin());
+    }
+  }
+
+  /* == Default tree operations == */
+
+  @Override public LongRangeTree<V> splitHead (FiniteRange key) {
+    if (key.low().isLessThan(MIN))
+      return this;
+    if (MAX.isLessThan(key.low()))
+      return empty();
+    // a key with a too large upper bound is greater than all keys with the same lower bound
+    return splitHead(lowOf(key), highOf(key));
+  }
+
+  private LongRangeTree<V> splitHead (long low, long high) {
+    if (isEmpty())
+      return this;
+    int cmp = compareTo(low, high);
+    if (cmp < 0)
+      return right.splitHead(low, high);
+    else if (cmp > 0)
+      return concat3(this.low, this.high, value, left.splitHead(low, high), right);
+    else
+      return right;
+  }
+
+  @Override public LongRangeTree<V> splitTail (FiniteRange key) {
+    if (key.low().isLessThan(MIN))
+      return empty();
+    if (MAX.isLessThan(key.low()))
+      return this;
+    long low = lowOf(key);
+    LongRangeTree<V> tail = splitTail(low, highOf(key));
+    if (fits(key))
+      return tail;
+    // a key with a too large upper bound is greater than all keys with the same lower bound
+    LongRangeTree<V> node = find(low, Long.MAX_VALUE);
+    return node == null ? tail : tail.bind(low, Long.MAX_VALUE, node.value);
+  }
+
+  private LongRangeTree<V> splitTail (long low, long high) {
+    if (isEmpty())
+      return this;
+    int cmp = compareTo(low, high);
+    if (cmp > 0)
+      return left.splitTail(low, high);
+    else if (cmp < 0)
+      return concat3(this.low, this.high, value, left, right.splitTail(low, high));
+    else
+      return left;
+  }
+
+  @Override public LongRangeTree<V> removeMin () {
+    if (isEmpty())
+      return this;
+    if (left.isEmpty())
+      return right;
+    return balance(low, high, value, left.removeMin(), right);
+  }
+
+  @Override public LongRangeTree<V> removeMax () {
+    if (isEmpty())
+      return this;
+    if (right.isEmpty())
+      return left;
+    return balance(low, high, value, left, right.removeMax());
+  }
+
+  private LongRangeTree<V> min () {
+    LongRangeTree<V> node = this;
+    while (!node.left.isEmpty()) {
+      node = node.left;
+    }
+    return node;
+  }
+
+  private LongRangeTree<V> max () {
+    LongRangeTree<V> node = this;
+    while (!node.right.isEmpty()) {
+      node = node.right;
+    }
+    return node;
+  }
+
+  @Override public Option<P2<FiniteRange, V>> getMin () {
+    if (isEmpty())
+      return none();
+    return some(min().binding());
+  }
+
+  @Override public Option<P2<FiniteRange, V>> getMax () {
+    if (isEmpty())
+      return none();
+    return some(max().binding());
+  }
+
+  private P2<FiniteRange, V> binding () {
+    return P2.<FiniteRange, V>tuple2(FiniteRange.of(low, high), value);
+  }
+
+  /* == Set operations == */
+
+  @Override public LongRangeTree<V> union (LongRangeTree<V> other) {
+    return union(null, other);
+  }
+
+  @Override public LongRangeTree<V> union (Fn2<V, V, V> selector, LongRangeTree<V> other) {
+    if (other.isEmpty() || other == this && selector == null)
+      return this;
+    if (isEmpty())
+      return other;
+    if (other.size * WEIGHT * 4 < size) {
+      // few bindings are added to a large tree, thus keep the tree
+      LongRangeTree<V> result = this;
+      for (Entries<V> entries = other.entries(); entries.hasNext(); entries.next()) {
+        LongRangeTree<V> existing = find(entries.low(), entries.high());
+        if (existing == null)
+          result = result.bind(entries.low(), entries.high(), entries.value());
+        else if (selector != null)
+          result = result.bind(entries.low(), entries.high(), selector.apply(existing.value, entries.value()));
+      }
+      return result;
+    }
+    Entries<V> fst = entries();
+    Entries<V> snd = other.entries();
+    Builder<V> result = new Builder<V>(size + other.size);
+    while (fst.hasNext() && snd.hasNext()) {
+      int cmp = compare(fst.low(), fst.high(), snd.low(), snd.high());
+      if (cmp < 0) {
+        result.add(fst);
+        fst.next();
+      } else if (cmp > 0) {
+        result.add(snd);
+        snd.next();
+      } else {
+        V value = fst.value();
+        if (selector != null)
+          value = selector.apply(value, snd.value());
+        result.add(fst.low(), fst.high(), value);
+        fst.next();
+        snd.next();
+      }
+    }
+    result.addAll(fst);
+    result.addAll(snd);
+    return result.build();
+  }
+
+  @Override public LongRangeTree<V> intersection (LongRangeTree<V> other) {
+    return intersection(null, other);
+  }
+
+  @Override public LongRangeTree<V> intersection (Fn2<V, V, V> selector, LongRangeTree<V> other) {
+    if (isEmpty() || other == this && selector == null)
+      return this;
+    if (other.isEmpty())
+      return other;
+    Entries<V> fst = entries();
+    Entries<V> snd = other.entries();
+    Builder<V> result = new Builder<V>(Math.min(size, other.size));
+    while (fst.hasNext() && snd.hasNext()) {
+      int cmp = compare(fst.low(), fst.high(), snd.low(), snd.high());
+      if (cmp < 0) {
+        fst.next();
+      } else if (cmp > 0) {
+        snd.next();
+      } else {
+        V value = fst.value();
+        if (selector != null)
+          value = selector.apply(value, snd.value());
+        result.add(fst.low(), fst.high(), value);
+        fst.next();
+        snd.next();
+      }
+    }
+    return result.build();
+  }
+
+  @Override public LongRangeTree<V> difference (LongRangeTree<V> other) {
+    if (isEmpty() || other.isEmpty())
+      return this;
+    if (other == this)
+      return empty();
+    Entries<V> fst = entries();
+    Entries<V> snd = other.entries();
+    Builder<V> result = new Builder<V>(size);
+    while (fst.hasNext() && snd.hasNext()) {
+      int cmp = compare(fst.low(), fst.high(), snd.low(), snd.high());
+      if (cmp < 0) {
+        result.add(fst);
+        fst.next();
+      } else if (cmp > 0) {
+        snd.next();
+      } else {
+        fst.next();
+        snd.next();
+      }
+    }
+    result.addAll(fst);
+    return result.build();
+  }
+
+  @Override public ThreeWaySplit<LongRangeTree<V>> split (LongRangeTree<V> other) {
+    LongRangeTree<V> none = empty();
+    if (other == this)
+      return ThreeWaySplit.make(none, none, none);
+    if (isEmpty() || other.isEmpty())
+      return ThreeWaySplit.make(this, none, other);
+    Entries<V> fst = entries();
+    Entries<V> snd = other.entries();
+    Builder<V> onlyInFirst = new Builder<V>(size);
+    Builder<V> inBothButDiffering = new Builder<V>(Math.min(size, other.size));
+    Builder<V> onlyInSecond = new Builder<V>(other.size);
+    while (fst.hasNext() && snd.hasNext()) {
+      int cmp = compare(fst.low(), fst.high(), snd.low(), snd.high());
+      if (cmp < 0) {
+        onlyInFirst.add(fst);
+        fst.next();
+      } else if (cmp > 0) {
+        onlyInSecond.add(snd);
+        snd.next();
+      } else {
+        V value = fst.value();
+        V otherValue = snd.value();
+        if (value != otherValue && !value.equals(otherValue))
+          inBothButDiffering.add(fst);
+        fst.next();
+        snd.next();
+      }
+    }
+    onlyInFirst.addAll(fst);
+    onlyInSecond.addAll(snd);
+    return ThreeWaySplit.make(onlyInFirst.build(), inBothButDiffering.build(), onlyInSecond.build());
+  }
+
+  /* == Iteration == */
+
+  private Entries<V> entries () {
+    return new Entries<V>(this);
+  }
+
+  @Override public Iterator<P2<FiniteRange, V>> iterator () {
+    final Entries<V> entries = entries();
+    return new Iterator<P2<FiniteRange, V>>() {
+      @Override public boolean hasNext () {
+        return entries.hasNext();
+      }
+
+      @Override public P2<FiniteRange, V> next () {
+        if (!entries.hasNext())
+          throw new NoSuchElementException();
+        P2<FiniteRange, V> binding = entries.current.binding();
+        entries.next();
+        return binding;
+      }
+
+      @Override public void remove () {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * An in-order cursor over the nodes of a tree.
+   */
+  private static final class Entries<V> {
+    private final Deque<LongRangeTree<V>> path = new ArrayDeque<LongRangeTree<V>>();
+    private LongRangeTree<V> current;
+
+    Entries (LongRangeTree<V> tree) {
+      pushLeft(tree);
+      next();
+    }
+
+    private void pushLeft (LongRangeTree<V> tree) {
+      for (LongRangeTree<V> node = tree; !node.isEmpty(); node = node.left) {
+        path.push(node);
+      }
+    }
+
+    boolean hasNext () {
+      return current != null;
+    }
+
+    void next () {
+      if (path.isEmpty()) {
+        current = null;
+        return;
+      }
+      current = path.pop();
+      pushLeft(current.right);
+    }
+
+    long low () {
+      return current.low;
+    }
+
+    long high () {
+      return current.high;
+    }
+
+    V value () {
+      return current.value;
+    }
+  }
+
+  /**
+   * Collects sorted bindings and builds a balanced tree from them.
+   */
+  private static final class Builder<V> {
+    private long[] lows;
+    private long[] highs;
+    private Object[] values;
+    private int size;
+
+    Builder (int capacity) {
+      capacity = Math.max(capacity, 4);
+      lows = new long[capacity];
+      highs = new long[capacity];
+      values = new Object[capacity];
+    }
+
+    void add (Entries<V> entries) {
+      add(entries.low(), entries.high(), entries.value());
+    }
+
+    void addAll (Entries<V> entries) {
+      for (; entries.hasNext(); entries.next()) {
+        add(entries);
+      }
+    }
+
+    void add (long low, long high, V value) {
+      if (size == lows.length) {
+        lows = Arrays.copyOf(lows, size * 2);
+        highs = Arrays.copyOf(highs, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      lows[size] = low;
+      highs[size] = high;
+      values[size] = value;
+      size++;
+    }
+
+    LongRangeTree<V> build () {
+      return build(0, size);
+    }
+
+    @SuppressWarnings("unchecked") private LongRangeTree<V> build (int from, int to) {
+      if (from >= to)
+        return empty();
+      int mid = (from + to) >>> 1;
+      return join(lows[mid], highs[mid], (V) values[mid], build(from, mid), build(mid + 1, to));
+    }
+  }
+
+  @Override public String toString () {
+    Iterator<P2<FiniteRange, V>> iterator = iterator();
+    if (!iterator.hasNext())
+      return "{}";
+    StringBuilder builder = new StringBuilder();
+    builder.append('{');
+    while (iterator.hasNext()) {
+      P2<FiniteRange, V> element = iterator.next();
+      builder.append(element._1().toString());
+      builder.append('=');
+      builder.append(element._2() == this ? "(this Map)" : element._2());
+      if (iterator.hasNext())
+        builder.append(", ");
+    }
+    return builder.append('}').toString();
+  }
+
+  @Override public XMLBuilder toXML (XMLBuilder builder) {
+    XMLBuilder xml = builder.e("FiniteRangeTree");
+    for (P2<FiniteRange, V> binding : this) {
+      xml = xml.e("Binding").e("Key").t(binding._1().toString()).up();
+      xml = xml.e("Value").t(binding._2().toString()).up().up();
+    }
+    return xml.up();
+  }
+}
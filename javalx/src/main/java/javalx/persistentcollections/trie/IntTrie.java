@@ -15,9 +15,10 @@ import javalx.fn.Fn2;
  * Based on Okasaki & Gill, "Fast Mergeable Integer Maps".
  *
  * @param <A> The type of the values.
- *
- * TODO: Implement path/key compression
+ * @deprecated Use {@link PatriciaTrie} that compresses the paths and supports the set operations needed for
+ *             {@link javalx.persistentcollections.OrderedMap}s.
  */
+@Deprecated
 public abstract class IntTrie<A> {
   private final Fn2<P2<Integer, A>, P2<Integer, A>, A> rightBiasedSelector =
     new Fn2<P2<Integer, A>, P2<Integer, A>, A>() {
@@ -0,0 +1,523 @@
+package javalx.persistentcollections.trie;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javalx.data.products.P2;
+import javalx.fn.Fn2;
+import javalx.persistentcollections.ThreeWaySplit;
+
+/**
+ * Big Endian Patricia Tree for keys that can be mapped to a unique integer index.<br>
+ * The branches store the common prefix and the branching bit of their keys, thus paths without branching are
+ * compressed and the depth of the tree is bounded by the number of bits of the index. The set operations descend both
+ * trees in parallel and stop at subtrees that are shared by reference. Thus for trees that were derived from each
+ * other their costs are proportional to the differences and not to the sizes of the trees.<br>
+ * The elements are ordered by the signed value of their index. To achieve this the sign bit of the index is flipped and
+ * the resulting key is interpreted as unsigned value.
+ *
+ * Based on Okasaki & Gill, "Fast Mergeable Integer Maps".
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public abstract class PatriciaTrie<K, V> implements Iterable<P2<K, V>> {
+  @SuppressWarnings("rawtypes") private static final PatriciaTrie EMPTY = new Empty();
+
+  private PatriciaTrie () {
+  }
+
+  @SuppressWarnings("unchecked") public static <K, V> PatriciaTrie<K, V> empty () {
+    return EMPTY;
+  }
+
+  public abstract int size ();
+
+  public final boolean isEmpty () {
+    return this == EMPTY;
+  }
+
+  /**
+   * Lookup the value for the key with the given index.
+   *
+   * @return the value or {@code null} if the key is not in the tree
+   */
+  public final V getOrNull (int index) {
+    int key = toKey(index);
+    PatriciaTrie<K, V> node = this;
+    while (node instanceof Branch) {
+      Branch<K, V> branch = (Branch<K, V>) node;
+      node = zero(key, branch.bit) ? branch.left : branch.right;
+    }
+    if (node instanceof Leaf && ((Leaf<K, V>) node).key == key)
+      return ((Leaf<K, V>) node).value;
+    return null;
+  }
+
+  public final boolean contains (int index) {
+    int key = toKey(index);
+    PatriciaTrie<K, V> node = this;
+    while (node instanceof Branch) {
+      Branch<K, V> branch = (Branch<K, V>) node;
+      node = zero(key, branch.bit) ? branch.left : branch.right;
+    }
+    return node instanceof Leaf && ((Leaf<K, V>) node).key == key;
+  }
+
+  /**
+   * Add or replace the binding for a key.
+   *
+   * @param index The unique integer index of the key.
+   */
+  public final PatriciaTrie<K, V> bind (int index, K key, V value) {
+    return insert(new Leaf<K, V>(toKey(index), key, value));
+  }
+
+  public final PatriciaTrie<K, V> remove (int index) {
+    return remove(toKey(index), this);
+  }
+
+  /**
+   * @return the binding with the smallest index or {@code null} if the tree is empty
+   */
+  public final P2<K, V> getMin () {
+    PatriciaTrie<K, V> node = this;
+    while (node instanceof Branch) {
+      node = ((Branch<K, V>) node).left;
+    }
+    return node instanceof Leaf ? ((Leaf<K, V>) node).toP2() : null;
+  }
+
+  /**
+   * @return the binding with the largest index or {@code null} if the tree is empty
+   */
+  public final P2<K, V> getMax () {
+    PatriciaTrie<K, V> node = this;
+    while (node instanceof Branch) {
+      node = ((Branch<K, V>) node).right;
+    }
+    return node instanceof Leaf ? ((Leaf<K, V>) node).toP2() : null;
+  }
+
+  public final PatriciaTrie<K, V> removeMin () {
+    PatriciaTrie<K, V> node = this;
+    while (node instanceof Branch) {
+      node = ((Branch<K, V>) node).left;
+    }
+    return node instanceof Leaf ? remove(((Leaf<K, V>) node).key, this) : this;
+  }
+
+  public final PatriciaTrie<K, V> removeMax () {
+    PatriciaTrie<K, V> node = this;
+    while (node instanceof Branch) {
+      node = ((Branch<K, V>) node).right;
+    }
+    return node instanceof Leaf ? remove(((Leaf<K, V>) node).key, this) : this;
+  }
+
+  /**
+   * Combine this tree with another. If both contain the same keys then the given selector is applied to the
+   * values or if the selector is {@code null} the values of this tree are taken (left biased operation).
+   * Bindings that are shared by both trees are kept without applying the selector if it is idempotent, see
+   * {@link Fn2#isIdempotent()}.
+   */
+  public final PatriciaTrie<K, V> union (Fn2<V, V, V> selector, PatriciaTrie<K, V> other) {
+    return union(selector, this, other);
+  }
+
+  /**
+   * Intersect this tree with another. If both contain the same keys then the given selector is applied to the
+   * values or if the selector is {@code null} the values of this tree are taken (left biased operation).
+   * Bindings that are shared by both trees are kept without applying the selector if it is idempotent, see
+   * {@link Fn2#isIdempotent()}.
+   */
+  public final PatriciaTrie<K, V> intersection (Fn2<V, V, V> selector, PatriciaTrie<K, V> other) {
+    return intersection(selector, this, other);
+  }
+
+  /**
+   * Remove all the bindings from this tree whose keys occur in the other tree.
+   */
+  public final PatriciaTrie<K, V> difference (PatriciaTrie<K, V> other) {
+    return difference(this, other);
+  }
+
+  /**
+   * Perform a three way split of this tree with other in a single traversal of both trees.
+   *
+   * @see javalx.persistentcollections.FiniteMap#split(javalx.persistentcollections.FiniteMap)
+   */
+  public final ThreeWaySplit<PatriciaTrie<K, V>> split (PatriciaTrie<K, V> other) {
+    Splitter<K, V> splitter = new Splitter<K, V>();
+    splitter.split(this, other);
+    return ThreeWaySplit.make(splitter.onlyInFirst, splitter.inBothButDiffering, splitter.onlyInSecond);
+  }
+
+  @Override public final Iterator<P2<K, V>> iterator () {
+    return new TrieIterator<K, V>(this);
+  }
+
+  abstract PatriciaTrie<K, V> insert (Leaf<K, V> leaf);
+
+  private static final class Empty<K, V> extends PatriciaTrie<K, V> {
+    @Override public int size () {
+      return 0;
+    }
+
+    @Override PatriciaTrie<K, V> insert (Leaf<K, V> leaf) {
+      return leaf;
+    }
+  }
+
+  private static final class Leaf<K, V> extends PatriciaTrie<K, V> {
+    private final int key;
+    private final K keyObject;
+    private final V value;
+
+    private Leaf (int key, K keyObject, V value) {
+      this.key = key;
+      this.keyObject = keyObject;
+      this.value = value;
+    }
+
+    @Override public int size () {
+      return 1;
+    }
+
+    @Override PatriciaTrie<K, V> insert (Leaf<K, V> leaf) {
+      if (key != leaf.key)
+        return join(leaf.key, leaf, key, this);
+      if (leaf.value == value && leaf.keyObject == keyObject)
+        return this;
+      return leaf;
+    }
+
+    private P2<K, V> toP2 () {
+      return P2.tuple2(keyObject, value);
+    }
+  }
+
+  private static final class Branch<K, V> extends PatriciaTrie<K, V> {
+    private final int prefix;
+    private final int bit;
+    private final PatriciaTrie<K, V> left;
+    private final PatriciaTrie<K, V> right;
+    private final int size;
+
+    private Branch (int prefix, int bit, PatriciaTrie<K, V> left, PatriciaTrie<K, V> right) {
+      this.prefix = prefix;
+      this.bit = bit;
+      this.left = left;
+      this.right = right;
+      this.size = left.size() + right.size();
+    }
+
+    @Override public int size () {
+      return size;
+    }
+
+    @Override PatriciaTrie<K, V> insert (Leaf<K, V> leaf) {
+      if (!match(leaf.key, prefix, bit))
+        return join(leaf.key, leaf, prefix, this);
+      if (zero(leaf.key, bit))
+        return rebuild(left.insert(leaf), right);
+      else
+        return rebuild(left, right.insert(leaf));
+    }
+
+    /**
+     * Rebuild this branch with new children. Returns this branch if nothing changed.
+     */
+    private PatriciaTrie<K, V> rebuild (PatriciaTrie<K, V> newLeft, PatriciaTrie<K, V> newRight) {
+      if (newLeft == left && newRight == right)
+        return this;
+      if (newLeft.isEmpty())
+        return newRight;
+      if (newRight.isEmpty())
+        return newLeft;
+      return new Branch<K, V>(prefix, bit, newLeft, newRight);
+    }
+
+    /**
+     * Replace the child that contains the given key.
+     */
+    private PatriciaTrie<K, V> rebuildChild (int key, PatriciaTrie<K, V> child) {
+      if (zero(key, bit))
+        return rebuild(child, right);
+      else
+        return rebuild(left, child);
+    }
+
+    private PatriciaTrie<K, V> childFor (int key) {
+      return zero(key, bit) ? left : right;
+    }
+  }
+
+  private static <K, V> PatriciaTrie<K, V> remove (int key, PatriciaTrie<K, V> node) {
+    if (node instanceof Leaf)
+      return ((Leaf<K, V>) node).key == key ? PatriciaTrie.<K, V>empty() : node;
+    if (node instanceof Branch) {
+      Branch<K, V> branch = (Branch<K, V>) node;
+      if (!match(key, branch.prefix, branch.bit))
+        return node;
+      return branch.rebuildChild(key, remove(key, branch.childFor(key)));
+    }
+    return node;
+  }
+
+  private static <K, V> PatriciaTrie<K, V> union (Fn2<V, V, V> selector, PatriciaTrie<K, V> a, PatriciaTrie<K, V> b) {
+    if (a == b && keepsShared(selector) || b.isEmpty())
+      return a;
+    if (a.isEmpty())
+      return b;
+    if (a instanceof Leaf)
+      return insertLeft(selector, (Leaf<K, V>) a, b);
+    if (b instanceof Leaf)
+      return insertRight(selector, a, (Leaf<K, V>) b);
+    Branch<K, V> s = (Branch<K, V>) a;
+    Branch<K, V> t = (Branch<K, V>) b;
+    if (s.bit == t.bit && s.prefix == t.prefix)
+      return s.rebuild(union(selector, s.left, t.left), union(selector, s.right, t.right));
+    if (isHigherBit(s.bit, t.bit) && match(t.prefix, s.prefix, s.bit))
+      return s.rebuildChild(t.prefix, union(selector, s.childFor(t.prefix), t));
+    if (isHigherBit(t.bit, s.bit) && match(s.prefix, t.prefix, t.bit))
+      return t.rebuildChild(s.prefix, union(selector, s, t.childFor(s.prefix)));
+    return join(s.prefix, s, t.prefix, t);
+  }
+
+  /**
+   * Insert a binding of the left operand into the right tree.
+   */
+  private static <K, V> PatriciaTrie<K, V> insertLeft (Fn2<V, V, V> selector, Leaf<K, V> leaf, PatriciaTrie<K, V> b) {
+    Leaf<K, V> existing = findLeaf(leaf.key, b);
+    if (existing == null || selector == null)
+      return b.insert(leaf);
+    return b.insert(combine(selector, leaf, existing));
+  }
+
+  /**
+   * Insert a binding of the right operand into the left tree.
+   */
+  private static <K, V> PatriciaTrie<K, V> insertRight (Fn2<V, V, V> selector, PatriciaTrie<K, V> a, Leaf<K, V> leaf) {
+    Leaf<K, V> existing = findLeaf(leaf.key, a);
+    if (existing == null)
+      return a.insert(leaf);
+    if (selector == null)
+      return a;
+    return a.insert(combine(selector, existing, leaf));
+  }
+
+  /**
+   * Whether the bindings shared by both operands can be kept without applying the selector.
+   */
+  private static boolean keepsShared (Fn2<?, ?, ?> selector) {
+    return selector == null || selector.isIdempotent();
+  }
+
+  private static <K, V> Leaf<K, V> combine (Fn2<V, V, V> selector, Leaf<K, V> a, Leaf<K, V> b) {
+    if (a == b && selector.isIdempotent())
+      return a;
+    V value = selector.apply(a.value, b.value);
+    if (value == a.value)
+      return a;
+    return new Leaf<K, V>(a.key, a.keyObject, value);
+  }
+
+  private static <K, V> PatriciaTrie<K, V> intersection (Fn2<V, V, V> selector, PatriciaTrie<K, V> a,
+      PatriciaTrie<K, V> b) {
+    if (a == b && keepsShared(selector) || a.isEmpty())
+      return a;
+    if (b.isEmpty())
+      return b;
+    if (a instanceof Leaf) {
+      Leaf<K, V> existing = findLeaf(((Leaf<K, V>) a).key, b);
+      if (existing == null)
+        return PatriciaTrie.<K, V>empty();
+      return selector == null ? a : combine(selector, (Leaf<K, V>) a, existing);
+    }
+    if (b instanceof Leaf) {
+      Leaf<K, V> existing = findLeaf(((Leaf<K, V>) b).key, a);
+      if (existing == null)
+        return PatriciaTrie.<K, V>empty();
+      return selector == null ? existing : combine(selector, existing, (Leaf<K, V>) b);
+    }
+    Branch<K, V> s = (Branch<K, V>) a;
+    Branch<K, V> t = (Branch<K, V>) b;
+    if (s.bit == t.bit && s.prefix == t.prefix)
+      return s.rebuild(intersection(selector, s.left, t.left), intersection(selector, s.right, t.right));
+    if (isHigherBit(s.bit, t.bit) && match(t.prefix, s.prefix, s.bit))
+      return intersection(selector, s.childFor(t.prefix), t);
+    if (isHigherBit(t.bit, s.bit) && match(s.prefix, t.prefix, t.bit))
+      return intersection(selector, s, t.childFor(s.prefix));
+    return PatriciaTrie.<K, V>empty();
+  }
+
+  private static <K, V> PatriciaTrie<K, V> difference (PatriciaTrie<K, V> a, PatriciaTrie<K, V> b) {
+    if (a == b)
+      return PatriciaTrie.<K, V>empty();
+    if (a.isEmpty() || b.isEmpty())
+      return a;
+    if (a instanceof Leaf)
+      return findLeaf(((Leaf<K, V>) a).key, b) == null ? a : PatriciaTrie.<K, V>empty();
+    if (b instanceof Leaf)
+      return remove(((Leaf<K, V>) b).key, a);
+    Branch<K, V> s = (Branch<K, V>) a;
+    Branch<K, V> t = (Branch<K, V>) b;
+    if (s.bit == t.bit && s.prefix == t.prefix)
+      return s.rebuild(difference(s.left, t.left), difference(s.right, t.right));
+    if (isHigherBit(s.bit, t.bit) && match(t.prefix, s.prefix, s.bit))
+      return s.rebuildChild(t.prefix, difference(s.childFor(t.prefix), t));
+    if (isHigherBit(t.bit, s.bit) && match(s.prefix, t.prefix, t.bit))
+      return difference(s, t.childFor(s.prefix));
+    return a;
+  }
+
+  /**
+   * Computes the three parts of a split. The results of a recursive call are passed back through the fields to avoid
+   * allocating intermediate tuples.
+   */
+  private static final class Splitter<K, V> {
+    private PatriciaTrie<K, V> onlyInFirst;
+    private PatriciaTrie<K, V> inBothButDiffering;
+    private PatriciaTrie<K, V> onlyInSecond;
+
+    private void result (PatriciaTrie<K, V> first, PatriciaTrie<K, V> differing, PatriciaTrie<K, V> second) {
+      onlyInFirst = first;
+      inBothButDiffering = differing;
+      onlyInSecond = second;
+    }
+
+    private void split (PatriciaTrie<K, V> a, PatriciaTrie<K, V> b) {
+      PatriciaTrie<K, V> empty = PatriciaTrie.<K, V>empty();
+      if (a == b) {
+        result(empty, empty, empty);
+      } else if (a.isEmpty() || b.isEmpty()) {
+        result(a, empty, b);
+      } else if (a instanceof Leaf) {
+        Leaf<K, V> leaf = (Leaf<K, V>) a;
+        Leaf<K, V> existing = findLeaf(leaf.key, b);
+        if (existing == null)
+          result(a, empty, b);
+        else
+          result(empty, isEqualValue(leaf, existing) ? empty : a, remove(leaf.key, b));
+      } else if (b instanceof Leaf) {
+        Leaf<K, V> leaf = (Leaf<K, V>) b;
+        Leaf<K, V> existing = findLeaf(leaf.key, a);
+        if (existing == null)
+          result(a, empty, b);
+        else // Be left biased.
+          result(remove(leaf.key, a), isEqualValue(existing, leaf) ? empty : existing, empty);
+      } else {
+        Branch<K, V> s = (Branch<K, V>) a;
+        Branch<K, V> t = (Branch<K, V>) b;
+        if (s.bit == t.bit && s.prefix == t.prefix) {
+          split(s.left, t.left);
+          PatriciaTrie<K, V> first = onlyInFirst;
+          PatriciaTrie<K, V> differing = inBothButDiffering;
+          PatriciaTrie<K, V> second = onlyInSecond;
+          split(s.right, t.right);
+          result(s.rebuild(first, onlyInFirst), branch(s.prefix, s.bit, differing, inBothButDiffering),
+              t.rebuild(second, onlyInSecond));
+        } else if (isHigherBit(s.bit, t.bit) && match(t.prefix, s.prefix, s.bit)) {
+          split(s.childFor(t.prefix), t);
+          result(s.rebuildChild(t.prefix, onlyInFirst), inBothButDiffering, onlyInSecond);
+        } else if (isHigherBit(t.bit, s.bit) && match(s.prefix, t.prefix, t.bit)) {
+          split(s, t.childFor(s.prefix));
+          result(onlyInFirst, inBothButDiffering, t.rebuildChild(s.prefix, onlyInSecond));
+        } else {
+          result(a, empty, b);
+        }
+      }
+    }
+  }
+
+  private static <K, V> boolean isEqualValue (Leaf<K, V> a, Leaf<K, V> b) {
+    return a == b || a.value == b.value || a.value.equals(b.value);
+  }
+
+  private static <K, V> Leaf<K, V> findLeaf (int key, PatriciaTrie<K, V> node) {
+    while (node instanceof Branch) {
+      Branch<K, V> branch = (Branch<K, V>) node;
+      node = zero(key, branch.bit) ? branch.left : branch.right;
+    }
+    if (node instanceof Leaf && ((Leaf<K, V>) node).key == key)
+      return (Leaf<K, V>) node;
+    return null;
+  }
+
+  private static <K, V> PatriciaTrie<K, V> branch (int prefix, int bit, PatriciaTrie<K, V> left,
+      PatriciaTrie<K, V> right) {
+    if (right.isEmpty())
+      return left;
+    if (left.isEmpty())
+      return right;
+    return new Branch<K, V>(prefix, bit, left, right);
+  }
+
+  /**
+   * Combine two trees with prefixes p1 and p2, where p1 and p2 are known to disagree.
+   */
+  private static <K, V> PatriciaTrie<K, V> join (int p1, PatriciaTrie<K, V> t1, int p2, PatriciaTrie<K, V> t2) {
+    int bit = Integer.highestOneBit(p1 ^ p2);
+    int prefix = mask(p1, bit);
+    if (zero(p1, bit))
+      return new Branch<K, V>(prefix, bit, t1, t2);
+    else
+      return new Branch<K, V>(prefix, bit, t2, t1);
+  }
+
+  private static final class TrieIterator<K, V> implements Iterator<P2<K, V>> {
+    private final ArrayList<PatriciaTrie<K, V>> stack = new ArrayList<PatriciaTrie<K, V>>();
+
+    private TrieIterator (PatriciaTrie<K, V> trie) {
+      if (!trie.isEmpty())
+        stack.add(trie);
+    }
+
+    @Override public boolean hasNext () {
+      return !stack.isEmpty();
+    }
+
+    @Override public P2<K, V> next () {
+      if (stack.isEmpty())
+        throw new NoSuchElementException();
+      PatriciaTrie<K, V> node = stack.remove(stack.size() - 1);
+      while (node instanceof Branch) {
+        Branch<K, V> branch = (Branch<K, V>) node;
+        stack.add(branch.right);
+        node = branch.left;
+      }
+      return ((Leaf<K, V>) node).toP2();
+    }
+
+    @Override public void remove () {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /* == Bit-twiddling for big endian trees == */
+
+  private static int toKey (int index) {
+    return index ^ Integer.MIN_VALUE;
+  }
+
+  private static int mask (int k, int m) {
+    return k & (~(m - 1) ^ m);
+  }
+
+  private static boolean match (int k, int p, int m) {
+    return mask(k, m) == p;
+  }
+
+  private static boolean zero (int k, int m) {
+    return (k & m) == 0;
+  }
+
+  /**
+   * Branching bits are powers of two, thus the sign bit is the highest bit.
+   */
+  private static boolean isHigherBit (int m1, int m2) {
+    return m1 != m2 && (m1 < 0 || m2 > 0 && m1 > m2);
+  }
+}
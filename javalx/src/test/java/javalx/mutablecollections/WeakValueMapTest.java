@@ -0,0 +1,39 @@
+package javalx.mutablecollections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class WeakValueMapTest {
+
+  @Test public void putIfAbsentKeepsFirstValue () {
+    WeakValueMap<String, Object> map = new WeakValueMap<>();
+    Object first = new Object();
+    Object second = new Object();
+    assertThat(map.putIfAbsent("key", first), sameInstance(first));
+    assertThat(map.putIfAbsent("key", second), sameInstance(first));
+    assertThat(map.get("key"), sameInstance(first));
+    map.put("key", second);
+    assertThat(map.get("key"), sameInstance(second));
+    assertThat(map.get("other"), nullValue());
+    assertThat(map.size(), is(1));
+  }
+
+  @Test public void unreferencedValuesAreRemoved () throws InterruptedException {
+    WeakValueMap<Integer, Object> map = new WeakValueMap<>();
+    Object kept = new Object();
+    map.put(-1, kept);
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, new Object());
+    }
+    for (int attempt = 0; attempt < 50 && map.size() > 1; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(map.size(), is(1));
+    assertThat(map.get(-1), sameInstance(kept));
+  }
+}
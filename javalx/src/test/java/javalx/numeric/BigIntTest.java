@@ -0,0 +1,129 @@
+package javalx.numeric;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Compares the results of the arithmetic on small values with the results computed on {@link BigInteger}s.
+ */
+public class BigIntTest {
+  private static final List<BigInteger> values = interestingValues();
+
+  private static List<BigInteger> interestingValues () {
+    List<BigInteger> values = new ArrayList<BigInteger>();
+    long[] longs = {0, 1, -1, 2, -2, 3, -7, 127, -128, 1024, 1025, Integer.MAX_VALUE, Integer.MIN_VALUE,
+      1L << 32, -(1L << 32), 3037000499L, -3037000500L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1,
+      Long.MIN_VALUE + 1};
+    for (long value : longs) {
+      values.add(BigInteger.valueOf(value));
+    }
+    values.add(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+    values.add(BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE));
+    values.add(BigInteger.ONE.shiftLeft(100).negate());
+    Random random = new Random(5);
+    for (int i = 0; i < 20; i++) {
+      values.add(BigInteger.valueOf(random.nextLong()));
+      values.add(BigInteger.valueOf(random.nextInt()));
+    }
+    return values;
+  }
+
+  @Test public void arithmeticAgreesWithBigInteger () {
+    for (BigInteger a : values) {
+      BigInt x = BigInt.of(a);
+      assertThat(x.negate().bigIntegerValue(), is(a.negate()));
+      assertThat(x.abs().bigIntegerValue(), is(a.abs()));
+      assertThat(x.not().bigIntegerValue(), is(a.not()));
+      assertThat(x.sign(), is(a.signum()));
+      assertThat(x.hashCode(), is(a.hashCode()));
+      assertThat(x.toString(), is(a.toString()));
+      assertThat(x.toHexString(), is(a.toString(16)));
+      for (int n : new int[] {0, 1, 31, 62, 63, 64, 100, -1, -65}) {
+        assertThat(x.shl(n).bigIntegerValue(), is(a.shiftLeft(n)));
+        assertThat(x.shr(n).bigIntegerValue(), is(a.shiftRight(n)));
+      }
+      for (BigInteger b : values) {
+        BigInt y = BigInt.of(b);
+        assertThat(x.add(y).bigIntegerValue(), is(a.add(b)));
+        assertThat(x.sub(y).bigIntegerValue(), is(a.subtract(b)));
+        assertThat(x.mul(y).bigIntegerValue(), is(a.multiply(b)));
+        assertThat(x.and(y).bigIntegerValue(), is(a.and(b)));
+        assertThat(x.or(y).bigIntegerValue(), is(a.or(b)));
+        assertThat(x.xor(y).bigIntegerValue(), is(a.xor(b)));
+        assertThat(x.gcd(y).bigIntegerValue(), is(a.gcd(b)));
+        assertThat(x.compareTo(y), is(a.compareTo(b)));
+        assertThat(x.isEqualTo(y), is(a.equals(b)));
+        assertThat(x.max(y).bigIntegerValue(), is(a.max(b)));
+        assertThat(x.min(y).bigIntegerValue(), is(a.min(b)));
+        if (b.signum() == 0)
+          continue;
+        assertThat(x.divRoundZero(y).bigIntegerValue(), is(a.divide(b)));
+        assertThat(x.remainder(y).bigIntegerValue(), is(a.remainder(b)));
+        BigInteger[] divideAndRemainder = a.divideAndRemainder(b);
+        assertThat(x.divideAndRemainder(y)[0].bigIntegerValue(), is(divideAndRemainder[0]));
+        assertThat(x.divideAndRemainder(y)[1].bigIntegerValue(), is(divideAndRemainder[1]));
+        BigInteger floor = divideAndRemainder[1].signum() * b.signum() < 0
+            ? divideAndRemainder[0].subtract(BigInteger.ONE) : divideAndRemainder[0];
+        BigInteger ceiling = divideAndRemainder[1].signum() * b.signum() > 0
+            ? divideAndRemainder[0].add(BigInteger.ONE) : divideAndRemainder[0];
+        assertThat(x.divRoundDown(y).bigIntegerValue(), is(floor));
+        assertThat(x.divRoundUp(y).bigIntegerValue(), is(ceiling));
+        BigInt exact = x.divRoundNone(y);
+        if (divideAndRemainder[1].signum() == 0)
+          assertThat(exact.bigIntegerValue(), is(divideAndRemainder[0]));
+        else
+          assertThat(exact, is((BigInt) null));
+        if (b.signum() > 0)
+          assertThat(x.mod(y).bigIntegerValue(), is(a.mod(b)));
+      }
+    }
+  }
+
+  @Test public void divisionByZeroIsSignaled () {
+    try {
+      BigInt.of(5).divRoundZero(Bound.ZERO);
+      fail();
+    } catch (ArithmeticException e) {
+      // expected
+    }
+    try {
+      BigInt.of(5).divRoundNone(Bound.ZERO);
+      fail();
+    } catch (ArithmeticException e) {
+      // expected
+    }
+  }
+
+  @Test public void conversions () {
+    assertThat(BigInt.of(Long.MIN_VALUE).longValue(), is(Long.MIN_VALUE));
+    assertThat(BigInt.of(Integer.MIN_VALUE).intValue(), is(Integer.MIN_VALUE));
+    try {
+      BigInt.of(1L << 31).intValue();
+      fail();
+    } catch (ArithmeticException e) {
+      // expected
+    }
+    try {
+      BigInt.of(Long.MAX_VALUE).add(Bound.ONE).longValue();
+      fail();
+    } catch (ArithmeticException e) {
+      // expected
+    }
+    assertThat(BigInt.of(Long.MAX_VALUE).add(Bound.ONE).sub(Bound.ONE).longValue(), is(Long.MAX_VALUE));
+  }
+
+  @Test public void smallConstantsAreShared () {
+    assertSame(Bound.ZERO, BigInt.of(0));
+    assertSame(Bound.ONE, BigInt.of(BigInteger.ONE));
+    assertSame(BigInt.of(1000), BigInt.of(999).add(Bound.ONE));
+  }
+}
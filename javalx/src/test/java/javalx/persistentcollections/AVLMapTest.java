@@ -4,9 +4,13 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 
+import javalx.data.Option;
 import javalx.data.products.P2;
+import javalx.fn.Fn2;
 
 import org.junit.Test;
 
@@ -227,4 +231,128 @@ public class AVLMapTest {
       assertEquals(Integer.valueOf(ints[i]), t.get(i).get());
     }
   }
+
+  @Test
+  public void testSplitOfDerivedMaps () {
+    Random r = new Random(42);
+    AVLMap<Integer, Integer> base = AVLMap.empty();
+    for (int i = 0; i < 200; i++) {
+      base = base.bind(r.nextInt(400), r.nextInt(5));
+    }
+    for (int round = 0; round < 50; round++) {
+      AVLMap<Integer, Integer> first = modify(base, r);
+      AVLMap<Integer, Integer> second = modify(base, r);
+      assertSplit(first, second);
+      assertSplit(first, first);
+      assertSplit(first, AVLMap.<Integer, Integer>empty());
+      assertSplit(AVLMap.<Integer, Integer>empty(), second);
+    }
+  }
+
+  @Test
+  public void testSetOperationsOfDerivedMaps () {
+    Fn2<Integer, Integer, Integer> max = new Fn2<Integer, Integer, Integer>() {
+      @Override public Integer apply (Integer a, Integer b) {
+        return Math.max(a, b);
+      }
+
+      @Override public boolean isIdempotent () {
+        return true;
+      }
+    };
+    // not idempotent, thus it must also be applied to the bindings shared by both maps
+    Fn2<Integer, Integer, Integer> sum = new Fn2<Integer, Integer, Integer>() {
+      @Override public Integer apply (Integer a, Integer b) {
+        return a + b;
+      }
+    };
+    Random r = new Random(23);
+    AVLMap<Integer, Integer> base = AVLMap.empty();
+    for (int i = 0; i < 200; i++) {
+      base = base.bind(r.nextInt(400), r.nextInt(5));
+    }
+    for (int round = 0; round < 50; round++) {
+      AVLMap<Integer, Integer> first = modify(base, r);
+      AVLMap<Integer, Integer> second = modify(base, r);
+      TreeMap<Integer, Integer> union = toMap(second);
+      union.putAll(toMap(first));
+      TreeMap<Integer, Integer> unionWithMax = toMap(second);
+      TreeMap<Integer, Integer> intersection = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> intersectionWithMax = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> unionWithSum = toMap(second);
+      TreeMap<Integer, Integer> intersectionWithSum = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> difference = new TreeMap<Integer, Integer>();
+      for (P2<Integer, Integer> binding : first) {
+        Option<Integer> other = second.get(binding._1());
+        if (other.isSome()) {
+          unionWithMax.put(binding._1(), Math.max(binding._2(), other.get()));
+          intersection.put(binding._1(), binding._2());
+          intersectionWithMax.put(binding._1(), Math.max(binding._2(), other.get()));
+          unionWithSum.put(binding._1(), binding._2() + other.get());
+          intersectionWithSum.put(binding._1(), binding._2() + other.get());
+        } else {
+          unionWithMax.put(binding._1(), binding._2());
+          unionWithSum.put(binding._1(), binding._2());
+          difference.put(binding._1(), binding._2());
+        }
+      }
+      assertEquals(union, toMap(first.union(second)));
+      assertEquals(unionWithMax, toMap(first.union(max, second)));
+      assertEquals(intersection, toMap(first.intersection(second)));
+      assertEquals(intersectionWithMax, toMap(first.intersection(max, second)));
+      assertEquals(unionWithSum, toMap(first.union(sum, second)));
+      assertEquals(intersectionWithSum, toMap(first.intersection(sum, second)));
+      assertEquals(difference, toMap(first.difference(second)));
+    }
+  }
+
+  @Test
+  public void testSetOperationsWithSubset () {
+    AVLMap<Integer, Integer> map = AVLMap.empty();
+    for (int i = 0; i < 100; i++) {
+      map = map.bind(i, i);
+    }
+    AVLMap<Integer, Integer> subset = map.remove(42).remove(23);
+    assertEquals(toMap(map), toMap(map.union(subset)));
+    assertEquals(toMap(subset), toMap(map.intersection(subset)));
+    assertEquals(2, map.difference(subset).size());
+    assertTrue(subset.difference(map).isEmpty());
+  }
+
+  private static AVLMap<Integer, Integer> modify (AVLMap<Integer, Integer> map, Random r) {
+    for (int i = 0; i < 10; i++) {
+      int key = r.nextInt(400);
+      if (r.nextBoolean())
+        map = map.bind(key, r.nextInt(5));
+      else
+        map = map.remove(key);
+    }
+    return map;
+  }
+
+  private static TreeMap<Integer, Integer> toMap (AVLMap<Integer, Integer> map) {
+    TreeMap<Integer, Integer> result = new TreeMap<Integer, Integer>();
+    for (P2<Integer, Integer> binding : map) {
+      result.put(binding._1(), binding._2());
+    }
+    return result;
+  }
+
+  private static void assertSplit (AVLMap<Integer, Integer> first, AVLMap<Integer, Integer> second) {
+    TreeMap<Integer, Integer> onlyInFirst = new TreeMap<Integer, Integer>();
+    TreeMap<Integer, Integer> differing = new TreeMap<Integer, Integer>();
+    TreeMap<Integer, Integer> onlyInSecond = toMap(second);
+    for (Map.Entry<Integer, Integer> binding : toMap(first).entrySet()) {
+      Integer other = onlyInSecond.remove(binding.getKey());
+      if (other == null)
+        onlyInFirst.put(binding.getKey(), binding.getValue());
+      else if (!other.equals(binding.getValue()))
+        differing.put(binding.getKey(), binding.getValue());
+    }
+    ThreeWaySplit<AVLMap<Integer, Integer>> split = first.split(second);
+    assertEquals(onlyInFirst, toMap(split.onlyInFirst()));
+    assertEquals(differing, toMap(split.inBothButDiffering()));
+    assertEquals(onlyInSecond, toMap(split.onlyInSecond()));
+    assertEquals(onlyInFirst.isEmpty() && differing.isEmpty() && onlyInSecond.isEmpty(), first.equals(second));
+  }
 }
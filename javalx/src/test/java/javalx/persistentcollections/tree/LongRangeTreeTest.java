@@ -0,0 +1,164 @@
+package javalx.persistentcollections.tree;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javalx.data.products.P2;
+import javalx.numeric.BigInt;
+import javalx.numeric.FiniteRange;
+import javalx.numeric.Interval;
+import javalx.persistentcollections.ThreeWaySplit;
+import javalx.persistentcollections.tree.LongRangeTree.OverlapVisitor;
+
+import org.junit.Test;
+
+/**
+ * Compares the long keyed interval tree with the {@link FiniteRangeTree}.
+ */
+public class LongRangeTreeTest {
+  private final Random random = new Random(0x1d7);
+
+  @Test public void overlappingIntervals () {
+    LongRangeTree<Integer> t = LongRangeTree.empty();
+    t = t.bind(5, 10, 1).bind(4, 10, 2).bind(3, 8, 3).bind(1, 11, 4).bind(2, 13, 5).bind(6, 14, 6);
+    t = t.bind(0, 1, 7).bind(7, 9, 8).bind(20, 30, 9).bind(15, 16, 10);
+    assertThat(t.size(), is(10));
+    OverlappingRanges<Integer> overlapping = t.searchOverlaps(FiniteRange.of(2, 6));
+    assertThat(overlapping.size(), is(6));
+    assertThat(overlapping.getFirst()._1(), is(FiniteRange.of(1, 11)));
+    assertThat(t.countOverlaps(2, 6, 100), is(6));
+    assertThat(t.countOverlaps(2, 6, 2), is(2));
+    assertThat(t.findOverlap(2, 6), is(4));
+    assertThat(t.findOverlap(17, 19), is(nullValue()));
+    assertThat(t.findOverlap(30, 30), is(9));
+    assertThat(t.searchOverlaps(Interval.top()).size(), is(10));
+  }
+
+  @Test public void visitorStopsSearch () {
+    LongRangeTree<Integer> t = LongRangeTree.empty();
+    for (int i = 0; i < 100; i++) {
+      t = t.bind(i * 4, i * 4 + 3, i);
+    }
+    final List<Integer> visited = new ArrayList<Integer>();
+    boolean completed = t.visitOverlaps(10, 100, new OverlapVisitor<Integer>() {
+      @Override public boolean visit (long low, long high, Integer value) {
+        visited.add(value);
+        return visited.size() < 5;
+      }
+    });
+    assertThat(completed, is(false));
+    assertThat(visited.size(), is(5));
+    assertThat(visited.get(0), is(2));
+    assertThat(visited.get(4), is(6));
+  }
+
+  @Test public void sameBindingsAsFiniteRangeTree () {
+    for (int round = 0; round < 20; round++) {
+      LongRangeTree<Integer> t = LongRangeTree.empty();
+      FiniteRangeTree<Integer> reference = FiniteRangeTree.empty();
+      for (int i = 0; i < 200; i++) {
+        long low = random.nextInt(1000) - 500;
+        long high = low + random.nextInt(20);
+        int value = random.nextInt(4);
+        if (random.nextInt(4) == 0) {
+          t = t.remove(low, high);
+          reference = reference.remove(FiniteRange.of(low, high));
+        } else {
+          t = t.bind(low, high, value);
+          reference = reference.bind(FiniteRange.of(low, high), value);
+        }
+      }
+      assertSameBindings(t, reference);
+      for (int i = 0; i < 50; i++) {
+        long low = random.nextInt(1100) - 550;
+        long high = low + random.nextInt(30);
+        OverlappingRanges<Integer> expected = reference.searchOverlaps(FiniteRange.of(low, high));
+        expected.sortByFiniteRangeKey();
+        assertThat(toList(t.searchOverlaps(low, high)), is(toList(expected)));
+        assertThat(t.countOverlaps(low, high, Integer.MAX_VALUE), is(expected.size()));
+      }
+    }
+  }
+
+  @Test public void setOperationsAsFiniteRangeTree () {
+    for (int round = 0; round < 50; round++) {
+      LongRangeTree<Integer> fst = LongRangeTree.empty();
+      LongRangeTree<Integer> snd = LongRangeTree.empty();
+      FiniteRangeTree<Integer> fstReference = FiniteRangeTree.empty();
+      FiniteRangeTree<Integer> sndReference = FiniteRangeTree.empty();
+      int fstSize = random.nextInt(100);
+      int sndSize = random.nextInt(round % 2 == 0 ? 10 : 100);
+      for (int i = 0; i < fstSize; i++) {
+        long low = random.nextInt(200);
+        int value = random.nextInt(3);
+        fst = fst.bind(low, low + 3, value);
+        fstReference = fstReference.bind(FiniteRange.of(low, low + 3), value);
+      }
+      for (int i = 0; i < sndSize; i++) {
+        long low = random.nextInt(200);
+        int value = random.nextInt(3);
+        snd = snd.bind(low, low + 3, value);
+        sndReference = sndReference.bind(FiniteRange.of(low, low + 3), value);
+      }
+      assertSameBindings(fst.union(snd), fstReference.union(sndReference));
+      assertSameBindings(snd.union(fst), sndReference.union(fstReference));
+      assertSameBindings(fst.intersection(snd), fstReference.intersection(sndReference));
+      assertSameBindings(fst.difference(snd), fstReference.difference(sndReference));
+      ThreeWaySplit<LongRangeTree<Integer>> split = fst.split(snd);
+      ThreeWaySplit<FiniteRangeTree<Integer>> expected = fstReference.split(sndReference);
+      assertSameBindings(split.onlyInFirst(), expected.onlyInFirst());
+      assertSameBindings(split.inBothButDiffering(), expected.inBothButDiffering());
+      assertSameBindings(split.onlyInSecond(), expected.onlyInSecond());
+    }
+  }
+
+  @Test public void keysOutsideOfLongRange () {
+    LongRangeTree<Integer> t = LongRangeTree.empty();
+    FiniteRangeTree<Integer> reference = FiniteRangeTree.empty();
+    long[][] ranges = {{Long.MIN_VALUE, Long.MIN_VALUE + 3}, {-5, 5}, {Long.MAX_VALUE - 3, Long.MAX_VALUE}};
+    for (int i = 0; i < ranges.length; i++) {
+      t = t.bind(ranges[i][0], ranges[i][1], i);
+      reference = reference.bind(FiniteRange.of(ranges[i][0], ranges[i][1]), i);
+    }
+    BigInt min = BigInt.of(Long.MIN_VALUE);
+    BigInt max = BigInt.of(Long.MAX_VALUE);
+    FiniteRange[] keys = {
+      FiniteRange.of(min.sub(10), 20), FiniteRange.of(min.sub(10), 5),
+      FiniteRange.of(max.sub(3), 10), FiniteRange.of(max.add(BigInt.of(1)), 10),
+      FiniteRange.of(min.sub(10), 1).join(FiniteRange.of(max.add(BigInt.of(1)), 10))};
+    for (FiniteRange key : keys) {
+      OverlappingRanges<Integer> expected = reference.searchOverlaps(key);
+      expected.sortByFiniteRangeKey();
+      assertThat(toList(t.searchOverlaps(key)), is(toList(expected)));
+      assertThat(toList(t.searchOverlaps(Interval.of(key.low(), key.high()))), is(toList(expected)));
+      assertThat(t.hasOverlaps(key), is(!expected.isEmpty()));
+      assertThat(t.get(key).isSome(), is(false));
+      assertThat(t.getOrNull(key), is(nullValue()));
+      assertSameBindings(t.remove(key), reference.remove(key));
+      assertSameBindings(t.splitHead(key), reference.splitHead(key));
+      assertSameBindings(t.splitTail(key), reference.splitTail(key));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void keysOutsideOfLongRangeCannotBeBound () {
+    LongRangeTree.<Integer>empty().bind(FiniteRange.of(BigInt.of(Long.MAX_VALUE), 2), 1);
+  }
+
+  private static void assertSameBindings (LongRangeTree<Integer> tree, FiniteRangeTree<Integer> reference) {
+    assertThat(tree.size(), is(reference.size()));
+    assertThat(toList(tree), is(toList(reference)));
+  }
+
+  private static List<P2<FiniteRange, Integer>> toList (Iterable<P2<FiniteRange, Integer>> bindings) {
+    List<P2<FiniteRange, Integer>> list = new ArrayList<P2<FiniteRange, Integer>>();
+    for (P2<FiniteRange, Integer> binding : bindings) {
+      list.add(binding);
+    }
+    return list;
+  }
+}
@@ -0,0 +1,164 @@
+package javalx.persistentcollections.trie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import javalx.data.products.P2;
+import javalx.fn.Fn2;
+import javalx.persistentcollections.ThreeWaySplit;
+
+import org.junit.Test;
+
+public class PatriciaTrieTest {
+  private static final Fn2<Integer, Integer, Integer> max = new Fn2<Integer, Integer, Integer>() {
+    @Override public Integer apply (Integer a, Integer b) {
+      return Math.max(a, b);
+    }
+
+    @Override public boolean isIdempotent () {
+      return true;
+    }
+  };
+  private static final Fn2<Integer, Integer, Integer> sum = new Fn2<Integer, Integer, Integer>() {
+    @Override public Integer apply (Integer a, Integer b) {
+      return a + b;
+    }
+  };
+
+  @Test public void bindAndLookup () {
+    PatriciaTrie<Integer, String> trie = PatriciaTrie.empty();
+    trie = trie.bind(3, 3, "three").bind(-1, -1, "minus one").bind(Integer.MIN_VALUE, Integer.MIN_VALUE, "min");
+    assertEquals(3, trie.size());
+    assertEquals("three", trie.getOrNull(3));
+    assertEquals("minus one", trie.getOrNull(-1));
+    assertEquals("min", trie.getOrNull(Integer.MIN_VALUE));
+    assertNull(trie.getOrNull(0));
+    assertTrue(trie.remove(3).remove(-1).remove(Integer.MIN_VALUE).isEmpty());
+  }
+
+  @Test public void rebindSameValueKeepsTrie () {
+    Integer value = 42;
+    PatriciaTrie<Integer, Integer> trie = PatriciaTrie.<Integer, Integer>empty().bind(1, 1, value).bind(2, 2, 2);
+    assertSame(trie, trie.bind(1, 1, value));
+    assertSame(trie, trie.remove(5));
+  }
+
+  @Test public void iterationIsOrderedBySignedIndex () {
+    Random random = new Random(7);
+    TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+    PatriciaTrie<Integer, Integer> trie = PatriciaTrie.empty();
+    for (int i = 0; i < 500; i++) {
+      int key = random.nextInt();
+      expected.put(key, i);
+      trie = trie.bind(key, key, i);
+    }
+    assertEquals(expected, toMap(trie));
+    assertEquals(expected.firstKey(), trie.getMin()._1());
+    assertEquals(expected.lastKey(), trie.getMax()._1());
+    assertEquals(expected.size() - 1, trie.removeMin().size());
+    assertEquals(expected.lastKey(), trie.removeMin().getMax()._1());
+  }
+
+  @Test public void setOperationsOfDerivedTries () {
+    Random random = new Random(11);
+    PatriciaTrie<Integer, Integer> base = PatriciaTrie.empty();
+    for (int i = 0; i < 300; i++) {
+      int key = random.nextInt(600) - 300;
+      base = base.bind(key, key, random.nextInt(5));
+    }
+    for (int round = 0; round < 50; round++) {
+      PatriciaTrie<Integer, Integer> first = modify(base, random);
+      PatriciaTrie<Integer, Integer> second = modify(base, random);
+      TreeMap<Integer, Integer> firstMap = toMap(first);
+      TreeMap<Integer, Integer> secondMap = toMap(second);
+
+      TreeMap<Integer, Integer> union = new TreeMap<Integer, Integer>(secondMap);
+      union.putAll(firstMap);
+      TreeMap<Integer, Integer> unionWithMax = new TreeMap<Integer, Integer>(secondMap);
+      TreeMap<Integer, Integer> intersection = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> intersectionWithMax = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> unionWithSum = new TreeMap<Integer, Integer>(secondMap);
+      TreeMap<Integer, Integer> intersectionWithSum = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> difference = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> differing = new TreeMap<Integer, Integer>();
+      TreeMap<Integer, Integer> onlyInSecond = new TreeMap<Integer, Integer>(secondMap);
+      for (Map.Entry<Integer, Integer> binding : firstMap.entrySet()) {
+        Integer other = secondMap.get(binding.getKey());
+        onlyInSecond.remove(binding.getKey());
+        if (other == null) {
+          unionWithMax.put(binding.getKey(), binding.getValue());
+          unionWithSum.put(binding.getKey(), binding.getValue());
+          difference.put(binding.getKey(), binding.getValue());
+        } else {
+          unionWithMax.put(binding.getKey(), Math.max(binding.getValue(), other));
+          intersection.put(binding.getKey(), binding.getValue());
+          intersectionWithMax.put(binding.getKey(), Math.max(binding.getValue(), other));
+          unionWithSum.put(binding.getKey(), binding.getValue() + other);
+          intersectionWithSum.put(binding.getKey(), binding.getValue() + other);
+          if (!other.equals(binding.getValue()))
+            differing.put(binding.getKey(), binding.getValue());
+        }
+      }
+
+      assertEquals(union, toMap(first.union(null, second)));
+      assertEquals(unionWithMax, toMap(first.union(max, second)));
+      assertEquals(intersection, toMap(first.intersection(null, second)));
+      assertEquals(intersectionWithMax, toMap(first.intersection(max, second)));
+      // the selector is not idempotent and thus applied to the shared bindings, too
+      assertEquals(unionWithSum, toMap(first.union(sum, second)));
+      assertEquals(intersectionWithSum, toMap(first.intersection(sum, second)));
+      assertEquals(difference, toMap(first.difference(second)));
+      ThreeWaySplit<PatriciaTrie<Integer, Integer>> split = first.split(second);
+      assertEquals(difference, toMap(split.onlyInFirst()));
+      assertEquals(differing, toMap(split.inBothButDiffering()));
+      assertEquals(onlyInSecond, toMap(split.onlyInSecond()));
+    }
+  }
+
+  @Test public void operationsOnSharedTriesReturnOperand () {
+    PatriciaTrie<Integer, Integer> trie = PatriciaTrie.empty();
+    for (int i = -50; i < 50; i++) {
+      trie = trie.bind(i, i, i);
+    }
+    PatriciaTrie<Integer, Integer> subset = trie.remove(7).remove(-13);
+    assertSame(trie, trie.union(null, subset));
+    assertSame(trie, trie.union(max, trie));
+    assertSame(subset, subset.intersection(null, trie));
+    assertTrue(trie.difference(trie).isEmpty());
+    ThreeWaySplit<PatriciaTrie<Integer, Integer>> split = trie.split(subset);
+    assertEquals(2, split.onlyInFirst().size());
+    assertTrue(split.inBothButDiffering().isEmpty());
+    assertTrue(split.onlyInSecond().isEmpty());
+  }
+
+  private static PatriciaTrie<Integer, Integer> modify (PatriciaTrie<Integer, Integer> trie, Random random) {
+    for (int i = 0; i < 10; i++) {
+      int key = random.nextInt(600) - 300;
+      if (random.nextBoolean())
+        trie = trie.bind(key, key, random.nextInt(5));
+      else
+        trie = trie.remove(key);
+    }
+    return trie;
+  }
+
+  private static TreeMap<Integer, Integer> toMap (PatriciaTrie<Integer, Integer> trie) {
+    TreeMap<Integer, Integer> result = new TreeMap<Integer, Integer>();
+    List<Integer> keys = new ArrayList<Integer>();
+    for (P2<Integer, Integer> binding : trie) {
+      result.put(binding._1(), binding._2());
+      keys.add(binding._1());
+    }
+    assertEquals("iteration order", new ArrayList<Integer>(result.keySet()), keys);
+    assertEquals(result.size(), trie.size());
+    return result;
+  }
+}
@@ -0,0 +1,738 @@
+package rreil.disassembler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+
+import javalx.numeric.BigInt;
+import rreil.lang.BinOp;
+import rreil.lang.ComparisonOp;
+import rreil.lang.LinBinOp;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReil.Assertion;
+import rreil.lang.RReil.Assertion.AssertionCompare;
+import rreil.lang.RReil.Assertion.AssertionReachable;
+import rreil.lang.RReil.Assertion.AssertionUnreachable;
+import rreil.lang.RReil.Assertion.AssertionWarnings;
+import rreil.lang.RReil.Assign;
+import rreil.lang.RReil.Branch;
+import rreil.lang.RReil.BranchToNative;
+import rreil.lang.RReil.BranchToRReil;
+import rreil.lang.RReil.Flop;
+import rreil.lang.RReil.Load;
+import rreil.lang.RReil.Native;
+import rreil.lang.RReil.Nop;
+import rreil.lang.RReil.PrimOp;
+import rreil.lang.RReil.Store;
+import rreil.lang.RReil.Throw;
+import rreil.lang.RReilAddr;
+import rreil.lang.Rhs;
+import rreil.lang.Rhs.Address;
+import rreil.lang.Rhs.Bin;
+import rreil.lang.Rhs.Cmp;
+import rreil.lang.Rhs.Convert;
+import rreil.lang.Rhs.Lin;
+import rreil.lang.Rhs.LinBin;
+import rreil.lang.Rhs.LinRval;
+import rreil.lang.Rhs.LinScale;
+import rreil.lang.Rhs.RangeRhs;
+import rreil.lang.Rhs.Rlit;
+import rreil.lang.Rhs.Rval;
+import rreil.lang.Rhs.Rvar;
+import rreil.lang.Rhs.SignExtend;
+import rreil.lang.Rhs.SimpleExpression;
+import rreil.lang.util.RhsVisitor;
+import rreil.lang.util.RvarExtractor;
+
+/**
+ * Optimizes the RREIL translation of a sequence of native instructions that is always entered at its first
+ * instruction. The RREIL instructions of the whole block are placed at the address of the block, thus jumps into the
+ * middle of the sequence need to decode a new block from there on. The optimizations are:
+ * <ul>
+ * <li>copy propagation and constant folding across instruction boundaries</li>
+ * <li>removal of assignments to flags, registers and temporaries that are overwritten before being read</li>
+ * <li>assigning the result of an operation or a load directly to the register instead of going through a
+ * temporary</li>
+ * </ul>
+ * Temporaries are the variables introduced by the translators for a single native instruction and are not read by
+ * any other instruction. Constants are only folded if the result does not depend on a signed or unsigned
+ * interpretation of the literals.
+ */
+public final class BlockOptimizer {
+  private static final Pattern temporaryName = Pattern.compile("t\\d+");
+  private final long address;
+  private final RReil[] code;
+  private final int[] instructionOf;
+  private final boolean[] isTarget;
+  private final Map<RReilAddr, Integer> indices = new HashMap<RReilAddr, Integer>();
+
+  private BlockOptimizer (long address, List<List<RReil>> instructions) {
+    this.address = address;
+    List<RReil> statements = new ArrayList<RReil>();
+    List<Integer> owners = new ArrayList<Integer>();
+    for (int i = 0; i < instructions.size(); i++) {
+      for (RReil stmt : instructions.get(i)) {
+        indices.put(stmt.getRReilAddress(), statements.size());
+        statements.add(stmt);
+        owners.add(i);
+      }
+    }
+    code = statements.toArray(new RReil[statements.size()]);
+    instructionOf = new int[code.length];
+    isTarget = new boolean[code.length];
+    for (int i = 0; i < code.length; i++) {
+      instructionOf[i] = owners.get(i);
+      if (code[i] instanceof BranchToRReil)
+        isTarget[targetOf(i)] = true;
+    }
+  }
+
+  /**
+   * Optimize the RREIL instructions of a block of native instructions.
+   *
+   * @param address The address of the first native instruction in the block.
+   * @param instructions The RREIL translation of each native instruction in the block in the order of execution.
+   * @return The optimized RREIL instructions. They are all located at the native address of the block.
+   */
+  public static List<RReil> optimize (long address, List<List<RReil>> instructions) {
+    BlockOptimizer optimizer = new BlockOptimizer(address, instructions);
+    optimizer.propagateCopies();
+    optimizer.removeDeadAssignments();
+    optimizer.coalesceTemporaries();
+    return optimizer.relocate();
+  }
+
+  static boolean isTemporary (MemVar region) {
+    return temporaryName.matcher(region.getName()).matches();
+  }
+
+  private int targetOf (int index) {
+    RReilAddr target = ((BranchToRReil) code[index]).getTarget().getAddress();
+    Integer targetIndex = indices.get(target);
+    if (targetIndex == null)
+      throw new IllegalArgumentException("The RREIL jump target " + target + " is not in the block.");
+    return targetIndex;
+  }
+
+  private boolean startsInstruction (int index) {
+    return index == 0 || instructionOf[index - 1] != instructionOf[index];
+  }
+
+  private void remove (int index) {
+    // the targets of jumps must be kept to be able to resolve the jumps later on
+    code[index] = isTarget[index] ? new Nop(code[index].getRReilAddress()) : null;
+  }
+
+  /**
+   * Replace the reads of variables that are known to be copies of other variables or literals and fold the constant
+   * expressions that result from it. The knowledge is lost at jump targets and at instructions with unknown effects.
+   */
+  private void propagateCopies () {
+    Map<Rvar, Rval> copies = new HashMap<Rvar, Rval>();
+    Substitution substitution = new Substitution(copies);
+    for (int i = 0; i < code.length; i++) {
+      if (isTarget[i])
+        copies.clear();
+      else if (startsInstruction(i))
+        forgetTemporaries(copies);
+      RReil stmt = code[i];
+      RReilAddr addr = stmt.getRReilAddress();
+      if (stmt instanceof Assign) {
+        Assign assign = (Assign) stmt;
+        Rhs rhs = fold(assign.getRhs().accept(substitution, null), assign.size());
+        Rvar lhs = assign.getLhs().asRvar();
+        forget(copies, lhs);
+        if ((rhs instanceof Rvar || rhs instanceof Rlit) && !overlap((Rval) rhs, lhs))
+          copies.put(lhs, (Rval) rhs);
+        if (rhs != assign.getRhs())
+          code[i] = new Assign(addr, assign.getLhs(), rhs);
+      } else if (stmt instanceof Load) {
+        Load load = (Load) stmt;
+        Lin readAddress = (Lin) load.getReadAddress().accept(substitution, null);
+        forget(copies, load.getLhs().asRvar());
+        if (readAddress != load.getReadAddress())
+          code[i] = new Load(addr, load.getLhs(), readAddress);
+      } else if (stmt instanceof Store) {
+        Store store = (Store) stmt;
+        Lin writeAddress = (Lin) store.getWriteAddress().accept(substitution, null);
+        Lin value = (Lin) store.getRhs().accept(substitution, null);
+        if (writeAddress != store.getWriteAddress() || value != store.getRhs())
+          code[i] = new Store(addr, writeAddress, value);
+      } else if (stmt instanceof BranchToNative) {
+        BranchToNative branch = (BranchToNative) stmt;
+        SimpleExpression cond = (SimpleExpression) branch.getCond().accept(substitution, null);
+        Lin target = (Lin) branch.getTarget().accept(substitution, null);
+        if (cond != branch.getCond() || target != branch.getTarget())
+          code[i] = new BranchToNative(addr, cond, target);
+      } else if (stmt instanceof BranchToRReil) {
+        BranchToRReil branch = (BranchToRReil) stmt;
+        SimpleExpression cond = (SimpleExpression) branch.getCond().accept(substitution, null);
+        if (cond != branch.getCond())
+          code[i] = new BranchToRReil(addr, cond, branch.getTarget());
+      } else if (stmt instanceof Branch) {
+        Branch branch = (Branch) stmt;
+        Lin target = (Lin) branch.getTarget().accept(substitution, null);
+        if (target != branch.getTarget())
+          code[i] = new Branch(addr, target, branch.getBranchType());
+      } else if (!(stmt instanceof Nop || stmt instanceof Assertion)) {
+        copies.clear();
+      }
+    }
+  }
+
+  private static void forget (Map<Rvar, Rval> copies, Rvar written) {
+    for (Iterator<Entry<Rvar, Rval>> iterator = copies.entrySet().iterator(); iterator.hasNext();) {
+      Entry<Rvar, Rval> copy = iterator.next();
+      if (overlap(copy.getKey(), written) || overlap(copy.getValue(), written))
+        iterator.remove();
+    }
+  }
+
+  private static void forgetTemporaries (Map<Rvar, Rval> copies) {
+    for (Iterator<Entry<Rvar, Rval>> iterator = copies.entrySet().iterator(); iterator.hasNext();) {
+      Entry<Rvar, Rval> copy = iterator.next();
+      Rval value = copy.getValue();
+      if (isTemporary(copy.getKey().getRegionId()) || value instanceof Rvar && isTemporary(((Rvar) value).getRegionId()))
+        iterator.remove();
+    }
+  }
+
+  private static boolean overlap (Rval value, Rvar variable) {
+    if (!(value instanceof Rvar))
+      return false;
+    Rvar other = (Rvar) value;
+    return other.getRegionId().equals(variable.getRegionId())
+      && other.getOffset() < variable.getOffset() + variable.getSize()
+      && variable.getOffset() < other.getOffset() + other.getSize();
+  }
+
+  private static boolean overlapsAny (List<Rvar> variables, Rvar variable) {
+    for (Rvar other : variables) {
+      if (overlap(other, variable))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return The literal that the expression evaluates to or the expression itself if it cannot be folded.
+   */
+  private static Rhs fold (Rhs rhs, int size) {
+    BigInt value = null;
+    if (rhs instanceof Bin) {
+      Bin bin = (Bin) rhs;
+      if (bin.getLeft() instanceof Rvar && bin.getLeft().equals(bin.getRight())
+        && (bin.getOp() == BinOp.Xor || bin.getOp() == BinOp.Sub))
+        value = BigInt.of(0);
+      else
+        value = fold(bin.getOp(), literalOf(bin.getLeft()), literalOf(bin.getRight()), size);
+    } else if (rhs instanceof LinBin) {
+      LinBin bin = (LinBin) rhs;
+      BigInt left = literalOf(bin.getLeft());
+      BigInt right = literalOf(bin.getRight());
+      if (left != null && right != null)
+        value = bin.getOp() == LinBinOp.Add ? left.add(right) : left.sub(right);
+    } else if (rhs instanceof LinScale) {
+      LinScale scale = (LinScale) rhs;
+      BigInt operand = literalOf(scale.getOpnd());
+      if (operand != null && scale.getConst().sign() >= 0)
+        value = operand.mul(scale.getConst());
+    } else if (rhs instanceof Cmp) {
+      Cmp cmp = (Cmp) rhs;
+      value = fold(cmp.getOp(), literalOf(cmp.getLeft()), literalOf(cmp.getRight()), cmp.getLeft().getSize());
+    } else if (rhs instanceof SignExtend) {
+      Rval operand = ((SignExtend) rhs).getRhs();
+      if (operand.getSize() > 1)
+        value = literalOf(operand);
+    } else if (rhs instanceof Convert) {
+      value = literalOf(((Convert) rhs).getRhs());
+    }
+    if (value == null || !isUnambiguous(value, size))
+      return rhs;
+    return new Rlit(size, value);
+  }
+
+  private static BigInt fold (BinOp op, BigInt left, BigInt right, int size) {
+    if (left == null || right == null)
+      return null;
+    boolean signed = op == BinOp.Divs || op == BinOp.Mods || op == BinOp.Shrs;
+    if (signed && size == 1)
+      return null;
+    switch (op) {
+    case Add:
+      return left.add(right);
+    case Sub:
+      return left.sub(right);
+    case Mul:
+      return left.mul(right);
+    case Divu:
+    case Divs:
+      return right.sign() == 0 ? null : left.divRoundZero(right);
+    case Mod:
+    case Mods:
+      return right.sign() == 0 ? null : left.mod(right);
+    case Shl:
+      return right.isLessThan(BigInt.of(size)) ? left.shl(right.intValue()) : null;
+    case Shr:
+    case Shrs:
+      return right.isLessThan(BigInt.of(size)) ? left.shr(right.intValue()) : null;
+    case Xor:
+      return left.xor(right);
+    case Or:
+      return left.or(right);
+    case And:
+      return left.and(right);
+    default:
+      return null;
+    }
+  }
+
+  private static BigInt fold (ComparisonOp op, BigInt left, BigInt right, int size) {
+    if (left == null || right == null)
+      return null;
+    if ((op == ComparisonOp.Cmples || op == ComparisonOp.Cmplts) && size == 1)
+      return null;
+    boolean result;
+    switch (op) {
+    case Cmpeq:
+      result = left.isEqualTo(right);
+      break;
+    case Cmpneq:
+      result = !left.isEqualTo(right);
+      break;
+    case Cmples:
+    case Cmpleu:
+      result = !left.isGreaterThan(right);
+      break;
+    case Cmplts:
+    case Cmpltu:
+      result = left.isLessThan(right);
+      break;
+    default:
+      return null;
+    }
+    return result ? BigInt.of(1) : BigInt.of(0);
+  }
+
+  /**
+   * @return The value of a literal that means the same as a signed and as an unsigned number or {@code null}.
+   */
+  private static BigInt literalOf (Rhs rhs) {
+    if (rhs instanceof LinRval)
+      rhs = ((LinRval) rhs).getRval();
+    if (!(rhs instanceof Rlit))
+      return null;
+    Rlit literal = (Rlit) rhs;
+    return isUnambiguous(literal.getValue(), literal.getSize()) ? literal.getValue() : null;
+  }
+
+  private static boolean isUnambiguous (BigInt value, int size) {
+    if (value.sign() < 0)
+      return false;
+    if (size == 1)
+      return !value.isGreaterThan(BigInt.of(1));
+    return value.isLessThan(BigInt.powerOfTwo(size - 1));
+  }
+
+  /**
+   * Remove the assignments to variables that are not read before being overwritten. All registers are live at the end
+   * of the block and at instructions with unknown effects. Temporaries are dead at the boundaries of the native
+   * instructions.
+   */
+  private void removeDeadAssignments () {
+    Liveness live = new Liveness();
+    Map<Integer, Liveness> liveAtTargets = new HashMap<Integer, Liveness>();
+    for (int i = code.length - 1; i >= 0; i--) {
+      RReil stmt = code[i];
+      if (stmt instanceof Assign) {
+        Assign assign = (Assign) stmt;
+        Rvar lhs = assign.getLhs().asRvar();
+        if (!live.isLive(lhs) && !mayFail(assign.getRhs())) {
+          remove(i);
+        } else {
+          live.kill(lhs);
+          live.genAll(RvarExtractor.getRhs(stmt));
+        }
+      } else if (stmt instanceof Load) {
+        live.kill(((Load) stmt).getLhs().asRvar());
+        live.genAll(RvarExtractor.getRhs(stmt));
+      } else if (stmt instanceof Store) {
+        live.genAll(RvarExtractor.getRhs(stmt));
+      } else if (stmt instanceof BranchToRReil) {
+        Liveness liveAtTarget = liveAtTargets.get(targetOf(i));
+        if (liveAtTarget == null)
+          live.reviveAll(); // backward jumps are not tracked
+        else
+          live.join(liveAtTarget);
+        live.genAll(RvarExtractor.getRhs(stmt));
+      } else if (stmt instanceof Nop) {
+        remove(i);
+      } else if (stmt instanceof Assertion) {
+        live.reviveAll();
+      } else {
+        live.reviveRegisters();
+        live.genAll(RvarExtractor.getRhs(stmt));
+      }
+      if (isTarget[i])
+        liveAtTargets.put(i, live.copy());
+      if (startsInstruction(i))
+        live.forgetTemporaries();
+    }
+  }
+
+  private static boolean mayFail (Rhs rhs) {
+    if (!(rhs instanceof Bin))
+      return false;
+    switch (((Bin) rhs).getOp()) {
+    case Divu:
+    case Divs:
+    case Mod:
+    case Mods:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Replace a temporary that is only used to copy the result of an operation or a load to a register by the
+   * register, i.e. {@code t := a + b; r := t} becomes {@code r := a + b}.
+   */
+  private void coalesceTemporaries () {
+    for (int j = 0; j < code.length; j++) {
+      if (!(code[j] instanceof Assign))
+        continue;
+      Assign copy = (Assign) code[j];
+      if (!(copy.getRhs() instanceof Rvar))
+        continue;
+      Rvar temporary = (Rvar) copy.getRhs();
+      if (!isTemporary(temporary.getRegionId()) || isTemporary(copy.getLhs().getRegionId()))
+        continue;
+      int i = definitionOf(temporary, j);
+      if (i < 0 || readsOf(temporary, instructionOf[j]) != 1)
+        continue;
+      if (code[i] instanceof Load)
+        code[j] = new Load(copy.getRReilAddress(), copy.getLhs(), ((Load) code[i]).getReadAddress());
+      else
+        code[j] = new Assign(copy.getRReilAddress(), copy.getLhs(), ((Assign) code[i]).getRhs());
+      remove(i);
+    }
+  }
+
+  /**
+   * @return The index of the assignment or load to the temporary that is read at {@code use} if the assigned
+   *         expression can be moved to {@code use} or {@code -1}.
+   */
+  private int definitionOf (Rvar temporary, int use) {
+    List<Rvar> written = new ArrayList<Rvar>();
+    boolean memoryWritten = false;
+    for (int i = use - 1; i >= 0 && instructionOf[i] == instructionOf[use]; i--) {
+      RReil stmt = code[i];
+      if (stmt == null)
+        continue;
+      if (isTarget[i + 1] || !(stmt instanceof Assign || stmt instanceof Load || stmt instanceof Store))
+        return -1;
+      boolean defines = stmt instanceof Assign && ((Assign) stmt).getLhs().asRvar().equals(temporary)
+        || stmt instanceof Load && !memoryWritten && ((Load) stmt).getLhs().asRvar().equals(temporary);
+      if (defines) {
+        for (Rvar operand : RvarExtractor.getRhs(stmt)) {
+          if (overlapsAny(written, operand))
+            return -1;
+        }
+        return i;
+      }
+      memoryWritten |= stmt instanceof Store;
+      written.addAll(RvarExtractor.getLhs(stmt));
+      if (overlapsAny(written, temporary))
+        return -1;
+    }
+    return -1;
+  }
+
+  private int readsOf (Rvar temporary, int instruction) {
+    int reads = 0;
+    for (int i = 0; i < code.length; i++) {
+      if (code[i] == null || instructionOf[i] != instruction)
+        continue;
+      for (Rvar variable : RvarExtractor.getRhs(code[i])) {
+        if (overlap(variable, temporary))
+          reads++;
+      }
+    }
+    return reads;
+  }
+
+  /**
+   * Place the remaining instructions consecutively at the address of the block.
+   */
+  private List<RReil> relocate () {
+    int[] offsets = new int[code.length];
+    int offset = 0;
+    for (int i = 0; i < code.length; i++) {
+      offsets[i] = offset;
+      if (code[i] != null)
+        offset++;
+    }
+    List<RReil> result = new ArrayList<RReil>(offset);
+    for (int i = 0; i < code.length; i++) {
+      if (code[i] == null)
+        continue;
+      RReilAddr addr = RReilAddr.valueOf(address, offsets[i]);
+      if (code[i] instanceof BranchToRReil) {
+        BranchToRReil branch = (BranchToRReil) code[i];
+        Address target = branch.getTarget();
+        RReilAddr relocatedTarget = RReilAddr.valueOf(address, offsets[targetOf(i)]);
+        result.add(new BranchToRReil(addr, branch.getCond(), new Address(target.getSize(), relocatedTarget)));
+      } else {
+        result.add(relocate(code[i], addr));
+      }
+    }
+    if (result.isEmpty())
+      result.add(new Nop(RReilAddr.valueOf(address)));
+    return result;
+  }
+
+  private static RReil relocate (RReil stmt, RReilAddr addr) {
+    if (stmt instanceof Assign) {
+      Assign assign = (Assign) stmt;
+      return new Assign(addr, assign.getLhs(), assign.getRhs());
+    } else if (stmt instanceof Load) {
+      Load load = (Load) stmt;
+      return new Load(addr, load.getLhs(), load.getReadAddress());
+    } else if (stmt instanceof Store) {
+      Store store = (Store) stmt;
+      return new Store(addr, store.getWriteAddress(), store.getRhs());
+    } else if (stmt instanceof BranchToNative) {
+      BranchToNative branch = (BranchToNative) stmt;
+      return new BranchToNative(addr, branch.getCond(), branch.getTarget());
+    } else if (stmt instanceof Branch) {
+      Branch branch = (Branch) stmt;
+      return new Branch(addr, branch.getTarget(), branch.getBranchType());
+    } else if (stmt instanceof Nop) {
+      return new Nop(addr);
+    } else if (stmt instanceof PrimOp) {
+      PrimOp prim = (PrimOp) stmt;
+      return new PrimOp(addr, prim.getName(), prim.getOutArgs(), prim.getInArgs());
+    } else if (stmt instanceof Native) {
+      Native nativeInsn = (Native) stmt;
+      return new Native(addr, nativeInsn.getName(), nativeInsn.getOpnd());
+    } else if (stmt instanceof Throw) {
+      return new Throw(addr, ((Throw) stmt).getException());
+    } else if (stmt instanceof Flop) {
+      Flop flop = (Flop) stmt;
+      return new Flop(addr, flop.getOp(), flop.getLhs(), flop.getRhs(), flop.getFlags());
+    } else if (stmt instanceof AssertionCompare) {
+      AssertionCompare assertion = (AssertionCompare) stmt;
+      return new AssertionCompare(addr, assertion.getLhs(), assertion.getOperator(), assertion.getRhs(),
+        assertion.getSize());
+    } else if (stmt instanceof AssertionReachable) {
+      return new AssertionReachable(addr);
+    } else if (stmt instanceof AssertionUnreachable) {
+      return new AssertionUnreachable(addr);
+    } else if (stmt instanceof AssertionWarnings) {
+      return new AssertionWarnings(addr, ((AssertionWarnings) stmt).getNumberOfExpectedWarnings());
+    }
+    throw new IllegalArgumentException("Cannot relocate the RREIL instruction " + stmt);
+  }
+
+  /**
+   * The bits of the variables that may be read before being overwritten. Registers are live unless they are known to
+   * be overwritten and temporaries are dead unless they are known to be read.
+   */
+  private static final class Liveness {
+    private final Map<MemVar, BitSet> deadRegisters = new HashMap<MemVar, BitSet>();
+    private final Map<MemVar, BitSet> liveTemporaries = new HashMap<MemVar, BitSet>();
+    private boolean allTemporariesLive = false;
+
+    boolean isLive (Rvar variable) {
+      MemVar region = variable.getRegionId();
+      int from = variable.getOffset();
+      int to = from + variable.getSize();
+      if (isTemporary(region)) {
+        if (allTemporariesLive)
+          return true;
+        BitSet live = liveTemporaries.get(region);
+        return live != null && live.nextSetBit(from) >= 0 && live.nextSetBit(from) < to;
+      }
+      BitSet dead = deadRegisters.get(region);
+      return dead == null || dead.nextClearBit(from) < to;
+    }
+
+    void kill (Rvar variable) {
+      MemVar region = variable.getRegionId();
+      int from = variable.getOffset();
+      int to = from + variable.getSize();
+      if (isTemporary(region)) {
+        BitSet live = liveTemporaries.get(region);
+        if (live != null)
+          live.clear(from, to);
+      } else {
+        bitsOf(deadRegisters, region).set(from, to);
+      }
+    }
+
+    void gen (Rvar variable) {
+      MemVar region = variable.getRegionId();
+      int from = variable.getOffset();
+      int to = from + variable.getSize();
+      if (isTemporary(region)) {
+        bitsOf(liveTemporaries, region).set(from, to);
+      } else {
+        BitSet dead = deadRegisters.get(region);
+        if (dead != null)
+          dead.clear(from, to);
+      }
+    }
+
+    void genAll (List<Rvar> variables) {
+      for (Rvar variable : variables) {
+        gen(variable);
+      }
+    }
+
+    void reviveRegisters () {
+      deadRegisters.clear();
+    }
+
+    void reviveAll () {
+      deadRegisters.clear();
+      allTemporariesLive = true;
+    }
+
+    void forgetTemporaries () {
+      liveTemporaries.clear();
+      allTemporariesLive = false;
+    }
+
+    void join (Liveness other) {
+      for (Iterator<Entry<MemVar, BitSet>> iterator = deadRegisters.entrySet().iterator(); iterator.hasNext();) {
+        Entry<MemVar, BitSet> entry = iterator.next();
+        BitSet otherDead = other.deadRegisters.get(entry.getKey());
+        if (otherDead == null)
+          iterator.remove();
+        else
+          entry.getValue().and(otherDead);
+      }
+      for (Entry<MemVar, BitSet> entry : other.liveTemporaries.entrySet()) {
+        bitsOf(liveTemporaries, entry.getKey()).or(entry.getValue());
+      }
+      allTemporariesLive |= other.allTemporariesLive;
+    }
+
+    Liveness copy () {
+      Liveness copy = new Liveness();
+      for (Entry<MemVar, BitSet> entry : deadRegisters.entrySet()) {
+        copy.deadRegisters.put(entry.getKey(), (BitSet) entry.getValue().clone());
+      }
+      for (Entry<MemVar, BitSet> entry : liveTemporaries.entrySet()) {
+        copy.liveTemporaries.put(entry.getKey(), (BitSet) entry.getValue().clone());
+      }
+      copy.allTemporariesLive = allTemporariesLive;
+      return copy;
+    }
+
+    private static BitSet bitsOf (Map<MemVar, BitSet> map, MemVar region) {
+      BitSet bits = map.get(region);
+      if (bits == null) {
+        bits = new BitSet();
+        map.put(region, bits);
+      }
+      return bits;
+    }
+  }
+
+  /**
+   * Replaces the variables in an expression by the values they are known to be equal to. Returns the same expression
+   * if nothing was replaced.
+   */
+  private static final class Substitution implements RhsVisitor<Rhs, Void> {
+    private final Map<Rvar, Rval> copies;
+
+    Substitution (Map<Rvar, Rval> copies) {
+      this.copies = copies;
+    }
+
+    private Rval substitute (Rval value) {
+      return (Rval) value.accept(this, null);
+    }
+
+    private Lin substitute (Lin value) {
+      return (Lin) value.accept(this, null);
+    }
+
+    @Override public Rhs visit (Bin expr, Void _) {
+      Rval left = substitute(expr.getLeft());
+      Rval right = substitute(expr.getRight());
+      if (left == expr.getLeft() && right == expr.getRight())
+        return expr;
+      return new Bin(left, expr.getOp(), right);
+    }
+
+    @Override public Rhs visit (LinBin expr, Void _) {
+      Lin left = substitute(expr.getLeft());
+      Lin right = substitute(expr.getRight());
+      if (left == expr.getLeft() && right == expr.getRight())
+        return expr;
+      return new LinBin(left, expr.getOp(), right);
+    }
+
+    @Override public Rhs visit (LinScale expr, Void _) {
+      Lin operand = substitute(expr.getOpnd());
+      if (operand == expr.getOpnd())
+        return expr;
+      return new LinScale(operand, expr.getConst());
+    }
+
+    @Override public Rhs visit (LinRval expr, Void _) {
+      Rval value = substitute(expr.getRval());
+      if (value == expr.getRval())
+        return expr;
+      return new LinRval(value);
+    }
+
+    @Override public Rhs visit (Cmp expr, Void _) {
+      Lin left = substitute(expr.getLeft());
+      Lin right = substitute(expr.getRight());
+      if (left == expr.getLeft() && right == expr.getRight())
+        return expr;
+      return new Cmp(left, expr.getOp(), right);
+    }
+
+    @Override public Rhs visit (SignExtend expr, Void _) {
+      Rval value = substitute(expr.getRhs());
+      if (value == expr.getRhs())
+        return expr;
+      return new SignExtend(value);
+    }
+
+    @Override public Rhs visit (Convert expr, Void _) {
+      Rval value = substitute(expr.getRhs());
+      if (value == expr.getRhs())
+        return expr;
+      return new Convert(value);
+    }
+
+    @Override public Rhs visit (Rvar expr, Void _) {
+      Rval value = copies.get(expr);
+      return value == null ? expr : value;
+    }
+
+    @Override public Rhs visit (Rlit expr, Void _) {
+      return expr;
+    }
+
+    @Override public Rhs visit (Address expr, Void _) {
+      return expr;
+    }
+
+    @Override public Rhs visit (RangeRhs expr, Void _) {
+      return expr;
+    }
+  }
+}
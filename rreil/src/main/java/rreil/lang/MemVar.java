@@ -1,23 +1,31 @@
 package rreil.lang;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import rreil.lang.util.StampGen;
+import rreil.lang.util.VariableFactory;
 
 /**
  * A class representing a memory region in the analyzer for which fields are tracked.
+ * Variables can be created concurrently from several threads. The stamps of new variables are allocated by the
+ * {@link VariableFactory} of the current thread. A variable that is registered under its name keeps its stamp for the
+ * life of the JVM, thus the order of the named variables, e.g. the registers, does not depend on when they are
+ * looked up. The names are the ones used in the analyzed code and the domains, thus their number stays bounded.
  *
  * @author Axel Simon
  */
 public class MemVar implements Comparable<MemVar>, Reconstructable {
-  private static StampGen stamps = new StampGen();
-  private static Map<MemVar, String> names = new TreeMap<>();
-  private static Map<String, MemVar> reverse = new TreeMap<>();
+  // only the lookup by name needs a global table, the name itself is stored in the variable
+  private static ConcurrentMap<String, MemVar> reverse = new ConcurrentHashMap<>();
   public final int stamp;
+  private volatile String name;
 
   private MemVar () {
-    stamp = stamps.next();
+    stamp = VariableFactory.current().nextStamp();
+  }
+
+  private static MemVar created (MemVar var) {
+    return VariableFactory.current().created(var.stamp, var);
   }
 
   /**
@@ -26,7 +34,7 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
    * @return the new variable
    */
   public static MemVar fresh () {
-    return new MemVar();
+    return created(new MemVar());
   }
 
   /**
@@ -35,7 +43,7 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
    * @return the new variable
    */
   public static MemVar fresh (String name) {
-    MemVar var = new MemVar();
+    MemVar var = created(new MemVar());
     var.setName(name);
     return var;
   }
@@ -45,7 +53,7 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
    * @return
    */
   public static MemVar freshTemporary () {
-    MemVar var = new MemVar();
+    MemVar var = created(new MemVar());
     var.setName("_t" + var.stamp);
     return var;
   }
@@ -58,11 +66,14 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
    */
   public static MemVar getVarOrFresh (String name) {
     MemVar var = reverse.get(name);
-    if (var == null) {
-      var = new MemVar();
-      var.setName(name);
-    }
-    return var;
+    if (var != null)
+      return var;
+    MemVar freshVar = created(new MemVar());
+    freshVar.name = name;
+    if (!VariableFactory.mayRegisterNames())
+      return freshVar;
+    var = reverse.putIfAbsent(name, freshVar);
+    return var != null ? var : freshVar;
   }
 
   /**
@@ -80,19 +91,19 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
   public void setName (String name) {
     if (name == null || name.isEmpty())
       return;
-    names.put(this, name);
-    reverse.put(name, this);
+    this.name = name;
+    if (VariableFactory.mayRegisterNames())
+      reverse.put(name, this);
   }
 
   /**
-   * Return the name of this variable.
+   * Return the name of this variable. A variable without a name is printed with its stamp but the printed name is
+   * not registered for the lookup by name.
    */
   public String getName () {
-    String name = names.get(this);
-    if (name == null) {
-      name = "m" + stamp;
-      setName(name);
-    }
+    String name = this.name;
+    if (name == null)
+      return "m" + stamp;
     return name;
   }
 
@@ -114,7 +125,7 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
   }
 
   @Override public String reconstructCode () {
-    return "MemVar.getVarOrFresh(\"" + names.get(this) + "\")";
+    return "MemVar.getVarOrFresh(\"" + name + "\")";
   }
 
   /**
@@ -122,8 +133,7 @@ public class MemVar implements Comparable<MemVar>, Reconstructable {
    * Use with care!
    */
   public static void reset () {
-    stamps = new StampGen();
-    names = new TreeMap<MemVar, String>();
-    reverse = new TreeMap<String, MemVar>();
+    VariableFactory.reset();
+    reverse = new ConcurrentHashMap<>();
   }
 }
@@ -0,0 +1,581 @@
+package rreil.lang.util;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javalx.numeric.BigInt;
+import javalx.numeric.Interval;
+import rreil.lang.AssertionOp;
+import rreil.lang.BinOp;
+import rreil.lang.ComparisonOp;
+import rreil.lang.FlopOp;
+import rreil.lang.Lhs;
+import rreil.lang.LinBinOp;
+import rreil.lang.MemVar;
+import rreil.lang.RReil;
+import rreil.lang.RReil.Assertion;
+import rreil.lang.RReil.Assertion.AssertionCompare;
+import rreil.lang.RReil.Assertion.AssertionReachable;
+import rreil.lang.RReil.Assertion.AssertionUnreachable;
+import rreil.lang.RReil.Assertion.AssertionWarnings;
+import rreil.lang.RReil.Assign;
+import rreil.lang.RReil.Branch;
+import rreil.lang.RReil.Branch.BranchTypeHint;
+import rreil.lang.RReil.BranchToNative;
+import rreil.lang.RReil.BranchToRReil;
+import rreil.lang.RReil.Flop;
+import rreil.lang.RReil.Load;
+import rreil.lang.RReil.Native;
+import rreil.lang.RReil.Nop;
+import rreil.lang.RReil.PrimOp;
+import rreil.lang.RReil.Store;
+import rreil.lang.RReil.Throw;
+import rreil.lang.RReilAddr;
+import rreil.lang.Rhs;
+import rreil.lang.Rhs.Address;
+import rreil.lang.Rhs.Bin;
+import rreil.lang.Rhs.Cmp;
+import rreil.lang.Rhs.Convert;
+import rreil.lang.Rhs.Lin;
+import rreil.lang.Rhs.LinBin;
+import rreil.lang.Rhs.LinRval;
+import rreil.lang.Rhs.LinScale;
+import rreil.lang.Rhs.RangeRhs;
+import rreil.lang.Rhs.Rlit;
+import rreil.lang.Rhs.Rval;
+import rreil.lang.Rhs.Rvar;
+import rreil.lang.Rhs.SignExtend;
+import rreil.lang.Rhs.SimpleExpression;
+
+/**
+ * A compact binary encoding of RREIL instructions. Unlike the assembler syntax it represents every instruction
+ * exactly and is much cheaper to read back than parsing. All strings, e.g. the names of the variables, are stored
+ * once in a string table that is shared by all the instructions written with the same {@link Writer}.
+ * The decoded variables are looked up by their names, see {@link MemVar#getVarOrFresh(String)}.
+ */
+public class RReilSerializer {
+  private static final byte ASSIGN = 1;
+  private static final byte LOAD = 2;
+  private static final byte STORE = 3;
+  private static final byte BRANCHTONATIVE = 4;
+  private static final byte BRANCHTORREIL = 5;
+  private static final byte BRANCH = 6;
+  private static final byte NOP = 7;
+  private static final byte PRIMOP = 8;
+  private static final byte NATIVE = 9;
+  private static final byte THROW = 10;
+  private static final byte FLOP = 11;
+  private static final byte ASSERTCOMPARE = 12;
+  private static final byte ASSERTREACHABLE = 13;
+  private static final byte ASSERTUNREACHABLE = 14;
+  private static final byte ASSERTWARNINGS = 15;
+
+  private static final byte BIN = 1;
+  private static final byte LINBIN = 2;
+  private static final byte LINSCALE = 3;
+  private static final byte LINRVAL = 4;
+  private static final byte CMP = 5;
+  private static final byte SIGNEXTEND = 6;
+  private static final byte CONVERT = 7;
+  private static final byte RVAR = 8;
+  private static final byte RLIT = 9;
+  private static final byte ADDRESS = 10;
+  private static final byte RANGE = 11;
+
+  /**
+   * Encodes instructions to a growing byte array.
+   */
+  public static class Writer {
+    private final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+    private byte[] buffer = new byte[4096];
+    private int size = 0;
+    private final StmtWriter stmtWriter = new StmtWriter();
+    private final RhsWriter rhsWriter = new RhsWriter();
+
+    public Writer () {
+    }
+
+    /**
+     * Continue a string table that was written before. Instructions encoded by the previous writer
+     * can then be stored together with the ones encoded by this writer.
+     */
+    public Writer (List<String> previousStrings) {
+      for (String string : previousStrings) {
+        stringIndex(string);
+      }
+    }
+
+    /**
+     * Append the encoding of the given instruction.
+     */
+    public void write (RReil stmt) {
+      stmt.accept(stmtWriter, null);
+    }
+
+    /**
+     * Append the given raw bytes, e.g. an instruction that was encoded using the same string table.
+     */
+    public void writeBytes (byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, size, bytes.length);
+      size += bytes.length;
+    }
+
+    public void writeByte (int value) {
+      ensureCapacity(1);
+      buffer[size++] = (byte) value;
+    }
+
+    public void writeInt (int value) {
+      ensureCapacity(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    public void writeLong (long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    public void writeString (String value) {
+      writeInt(stringIndex(value));
+    }
+
+    private int stringIndex (String value) {
+      Integer index = stringIndices.get(value);
+      if (index == null) {
+        index = strings.size();
+        strings.add(value);
+        stringIndices.put(value, index);
+      }
+      return index;
+    }
+
+    private void ensureCapacity (int additional) {
+      if (size + additional > buffer.length)
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+    }
+
+    /**
+     * Return the number of bytes written so far.
+     */
+    public int size () {
+      return size;
+    }
+
+    /**
+     * Return the strings referenced by the encoded instructions. They must be passed to the {@link Reader}.
+     */
+    public List<String> getStrings () {
+      return strings;
+    }
+
+    public byte[] toByteArray () {
+      return Arrays.copyOf(buffer, size);
+    }
+
+    private void writeAddress (RReilAddr address) {
+      writeLong(address.base());
+      writeInt(address.offset());
+    }
+
+    private void writeLhs (Lhs lhs) {
+      writeInt(lhs.getSize());
+      writeInt(lhs.getOffset());
+      writeString(lhs.getRegionId().getName());
+    }
+
+    private void writeRhs (Rhs rhs) {
+      rhs.accept(rhsWriter, null);
+    }
+
+    private void writeBigInt (BigInt value) {
+      byte[] bytes = value.bigIntegerValue().toByteArray();
+      writeByte(bytes.length);
+      writeBytes(bytes);
+    }
+
+    private class StmtWriter implements RReilVisitor<Void, Void> {
+      @Override public Void visit (Assign stmt, Void data) {
+        writeByte(ASSIGN);
+        writeAddress(stmt.getRReilAddress());
+        writeLhs(stmt.getLhs());
+        writeRhs(stmt.getRhs());
+        return null;
+      }
+
+      @Override public Void visit (Load stmt, Void data) {
+        writeByte(LOAD);
+        writeAddress(stmt.getRReilAddress());
+        writeLhs(stmt.getLhs());
+        writeRhs(stmt.getReadAddress());
+        return null;
+      }
+
+      @Override public Void visit (Store stmt, Void data) {
+        writeByte(STORE);
+        writeAddress(stmt.getRReilAddress());
+        writeRhs(stmt.getWriteAddress());
+        writeRhs(stmt.getRhs());
+        return null;
+      }
+
+      @Override public Void visit (BranchToNative stmt, Void data) {
+        writeByte(BRANCHTONATIVE);
+        writeAddress(stmt.getRReilAddress());
+        writeRhs(stmt.getCond());
+        writeRhs(stmt.getTarget());
+        return null;
+      }
+
+      @Override public Void visit (BranchToRReil stmt, Void data) {
+        writeByte(BRANCHTORREIL);
+        writeAddress(stmt.getRReilAddress());
+        writeRhs(stmt.getCond());
+        writeRhs(stmt.getTarget());
+        return null;
+      }
+
+      @Override public Void visit (Nop stmt, Void data) {
+        writeByte(NOP);
+        writeAddress(stmt.getRReilAddress());
+        return null;
+      }
+
+      @Override public Void visit (Assertion stmt, Void data) {
+        if (stmt instanceof AssertionCompare) {
+          AssertionCompare assertion = (AssertionCompare) stmt;
+          writeByte(ASSERTCOMPARE);
+          writeAddress(stmt.getRReilAddress());
+          writeRhs(assertion.getLhs());
+          writeByte(assertion.getOperator().ordinal());
+          writeRhs(assertion.getRhs());
+          writeInt(assertion.getSize());
+        } else if (stmt instanceof AssertionReachable) {
+          writeByte(ASSERTREACHABLE);
+          writeAddress(stmt.getRReilAddress());
+        } else if (stmt instanceof AssertionUnreachable) {
+          writeByte(ASSERTUNREACHABLE);
+          writeAddress(stmt.getRReilAddress());
+        } else if (stmt instanceof AssertionWarnings) {
+          writeByte(ASSERTWARNINGS);
+          writeAddress(stmt.getRReilAddress());
+          writeInt(((AssertionWarnings) stmt).getNumberOfExpectedWarnings());
+        } else {
+          throw new IllegalArgumentException("Unknown assertion: " + stmt);
+        }
+        return null;
+      }
+
+      @Override public Void visit (Branch stmt, Void data) {
+        writeByte(BRANCH);
+        writeAddress(stmt.getRReilAddress());
+        writeRhs(stmt.getTarget());
+        writeByte(stmt.getBranchType().ordinal());
+        return null;
+      }
+
+      @Override public Void visit (PrimOp stmt, Void data) {
+        writeByte(PRIMOP);
+        writeAddress(stmt.getRReilAddress());
+        writeString(stmt.getName());
+        writeInt(stmt.getOutArgs().size());
+        for (Lhs arg : stmt.getOutArgs()) {
+          writeLhs(arg);
+        }
+        writeInt(stmt.getInArgs().size());
+        for (Rval arg : stmt.getInArgs()) {
+          writeRhs(arg);
+        }
+        return null;
+      }
+
+      @Override public Void visit (Native stmt, Void data) {
+        writeByte(NATIVE);
+        writeAddress(stmt.getRReilAddress());
+        writeString(stmt.getName());
+        writeRhs(stmt.getOpnd());
+        return null;
+      }
+
+      @Override public Void visit (Throw stmt, Void data) {
+        writeByte(THROW);
+        writeAddress(stmt.getRReilAddress());
+        writeString(stmt.getException());
+        return null;
+      }
+
+      @Override public Void visit (Flop stmt, Void data) {
+        writeByte(FLOP);
+        writeAddress(stmt.getRReilAddress());
+        writeByte(stmt.getOp().ordinal());
+        writeRhs(stmt.getLhs());
+        writeInt(stmt.getRhs().size());
+        for (Rvar arg : stmt.getRhs()) {
+          writeRhs(arg);
+        }
+        writeRhs(stmt.getFlags());
+        return null;
+      }
+    }
+
+    private class RhsWriter implements RhsVisitor<Void, Void> {
+      @Override public Void visit (Bin expr, Void data) {
+        writeByte(BIN);
+        writeRhs(expr.getLeft());
+        writeByte(expr.getOp().ordinal());
+        writeRhs(expr.getRight());
+        return null;
+      }
+
+      @Override public Void visit (LinBin expr, Void data) {
+        writeByte(LINBIN);
+        writeRhs(expr.getLeft());
+        writeByte(expr.getOp().ordinal());
+        writeRhs(expr.getRight());
+        return null;
+      }
+
+      @Override public Void visit (LinScale expr, Void data) {
+        writeByte(LINSCALE);
+        writeRhs(expr.getOpnd());
+        writeBigInt(expr.getConst());
+        return null;
+      }
+
+      @Override public Void visit (LinRval expr, Void data) {
+        writeByte(LINRVAL);
+        writeRhs(expr.getRval());
+        return null;
+      }
+
+      @Override public Void visit (Cmp expr, Void data) {
+        writeByte(CMP);
+        writeRhs(expr.getLeft());
+        writeByte(expr.getOp().ordinal());
+        writeRhs(expr.getRight());
+        return null;
+      }
+
+      @Override public Void visit (SignExtend expr, Void data) {
+        writeByte(SIGNEXTEND);
+        writeRhs(expr.getRhs());
+        return null;
+      }
+
+      @Override public Void visit (Convert expr, Void data) {
+        writeByte(CONVERT);
+        writeRhs(expr.getRhs());
+        return null;
+      }
+
+      @Override public Void visit (Rvar expr, Void data) {
+        writeByte(RVAR);
+        writeInt(expr.getSize());
+        writeInt(expr.getOffset());
+        writeString(expr.getRegionId().getName());
+        return null;
+      }
+
+      @Override public Void visit (Rlit expr, Void data) {
+        writeByte(RLIT);
+        writeInt(expr.getSize());
+        writeBigInt(expr.getValue());
+        return null;
+      }
+
+      @Override public Void visit (Address expr, Void data) {
+        writeByte(ADDRESS);
+        writeInt(expr.getSize());
+        writeAddress(expr.getAddress());
+        return null;
+      }
+
+      @Override public Void visit (RangeRhs expr, Void data) {
+        writeByte(RANGE);
+        writeInt(expr.getSize());
+        writeString(expr.getRange().toString());
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Decodes instructions from a buffer, e.g. a memory mapped file, starting at the current position of the buffer.
+   */
+  public static class Reader {
+    private final ByteBuffer in;
+    private final List<String> strings;
+    private final MemVar[] variables;
+
+    /**
+     * @param in The buffer holding the encoded instructions.
+     * @param strings The string table of the {@link Writer} that encoded the instructions.
+     */
+    public Reader (ByteBuffer in, List<String> strings) {
+      this.in = in;
+      this.strings = strings;
+      this.variables = new MemVar[strings.size()];
+    }
+
+    /**
+     * Set the position in the buffer from where the next instruction is read.
+     */
+    public void position (int position) {
+      in.position(position);
+    }
+
+    public RReil read () {
+      byte tag = in.get();
+      RReilAddr address = readAddress();
+      switch (tag) {
+      case ASSIGN:
+        return new Assign(address, readLhs(), readRhs());
+      case LOAD:
+        return new Load(address, readLhs(), (Lin) readRhs());
+      case STORE:
+        return new Store(address, (Lin) readRhs(), (Lin) readRhs());
+      case BRANCHTONATIVE:
+        return new BranchToNative(address, (SimpleExpression) readRhs(), (Lin) readRhs());
+      case BRANCHTORREIL:
+        return new BranchToRReil(address, (SimpleExpression) readRhs(), (Address) readRhs());
+      case BRANCH:
+        return new Branch(address, (Lin) readRhs(), BranchTypeHint.values()[in.get()]);
+      case NOP:
+        return new Nop(address);
+      case PRIMOP: {
+        String name = readString();
+        int outArgsCount = in.getInt();
+        List<Lhs> outArgs = new ArrayList<Lhs>(outArgsCount);
+        for (int i = 0; i < outArgsCount; i++) {
+          outArgs.add(readLhs());
+        }
+        int inArgsCount = in.getInt();
+        List<Rval> inArgs = new ArrayList<Rval>(inArgsCount);
+        for (int i = 0; i < inArgsCount; i++) {
+          inArgs.add((Rval) readRhs());
+        }
+        return new PrimOp(address, name, outArgs, inArgs);
+      }
+      case NATIVE:
+        return new Native(address, readString(), (Rlit) readRhs());
+      case THROW:
+        return new Throw(address, readString());
+      case FLOP: {
+        FlopOp op = FlopOp.values()[in.get()];
+        Rvar lhs = (Rvar) readRhs();
+        int rhsCount = in.getInt();
+        List<Rvar> rhs = new ArrayList<Rvar>(rhsCount);
+        for (int i = 0; i < rhsCount; i++) {
+          rhs.add((Rvar) readRhs());
+        }
+        return new Flop(address, op, lhs, rhs, (Rvar) readRhs());
+      }
+      case ASSERTCOMPARE: {
+        Rhs lhs = readRhs();
+        AssertionOp op = AssertionOp.values()[in.get()];
+        return new AssertionCompare(address, lhs, op, readRhs(), in.getInt());
+      }
+      case ASSERTREACHABLE:
+        return new AssertionReachable(address);
+      case ASSERTUNREACHABLE:
+        return new AssertionUnreachable(address);
+      case ASSERTWARNINGS:
+        return new AssertionWarnings(address, in.getInt());
+      default:
+        throw new IllegalStateException("Invalid instruction encoding: " + tag);
+      }
+    }
+
+    private Rhs readRhs () {
+      byte tag = in.get();
+      switch (tag) {
+      case BIN: {
+        Rval left = (Rval) readRhs();
+        BinOp op = BinOp.values()[in.get()];
+        return new Bin(left, op, (Rval) readRhs());
+      }
+      case LINBIN: {
+        Lin left = (Lin) readRhs();
+        LinBinOp op = LinBinOp.values()[in.get()];
+        return new LinBin(left, op, (Lin) readRhs());
+      }
+      case LINSCALE:
+        return new LinScale((Lin) readRhs(), readBigInt());
+      case LINRVAL:
+        return new LinRval((Rval) readRhs());
+      case CMP: {
+        Lin left = (Lin) readRhs();
+        ComparisonOp op = ComparisonOp.values()[in.get()];
+        return new Cmp(left, op, (Lin) readRhs());
+      }
+      case SIGNEXTEND:
+        return new SignExtend((Rval) readRhs());
+      case CONVERT:
+        return new Convert((Rval) readRhs());
+      case RVAR: {
+        int size = in.getInt();
+        int offset = in.getInt();
+        return new Rvar(size, offset, readVariable());
+      }
+      case RLIT: {
+        int size = in.getInt();
+        return new Rlit(size, readBigInt());
+      }
+      case ADDRESS: {
+        int size = in.getInt();
+        return new Address(size, readAddress());
+      }
+      case RANGE: {
+        int size = in.getInt();
+        return new RangeRhs(size, Interval.of(readString()));
+      }
+      default:
+        throw new IllegalStateException("Invalid expression encoding: " + tag);
+      }
+    }
+
+    private RReilAddr readAddress () {
+      long base = in.getLong();
+      int offset = in.getInt();
+      return RReilAddr.valueOf(base, offset);
+    }
+
+    private Lhs readLhs () {
+      int size = in.getInt();
+      int offset = in.getInt();
+      return new Lhs(size, offset, readVariable());
+    }
+
+    private MemVar readVariable () {
+      int index = in.getInt();
+      MemVar variable = variables[index];
+      if (variable == null) {
+        variable = MemVar.getVarOrFresh(strings.get(index));
+        variables[index] = variable;
+      }
+      return variable;
+    }
+
+    public int readInt () {
+      return in.getInt();
+    }
+
+    public String readString () {
+      return strings.get(in.getInt());
+    }
+
+    private BigInt readBigInt () {
+      byte[] bytes = new byte[in.get() & 0xFF];
+      in.get(bytes);
+      return BigInt.of(new BigInteger(bytes));
+    }
+  }
+}
@@ -1,19 +1,47 @@
 package rreil.lang.util;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Utility to generate numbers to be used as IDs for a class of variables.
+ * The generator is lock-free and can be used concurrently by several threads.
  */
 public final class StampGen {
-  private int state;
+  private final AtomicInteger state;
 
   public StampGen () {
-    this.state = 0;
+    this(0);
+  }
+
+  public StampGen (int start) {
+    this.state = new AtomicInteger(start);
+  }
+
+  /**
+   * Return the last number that was handed out by this generator.
+   */
+  public int peek () {
+    return state.get();
   }
 
   public int next () {
-    state = state + 1;
-    if (state == -1)
-      throw new IllegalStateException("Stamp generator overflow occured.");
-    return state;
+    return nextBlock(1);
+  }
+
+  /**
+   * Reserve {@code size} consecutive numbers at once.
+   *
+   * @return the first number of the reserved block
+   */
+  public int nextBlock (int size) {
+    assert size > 0;
+    while (true) {
+      int current = state.get();
+      int last = current + size;
+      if (last < current)
+        throw new IllegalStateException("Stamp generator overflow occured.");
+      if (state.compareAndSet(current, last))
+        return current + 1;
+    }
   }
 }
@@ -0,0 +1,288 @@
+package rreil.lang.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rreil.lang.MemVar;
+
+/**
+ * Allocates the stamps for new variables, i.e. the {@link MemVar}s and the numeric variables of the analyzer.
+ * Each analysis uses its own factory that reserves blocks of stamps from a global generator and hands them out
+ * without locking. Thus analyses that run concurrently in the same JVM do not contend for the stamps.
+ * The stamps are still unique in the whole JVM as the domain states and their variables may outlive an analysis
+ * and be mixed with variables created outside of it, e.g. when querying the results.<br>
+ *
+ * The factory used by the static methods of the variables is the one that was entered by the current thread
+ * using {@link #enter()} or the global factory if none was entered.<br>
+ *
+ * Tasks that are evaluated in parallel use factories with stamps reserved in a fixed order, see
+ * {@link #reserve(int)}. Thus the variables they allocate, and with them the order of the variables in the resulting
+ * states, do not depend on the scheduling of the threads. The stamps that a task did not use are handed back with
+ * {@link #release()} and reused by later allocations.
+ */
+public final class VariableFactory {
+  private static final int blockSize = 1024;
+  private static final int noStamp = 0;
+  private static StampGen stamps = new StampGen();
+  private static VariableFactory global = new VariableFactory();
+  private static final ThreadLocal<VariableFactory> current = new ThreadLocal<>();
+  /**
+   * The next free stamp in the upper and the end of the reserved block in the lower half.
+   */
+  private final AtomicLong block = new AtomicLong(0);
+  /**
+   * The factory that the stamps of a reserved factory were reserved from or {@code null} if this factory reserves its
+   * stamps from the global generator.
+   */
+  private final VariableFactory parent;
+  /**
+   * The unused stamps of the reserved factories that were released, packed like the block. They are handed out one by
+   * one before the stamps of the block.
+   */
+  private final ConcurrentLinkedQueue<AtomicLong> released = new ConcurrentLinkedQueue<>();
+  private final int first;
+  private volatile boolean exhausted;
+  /**
+   * The variables created with the stamps of a reserved factory, indexed by their stamp relative to the first one.
+   * Only recorded if the task should be replayed, see {@link #recordCreated()}.
+   */
+  private Object[] created;
+
+  public VariableFactory () {
+    this.parent = null;
+    this.first = noStamp;
+  }
+
+  private VariableFactory (int first, int size, VariableFactory parent) {
+    this.parent = parent;
+    this.first = first;
+    block.set(pack(first, first + size));
+  }
+
+  /**
+   * Return the factory that is used by the current thread.
+   */
+  public static VariableFactory current () {
+    VariableFactory factory = current.get();
+    return factory != null ? factory : global;
+  }
+
+  /**
+   * Use this factory to allocate the variables created by the current thread.
+   *
+   * @return the factory that was used before and needs to be restored with {@link #leave(VariableFactory)}
+   */
+  public VariableFactory enter () {
+    VariableFactory previous = current.get();
+    current.set(this);
+    return previous;
+  }
+
+  /**
+   * Restore the factory that was used by the current thread before {@link #enter()}.
+   */
+  public static void leave (VariableFactory previous) {
+    if (previous == null)
+      current.remove();
+    else
+      current.set(previous);
+  }
+
+  /**
+   * Return a new stamp that was not handed out before.
+   */
+  public int nextStamp () {
+    return nextStamps(1);
+  }
+
+  /**
+   * Reserve the next {@code size} stamps of this factory for a new factory that hands out only these stamps.
+   * The stamps of the reserved factories depend only on the order in which they were reserved and not on the order in
+   * which the threads that use them run. A reserved factory that runs out of stamps continues with stamps from the
+   * global generator and is marked as exhausted. The variables allocated by a task with an exhausted factory are not
+   * deterministic anymore, thus the task should be evaluated again by the thread that reserved the stamps.
+   * The reserving thread should {@link #release()} the reserved factory once the task is done, in the same order in
+   * which the factories were reserved.
+   *
+   * @see #isExhausted()
+   */
+  public VariableFactory reserve (int size) {
+    assert size > 0;
+    return new VariableFactory(nextStamps(size), size, this);
+  }
+
+  /**
+   * Hand the stamps of this reserved factory that were not used back to the factory they were reserved from. This
+   * factory must not be used anymore afterwards, only the number of {@link #used()} stamps is kept.
+   *
+   * @see #reserve(int)
+   */
+  public void release () {
+    assert isReserved();
+    long range = block.get();
+    int next = (int) (range >>> 32);
+    int end = (int) range;
+    block.set(pack(next, next));
+    if (next < end)
+      parent.released.add(new AtomicLong(pack(next, end)));
+  }
+
+  /**
+   * @return The number of stamps that were handed out by this reserved factory so far.
+   */
+  public int used () {
+    assert isReserved();
+    return (int) (block.get() >>> 32) - first;
+  }
+
+  /**
+   * Record the variables that are created with the stamps of this reserved factory, such that the task can be
+   * evaluated again with {@link #replay()} and creates the very same variables. Replaying only the stamps is not
+   * enough as the variables are also compared by their identity.
+   *
+   * @return this factory
+   */
+  public VariableFactory recordCreated () {
+    assert isReserved();
+    created = new Object[(int) block.get() - first];
+    return this;
+  }
+
+  /**
+   * Must be called with each new variable that was created with a stamp of this factory. A replay that creates a
+   * different kind of variable than the recorded task marks the factory as exhausted.
+   *
+   * @return the variable that was created with the same stamp by the recorded task if this factory replays it or the
+   *         given variable otherwise
+   */
+  @SuppressWarnings("unchecked") public <V> V created (int stamp, V variable) {
+    Object[] created = this.created;
+    if (created == null || stamp < first || stamp >= first + created.length)
+      return variable;
+    Object recorded = created[stamp - first];
+    if (recorded == null) {
+      created[stamp - first] = variable;
+      return variable;
+    }
+    if (recorded.getClass() != variable.getClass()) {
+      exhausted = true;
+      return variable;
+    }
+    return (V) recorded;
+  }
+
+  /**
+   * Return a reserved factory that hands out the stamps used by this recorded and released factory again, in the
+   * same order and together with the variables that were created with them, see {@link #recordCreated()}. Used to
+   * evaluate a task again that must result in the same variables as before, e.g. to recompute a dropped state. A
+   * replaying factory that needs more stamps continues with the global generator and is marked as exhausted. It must
+   * not be released as its stamps are still used by the results of the recorded task.
+   */
+  public VariableFactory replay () {
+    assert created != null;
+    VariableFactory replaying = new VariableFactory(first, used(), parent);
+    replaying.created = created;
+    return replaying;
+  }
+
+  /**
+   * @return {@code true} if this factory is a reserved one that ran out of its stamps or that was asked to register a
+   *         variable name
+   * @see #reserve(int)
+   * @see #mayRegisterNames()
+   */
+  public boolean isExhausted () {
+    return exhausted;
+  }
+
+  /**
+   * @return {@code true} if this factory hands out only the stamps that were reserved for it
+   * @see #reserve(int)
+   */
+  public boolean isReserved () {
+    return parent != null;
+  }
+
+  /**
+   * Check if the current thread may register a new variable under its name. The stamp of a variable that is looked up
+   * by its name must not depend on which of the tasks that run in parallel registers it first. Thus a thread that uses
+   * a reserved factory must not register names and its factory is marked as exhausted instead, such that the task is
+   * evaluated again by the thread that reserved the stamps.
+   *
+   * @return {@code true} if the name can be registered or {@code false} if the variable must not be registered
+   */
+  public static boolean mayRegisterNames () {
+    VariableFactory factory = current();
+    if (!factory.isReserved())
+      return true;
+    factory.exhausted = true;
+    return false;
+  }
+
+  private int nextStamps (int count) {
+    if (count == 1 && !released.isEmpty()) {
+      int stamp = nextReleasedStamp();
+      if (stamp != noStamp)
+        return stamp;
+    }
+    while (true) {
+      int stamp = nextStamps(block, count);
+      if (stamp != noStamp)
+        return stamp;
+      if (parent != null) {
+        // the stamps of the parent must only be handed out in the order of the reservations
+        exhausted = true;
+        return global.nextStamps(count);
+      }
+      long range = block.get();
+      if ((int) range - (int) (range >>> 32) >= count)
+        continue; // another thread refilled the block in the meantime
+      int size = Math.max(blockSize, count);
+      int first = stamps.nextBlock(size);
+      // if another thread refilled the block in the meantime the stamps reserved here are just not used
+      if (block.compareAndSet(range, pack(first + count, first + size)))
+        return first;
+    }
+  }
+
+  private int nextReleasedStamp () {
+    AtomicLong range;
+    while ((range = released.peek()) != null) {
+      int stamp = nextStamps(range, 1);
+      if (stamp != noStamp)
+        return stamp;
+      released.remove(range);
+    }
+    return noStamp;
+  }
+
+  /**
+   * Hand out the stamps from the given range.
+   *
+   * @return The first of the stamps or {@code noStamp} if there are not enough stamps left in the range.
+   */
+  private static int nextStamps (AtomicLong range, int count) {
+    while (true) {
+      long current = range.get();
+      int next = (int) (current >>> 32);
+      int end = (int) current;
+      if (end - next < count)
+        return noStamp;
+      if (range.compareAndSet(current, pack(next + count, end)))
+        return next;
+    }
+  }
+
+  private static long pack (int next, int end) {
+    return (long) next << 32 | end & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Reset the stamps generator. Existing factories must not be used anymore afterwards.
+   * Use with care!
+   */
+  public static void reset () {
+    stamps = new StampGen();
+    global = new VariableFactory();
+  }
+}